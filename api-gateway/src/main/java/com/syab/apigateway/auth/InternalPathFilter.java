@@ -0,0 +1,67 @@
+package com.syab.apigateway.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps endpoints meant for the services themselves or for operators off the public routes, although they live
+ * under routed prefixes: requests for {@code gateway.internal-paths} are answered 404 before authentication, so
+ * no token opens them. Callers that need them reach the service directly. Patterns are matched against the path
+ * as the services will route it: percent-decoded, without matrix parameters ({@code ;x}), empty or {@code .}
+ * segments and with {@code ..} applied, so an encoded or decorated variant is refused too.
+ */
+@Component
+public class InternalPathFilter implements GlobalFilter, Ordered {
+    private final List<String> internalPaths;
+    private final AntPathMatcher matcher = new AntPathMatcher();
+
+    public InternalPathFilter(@Value("${gateway.internal-paths:/api/versions/events,/api/documents/export,/api/documents/import,"
+            + "/api/versions/export,/api/versions/import}") List<String> internalPaths) {
+        this.internalPaths = internalPaths;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String path = routedPath(exchange.getRequest().getPath());
+        for (String pattern : internalPaths) {
+            if (matcher.match(pattern.trim(), path)) {
+                exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+                return exchange.getResponse().setComplete();
+            }
+        }
+        return chain.filter(exchange);
+    }
+
+    static String routedPath(RequestPath requestPath) {
+        Deque<String> segments = new ArrayDeque<>();
+        for (PathContainer.Element element : requestPath.pathWithinApplication().elements()) {
+            if (!(element instanceof PathContainer.PathSegment segment)) continue;
+            String value = segment.valueToMatch();
+            if (value.isEmpty() || value.equals(".")) continue;
+            if (value.equals("..")) {
+                segments.pollLast();
+            } else {
+                segments.addLast(value);
+            }
+        }
+        return "/" + String.join("/", segments);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 50;
+    }
+}
@@ -0,0 +1,185 @@
+package com.syab.apigateway.auth;
+
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Authenticates every routed request at the edge, so the services behind the gateway do not each verify tokens.
+ * The access token comes from the {@code Authorization: Bearer} header, or, for WebSocket upgrades and the paths
+ * in {@code gateway.auth.query-token-paths} such as the SSE stream (browsers cannot set headers on either), from
+ * the {@code access_token} query parameter, which is removed before the request is forwarded. Its claims are verified once and then served from {@link VerifiedClaimsCache}.
+ *
+ * The user id from the token is forwarded as {@code X-User-Id} (and the username as {@code X-User-Name});
+ * the same headers sent by a client are always dropped, so downstream services can trust them. A request any of
+ * whose {@code userId} query parameters names a different user is refused with 403, and so is one matching a pattern
+ * in {@code gateway.auth.owned-paths} (optionally prefixed by a method, as in {@code PUT /api/users/{userId}})
+ * whose {@code userId} path variable names a different user. Paths in {@code gateway.auth.public-paths} and
+ * CORS preflights pass without a token.
+ */
+@Component
+public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
+    public static final String USER_ID_HEADER = "X-User-Id";
+    public static final String USERNAME_HEADER = "X-User-Name";
+    public static final String ACCESS_TOKEN_PARAM = "access_token";
+    private static final String BEARER = "Bearer ";
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
+    private final JwtVerifier verifier;
+    private final VerifiedClaimsCache cache;
+    private final List<String> publicPaths;
+    private final List<String> ownedPaths;
+    private final List<String> queryTokenPaths;
+    private final AntPathMatcher matcher = new AntPathMatcher();
+
+    public JwtAuthenticationFilter(JwtVerifier verifier, VerifiedClaimsCache cache,
+                                   @Value("${gateway.auth.public-paths:/api/users/register,/api/users/authenticate,"
+                                           + "/api/users/refresh,/api/users/logout,/actuator/**}")
+                                   List<String> publicPaths,
+                                   @Value("${gateway.auth.owned-paths:PUT /api/users/{userId},"
+                                           + "/api/documents/user/{userId},/api/documents/shared/{userId}}")
+                                   List<String> ownedPaths,
+                                   @Value("${gateway.auth.query-token-paths:GET /api/documents/*/stream}")
+                                   List<String> queryTokenPaths) {
+        this.verifier = verifier;
+        this.cache = cache;
+        this.publicPaths = publicPaths;
+        this.ownedPaths = ownedPaths;
+        this.queryTokenPaths = queryTokenPaths;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        // matched as the services will route it, so ;params, encoding or dot segments cannot dodge a pattern
+        String path = InternalPathFilter.routedPath(request.getPath());
+        if (request.getMethod() == HttpMethod.OPTIONS || isPublic(path)) {
+            return chain.filter(exchange.mutate().request(r -> r.headers(this::removeIdentity)).build());
+        }
+        String token = bearerToken(request);
+        if (token == null && acceptsQueryToken(request, path)) token = request.getQueryParams().getFirst(ACCESS_TOKEN_PARAM);
+        if (token == null || token.isBlank()) {
+            return reject(exchange, HttpStatus.UNAUTHORIZED);
+        }
+        VerifiedClaims claims = claims(token);
+        if (claims == null) {
+            return reject(exchange, HttpStatus.UNAUTHORIZED);
+        }
+        // the query and the path are checked separately: either may be the one the service acts on
+        String subject = claims.userId().toString();
+        List<String> claimedUserIds = new ArrayList<>(request.getQueryParams().getOrDefault("userId", List.of()));
+        String pathUserId = pathUserId(request, path);
+        if (pathUserId != null) claimedUserIds.add(pathUserId);
+        for (String claimedUserId : claimedUserIds) {
+            if (!subject.equals(claimedUserId)) {
+                log.debug("Rejected {} {}: userId {} does not match token of user {}",
+                        request.getMethod(), request.getPath(), claimedUserId, claims.userId());
+                return reject(exchange, HttpStatus.FORBIDDEN);
+            }
+        }
+
+        URI uri = request.getURI();
+        if (request.getQueryParams().containsKey(ACCESS_TOKEN_PARAM)) {
+            uri = UriComponentsBuilder.fromUri(uri).replaceQueryParam(ACCESS_TOKEN_PARAM).build(true).toUri();
+        }
+        URI forwarded = uri;
+        return chain.filter(exchange.mutate().request(r -> r.uri(forwarded).headers(headers -> {
+            removeIdentity(headers);
+            headers.set(USER_ID_HEADER, claims.userId().toString());
+            if (claims.username() != null) headers.set(USERNAME_HEADER, claims.username());
+        })).build());
+    }
+
+    @Override
+    public int getOrder() {
+        // before the request URL is resolved for the route, so the rewritten URI is the one forwarded
+        return Ordered.HIGHEST_PRECEDENCE + 100;
+    }
+
+    private VerifiedClaims claims(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedClaims claims = cache.get(token, now);
+        if (claims != null) return claims;
+        try {
+            claims = verifier.verify(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected token: {}", e.getMessage());
+            return null;
+        }
+        cache.put(token, claims, now);
+        return claims;
+    }
+
+    private boolean isPublic(String path) {
+        for (String pattern : publicPaths) {
+            if (matcher.match(pattern, path)) return true;
+        }
+        return false;
+    }
+
+    private boolean acceptsQueryToken(ServerHttpRequest request, String path) {
+        if ("websocket".equalsIgnoreCase(request.getHeaders().getUpgrade())) return true;
+        for (String entry : queryTokenPaths) {
+            if (matchingPattern(entry, request, path) != null) return true;
+        }
+        return false;
+    }
+
+    // the userId path variable of the first owned-path pattern the request matches
+    private String pathUserId(ServerHttpRequest request, String path) {
+        for (String owned : ownedPaths) {
+            String pattern = matchingPattern(owned, request, path);
+            if (pattern != null) {
+                return matcher.extractUriTemplateVariables(pattern, path).get("userId");
+            }
+        }
+        return null;
+    }
+
+    // the path pattern of an entry like "PUT /api/users/{userId}" (method optional) if the request matches it
+    private String matchingPattern(String entry, ServerHttpRequest request, String path) {
+        String pattern = entry.trim();
+        int space = pattern.indexOf(' ');
+        if (space > 0) {
+            if (!pattern.substring(0, space).equalsIgnoreCase(request.getMethod().name())) return null;
+            pattern = pattern.substring(space + 1).trim();
+        }
+        return matcher.match(pattern, path) ? pattern : null;
+    }
+
+    private String bearerToken(ServerHttpRequest request) {
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) return null;
+        return authorization.substring(BEARER.length()).trim();
+    }
+
+    private void removeIdentity(HttpHeaders headers) {
+        headers.remove(USER_ID_HEADER);
+        headers.remove(USERNAME_HEADER);
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status) {
+        exchange.getResponse().setStatusCode(status);
+        if (status == HttpStatus.UNAUTHORIZED) {
+            exchange.getResponse().getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+        }
+        return exchange.getResponse().setComplete();
+    }
+}
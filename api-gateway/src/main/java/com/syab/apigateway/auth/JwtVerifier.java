@@ -0,0 +1,37 @@
+package com.syab.apigateway.auth;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Verifies the HS256 access tokens issued by the user management service, with the secret it signs them with
+ * ({@code jwt.secret}). Only signed tokens are accepted, and a token without an expiry or a userId claim is
+ * rejected like a forged one.
+ */
+@Component
+public class JwtVerifier {
+    private final JwtParser parser;
+
+    public JwtVerifier(@Value("${jwt.secret}") String secret) {
+        this.parser = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(secret.getBytes()))
+                .build();
+    }
+
+    /**
+     * Checks the signature and expiry of {@code token}; throws {@link JwtException} if either is not valid.
+     */
+    public VerifiedClaims verify(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        Long userId = claims.get("userId", Long.class);
+        if (userId == null || claims.getExpiration() == null) {
+            throw new JwtException("Token has no userId or expiry");
+        }
+        return new VerifiedClaims(userId, claims.getSubject(), claims.getExpiration().getTime());
+    }
+}
@@ -0,0 +1,11 @@
+package com.syab.apigateway.auth;
+
+/**
+ * What the gateway takes from a verified access token: the user it was issued to and when it expires.
+ */
+public record VerifiedClaims(Long userId, String username, long expiresAtMillis) {
+
+    public boolean expired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
@@ -0,0 +1,62 @@
+package com.syab.apigateway.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Claims of tokens that have already been verified, so a client's requests after its first one cost a SHA-256
+ * of the token and a map lookup instead of a signature check and JSON parse. Entries are keyed by the token's
+ * hash, so the tokens themselves are not kept, and live until the token expires. The cache holds at most
+ * {@code gateway.auth.claims-cache.max-entries} tokens; when it is full, expired entries are dropped, and if
+ * that frees nothing, new tokens are verified on every request until some expire.
+ */
+@Component
+public class VerifiedClaimsCache {
+    private final ConcurrentHashMap<String, VerifiedClaims> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    public VerifiedClaimsCache(@Value("${gateway.auth.claims-cache.max-entries:100000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Claims of {@code token} if it was verified before and has not expired since.
+     */
+    public VerifiedClaims get(String token, long nowMillis) {
+        String key = hash(token);
+        VerifiedClaims claims = entries.get(key);
+        if (claims == null) return null;
+        if (claims.expired(nowMillis)) {
+            entries.remove(key, claims);
+            return null;
+        }
+        return claims;
+    }
+
+    public void put(String token, VerifiedClaims claims, long nowMillis) {
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(entry -> entry.expired(nowMillis));
+            if (entries.size() >= maxEntries) return;
+        }
+        entries.put(hash(token), claims);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
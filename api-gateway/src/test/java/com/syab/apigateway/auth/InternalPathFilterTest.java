@@ -0,0 +1,57 @@
+package com.syab.apigateway.auth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InternalPathFilterTest {
+
+    @Test
+    void testInternalPathsAreNotForwarded() {
+        InternalPathFilter filter = new InternalPathFilter(List.of("/api/versions/events"));
+        AtomicInteger forwarded = new AtomicInteger();
+
+        MockServerWebExchange events = MockServerWebExchange.from(MockServerHttpRequest.post("/api/versions/events"));
+        filter.filter(events, exchange -> {
+            forwarded.incrementAndGet();
+            return Mono.empty();
+        }).block();
+        assertEquals(HttpStatus.NOT_FOUND, events.getResponse().getStatusCode());
+        assertEquals(0, forwarded.get());
+
+        MockServerWebExchange history = MockServerWebExchange.from(MockServerHttpRequest.get("/api/versions/1/history"));
+        filter.filter(history, exchange -> {
+            forwarded.incrementAndGet();
+            return Mono.empty();
+        }).block();
+        assertNull(history.getResponse().getStatusCode());
+        assertEquals(1, forwarded.get());
+    }
+
+    @Test
+    void testEncodedAndDecoratedVariantsAreNotForwarded() {
+        InternalPathFilter filter = new InternalPathFilter(List.of("/api/versions/events"));
+        AtomicInteger forwarded = new AtomicInteger();
+
+        for (String path : List.of("/api/versions/events;x", "/api/versions;a=b/events", "/api/versions/%65vents",
+                "/api//versions/events", "/api/versions/./events", "/api/x/../versions/events")) {
+            // a URI, so the path is taken as it is instead of being encoded like a template
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.method(HttpMethod.POST, URI.create(path)));
+            filter.filter(exchange, e -> {
+                forwarded.incrementAndGet();
+                return Mono.empty();
+            }).block();
+            assertEquals(HttpStatus.NOT_FOUND, exchange.getResponse().getStatusCode(), path);
+        }
+        assertEquals(0, forwarded.get());
+    }
+}
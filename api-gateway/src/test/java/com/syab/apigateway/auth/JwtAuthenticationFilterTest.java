@@ -0,0 +1,159 @@
+package com.syab.apigateway.auth;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+    private static final String SECRET = "test-secret-key-that-is-long-enough-for-hs256";
+
+    private JwtVerifier verifier;
+    private VerifiedClaimsCache cache;
+    private JwtAuthenticationFilter filter;
+    private final AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.set(exchange);
+        return Mono.empty();
+    };
+
+    @BeforeEach
+    void setUp() {
+        verifier = spy(new JwtVerifier(SECRET));
+        cache = new VerifiedClaimsCache(100);
+        filter = new JwtAuthenticationFilter(verifier, cache, List.of("/api/users/register", "/api/users/authenticate"),
+                List.of("PUT /api/users/{userId}", "/api/documents/user/{userId}"), List.of("GET /api/documents/*/stream"));
+    }
+
+    @Test
+    void testVerifiedTokenIsForwardedAsTrustedUserAndVerifiedOnce() {
+        String token = token(SECRET, 7L, 60_000);
+
+        for (int i = 0; i < 3; i++) {
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/documents/1")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                    .header(JwtAuthenticationFilter.USER_ID_HEADER, "99"));
+            filter.filter(exchange, chain).block();
+
+            assertNull(exchange.getResponse().getStatusCode());
+            HttpHeaders headers = forwarded.get().getRequest().getHeaders();
+            assertEquals(List.of("7"), headers.get(JwtAuthenticationFilter.USER_ID_HEADER));
+            assertEquals("user7", headers.getFirst(JwtAuthenticationFilter.USERNAME_HEADER));
+        }
+        verify(verifier, times(1)).verify(token);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testMissingForgedExpiredAndMismatchedTokensAreRejected() {
+        assertEquals(HttpStatus.UNAUTHORIZED, statusOf(MockServerHttpRequest.get("/api/versions/1/history")));
+        assertEquals(HttpStatus.UNAUTHORIZED, statusOf(MockServerHttpRequest.get("/api/versions/1/history")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token("another-secret-key-that-is-long-enough-too", 7L, 60_000))));
+        assertEquals(HttpStatus.UNAUTHORIZED, statusOf(MockServerHttpRequest.get("/api/versions/1/history")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token(SECRET, 7L, -1_000))));
+        assertEquals(HttpStatus.FORBIDDEN, statusOf(MockServerHttpRequest.put("/api/documents/1/edit?userId=8")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token(SECRET, 7L, 60_000))));
+        // only the genuine token was cached; the 403 is about the request, not the token
+        assertEquals(1, cache.size());
+
+        // public paths need no token, but cannot smuggle in an identity either
+        MockServerWebExchange login = MockServerWebExchange.from(MockServerHttpRequest.post("/api/users/authenticate")
+                .header(JwtAuthenticationFilter.USER_ID_HEADER, "1"));
+        filter.filter(login, chain).block();
+        assertNull(login.getResponse().getStatusCode());
+        assertNull(forwarded.get().getRequest().getHeaders().getFirst(JwtAuthenticationFilter.USER_ID_HEADER));
+    }
+
+    @Test
+    void testUserIdsInOwnedPathsMustBeTheCallers() {
+        String bearer = "Bearer " + token(SECRET, 7L, 60_000);
+
+        assertEquals(HttpStatus.FORBIDDEN, statusOf(MockServerHttpRequest.put("/api/users/8")
+                .header(HttpHeaders.AUTHORIZATION, bearer)));
+        assertEquals(HttpStatus.FORBIDDEN, statusOf(MockServerHttpRequest.get("/api/documents/user/8")
+                .header(HttpHeaders.AUTHORIZATION, bearer)));
+        assertNull(statusOf(MockServerHttpRequest.put("/api/users/7").header(HttpHeaders.AUTHORIZATION, bearer)));
+        // a matching query userId does not stand in for the path's, nor a second query value for the first
+        assertEquals(HttpStatus.FORBIDDEN, statusOf(MockServerHttpRequest.put("/api/users/8?userId=7")
+                .header(HttpHeaders.AUTHORIZATION, bearer)));
+        assertEquals(HttpStatus.FORBIDDEN, statusOf(MockServerHttpRequest.put("/api/users/7?userId=8")
+                .header(HttpHeaders.AUTHORIZATION, bearer)));
+        assertEquals(HttpStatus.FORBIDDEN, statusOf(MockServerHttpRequest.put("/api/documents/1/edit?userId=7&userId=8")
+                .header(HttpHeaders.AUTHORIZATION, bearer)));
+        // decorated variants of an owned path are checked like the path itself
+        assertEquals(HttpStatus.FORBIDDEN, statusOf(MockServerHttpRequest.method(HttpMethod.PUT, URI.create("/api/users/8;x"))
+                .header(HttpHeaders.AUTHORIZATION, bearer)));
+        assertEquals(HttpStatus.FORBIDDEN, statusOf(MockServerHttpRequest.method(HttpMethod.PUT, URI.create("/api/users/%38"))
+                .header(HttpHeaders.AUTHORIZATION, bearer)));
+        // and a path that only looks public is not
+        assertEquals(HttpStatus.UNAUTHORIZED, statusOf(MockServerHttpRequest.method(HttpMethod.PUT,
+                URI.create("/api/users/authenticate/../8"))));
+        // other users' profiles can still be read
+        assertNull(statusOf(MockServerHttpRequest.get("/api/users/8").header(HttpHeaders.AUTHORIZATION, bearer)));
+    }
+
+    @Test
+    void testWebSocketUpgradeIsAuthenticatedFromQueryParameter() {
+        String token = token(SECRET, 7L, 60_000);
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/ws/documents?documentId=1&userId=7&access_token=" + token)
+                        .header(HttpHeaders.UPGRADE, "websocket"));
+
+        filter.filter(exchange, chain).block();
+
+        assertNull(exchange.getResponse().getStatusCode());
+        var request = forwarded.get().getRequest();
+        assertEquals("7", request.getHeaders().getFirst(JwtAuthenticationFilter.USER_ID_HEADER));
+        assertEquals("documentId=1&userId=7", request.getURI().getRawQuery());
+
+        // the query parameter is only taken for upgrades and the listed paths
+        assertEquals(HttpStatus.UNAUTHORIZED,
+                statusOf(MockServerHttpRequest.get("/api/documents/1?access_token=" + token)));
+    }
+
+    @Test
+    void testEventStreamIsAuthenticatedFromQueryParameter() {
+        String token = token(SECRET, 7L, 60_000);
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/api/documents/1/stream?userId=7&access_token=" + token));
+
+        filter.filter(exchange, chain).block();
+
+        assertNull(exchange.getResponse().getStatusCode());
+        var request = forwarded.get().getRequest();
+        assertEquals("7", request.getHeaders().getFirst(JwtAuthenticationFilter.USER_ID_HEADER));
+        assertEquals("userId=7", request.getURI().getRawQuery());
+    }
+
+    private HttpStatus statusOf(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, chain).block();
+        return (HttpStatus) exchange.getResponse().getStatusCode();
+    }
+
+    private static String token(String secret, Long userId, long validForMs) {
+        return Jwts.builder()
+                .subject("user" + userId)
+                .claim("userId", userId)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + validForMs))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes()))
+                .compact();
+    }
+}
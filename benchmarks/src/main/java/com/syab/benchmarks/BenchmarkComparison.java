@@ -0,0 +1,72 @@
+package com.syab.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON result files ({@code -rf json}) and fails when a benchmark got slower.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.syab.benchmarks.BenchmarkComparison baseline.json current.json [thresholdPercent]
+ * </pre>
+ * All benchmarks in this module report time per operation, so a higher score is a regression.
+ * A change only counts when it exceeds the threshold (default 10%) and both scores' error bars do not overlap.
+ * Exits with status 1 if any benchmark regressed.
+ */
+public class BenchmarkComparison {
+
+    record Result(double score, double error, String unit) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BenchmarkComparison <baseline.json> <current.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) / 100.0 : 0.10;
+        Map<String, Result> baseline = load(new File(args[0]));
+        Map<String, Result> current = load(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-80s %12.3f %s  (new)%n", entry.getKey(), after.score(), after.unit());
+                continue;
+            }
+            double change = (after.score() - before.score()) / before.score();
+            boolean significant = Math.abs(after.score() - before.score()) > before.error() + after.error();
+            String verdict = "";
+            if (significant && change > threshold) {
+                verdict = "REGRESSION";
+                regressions++;
+            } else if (significant && change < -threshold) {
+                verdict = "improved";
+            }
+            System.out.printf("%-80s %12.3f -> %12.3f %s  %+7.1f%%  %s%n",
+                    entry.getKey(), before.score(), after.score(), after.unit(), change * 100, verdict);
+        }
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.0f%%%n", regressions, threshold * 100);
+            System.exit(1);
+        }
+    }
+
+    static Map<String, Result> load(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            run.path("params").fields().forEachRemaining(p -> key.append(' ').append(p.getKey()).append('=').append(p.getValue().asText()));
+            JsonNode metric = run.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            results.put(key.toString(), new Result(metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.path("scoreUnit").asText()));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,53 @@
+package com.syab.benchmarks;
+
+import com.syab.documentediting.dto.DocumentDTO;
+import com.syab.documentediting.dto.EditDocumentRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code DocumentService.editDocument} end to end against in-memory repositories with no subscribers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EditDocumentBenchmark {
+    @Param({"1024", "65536"})
+    public int contentLength;
+
+    private ServiceFixtures fixtures;
+    private EditDocumentRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String content = ServiceFixtures.text(contentLength);
+        fixtures = new ServiceFixtures(content);
+        request = new EditDocumentRequest(content + "!", "UPDATE");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixtures.close();
+    }
+
+    @Benchmark
+    public DocumentDTO editDocument() {
+        return fixtures.documentService.editDocument(ServiceFixtures.DOCUMENT_ID, 1L, request);
+    }
+}
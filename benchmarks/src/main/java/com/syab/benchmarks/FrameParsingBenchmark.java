@@ -0,0 +1,49 @@
+package com.syab.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syab.documentediting.ws.EditFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The parse step of {@code DocumentWebSocketHandler.handleTextMessage}: JSON to map, then to an {@link EditFrame}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameParsingBenchmark {
+    @Param({"64", "4096", "65536"})
+    public int contentLength;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String frame;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        frame = objectMapper.writeValueAsString(Map.of("documentId", 1, "userId", 7,
+                "content", ServiceFixtures.text(contentLength), "operationType", "UPDATE"));
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public EditFrame parseFrame() throws Exception {
+        Map<String, Object> payload = objectMapper.readValue(frame, Map.class);
+        return EditFrame.from(payload);
+    }
+}
@@ -0,0 +1,62 @@
+package com.syab.benchmarks;
+
+import com.syab.documentediting.model.Document;
+import com.syab.documentediting.model.DocumentChange;
+import com.syab.documentediting.repository.DocumentChangeRepository;
+import com.syab.documentediting.repository.DocumentRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Map-backed stand-ins for the JPA repositories, so service benchmarks measure the service code and not a database.
+ * Only the methods the editing path calls are implemented; anything else throws.
+ */
+final class InMemoryRepositories {
+    private InMemoryRepositories() {
+    }
+
+    static DocumentRepository documents(Map<Long, Document> store) {
+        AtomicLong ids = new AtomicLong(store.keySet().stream().mapToLong(Long::longValue).max().orElse(0));
+        return (DocumentRepository) Proxy.newProxyInstance(DocumentRepository.class.getClassLoader(),
+                new Class<?>[]{DocumentRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Optional.ofNullable(store.get((Long) args[0]));
+                    case "save" -> {
+                        Document document = (Document) args[0];
+                        if (document.getId() == null) document.setId(ids.incrementAndGet());
+                        store.put(document.getId(), document);
+                        yield document;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryDocumentRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    static DocumentChangeRepository changes(boolean retain) {
+        AtomicLong ids = new AtomicLong();
+        Map<Long, List<DocumentChange>> byDocument = new ConcurrentHashMap<>();
+        return (DocumentChangeRepository) Proxy.newProxyInstance(DocumentChangeRepository.class.getClassLoader(),
+                new Class<?>[]{DocumentChangeRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        DocumentChange change = (DocumentChange) args[0];
+                        change.setId(ids.incrementAndGet());
+                        if (retain) {
+                            byDocument.computeIfAbsent(change.getDocumentId(), k -> new ArrayList<>()).add(change);
+                        }
+                        yield change;
+                    }
+                    case "findByDocumentId" -> byDocument.getOrDefault((Long) args[0], List.of());
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryDocumentChangeRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,65 @@
+package com.syab.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syab.documentediting.dto.DocumentChangeDTO;
+import com.syab.documentediting.dto.DocumentDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity-to-DTO conversion (through {@code getDocument}) and JSON encoding of the
+ * {"document", "change"} payload that is broadcast for every edit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadEncodingBenchmark {
+    @Param({"1024", "65536", "1048576"})
+    public int contentLength;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ServiceFixtures fixtures;
+    private Map<String, Object> payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String content = ServiceFixtures.text(contentLength);
+        fixtures = new ServiceFixtures(content);
+        DocumentDTO document = fixtures.documentService.getDocument(ServiceFixtures.DOCUMENT_ID);
+        payload = Map.of("document", document,
+                "change", new DocumentChangeDTO(42L, ServiceFixtures.DOCUMENT_ID, 1L, content, "UPDATE"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixtures.close();
+    }
+
+    @Benchmark
+    public DocumentDTO convertToDTO() {
+        return fixtures.documentService.getDocument(ServiceFixtures.DOCUMENT_ID);
+    }
+
+    @Benchmark
+    public String encodeBroadcastPayload() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(payload);
+    }
+}
@@ -0,0 +1,57 @@
+package com.syab.benchmarks;
+
+import com.syab.documentediting.service.PresenceRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subscribe/unsubscribe on a document that already has N subscribers.
+ * {@code newUser} makes presence change (the online-user snapshot is rebuilt),
+ * {@code existingUser} adds another tab for a user who is already online.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PresenceBenchmark {
+    @Param({"10", "1000", "10000"})
+    public int subscribers;
+
+    private PresenceRegistry<Object> registry;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = new PresenceRegistry<>();
+        for (int i = 0; i < subscribers; i++) {
+            registry.add(1L, new Object(), (long) i);
+        }
+    }
+
+    @Benchmark
+    public boolean addRemoveNewUser() {
+        Object subscriber = new Object();
+        registry.add(1L, subscriber, -1L);
+        return registry.remove(1L, subscriber, -1L);
+    }
+
+    @Benchmark
+    public boolean addRemoveExistingUser() {
+        Object subscriber = new Object();
+        registry.add(1L, subscriber, 0L);
+        return registry.remove(1L, subscriber, 0L);
+    }
+}
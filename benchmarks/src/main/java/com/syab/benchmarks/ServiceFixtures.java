@@ -0,0 +1,52 @@
+package com.syab.benchmarks;
+
+import com.syab.documentediting.archive.ChangeArchive;
+import com.syab.documentediting.blame.AuthorshipTracker;
+import com.syab.documentediting.heartbeat.ConnectionReaper;
+import com.syab.documentediting.journal.EditJournal;
+import com.syab.documentediting.metrics.EditingMetrics;
+import com.syab.documentediting.model.Document;
+import com.syab.documentediting.outbox.EditOutbox;
+import com.syab.documentediting.service.DocumentService;
+import com.syab.documentediting.workingset.WorkingSet;
+import com.syab.documentediting.ws.EditPipelineLoad;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds a {@link DocumentService} wired the same way Spring wires it, on top of {@link InMemoryRepositories}.
+ */
+final class ServiceFixtures {
+    static final long DOCUMENT_ID = 1L;
+
+    final ConnectionReaper connectionReaper = new ConnectionReaper(500, 15_000, 45_000, 512, 1);
+    final DocumentService documentService;
+
+    ServiceFixtures(String initialContent) {
+        Map<Long, Document> store = new ConcurrentHashMap<>();
+        store.put(DOCUMENT_ID, new Document(DOCUMENT_ID, "Benchmark", initialContent, 1L,
+                LocalDateTime.now(), LocalDateTime.now(), true));
+        EditingMetrics metrics = new EditingMetrics(new SimpleMeterRegistry(),
+                new EditPipelineLoad(32, 50, 0.1), connectionReaper);
+        documentService = new DocumentService(InMemoryRepositories.documents(store),
+                InMemoryRepositories.changes(false), connectionReaper, metrics, new ChangeArchive("target/no-archive"),
+                new EditJournal(null, false, "target/no-journal", 64, "never", 50), new WorkingSet(1_800_000L, 10_000),
+                new EditOutbox(null, null, false), new AuthorshipTracker(null, null, null, null, 1_800_000L));
+    }
+
+    void close() {
+        connectionReaper.shutdown();
+    }
+
+    static String text(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        String words = "the quick brown fox jumps over the lazy dog\n";
+        while (sb.length() < length) {
+            sb.append(words, 0, Math.min(words.length(), length - sb.length()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package com.syab.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A one-character insert in the middle of a document of 1 KB, 1 MB and 10 MB.
+ * {@code fullReplace} is what every edit costs today (the client sends the whole body and the server
+ * stores a new string); {@code locateChange} is the common prefix/suffix scan needed to turn two bodies
+ * back into an edit; {@code spliceInPlace} is the cost of an edit applied to a mutable buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TextBufferBenchmark {
+    @Param({"1024", "1048576", "10485760"})
+    public int documentLength;
+
+    private String document;
+    private String edited;
+    private StringBuilder buffer;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        document = ServiceFixtures.text(documentLength);
+        position = documentLength / 2;
+        edited = document.substring(0, position) + "x" + document.substring(position);
+        buffer = new StringBuilder(document);
+    }
+
+    @Benchmark
+    public String fullReplace() {
+        return new StringBuilder(document.length() + 1)
+                .append(document, 0, position).append('x').append(document, position, document.length())
+                .toString();
+    }
+
+    @Benchmark
+    public int locateChange() {
+        int prefix = 0;
+        int max = Math.min(document.length(), edited.length());
+        while (prefix < max && document.charAt(prefix) == edited.charAt(prefix)) prefix++;
+        int suffix = 0;
+        while (suffix < max - prefix
+                && document.charAt(document.length() - 1 - suffix) == edited.charAt(edited.length() - 1 - suffix)) suffix++;
+        return prefix + suffix;
+    }
+
+    @Benchmark
+    public int spliceInPlace() {
+        buffer.insert(position, 'x');
+        buffer.deleteCharAt(position);
+        return buffer.length();
+    }
+}
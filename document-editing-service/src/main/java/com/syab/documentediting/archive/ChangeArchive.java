@@ -0,0 +1,114 @@
+package com.syab.documentediting.archive;
+
+import com.syab.documentediting.model.DocumentChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Document changes that were moved out of PostgreSQL into segment files, one per archived monthly partition.
+ * Segments are opened once (at startup, or when {@link ChangePartitionMaintenance} adds one) and kept mapped.
+ */
+@Component
+public class ChangeArchive {
+    private static final Logger log = LoggerFactory.getLogger(ChangeArchive.class);
+
+    private final Path directory;
+    // ordered by segment name, which is the partition month, so by change id as well; replaced, never mutated
+    private volatile List<ChangeSegmentReader> segments = List.of();
+
+    public ChangeArchive(@Value("${editing.archive.directory:data/change-archive}") String directory) {
+        this.directory = Paths.get(directory);
+        if (!Files.isDirectory(this.directory)) return;
+        List<ChangeSegmentReader> opened = new ArrayList<>();
+        try (Stream<Path> files = Files.list(this.directory)) {
+            files.filter(f -> f.getFileName().toString().endsWith(ChangeSegmentFormat.EXTENSION))
+                    .sorted()
+                    .forEach(f -> open(f, opened));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list change archive " + directory, e);
+        }
+        segments = List.copyOf(opened);
+        log.info("Change archive {}: {} segment(s)", this.directory.toAbsolutePath(), segments.size());
+    }
+
+    private static void open(Path file, List<ChangeSegmentReader> opened) {
+        try {
+            opened.add(new ChangeSegmentReader(file));
+        } catch (IOException e) {
+            // a damaged segment must not take the service down; its partition is gone, so report loudly
+            log.error("Skipping unreadable change segment {}", file, e);
+        }
+    }
+
+    /**
+     * Archived changes of a document, oldest first.
+     */
+    public List<DocumentChange> findByDocumentId(Long documentId) {
+        List<ChangeSegmentReader> current = segments;
+        if (current.isEmpty()) return List.of();
+        List<DocumentChange> changes = new ArrayList<>();
+        for (ChangeSegmentReader segment : current) {
+            changes.addAll(segment.findByDocumentId(documentId));
+        }
+        return changes;
+    }
+
+    /**
+     * Passes the archived changes of a document to {@code action}, oldest first, reading one segment at a time.
+     */
+    public void forEachByDocumentId(Long documentId, Consumer<DocumentChange> action) {
+        for (ChangeSegmentReader segment : segments) {
+            segment.findByDocumentId(documentId).forEach(action);
+        }
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    Path segmentPath(String partition) {
+        return directory.resolve(partition + ChangeSegmentFormat.EXTENSION);
+    }
+
+    ChangeSegmentWriter newSegment(String partition) throws IOException {
+        Files.createDirectories(directory);
+        return new ChangeSegmentWriter(segmentPath(partition));
+    }
+
+    /**
+     * Opens a freshly written segment and verifies it holds the expected number of rows.
+     */
+    ChangeSegmentReader verify(Path file, long expectedRows) throws IOException {
+        ChangeSegmentReader reader = new ChangeSegmentReader(file);
+        if (reader.rowCount() != expectedRows) {
+            throw new IOException("Segment " + file + " holds " + reader.rowCount() + " rows, expected " + expectedRows);
+        }
+        return reader;
+    }
+
+    /**
+     * Makes a verified segment visible to readers. Called once its partition has been dropped.
+     */
+    synchronized void publish(ChangeSegmentReader reader) {
+        List<ChangeSegmentReader> updated = new ArrayList<>();
+        for (ChangeSegmentReader segment : segments) {
+            if (!segment.path().equals(reader.path())) updated.add(segment);
+        }
+        updated.add(reader);
+        updated.sort(Comparator.comparing((ChangeSegmentReader s) -> s.path().getFileName()));
+        segments = List.copyOf(updated);
+    }
+}
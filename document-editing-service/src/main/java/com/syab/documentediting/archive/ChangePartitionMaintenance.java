@@ -0,0 +1,153 @@
+package com.syab.documentediting.archive;
+
+import com.syab.documentediting.model.DocumentChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of {@code document_changes} (see migration V3) in shape:
+ * creates the partitions for the coming months ahead of time so rows never land in the default partition,
+ * and moves partitions that ended before the retention horizon into {@link ChangeArchive} segments.
+ * <p>
+ * Archiving a partition: stream it into a segment, verify the segment's row count, then detach and drop the
+ * partition and publish the segment. A crash before the drop leaves the partition in place and the next run
+ * rewrites the segment; {@code DocumentService} de-duplicates by id for the short window where both exist.
+ */
+@Component
+public class ChangePartitionMaintenance {
+    private static final Logger log = LoggerFactory.getLogger(ChangePartitionMaintenance.class);
+    private static final Pattern PARTITION = Pattern.compile("document_changes_p(\\d{6})");
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ChangeArchive archive;
+    private final boolean enabled;
+    private final int retentionMonths;
+    private final int monthsAhead;
+
+    public ChangePartitionMaintenance(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                      ChangeArchive archive,
+                                      @Value("${editing.archive.enabled:true}") boolean enabled,
+                                      @Value("${editing.archive.retention-months:6}") int retentionMonths,
+                                      @Value("${editing.archive.months-ahead:2}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archive = archive;
+        this.enabled = enabled;
+        this.retentionMonths = retentionMonths;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        run();
+    }
+
+    @Scheduled(cron = "${editing.archive.cron:0 15 3 * * *}")
+    public void run() {
+        if (!enabled) return;
+        try {
+            if (!isPartitioned()) {
+                log.warn("document_changes is not partitioned; skipping partition maintenance");
+                return;
+            }
+            YearMonth current = YearMonth.now();
+            for (int i = 0; i <= monthsAhead; i++) {
+                createPartition(current.plusMonths(i));
+            }
+            YearMonth horizon = current.minusMonths(retentionMonths);
+            for (String partition : partitions()) {
+                Matcher m = PARTITION.matcher(partition);
+                if (m.matches() && YearMonth.parse(m.group(1), MONTH).isBefore(horizon)) {
+                    archive(partition);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Partition maintenance failed", e);
+        }
+    }
+
+    private boolean isPartitioned() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid "
+                        + "WHERE c.relname = 'document_changes'", Integer.class);
+        return count != null && count > 0;
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = 'document_changes' ORDER BY c.relname",
+                String.class);
+    }
+
+    private void createPartition(YearMonth month) {
+        LocalDate from = month.atDay(1);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS document_changes_p" + month.format(MONTH)
+                + " PARTITION OF document_changes FOR VALUES FROM ('" + from + "') TO ('" + from.plusMonths(1) + "')");
+    }
+
+    void archive(String partition) throws IOException {
+        long started = System.nanoTime();
+        Path file = null;
+        long rows;
+        try (ChangeSegmentWriter writer = archive.newSegment(partition)) {
+            // stream the partition: the PostgreSQL driver only honours the fetch size inside a transaction
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                var statement = con.prepareStatement("SELECT id, document_id, user_id, change_content, operation_type, timestamp FROM "
+                        + partition + " ORDER BY document_id, id");
+                statement.setFetchSize(1000);
+                return statement;
+            }, rs -> {
+                DocumentChange change = new DocumentChange();
+                change.setId(rs.getLong("id"));
+                change.setDocumentId(rs.getLong("document_id"));
+                change.setUserId(rs.getLong("user_id"));
+                change.setChangeContent(rs.getString("change_content"));
+                change.setOperationType(rs.getString("operation_type"));
+                Timestamp timestamp = rs.getTimestamp("timestamp");
+                change.setTimestamp(timestamp == null ? null : timestamp.toLocalDateTime());
+                try {
+                    writer.append(change);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            rows = writer.rowCount();
+            // an empty partition is simply dropped; closing the unfinished writer removes its temp file
+            if (rows > 0) file = writer.finish();
+        }
+        ChangeSegmentReader reader = file == null ? null : archive.verify(file, rows);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE document_changes DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        });
+        if (reader == null) {
+            log.info("Dropped empty partition {}", partition);
+            return;
+        }
+        archive.publish(reader);
+        log.info("Archived partition {} ({} rows) to {} in {} ms", partition, rows, file,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+}
@@ -0,0 +1,26 @@
+package com.syab.documentediting.archive;
+
+/**
+ * Layout of an archived change segment. A segment holds one detached monthly partition of
+ * {@code document_changes} and is never modified after it has been written.
+ * <pre>
+ * header   int magic, int version
+ * blocks   one per document, in documentId order: the document's rows, deflate-compressed
+ * index    per block: long documentId, long offset, int compressedLength, int uncompressedLength, int rowCount
+ * footer   long indexOffset, int blockCount, int magic
+ * </pre>
+ * A row is: long id, long userId, long timestamp (epoch micros, UTC, or {@link #NO_TIMESTAMP}),
+ * operation type and content as length-prefixed UTF-8 ({@code -1} for null).
+ */
+final class ChangeSegmentFormat {
+    static final int MAGIC = 0x44435347; // "DCSG"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int INDEX_ENTRY_BYTES = 28;
+    static final int FOOTER_BYTES = 16;
+    static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    static final String EXTENSION = ".seg";
+
+    private ChangeSegmentFormat() {
+    }
+}
@@ -0,0 +1,125 @@
+package com.syab.documentediting.archive;
+
+import com.syab.documentediting.model.DocumentChange;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read access to a segment through a read-only memory mapping. Lookups binary-search the index in the mapping
+ * and inflate only the requested document's block, so the OS page cache holds whatever is hot and nothing is
+ * copied onto the heap up front. Safe for concurrent use. A segment is mapped as one buffer, so it must stay
+ * below 2 GB; monthly partitions of compressed text are far from that.
+ */
+class ChangeSegmentReader {
+    private final Path path;
+    private final MappedByteBuffer mapped;
+    private final long indexOffset;
+    private final int blockCount;
+
+    ChangeSegmentReader(Path path) throws IOException {
+        this.path = path;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < ChangeSegmentFormat.HEADER_BYTES + ChangeSegmentFormat.FOOTER_BYTES) {
+                throw new IOException("Truncated segment " + path);
+            }
+            this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        int footer = mapped.capacity() - ChangeSegmentFormat.FOOTER_BYTES;
+        if (mapped.getInt(0) != ChangeSegmentFormat.MAGIC || mapped.getInt(footer + 12) != ChangeSegmentFormat.MAGIC) {
+            throw new IOException("Not a change segment: " + path);
+        }
+        if (mapped.getInt(4) != ChangeSegmentFormat.VERSION) {
+            throw new IOException("Unsupported segment version " + mapped.getInt(4) + " in " + path);
+        }
+        this.indexOffset = mapped.getLong(footer);
+        this.blockCount = mapped.getInt(footer + 8);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    List<DocumentChange> findByDocumentId(long documentId) {
+        int entry = find(documentId);
+        if (entry < 0) return List.of();
+        int at = (int) (indexOffset + (long) entry * ChangeSegmentFormat.INDEX_ENTRY_BYTES);
+        int offset = (int) mapped.getLong(at + 8);
+        int compressed = mapped.getInt(at + 16);
+        int uncompressed = mapped.getInt(at + 20);
+        int rowCount = mapped.getInt(at + 24);
+
+        byte[] raw = new byte[uncompressed];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(mapped.slice(offset, compressed));
+            int n = 0;
+            while (n < uncompressed && !inflater.finished()) {
+                n += inflater.inflate(raw, n, uncompressed - n);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block for document " + documentId + " in " + path, e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer rows = ByteBuffer.wrap(raw);
+        List<DocumentChange> changes = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            DocumentChange change = new DocumentChange();
+            change.setId(rows.getLong());
+            change.setDocumentId(documentId);
+            change.setUserId(rows.getLong());
+            long micros = rows.getLong();
+            change.setTimestamp(micros == ChangeSegmentFormat.NO_TIMESTAMP ? null
+                    : LocalDateTime.ofInstant(Instant.EPOCH.plus(micros, ChronoUnit.MICROS), ZoneOffset.UTC));
+            change.setOperationType(readString(rows));
+            change.setChangeContent(readString(rows));
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    private int find(long documentId) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long id = mapped.getLong((int) (indexOffset + (long) mid * ChangeSegmentFormat.INDEX_ENTRY_BYTES));
+            if (id < documentId) low = mid + 1;
+            else if (id > documentId) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    long rowCount() {
+        long rows = 0;
+        for (int i = 0; i < blockCount; i++) {
+            rows += mapped.getInt((int) (indexOffset + (long) i * ChangeSegmentFormat.INDEX_ENTRY_BYTES + 24));
+        }
+        return rows;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,137 @@
+package com.syab.documentediting.archive;
+
+import com.syab.documentediting.model.DocumentChange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a segment (see {@link ChangeSegmentFormat}) from rows ordered by document id, then id.
+ * Only one document's rows are buffered at a time. The file is written under a temporary name and
+ * moved into place by {@link #finish()}, so a segment either exists completely or not at all.
+ */
+class ChangeSegmentWriter implements AutoCloseable {
+    private final Path target;
+    private final Path temp;
+    private final FileChannel channel;
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    private final List<long[]> index = new ArrayList<>();
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+    private final DataOutputStream rows = new DataOutputStream(block);
+    private long currentDocument = Long.MIN_VALUE;
+    private int currentRows;
+    private long position;
+    private long rowCount;
+    private boolean finished;
+
+    ChangeSegmentWriter(Path target) throws IOException {
+        this.target = target;
+        this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+        this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(ChangeSegmentFormat.HEADER_BYTES);
+        header.putInt(ChangeSegmentFormat.MAGIC).putInt(ChangeSegmentFormat.VERSION).flip();
+        write(header);
+    }
+
+    void append(DocumentChange change) throws IOException {
+        long documentId = change.getDocumentId();
+        if (documentId != currentDocument) {
+            if (documentId < currentDocument) {
+                throw new IllegalArgumentException("Rows must be ordered by document id");
+            }
+            flushBlock();
+            currentDocument = documentId;
+        }
+        rows.writeLong(change.getId());
+        rows.writeLong(change.getUserId());
+        rows.writeLong(change.getTimestamp() == null ? ChangeSegmentFormat.NO_TIMESTAMP
+                : ChronoUnit.MICROS.between(Instant.EPOCH, change.getTimestamp().toInstant(ZoneOffset.UTC)));
+        writeString(change.getOperationType());
+        writeString(change.getChangeContent());
+        currentRows++;
+        rowCount++;
+    }
+
+    long rowCount() {
+        return rowCount;
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            rows.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        rows.writeInt(bytes.length);
+        rows.write(bytes);
+    }
+
+    private void flushBlock() throws IOException {
+        if (currentRows == 0) return;
+        byte[] raw = block.toByteArray();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] buffer = new byte[Math.max(64, raw.length / 2)];
+        long offset = position;
+        int compressed = 0;
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            write(ByteBuffer.wrap(buffer, 0, n));
+            compressed += n;
+        }
+        index.add(new long[]{currentDocument, offset, compressed, raw.length, currentRows});
+        block.reset();
+        currentRows = 0;
+    }
+
+    /**
+     * Writes the index and footer, syncs, and atomically moves the segment into place.
+     */
+    Path finish() throws IOException {
+        flushBlock();
+        long indexOffset = position;
+        ByteBuffer entries = ByteBuffer.allocate(index.size() * ChangeSegmentFormat.INDEX_ENTRY_BYTES
+                + ChangeSegmentFormat.FOOTER_BYTES);
+        for (long[] entry : index) {
+            entries.putLong(entry[0]).putLong(entry[1]).putInt((int) entry[2]).putInt((int) entry[3]).putInt((int) entry[4]);
+        }
+        entries.putLong(indexOffset).putInt(index.size()).putInt(ChangeSegmentFormat.MAGIC).flip();
+        write(entries);
+        channel.force(true);
+        channel.close();
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        finished = true;
+        return target;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        if (!finished) {
+            channel.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.syab.documentediting.blame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Who wrote each character of a document, as runs of consecutive characters by the same user. Offsets and
+ * lengths are UTF-16 code units, like the indexes of the content string. An edit replaces one range of the
+ * text: the runs it covers are cut back and one run for its author is put in between. Adjacent runs by the
+ * same user are merged, so the index stays as small as the document's authorship allows.
+ * <p>
+ * Not thread-safe; {@link AuthorshipTracker} guards each index with its entry.
+ * <pre>
+ * encoded  int count, count x (long userId, int length)
+ * </pre>
+ */
+public final class AuthorshipIndex {
+    private long[] authors;
+    private int[] lengths;
+    private int count;
+    private int length;
+
+    public AuthorshipIndex() {
+        this(new long[8], new int[8], 0);
+    }
+
+    private AuthorshipIndex(long[] authors, int[] lengths, int count) {
+        this.authors = authors;
+        this.lengths = lengths;
+        this.count = count;
+        for (int i = 0; i < count; i++) length += lengths[i];
+    }
+
+    public record Run(long userId, int length) {
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int runCount() {
+        return count;
+    }
+
+    public List<Run> runs() {
+        List<Run> runs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) runs.add(new Run(authors[i], lengths[i]));
+        return runs;
+    }
+
+    /**
+     * Credits the difference between {@code before} (the text this index describes) and {@code after} to
+     * {@code userId}: the range between their common prefix and suffix is replaced.
+     */
+    public void apply(String before, String after, long userId) {
+        int beforeLength = before.length();
+        int afterLength = after.length();
+        int max = Math.min(beforeLength, afterLength);
+        int prefix = 0;
+        while (prefix < max && before.charAt(prefix) == after.charAt(prefix)) prefix++;
+        // never split a surrogate pair between two authors
+        if (prefix > 0 && Character.isHighSurrogate(before.charAt(prefix - 1))) prefix--;
+        int suffix = 0;
+        while (suffix < max - prefix
+                && before.charAt(beforeLength - 1 - suffix) == after.charAt(afterLength - 1 - suffix)) suffix++;
+        if (suffix > 0 && Character.isLowSurrogate(before.charAt(beforeLength - suffix))) suffix--;
+        splice(prefix, beforeLength - prefix - suffix, afterLength - prefix - suffix, userId);
+    }
+
+    /**
+     * Removes {@code deleted} characters at {@code offset} and inserts {@code inserted} characters by {@code userId}.
+     */
+    public void splice(int offset, int deleted, int inserted, long userId) {
+        if (offset < 0 || deleted < 0 || inserted < 0 || offset + deleted > length) {
+            throw new IndexOutOfBoundsException("splice(" + offset + ", " + deleted + ") of " + length);
+        }
+        if (deleted == 0 && inserted == 0) return;
+        int end = offset + deleted;
+        long[] newAuthors = new long[Math.max(8, count + 2)];
+        int[] newLengths = new int[newAuthors.length];
+        int n = 0;
+        boolean spliced = false;
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int runEnd = start + lengths[i];
+            // the part of the run before the edit, the inserted text once the edit is reached, the part after it
+            if (start < offset) n = append(newAuthors, newLengths, n, authors[i], Math.min(runEnd, offset) - start);
+            if (!spliced && runEnd >= offset) {
+                n = append(newAuthors, newLengths, n, userId, inserted);
+                spliced = true;
+            }
+            if (runEnd > end) n = append(newAuthors, newLengths, n, authors[i], runEnd - Math.max(start, end));
+            start = runEnd;
+        }
+        if (!spliced) n = append(newAuthors, newLengths, n, userId, inserted);
+        authors = newAuthors;
+        lengths = newLengths;
+        count = n;
+        length += inserted - deleted;
+    }
+
+    private static int append(long[] authors, int[] lengths, int n, long userId, int length) {
+        if (length <= 0) return n;
+        if (n > 0 && authors[n - 1] == userId) {
+            lengths[n - 1] += length;
+            return n;
+        }
+        authors[n] = userId;
+        lengths[n] = length;
+        return n + 1;
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + count * 12);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(authors[i]);
+                out.writeInt(lengths[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static AuthorshipIndex decode(byte[] encoded) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            int count = in.readInt();
+            long[] authors = new long[Math.max(8, count)];
+            int[] lengths = new int[authors.length];
+            for (int i = 0; i < count; i++) {
+                authors[i] = in.readLong();
+                lengths[i] = in.readInt();
+            }
+            return new AuthorshipIndex(authors, lengths, count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return runs() + " (" + length + " chars)";
+    }
+}
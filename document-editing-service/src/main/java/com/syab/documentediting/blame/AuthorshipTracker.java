@@ -0,0 +1,289 @@
+package com.syab.documentediting.blame;
+
+import com.syab.documentediting.archive.ChangeArchive;
+import com.syab.documentediting.journal.EditJournal;
+import com.syab.documentediting.journal.JournalRecord;
+import com.syab.documentediting.model.DocumentChange;
+import com.syab.documentediting.repository.DocumentChangeRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Authorship indexes of the documents whose blame has been asked for. An index is built once, from its
+ * {@code document_authorship} checkpoint plus the changes after it (or, without a checkpoint, from the whole
+ * change history, replayed {@code editing.blame.rebuild-batch} changes at a time), and from then on every applied edit is spliced into it, so reading it is free. Indexes are
+ * checkpointed every {@code editing.blame.checkpoint-ms}, like the working set snapshot, and dropped from
+ * memory once nobody has read them for {@code editing.blame.idle-ms}. Edits of documents without an index
+ * cost one map lookup.
+ */
+@Component
+public class AuthorshipTracker {
+    private static final Logger log = LoggerFactory.getLogger(AuthorshipTracker.class);
+
+    private final DocumentChangeRepository changeRepository;
+    private final ChangeArchive changeArchive;
+    private final EditJournal journal;
+    private final JdbcTemplate jdbcTemplate;
+    private final long idleMs;
+    private final int rebuildBatch;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public AuthorshipTracker(DocumentChangeRepository changeRepository, ChangeArchive changeArchive, EditJournal journal,
+                             JdbcTemplate jdbcTemplate, @Value("${editing.blame.idle-ms:1800000}") long idleMs,
+                             @Value("${editing.blame.rebuild-batch:500}") int rebuildBatch) {
+        this.changeRepository = changeRepository;
+        this.changeArchive = changeArchive;
+        this.journal = journal;
+        this.jdbcTemplate = jdbcTemplate;
+        this.idleMs = idleMs;
+        this.rebuildBatch = Math.max(1, rebuildBatch);
+    }
+
+    public record Blame(long revision, int length, List<AuthorshipIndex.Run> runs) {
+    }
+
+    /**
+     * Records an applied edit: change {@code revision} by {@code userId}, which set the content to {@code content}.
+     * Must be called once per change, after it is durable (committed or journaled).
+     */
+    public void record(Long documentId, long revision, long userId, String content) {
+        Entry entry = entries.get(documentId);
+        if (entry == null) return;
+        entry.record(new DocumentChange(revision, documentId, userId, content, null, null));
+    }
+
+    /**
+     * The authorship of the document's current content, building its index first if needed.
+     */
+    public Blame blame(Long documentId) {
+        Entry entry = entries.get(documentId);
+        if (entry == null) {
+            Entry created = new Entry();
+            entry = entries.putIfAbsent(documentId, created);
+            if (entry == null) {
+                entry = created;
+                try {
+                    load(documentId, created);
+                } catch (RuntimeException e) {
+                    entries.remove(documentId, created);
+                    created.ready.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        try {
+            entry.ready.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building authorship of document " + documentId, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Building authorship of document " + documentId + " failed", e.getCause());
+        }
+        return entry.blame();
+    }
+
+    // registered before the log is read, so edits applied meanwhile are buffered instead of missed
+    private void load(Long documentId, Entry entry) {
+        List<DocumentChange> journaled = journaled(documentId);
+        Replay replay = null;
+        List<Checkpoint> checkpoints = jdbcTemplate.query(
+                "SELECT revision, runs FROM document_authorship WHERE document_id = ?",
+                (rs, i) -> new Checkpoint(documentId, rs.getLong(1), rs.getBytes(2)), documentId);
+        if (!checkpoints.isEmpty()) {
+            Checkpoint checkpoint = checkpoints.get(0);
+            AuthorshipIndex restored = AuthorshipIndex.decode(checkpoint.runs());
+            List<DocumentChange> first = merged(page(documentId, checkpoint.revision()), journaled);
+            // the checkpointed change has to be at hand to diff the next one against; otherwise start over
+            if (!first.isEmpty() && first.get(0).getId() == checkpoint.revision()
+                    && content(first.get(0)).length() == restored.length()) {
+                replay = new Replay(restored, content(first.get(0)), checkpoint.revision());
+            }
+        }
+        if (replay == null) {
+            replay = new Replay(new AuthorshipIndex(), "", 0L);
+            changeArchive.forEachByDocumentId(documentId, replay::apply);
+        }
+        // the history is replayed a page at a time, so a long one is never held in memory at once
+        List<DocumentChange> changes;
+        do {
+            changes = page(documentId, replay.revision + 1);
+            changes.forEach(replay::apply);
+        } while (changes.size() == rebuildBatch);
+        entry.loaded(replay.index, replay.content, replay.revision, journaled);
+    }
+
+    private List<DocumentChange> page(Long documentId, long fromId) {
+        return changeRepository.findByDocumentIdAndIdGreaterThanEqualOrderByIdAsc(documentId, fromId,
+                PageRequest.of(0, rebuildBatch));
+    }
+
+    private List<DocumentChange> journaled(Long documentId) {
+        return journal.pending(documentId).stream().map(JournalRecord::toChange).toList();
+    }
+
+    // in id order; a change can briefly be in two places while it is archived or replicated
+    @SafeVarargs
+    private static List<DocumentChange> merged(List<DocumentChange>... sources) {
+        Map<Long, DocumentChange> byId = new TreeMap<>();
+        for (List<DocumentChange> source : sources) {
+            for (DocumentChange change : source) byId.putIfAbsent(change.getId(), change);
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    private static String content(DocumentChange change) {
+        return change.getChangeContent() == null ? "" : change.getChangeContent();
+    }
+
+    @Scheduled(fixedDelayString = "${editing.blame.checkpoint-ms:60000}",
+            initialDelayString = "${editing.blame.checkpoint-ms:60000}")
+    public void checkpoint() {
+        long idleBefore = System.currentTimeMillis() - idleMs;
+        List<Checkpoint> rows = new ArrayList<>();
+        entries.forEach((documentId, entry) -> {
+            Checkpoint row = entry.takeCheckpoint(documentId);
+            if (row != null) {
+                rows.add(row);
+            } else if (entry.idleSince(idleBefore)) {
+                // a later read rebuilds it from the checkpoint just written and the log
+                entries.remove(documentId, entry);
+            }
+        });
+        if (rows.isEmpty()) return;
+        try {
+            // update, then insert the documents without a row yet; plain SQL, so it runs on H2 as well
+            int[][] updated = jdbcTemplate.batchUpdate("UPDATE document_authorship SET revision = ?, runs = ?, "
+                    + "updated_at = localtimestamp WHERE document_id = ?", rows, rows.size(), (ps, row) -> {
+                ps.setLong(1, row.revision());
+                ps.setBytes(2, row.runs());
+                ps.setLong(3, row.documentId());
+            });
+            List<Checkpoint> missing = new ArrayList<>();
+            int i = 0;
+            for (int[] counts : updated) {
+                for (int count : counts) {
+                    if (count == 0) missing.add(rows.get(i));
+                    i++;
+                }
+            }
+            if (missing.isEmpty()) return;
+            jdbcTemplate.batchUpdate("INSERT INTO document_authorship (document_id, revision, runs, updated_at) "
+                    + "VALUES (?, ?, ?, localtimestamp)", missing, missing.size(), (ps, row) -> {
+                ps.setLong(1, row.documentId());
+                ps.setLong(2, row.revision());
+                ps.setBytes(3, row.runs());
+            });
+        } catch (Exception e) {
+            log.warn("Failed to checkpoint authorship of {} document(s)", rows.size(), e);
+            for (Checkpoint row : rows) {
+                Entry entry = entries.get(row.documentId());
+                if (entry != null) entry.markDirty();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        checkpoint();
+    }
+
+    private record Checkpoint(long documentId, long revision, byte[] runs) {
+    }
+
+    // an index being built from the log, before it is handed to its entry
+    private static final class Replay {
+        final AuthorshipIndex index;
+        String content;
+        long revision;
+
+        Replay(AuthorshipIndex index, String content, long revision) {
+            this.index = index;
+            this.content = content;
+            this.revision = revision;
+        }
+
+        void apply(DocumentChange change) {
+            // a change can briefly be both archived and in the table
+            if (change.getId() <= revision) return;
+            String after = content(change);
+            index.apply(content, after, change.getUserId());
+            content = after;
+            revision = change.getId();
+        }
+    }
+
+    private static final class Entry {
+        final CompletableFuture<Void> ready = new CompletableFuture<>();
+        private AuthorshipIndex index;
+        private String content;
+        private long revision;
+        private boolean dirty;
+        private volatile long lastAccess = System.currentTimeMillis();
+        // edits recorded while the index is being built
+        private Map<Long, DocumentChange> buffered = new TreeMap<>();
+
+        synchronized void record(DocumentChange change) {
+            if (buffered != null) {
+                buffered.put(change.getId(), change);
+                return;
+            }
+            apply(change);
+            // a change committed out of id order is still the newest content
+            revision = Math.max(revision, change.getId());
+        }
+
+        synchronized void loaded(AuthorshipIndex index, String content, long revision, List<DocumentChange> tail) {
+            this.index = index;
+            this.content = content;
+            this.revision = revision;
+            for (DocumentChange change : tail) buffered.putIfAbsent(change.getId(), change);
+            for (DocumentChange change : buffered.values()) {
+                if (change.getId() <= this.revision) continue;
+                apply(change);
+                this.revision = change.getId();
+            }
+            buffered = null;
+            ready.complete(null);
+        }
+
+        private void apply(DocumentChange change) {
+            String after = content(change);
+            index.apply(content, after, change.getUserId());
+            content = after;
+            dirty = true;
+        }
+
+        synchronized Blame blame() {
+            lastAccess = System.currentTimeMillis();
+            return new Blame(revision, index.length(), index.runs());
+        }
+
+        synchronized Checkpoint takeCheckpoint(long documentId) {
+            if (buffered != null || !dirty) return null;
+            dirty = false;
+            return new Checkpoint(documentId, revision, index.encode());
+        }
+
+        synchronized void markDirty() {
+            dirty = true;
+        }
+
+        synchronized boolean idleSince(long time) {
+            return buffered == null && !dirty && lastAccess < time;
+        }
+    }
+}
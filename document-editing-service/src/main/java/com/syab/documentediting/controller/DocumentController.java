@@ -1,24 +1,42 @@
 package com.syab.documentediting.controller;
 
+import com.syab.documentediting.dto.DocumentBlameDTO;
 import com.syab.documentediting.dto.DocumentChangeDTO;
 import com.syab.documentediting.dto.DocumentDTO;
 import com.syab.documentediting.dto.EditDocumentRequest;
+import com.syab.documentediting.dto.ImportResultDTO;
 import com.syab.documentediting.service.DocumentService;
+import com.syab.documentediting.transfer.HistoryExporter;
+import com.syab.documentediting.transfer.HistoryImporter;
+import com.syab.documentediting.transfer.TransferAccess;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/documents")
 public class DocumentController {
     private final DocumentService documentService;
+    private final HistoryExporter historyExporter;
+    private final HistoryImporter historyImporter;
+    private final TransferAccess transferAccess;
+    private final RequestUser requestUser;
 
-    public DocumentController(DocumentService documentService) {
+    public DocumentController(DocumentService documentService, HistoryExporter historyExporter,
+                              HistoryImporter historyImporter, TransferAccess transferAccess, RequestUser requestUser) {
         this.documentService = documentService;
+        this.historyExporter = historyExporter;
+        this.historyImporter = historyImporter;
+        this.transferAccess = transferAccess;
+        this.requestUser = requestUser;
     }
 
     /**
@@ -28,8 +46,9 @@ public class DocumentController {
     @PostMapping
     public ResponseEntity<DocumentDTO> createDocument(
             @RequestParam String title,
-            @RequestParam Long userId) {
-        DocumentDTO document = documentService.createDocument(title, userId);
+            @RequestHeader(value = RequestUser.HEADER, required = false) Long authenticatedUserId,
+            @RequestParam(required = false) Long userId) {
+        DocumentDTO document = documentService.createDocument(title, requestUser.require(authenticatedUserId, userId));
         return ResponseEntity.status(HttpStatus.CREATED).body(document);
     }
 
@@ -40,9 +59,10 @@ public class DocumentController {
     @PutMapping("/{documentId}/edit")
     public ResponseEntity<DocumentDTO> editDocument(
             @PathVariable Long documentId,
-            @RequestParam Long userId,
+            @RequestHeader(value = RequestUser.HEADER, required = false) Long authenticatedUserId,
+            @RequestParam(required = false) Long userId,
             @Valid @RequestBody EditDocumentRequest request) {
-        DocumentDTO document = documentService.editDocument(documentId, userId, request);
+        DocumentDTO document = documentService.editDocument(documentId, requestUser.require(authenticatedUserId, userId), request);
         return ResponseEntity.ok(document);
     }
 
@@ -56,6 +76,45 @@ public class DocumentController {
         return ResponseEntity.ok(changes);
     }
 
+    /**
+     * Authorship of the current content, as runs of consecutive characters by the same user
+     * GET /api/documents/{documentId}/blame
+     */
+    @GetMapping("/{documentId}/blame")
+    public ResponseEntity<DocumentBlameDTO> getDocumentBlame(@PathVariable Long documentId) {
+        DocumentBlameDTO blame = documentService.getDocumentBlame(documentId);
+        return ResponseEntity.ok(blame);
+    }
+
+    /**
+     * Documents and their change history, as gzip-compressed NDJSON written while it is read
+     * GET /api/documents/export?documentIds=1,2
+     */
+    @GetMapping("/export")
+    public void exportHistory(@RequestParam(required = false) List<Long> documentIds,
+                              @RequestHeader(value = TransferAccess.HEADER, required = false) String operatorToken,
+                              HttpServletResponse response) throws IOException {
+        if (!transferAccess.allows(operatorToken)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        response.setContentType("application/gzip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"document-history.ndjson.gz\"");
+        historyExporter.export(documentIds, response.getOutputStream());
+    }
+
+    /**
+     * Import an export (gzip-compressed or plain), keeping document and change ids
+     * POST /api/documents/import
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ImportResultDTO> importHistory(
+            @RequestHeader(value = TransferAccess.HEADER, required = false) String operatorToken,
+            HttpServletRequest request) throws IOException {
+        if (!transferAccess.allows(operatorToken)) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        return ResponseEntity.ok(historyImporter.importHistory(request.getInputStream()));
+    }
+
     /**
      * Get a specific document
      * GET /api/documents/{documentId}
@@ -91,7 +150,9 @@ public class DocumentController {
      * GET /api/documents/{documentId}/stream
      */
     @GetMapping("/{documentId}/stream")
-    public SseEmitter streamDocument(@PathVariable Long documentId, @RequestParam(required = false) Long userId) {
-        return documentService.subscribeToDocument(documentId, userId);
+    public SseEmitter streamDocument(@PathVariable Long documentId,
+                                     @RequestHeader(value = RequestUser.HEADER, required = false) Long authenticatedUserId,
+                                     @RequestParam(required = false) Long userId) {
+        return documentService.subscribeToDocument(documentId, requestUser.optional(authenticatedUserId, userId));
     }
 }
@@ -0,0 +1,14 @@
+package com.syab.documentediting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorRunDTO {
+    private Long userId;
+    // characters (UTF-16 code units) written by the user, following the previous run
+    private Integer length;
+}
@@ -0,0 +1,19 @@
+package com.syab.documentediting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentBlameDTO {
+    private Long documentId;
+    // id of the newest change reflected
+    private Long revision;
+    private Integer length;
+    // consecutive, from the start of the content
+    private List<AuthorRunDTO> runs;
+}
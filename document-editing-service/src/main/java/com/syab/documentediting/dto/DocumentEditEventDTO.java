@@ -0,0 +1,22 @@
+package com.syab.documentediting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One author's edits to a document from a relayed outbox batch, coalesced: the newest change and its content,
+ * how many changes it stands for, and when the first and the last of them were made.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentEditEventDTO {
+    private Long documentId;
+    private Long changeId;
+    private Long userId;
+    private Integer edits;
+    private String content;
+    private String firstEditAt;
+    private String lastEditAt;
+}
@@ -0,0 +1,19 @@
+package com.syab.documentediting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one "change" line of a history export
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportedChangeDTO {
+    private String type;
+    private Long id;
+    private Long documentId;
+    private Long userId;
+    private String changeContent;
+    private String operationType;
+    private String timestamp;
+}
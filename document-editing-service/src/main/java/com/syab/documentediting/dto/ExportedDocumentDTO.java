@@ -0,0 +1,20 @@
+package com.syab.documentediting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one "document" line of a history export; the content is the current text
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportedDocumentDTO {
+    private String type;
+    private Long id;
+    private String title;
+    private String content;
+    private Long ownerId;
+    private Boolean isShared;
+    private String createdAt;
+    private String updatedAt;
+}
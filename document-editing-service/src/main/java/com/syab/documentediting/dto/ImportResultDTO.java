@@ -0,0 +1,17 @@
+package com.syab.documentediting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResultDTO {
+    private long documentsImported;
+    // already present under its id; its changes are imported only if it is the same document
+    private long documentsSkipped;
+    private long changesImported;
+    // already present (same id)
+    private long changesSkipped;
+}
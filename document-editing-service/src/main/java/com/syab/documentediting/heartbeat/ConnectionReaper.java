@@ -0,0 +1,181 @@
+package com.syab.documentediting.heartbeat;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-driven heartbeats for SSE and WebSocket subscribers.
+ * Every registered connection gets a check on a {@link HashedTimingWheel} each heartbeat interval:
+ * if nothing has been heard from it within the idle timeout it is reaped, otherwise a heartbeat is sent
+ * and the next check is scheduled. Touching a connection only writes a timestamp, so traffic costs nothing here.
+ * <p>
+ * Thread usage is fixed: one thread drives the wheel and a small bounded pool performs the sends,
+ * so a half-open socket that blocks on write cannot stall the wheel. When the senders' queue is full a heartbeat
+ * is skipped (and counted) rather than sent on the wheel thread; the connection's next check sends it again.
+ */
+@Component
+public class ConnectionReaper {
+    private static final Logger log = LoggerFactory.getLogger(ConnectionReaper.class);
+
+    private final HashedTimingWheel wheel;
+    private final ScheduledExecutorService ticker;
+    private final ThreadPoolExecutor senders;
+    private final long heartbeatTicks;
+    private final long idleTimeoutNanos;
+    private final AtomicInteger registered = new AtomicInteger();
+    private final AtomicLong reaped = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    public ConnectionReaper(@Value("${editing.heartbeat.tick-ms:500}") long tickMs,
+                            @Value("${editing.heartbeat.interval-ms:15000}") long heartbeatMs,
+                            @Value("${editing.heartbeat.idle-timeout-ms:45000}") long idleTimeoutMs,
+                            @Value("${editing.heartbeat.wheel-slots:512}") int wheelSlots,
+                            @Value("${editing.heartbeat.sender-threads:2}") int senderThreads) {
+        this.wheel = new HashedTimingWheel(wheelSlots);
+        this.heartbeatTicks = Math.max(1, heartbeatMs / tickMs);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "heartbeat-wheel"));
+        AtomicInteger senderIds = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(4096), r -> daemon(r, "heartbeat-sender-" + senderIds.incrementAndGet()));
+        this.ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    private void tick() {
+        try {
+            wheel.advance();
+        } catch (Exception e) {
+            log.error("heartbeat wheel tick failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    public Registration register(HeartbeatTarget target) {
+        Registration registration = new Registration(target);
+        registered.incrementAndGet();
+        registration.scheduleNext();
+        return registration;
+    }
+
+    public int registeredCount() {
+        return registered.get();
+    }
+
+    public long reapedCount() {
+        return reaped.get();
+    }
+
+    public long skippedHeartbeatCount() {
+        return skipped.get();
+    }
+
+    public int senderQueueDepth() {
+        return senders.getQueue().size();
+    }
+
+    /**
+     * A connection the reaper can ping and close.
+     */
+    public interface HeartbeatTarget {
+        /**
+         * Send a heartbeat.
+         *
+         * @return true when a successful send proves the peer is alive (SSE has no acknowledgements),
+         * false when liveness is only proven by a later {@link Registration#touch()} (e.g. a WebSocket pong)
+         */
+        boolean sendHeartbeat() throws Exception;
+
+        /**
+         * Close the connection and release everything held for it. May be called more than once.
+         */
+        void reap();
+    }
+
+    public final class Registration {
+        private final HeartbeatTarget target;
+        private volatile long lastSeenNanos = System.nanoTime();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile HashedTimingWheel.Timeout timeout;
+
+        private Registration(HeartbeatTarget target) {
+            this.target = target;
+        }
+
+        public void touch() {
+            lastSeenNanos = System.nanoTime();
+        }
+
+        public void cancel() {
+            if (!cancelled.compareAndSet(false, true)) return;
+            registered.decrementAndGet();
+            HashedTimingWheel.Timeout t = timeout;
+            if (t != null) t.cancel();
+        }
+
+        private void scheduleNext() {
+            timeout = wheel.schedule(this::check, heartbeatTicks);
+        }
+
+        // runs on the wheel thread
+        private void check() {
+            if (cancelled.get()) return;
+            if (System.nanoTime() - lastSeenNanos > idleTimeoutNanos) {
+                reaped.incrementAndGet();
+                cancel();
+                reap();
+                return;
+            }
+            try {
+                senders.execute(this::sendHeartbeat);
+            } catch (RejectedExecutionException e) {
+                skipped.incrementAndGet();
+            }
+            scheduleNext();
+        }
+
+        private void reap() {
+            try {
+                senders.execute(target::reap);
+            } catch (RejectedExecutionException e) {
+                // the registration is already cancelled, so nothing else would close the connection
+                if (!senders.isShutdown()) wheel.schedule(this::reap, 1);
+            }
+        }
+
+        private void sendHeartbeat() {
+            if (cancelled.get()) return;
+            try {
+                if (target.sendHeartbeat()) touch();
+            } catch (Exception e) {
+                log.debug("Heartbeat send failed, reaping connection: {}", e.getMessage());
+                reaped.incrementAndGet();
+                cancel();
+                target.reap();
+            }
+        }
+    }
+}
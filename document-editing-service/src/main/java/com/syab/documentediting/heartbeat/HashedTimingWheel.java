@@ -0,0 +1,125 @@
+package com.syab.documentediting.heartbeat;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hashed timing wheel (Varghese &amp; Lauck). Timeouts are hashed into {@code slots} buckets by their
+ * deadline tick; each call to {@link #advance()} visits one bucket, so the cost per tick is proportional
+ * to the timers in that bucket rather than to all timers.
+ * <p>
+ * {@link #schedule} and {@link Timeout#cancel()} may be called from any thread. {@link #advance()} must
+ * only be called from a single driving thread; expired tasks run on that thread and should be quick.
+ * Cancelled timeouts are unlinked lazily the next time their bucket is visited.
+ */
+public class HashedTimingWheel {
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private long tick;
+
+    public HashedTimingWheel(int slots) {
+        int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Run {@code task} after {@code delayTicks} calls to {@link #advance()} (at least one).
+     */
+    public Timeout schedule(Runnable task, long delayTicks) {
+        Timeout timeout = new Timeout(task, Math.max(1, delayTicks));
+        pending.add(timeout);
+        return timeout;
+    }
+
+    public void advance() {
+        transferPending();
+        Bucket bucket = wheel[(int) (tick & mask)];
+        bucket.expire();
+        tick++;
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) continue;
+            // the bucket for the current tick is visited right after this, so a delay of one tick lands in it
+            long deadline = tick + timeout.delayTicks - 1;
+            timeout.remainingRounds = (timeout.delayTicks - 1) / wheel.length;
+            wheel[(int) (deadline & mask)].add(timeout);
+        }
+    }
+
+    public static final class Timeout {
+        private final Runnable task;
+        private final long delayTicks;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(Runnable task, long delayTicks) {
+            this.task = task;
+            this.delayTicks = delayTicks;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.next = null;
+            timeout.prev = tail;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.cancelled) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.task.run();
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.next = null;
+            timeout.prev = null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.syab.documentediting.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Every subscriber of a document was sent (or failed to be sent) one change.
+ * The duration runs from broadcast dispatch until the last send returned.
+ */
+@Name("com.syab.documentediting.BroadcastCompleted")
+@Label("Broadcast Completed")
+@Category({"Collaborative Editing", "Edit Lifecycle"})
+@Description("A change was fanned out to all subscribers of a document")
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public class BroadcastCompletedEvent extends Event {
+    @Label("Document Id")
+    public long documentId;
+
+    @Label("Revision")
+    @Description("Id of the change row that was broadcast, 0 when not known to the sender")
+    public long revision;
+
+    @Label("Transport")
+    public String transport;
+
+    @Label("Subscribers")
+    public int subscribers;
+
+    @Label("Failed Sends")
+    public int failures;
+}
@@ -0,0 +1,34 @@
+package com.syab.documentediting.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The document row and its change row were written through the repositories.
+ */
+@Name("com.syab.documentediting.ChangePersisted")
+@Label("Change Persisted")
+@Category({"Collaborative Editing", "Edit Lifecycle"})
+@Description("Document content and change history written to the database")
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public class ChangePersistedEvent extends Event {
+    @Label("Document Id")
+    public long documentId;
+
+    @Label("Revision")
+    @Description("Id of the change row recorded for this edit")
+    public long revision;
+
+    @Label("Change Size")
+    @DataAmount(DataAmount.BYTES)
+    public long changeBytes;
+}
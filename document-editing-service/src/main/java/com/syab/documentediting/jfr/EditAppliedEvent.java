@@ -0,0 +1,41 @@
+package com.syab.documentediting.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * {@code DocumentService.editDocument} finished: load, persist and broadcast dispatch.
+ */
+@Name("com.syab.documentediting.EditApplied")
+@Label("Edit Applied")
+@Category({"Collaborative Editing", "Edit Lifecycle"})
+@Description("An edit was applied to a document")
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public class EditAppliedEvent extends Event {
+    @Label("Document Id")
+    public long documentId;
+
+    @Label("Revision")
+    @Description("Id of the change row recorded for this edit")
+    public long revision;
+
+    @Label("Operation Type")
+    public String operationType;
+
+    @Label("Previous Content Length")
+    @DataAmount(DataAmount.BYTES)
+    public long previousLength;
+
+    @Label("Content Length")
+    @DataAmount(DataAmount.BYTES)
+    public long contentLength;
+}
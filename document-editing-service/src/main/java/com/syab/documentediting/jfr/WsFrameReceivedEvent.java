@@ -0,0 +1,35 @@
+package com.syab.documentediting.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A WebSocket edit frame was parsed and passed through admission control.
+ * The duration covers parsing plus, for admitted frames, applying the edit.
+ */
+@Name("com.syab.documentediting.WsFrameReceived")
+@Label("WebSocket Frame Received")
+@Category({"Collaborative Editing", "Edit Lifecycle"})
+@Description("Edit frame received over /ws/documents and how the rate limiter handled it")
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public class WsFrameReceivedEvent extends Event {
+    @Label("Document Id")
+    public long documentId;
+
+    @Label("Payload Size")
+    @DataAmount(DataAmount.BYTES)
+    public long payloadBytes;
+
+    @Label("Outcome")
+    @Description("applied, merged, deferred, rejected or ignored")
+    public String outcome;
+}
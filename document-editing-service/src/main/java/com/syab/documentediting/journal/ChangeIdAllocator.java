@@ -0,0 +1,34 @@
+package com.syab.documentediting.journal;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Hands out {@code document_changes} ids for journaled edits, so a change has its final id (and revision) from
+ * the moment it is journaled and replication can insert it idempotently. Ids are reserved from the table's
+ * sequence a block at a time, so only one edit in {@code block-size} pays for a database round trip.
+ * Ids stay unique across service instances; within a block they are increasing.
+ */
+@Component
+public class ChangeIdAllocator {
+    private final JdbcTemplate jdbcTemplate;
+    private final int blockSize;
+    private final Deque<Long> reserved = new ArrayDeque<>();
+
+    public ChangeIdAllocator(JdbcTemplate jdbcTemplate, @Value("${editing.journal.id-block-size:1000}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blockSize = blockSize;
+    }
+
+    public synchronized long next() {
+        if (reserved.isEmpty()) {
+            reserved.addAll(jdbcTemplate.queryForList(
+                    "SELECT nextval('document_change_ids') FROM generate_series(1, ?) ORDER BY 1", Long.class, blockSize));
+        }
+        return reserved.removeFirst();
+    }
+}
@@ -0,0 +1,282 @@
+package com.syab.documentediting.journal;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Append-only edit journal on local disk, used instead of a database round trip per edit when
+ * {@code editing.journal.enabled} is set. Edits are framed into pre-allocated memory-mapped segments;
+ * an edit is acknowledged once its frame is written (and, with {@code fsync: always}, forced to disk).
+ * {@link JournalReplicator} copies journaled edits into PostgreSQL in the background and checkpoints
+ * how far it got; segments wholly below the checkpoint are deleted.
+ * <p>
+ * Edits that are journaled but not yet replicated are kept in memory, so reads see them right away.
+ * On startup the journal is scanned from the checkpoint and the unreplicated tail is loaded back into memory.
+ */
+@Component
+public class EditJournal {
+    private static final Logger log = LoggerFactory.getLogger(EditJournal.class);
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    public enum FsyncPolicy {
+        /** force every append before acknowledging it; concurrent appends share one force */
+        ALWAYS,
+        /** force on a timer; a machine crash can lose the last interval of acknowledged edits */
+        INTERVAL,
+        /** leave write-back to the OS */
+        NEVER
+    }
+
+    private final ChangeIdAllocator changeIds;
+    private final boolean enabled;
+    private final Path directory;
+    private final Path checkpointFile;
+    private final int segmentSize;
+    private final FsyncPolicy fsync;
+    private final Deque<JournalSegment> segments = new ArrayDeque<>();
+    private final NavigableMap<Long, JournalRecord> pending = new ConcurrentSkipListMap<>();
+    private final Map<Long, JournalRecord> latestByDocument = new ConcurrentHashMap<>();
+    private final Object forceLock = new Object();
+    private ScheduledExecutorService flusher;
+    private volatile long appliedLsn;
+    private volatile long durableLsn;
+
+    public EditJournal(ChangeIdAllocator changeIds,
+                       @Value("${editing.journal.enabled:false}") boolean enabled,
+                       @Value("${editing.journal.directory:data/edit-journal}") String directory,
+                       @Value("${editing.journal.segment-size-mb:64}") int segmentSizeMb,
+                       @Value("${editing.journal.fsync:always}") String fsync,
+                       @Value("${editing.journal.fsync-interval-ms:50}") long fsyncIntervalMs) {
+        this.changeIds = changeIds;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.checkpointFile = this.directory.resolve("checkpoint");
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        this.fsync = FsyncPolicy.valueOf(fsync.toUpperCase());
+        if (!enabled) return;
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover edit journal in " + directory, e);
+        }
+        if (this.fsync == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "edit-journal-fsync");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::forceQuietly, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        appliedLsn = Files.exists(checkpointFile) ? ByteBuffer.wrap(Files.readAllBytes(checkpointFile)).getLong() : 0L;
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(f -> f.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                    && f.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            JournalSegment segment = JournalSegment.open(file);
+            segment.recover(record -> {
+                if (record.lsn() >= appliedLsn) track(record);
+            });
+            segments.addLast(segment);
+        }
+        if (segments.isEmpty()) {
+            segments.addLast(JournalSegment.create(segmentPath(appliedLsn), appliedLsn, segmentSize));
+        }
+        durableLsn = segments.getLast().nextLsn();
+        log.info("Edit journal {}: {} segment(s), {} unreplicated edit(s) recovered, fsync={}",
+                directory.toAbsolutePath(), segments.size(), pending.size(), fsync);
+    }
+
+    private Path segmentPath(long baseLsn) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, baseLsn, SEGMENT_SUFFIX));
+    }
+
+    private void track(JournalRecord record) {
+        pending.put(record.lsn(), record);
+        latestByDocument.merge(record.documentId(), record, (a, b) -> b.lsn() > a.lsn() ? b : a);
+    }
+
+    /**
+     * Journals an edit and returns once it is as durable as the fsync policy promises.
+     */
+    public JournalRecord append(long documentId, long userId, String operationType, String content) {
+        long changeId = changeIds.next();
+        // PostgreSQL keeps microseconds; truncating here keeps replicated rows identical to the journal
+        LocalDateTime timestamp = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        byte[] operation = operationType == null ? null : operationType.getBytes(StandardCharsets.UTF_8);
+        byte[] body = content == null ? null : content.getBytes(StandardCharsets.UTF_8);
+        int frameSize = JournalSegment.frameSize(operation, body);
+        JournalRecord record;
+        long end;
+        synchronized (this) {
+            JournalSegment segment = segments.getLast();
+            if (!segment.fits(frameSize)) {
+                segment = roll(segment, frameSize);
+            }
+            long lsn = segment.append(changeId, documentId, userId, timestamp, operation, body);
+            end = segment.nextLsn();
+            record = new JournalRecord(lsn, changeId, documentId, userId, timestamp, operationType, content);
+            track(record);
+        }
+        if (fsync == FsyncPolicy.ALWAYS) {
+            forceUpTo(end);
+        }
+        return record;
+    }
+
+    private JournalSegment roll(JournalSegment current, int frameSize) {
+        try {
+            current.force();
+            long base = current.endLsn();
+            int size = Math.max(segmentSize, JournalSegment.HEADER_BYTES + frameSize + 4);
+            JournalSegment next = JournalSegment.create(segmentPath(base), base, size);
+            segments.addLast(next);
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll edit journal segment", e);
+        }
+    }
+
+    // group commit: whoever gets the lock forces everything written so far, and later callers usually find their frame covered
+    private void forceUpTo(long lsn) {
+        if (durableLsn >= lsn) return;
+        synchronized (forceLock) {
+            if (durableLsn >= lsn) return;
+            JournalSegment segment;
+            long target;
+            synchronized (this) {
+                segment = segments.getLast();
+                target = segment.nextLsn();
+            }
+            segment.force(Math.max(durableLsn, segment.baseLsn()), target);
+            durableLsn = target;
+        }
+    }
+
+    private void forceQuietly() {
+        try {
+            long target;
+            synchronized (this) {
+                target = segments.getLast().nextLsn();
+            }
+            forceUpTo(target);
+        } catch (Exception e) {
+            log.error("Edit journal fsync failed", e);
+        }
+    }
+
+    /**
+     * The newest journaled edit of a document that is not yet in PostgreSQL, or null.
+     */
+    public JournalRecord latest(Long documentId) {
+        return documentId == null ? null : latestByDocument.get(documentId);
+    }
+
+    /**
+     * Journaled edits of a document that are not yet in PostgreSQL, oldest first.
+     */
+    public List<JournalRecord> pending(Long documentId) {
+        if (latestByDocument.get(documentId) == null) return List.of();
+        List<JournalRecord> records = new ArrayList<>();
+        for (JournalRecord record : pending.values()) {
+            if (record.documentId() == documentId) records.add(record);
+        }
+        return records;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Up to {@code limit} of the oldest unreplicated edits.
+     */
+    List<JournalRecord> unreplicated(int limit) {
+        List<JournalRecord> batch = new ArrayList<>(Math.min(limit, pending.size()));
+        for (JournalRecord record : pending.values()) {
+            if (batch.size() == limit) break;
+            batch.add(record);
+        }
+        return batch;
+    }
+
+    /**
+     * Records that everything up to and including {@code records} has been replicated: persists the checkpoint,
+     * drops the records from memory and deletes segments that are no longer needed.
+     */
+    void replicated(Collection<JournalRecord> records) throws IOException {
+        if (records.isEmpty()) return;
+        long last = 0;
+        for (JournalRecord record : records) last = Math.max(last, record.lsn());
+        long checkpoint = last + 1;
+        Path temp = checkpointFile.resolveSibling("checkpoint.tmp");
+        Files.write(temp, ByteBuffer.allocate(8).putLong(checkpoint).array(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        appliedLsn = checkpoint;
+
+        for (JournalRecord record : records) {
+            pending.remove(record.lsn());
+            latestByDocument.remove(record.documentId(), record);
+        }
+        List<JournalSegment> obsolete = new ArrayList<>();
+        synchronized (this) {
+            while (segments.size() > 1 && segments.getFirst().endLsn() <= checkpoint) {
+                obsolete.add(segments.removeFirst());
+            }
+        }
+        for (JournalSegment segment : obsolete) {
+            segment.close();
+            Files.deleteIfExists(segment.path());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) return;
+        if (flusher != null) flusher.shutdownNow();
+        synchronized (this) {
+            for (JournalSegment segment : segments) {
+                segment.force();
+            }
+        }
+    }
+}
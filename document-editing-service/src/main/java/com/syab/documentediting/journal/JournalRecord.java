@@ -0,0 +1,17 @@
+package com.syab.documentediting.journal;
+
+import com.syab.documentediting.model.DocumentChange;
+
+import java.time.LocalDateTime;
+
+/**
+ * One edit in the journal. {@code lsn} is the record's position in the journal; {@code changeId} is the id the
+ * change gets in {@code document_changes} once it has been replicated.
+ */
+public record JournalRecord(long lsn, long changeId, long documentId, long userId, LocalDateTime timestamp,
+                            String operationType, String content) {
+
+    public DocumentChange toChange() {
+        return new DocumentChange(changeId, documentId, userId, content, operationType, timestamp);
+    }
+}
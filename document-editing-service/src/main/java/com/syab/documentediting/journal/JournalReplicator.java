@@ -0,0 +1,116 @@
+package com.syab.documentediting.journal;
+
+import com.syab.documentediting.outbox.EditOutbox;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies journaled edits into PostgreSQL: the change rows, their {@link EditOutbox} events, and each document's
+ * newest content.
+ * Runs on one background thread in batches. Inserts are idempotent (the change id comes from the journal),
+ * so a batch that was written but not checkpointed before a crash is simply written again.
+ */
+@Component
+public class JournalReplicator {
+    private static final Logger log = LoggerFactory.getLogger(JournalReplicator.class);
+
+    private final EditJournal journal;
+    private final EditOutbox outbox;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long idleDelayMs;
+    private ScheduledExecutorService executor;
+
+    public JournalReplicator(EditJournal journal, EditOutbox outbox, JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${editing.journal.replication-batch:500}") int batchSize,
+                             @Value("${editing.journal.replication-idle-ms:20}") long idleDelayMs) {
+        this.journal = journal;
+        this.outbox = outbox;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.idleDelayMs = idleDelayMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!journal.isEnabled()) return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "edit-journal-replicator");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.schedule(this::drain, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private void drain() {
+        long delay = idleDelayMs;
+        try {
+            List<JournalRecord> batch = journal.unreplicated(batchSize);
+            if (!batch.isEmpty()) {
+                replicate(batch);
+                journal.replicated(batch);
+                // keep going without a pause while there is a backlog
+                if (batch.size() == batchSize) delay = 0;
+            }
+        } catch (Exception e) {
+            log.error("Edit journal replication failed; retrying", e);
+            delay = 1000;
+        }
+        if (!executor.isShutdown()) executor.schedule(this::drain, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void replicate(List<JournalRecord> batch) {
+        Map<Long, JournalRecord> latest = new LinkedHashMap<>();
+        for (JournalRecord record : batch) {
+            latest.put(record.documentId(), record);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("INSERT INTO document_changes (id, document_id, user_id, change_content, operation_type, timestamp) "
+                    + "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING", batch, batch.size(), (ps, record) -> {
+                ps.setLong(1, record.changeId());
+                ps.setLong(2, record.documentId());
+                ps.setLong(3, record.userId());
+                ps.setString(4, record.content());
+                ps.setString(5, record.operationType());
+                ps.setTimestamp(6, Timestamp.valueOf(record.timestamp()));
+            });
+            jdbcTemplate.batchUpdate("UPDATE documents SET content = ?, updated_at = ? WHERE id = ?",
+                    List.copyOf(latest.values()), latest.size(), (ps, record) -> {
+                        ps.setString(1, record.content());
+                        ps.setTimestamp(2, Timestamp.valueOf(record.timestamp()));
+                        ps.setLong(3, record.documentId());
+                    });
+            outbox.appendAll(batch);
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor == null) return;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
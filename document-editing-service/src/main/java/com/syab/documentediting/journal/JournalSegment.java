@@ -0,0 +1,178 @@
+package com.syab.documentediting.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * One pre-allocated, memory-mapped journal file.
+ * <pre>
+ * header  int magic, int version, long baseLsn
+ * frames  int length, int crc32c(payload), payload
+ *         payload = long changeId, long documentId, long userId, long timestamp (epoch micros, UTC),
+ *                   operation type and content as length-prefixed UTF-8 (-1 for null)
+ * </pre>
+ * The file is zero-filled on creation, so a zero length marks the end of the written frames.
+ * A frame whose length or checksum does not match is a torn write and ends the segment as well.
+ * Not thread-safe; {@link EditJournal} serialises access.
+ */
+class JournalSegment {
+    static final int MAGIC = 0x454a524e; // "EJRN"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    private static final int FRAME_HEADER_BYTES = 8;
+
+    private final Path path;
+    private final long baseLsn;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private int position = HEADER_BYTES;
+
+    private JournalSegment(Path path, long baseLsn, FileChannel channel, MappedByteBuffer mapped) {
+        this.path = path;
+        this.baseLsn = baseLsn;
+        this.channel = channel;
+        this.mapped = mapped;
+    }
+
+    static JournalSegment create(Path path, long baseLsn, int size) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        mapped.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, baseLsn);
+        mapped.force(0, HEADER_BYTES);
+        return new JournalSegment(path, baseLsn, channel, mapped);
+    }
+
+    static JournalSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        if (mapped.capacity() < HEADER_BYTES || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Not an edit journal segment: " + path);
+        }
+        return new JournalSegment(path, mapped.getLong(8), channel, mapped);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long baseLsn() {
+        return baseLsn;
+    }
+
+    long endLsn() {
+        return baseLsn + mapped.capacity();
+    }
+
+    long nextLsn() {
+        return baseLsn + position;
+    }
+
+    static int frameSize(byte[] operationType, byte[] content) {
+        return FRAME_HEADER_BYTES + 8 * 4 + 4 + (operationType == null ? 0 : operationType.length)
+                + 4 + (content == null ? 0 : content.length);
+    }
+
+    boolean fits(int frameSize) {
+        // keep room for the zero length that terminates the segment
+        return position + frameSize + 4 <= mapped.capacity();
+    }
+
+    /**
+     * @return the lsn of the appended frame
+     */
+    long append(long changeId, long documentId, long userId, LocalDateTime timestamp, byte[] operationType, byte[] content) {
+        int start = position;
+        ByteBuffer frame = mapped.duplicate();
+        frame.position(start + FRAME_HEADER_BYTES);
+        frame.putLong(changeId).putLong(documentId).putLong(userId)
+                .putLong(ChronoUnit.MICROS.between(Instant.EPOCH, timestamp.toInstant(ZoneOffset.UTC)));
+        putBytes(frame, operationType);
+        putBytes(frame, content);
+        int length = frame.position() - start - FRAME_HEADER_BYTES;
+        CRC32C crc = new CRC32C();
+        crc.update(mapped.slice(start + FRAME_HEADER_BYTES, length));
+        mapped.putInt(start + 4, (int) crc.getValue());
+        // the length goes in last: a frame is only visible to recovery once it is complete
+        mapped.putInt(start, length);
+        position = start + FRAME_HEADER_BYTES + length;
+        return baseLsn + start;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    /**
+     * Reads every intact frame and leaves the write position after the last one.
+     * Anything after a torn frame is zeroed so it cannot be mistaken for data later.
+     */
+    void recover(Consumer<JournalRecord> consumer) {
+        int at = HEADER_BYTES;
+        CRC32C crc = new CRC32C();
+        while (at + FRAME_HEADER_BYTES <= mapped.capacity()) {
+            int length = mapped.getInt(at);
+            if (length <= 0 || at + FRAME_HEADER_BYTES + length > mapped.capacity()) break;
+            crc.reset();
+            crc.update(mapped.slice(at + FRAME_HEADER_BYTES, length));
+            if ((int) crc.getValue() != mapped.getInt(at + 4)) break;
+            consumer.accept(decode(baseLsn + at, mapped.slice(at + FRAME_HEADER_BYTES, length)));
+            at += FRAME_HEADER_BYTES + length;
+        }
+        position = at;
+        if (at + 4 <= mapped.capacity() && mapped.getInt(at) != 0) {
+            for (int i = at; i < mapped.capacity(); i++) {
+                mapped.put(i, (byte) 0);
+            }
+            mapped.force();
+        }
+    }
+
+    private static JournalRecord decode(long lsn, ByteBuffer payload) {
+        long changeId = payload.getLong();
+        long documentId = payload.getLong();
+        long userId = payload.getLong();
+        LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.EPOCH.plus(payload.getLong(), ChronoUnit.MICROS), ZoneOffset.UTC);
+        String operationType = getString(payload);
+        String content = getString(payload);
+        return new JournalRecord(lsn, changeId, documentId, userId, timestamp, operationType, content);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    void force(long fromLsn, long toLsn) {
+        int from = (int) Math.max(0, fromLsn - baseLsn);
+        int to = (int) Math.min(mapped.capacity(), toLsn - baseLsn);
+        if (to > from) mapped.force(from, to - from);
+    }
+
+    void force() {
+        mapped.force();
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,136 @@
+package com.syab.documentediting.metrics;
+
+import com.syab.documentediting.heartbeat.ConnectionReaper;
+import com.syab.documentediting.journal.EditJournal;
+import com.syab.documentediting.service.PresenceRegistry;
+import com.syab.documentediting.workingset.WorkingSet;
+import com.syab.documentediting.ws.EditPipelineLoad;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for the edit and broadcast pipeline, exported through /actuator/prometheus.
+ * Tags are limited to small fixed sets (transport, operation, outcome); per-document values are
+ * recorded as distributions rather than as one time series per document.
+ */
+@Component
+public class EditingMetrics {
+    public static final String SSE = "sse";
+    public static final String WS = "ws";
+
+    private static final Set<String> OPERATIONS = Set.of("INSERT", "DELETE", "UPDATE", "REVERT");
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> applyTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> deliveryTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> fanoutSizes = new ConcurrentHashMap<>();
+    private final Map<String, Counter> sendFailures = new ConcurrentHashMap<>();
+    private final Map<String, Counter> frameOutcomes = new ConcurrentHashMap<>();
+    private final Timer persistTimer;
+
+    public EditingMetrics(MeterRegistry registry, EditPipelineLoad pipelineLoad, ConnectionReaper connectionReaper) {
+        this.registry = registry;
+        this.persistTimer = Timer.builder("editing.edit.persist")
+                .description("Time spent writing the document and its change row")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("editing.pipeline.queue.depth", pipelineLoad, EditPipelineLoad::queueDepth)
+                .description("Edits being applied or deferred by the rate limiter")
+                .register(registry);
+        Gauge.builder("editing.pipeline.throttle.factor", pipelineLoad, EditPipelineLoad::throttleFactor)
+                .description("Current scaling applied to the WebSocket rate limits (1 = unthrottled)")
+                .register(registry);
+        Gauge.builder("editing.heartbeat.connections", connectionReaper, ConnectionReaper::registeredCount)
+                .description("Connections tracked by the heartbeat wheel")
+                .register(registry);
+        Gauge.builder("editing.heartbeat.sender.queue.depth", connectionReaper, ConnectionReaper::senderQueueDepth)
+                .register(registry);
+        FunctionCounter.builder("editing.heartbeat.reaped", connectionReaper, ConnectionReaper::reapedCount)
+                .description("Connections closed for missing heartbeats or failed heartbeat sends")
+                .register(registry);
+        FunctionCounter.builder("editing.heartbeat.skipped", connectionReaper, ConnectionReaper::skippedHeartbeatCount)
+                .description("Heartbeats not sent because the sender queue was full; retried at the next interval")
+                .register(registry);
+    }
+
+    public void bindSubscribers(String transport, PresenceRegistry<?> presence) {
+        Gauge.builder("editing.subscribers", presence, PresenceRegistry::subscriberCount)
+                .tag("transport", transport)
+                .register(registry);
+        Gauge.builder("editing.documents.active", presence, PresenceRegistry::documentCount)
+                .tag("transport", transport)
+                .register(registry);
+    }
+
+    public void bindJournal(EditJournal journal) {
+        if (!journal.isEnabled()) return;
+        Gauge.builder("editing.journal.pending", journal, EditJournal::pendingCount)
+                .description("Journaled edits not yet replicated to the database")
+                .register(registry);
+    }
+
+    public void bindWorkingSet(WorkingSet workingSet) {
+        Gauge.builder("editing.workingset.documents", workingSet, WorkingSet::size)
+                .description("Documents held in memory for reads without a database round trip")
+                .register(registry);
+    }
+
+    public void recordEditApply(String operationType, long nanos) {
+        String operation = operationType != null && OPERATIONS.contains(operationType) ? operationType : "OTHER";
+        applyTimers.computeIfAbsent(operation, op -> Timer.builder("editing.edit.apply")
+                .description("Time to apply an edit, from load to broadcast dispatch")
+                .tag("operation", op)
+                .publishPercentileHistogram()
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPersist(long nanos) {
+        persistTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Number of subscribers a single change was fanned out to.
+     */
+    public void recordFanout(String transport, int subscribers) {
+        fanoutSizes.computeIfAbsent(transport, t -> DistributionSummary.builder("editing.broadcast.fanout.subscribers")
+                .tag("transport", t)
+                .serviceLevelObjectives(1, 2, 5, 10, 25, 50, 100, 250, 1000)
+                .register(registry)).record(subscribers);
+    }
+
+    /**
+     * Edit-to-delivery latency for one subscriber, measured from when the edit started being applied.
+     */
+    public void recordDelivery(String transport, long editStartNanos) {
+        deliveryTimers.computeIfAbsent(transport, t -> Timer.builder("editing.broadcast.delivery")
+                .description("Time from edit start until the change was handed to a subscriber")
+                .tag("transport", t)
+                .publishPercentileHistogram()
+                .register(registry)).record(System.nanoTime() - editStartNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void sendFailed(String transport) {
+        sendFailures.computeIfAbsent(transport, t -> Counter.builder("editing.broadcast.send.failures")
+                .tag("transport", t)
+                .register(registry)).increment();
+    }
+
+    /**
+     * @param outcome one of applied, merged, deferred, rejected
+     */
+    public void wsFrame(String outcome) {
+        frameOutcomes.computeIfAbsent(outcome, o -> Counter.builder("editing.ws.frames")
+                .tag("outcome", o)
+                .register(registry)).increment();
+    }
+}
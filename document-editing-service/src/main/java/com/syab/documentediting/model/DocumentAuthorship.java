@@ -0,0 +1,31 @@
+package com.syab.documentediting.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A checkpoint of a document's authorship index. Read and written by {@code AuthorshipTracker} with plain SQL;
+ * mapped so schemas created by Hibernate (the H2 local profile) have the table too.
+ */
+@Entity
+@Table(name = "document_authorship")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentAuthorship {
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(nullable = false)
+    private Long revision;
+
+    @Column(nullable = false)
+    private byte[] runs;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,24 @@
+package com.syab.documentediting.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "edit_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EditOutboxEntry {
+    @Id
+    @Column(name = "change_id")
+    private Long changeId;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,51 @@
+package com.syab.documentediting.outbox;
+
+import com.syab.documentediting.journal.JournalRecord;
+import com.syab.documentediting.repository.EditOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Writes the edit event stream into the {@code edit_outbox} table. Both methods must be called inside the
+ * transaction that writes the change rows, so an event exists exactly when its change does;
+ * {@link OutboxRelay} delivers them afterwards.
+ */
+@Component
+public class EditOutbox {
+    private final EditOutboxRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    public EditOutbox(EditOutboxRepository repository, JdbcTemplate jdbcTemplate,
+                      @Value("${editing.outbox.enabled:true}") boolean enabled) {
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void append(Long changeId, Long documentId) {
+        if (!enabled) return;
+        repository.append(changeId, documentId);
+    }
+
+    /**
+     * Journal mode: events for a replicated batch. A batch replicated twice after a crash gets its events once.
+     */
+    public void appendAll(List<JournalRecord> batch) {
+        if (!enabled) return;
+        jdbcTemplate.batchUpdate("INSERT INTO edit_outbox (change_id, document_id, created_at) VALUES (?, ?, ?) "
+                + "ON CONFLICT DO NOTHING", batch, batch.size(), (ps, record) -> {
+            ps.setLong(1, record.changeId());
+            ps.setLong(2, record.documentId());
+            ps.setTimestamp(3, Timestamp.valueOf(record.timestamp()));
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.syab.documentediting.outbox;
+
+import com.syab.documentediting.dto.DocumentEditEventDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivers the {@link EditOutbox} to version-control-service, oldest first, in batches. Each batch is coalesced
+ * per document and author before it is sent: one event with that author's newest change and its content, the
+ * number of changes and when the first and last were made, so a burst of keystrokes costs one content read and
+ * one event. Rows are locked with
+ * {@code SKIP LOCKED} while a batch is in flight, so several instances can relay side by side, and deleted only
+ * after the receiver accepted the batch. Delivery is at least once; the receiver ignores change ids it has seen.
+ */
+@Component
+public class OutboxRelay {
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final EditOutbox outbox;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RestTemplate restTemplate;
+    private final String targetUrl;
+    private final int batchSize;
+
+    public OutboxRelay(EditOutbox outbox, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                       @Value("${editing.outbox.target-url:http://localhost:8084/api/versions/events}") String targetUrl,
+                       @Value("${editing.outbox.batch-size:500}") int batchSize,
+                       @Value("${editing.outbox.connect-timeout-ms:2000}") int connectTimeoutMs,
+                       @Value("${editing.outbox.read-timeout-ms:10000}") int readTimeoutMs) {
+        this.outbox = outbox;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.targetUrl = targetUrl;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${editing.outbox.poll-ms:1000}")
+    public void relay() {
+        if (!outbox.isEnabled()) return;
+        try {
+            // keep going without a pause while there is a backlog
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> deliverBatch()))) {
+            }
+        } catch (Exception e) {
+            // the rows stay in the outbox and are sent again on the next poll
+            log.warn("Delivering edit events to {} failed: {}", targetUrl, e.toString());
+        }
+    }
+
+    private boolean deliverBatch() {
+        List<Long> changeIds = new ArrayList<>();
+        Map<Author, DocumentEditEventDTO> byAuthor = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT o.change_id, o.document_id, c.user_id, o.created_at FROM edit_outbox o "
+                + "LEFT JOIN document_changes c ON c.document_id = o.document_id AND c.id = o.change_id "
+                + "ORDER BY o.change_id LIMIT ? FOR UPDATE OF o SKIP LOCKED", rs -> {
+            long changeId = rs.getLong(1);
+            Author author = new Author(rs.getLong(2), rs.getObject(3, Long.class));
+            String createdAt = rs.getTimestamp(4).toLocalDateTime().toString();
+            changeIds.add(changeId);
+            DocumentEditEventDTO event = byAuthor.computeIfAbsent(author,
+                    a -> new DocumentEditEventDTO(a.documentId(), null, a.userId(), 0, null, createdAt, null));
+            event.setChangeId(changeId);
+            event.setEdits(event.getEdits() + 1);
+            event.setLastEditAt(createdAt);
+        }, batchSize);
+        if (changeIds.isEmpty()) return false;
+
+        Map<Long, String> contents = new HashMap<>();
+        Long[] newest = byAuthor.values().stream().map(DocumentEditEventDTO::getChangeId).toArray(Long[]::new);
+        jdbcTemplate.query("SELECT id, change_content FROM document_changes WHERE id = ANY (?)", ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", newest));
+        }, rs -> {
+            contents.put(rs.getLong(1), rs.getString(2));
+        });
+        List<DocumentEditEventDTO> events = new ArrayList<>(byAuthor.size());
+        for (DocumentEditEventDTO event : byAuthor.values()) {
+            // archived away while undelivered; nothing left to version
+            if (!contents.containsKey(event.getChangeId())) continue;
+            event.setContent(contents.get(event.getChangeId()));
+            events.add(event);
+        }
+
+        if (!events.isEmpty()) restTemplate.postForEntity(targetUrl, events, Void.class);
+        jdbcTemplate.update("DELETE FROM edit_outbox WHERE change_id = ANY (?)", ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", changeIds.toArray()));
+        });
+        return changeIds.size() == batchSize;
+    }
+
+    private record Author(long documentId, Long userId) {
+    }
+}
@@ -1,12 +1,26 @@
 package com.syab.documentediting.repository;
 
 import com.syab.documentediting.model.DocumentChange;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface DocumentChangeRepository extends JpaRepository<DocumentChange, Long> {
     List<DocumentChange> findByDocumentId(Long documentId);
+
+    List<DocumentChange> findByDocumentIdAndIdGreaterThanEqualOrderByIdAsc(Long documentId, Long id, Pageable pageable);
+
+    /**
+     * The newest change of each of the given documents, if it is newer than {@code afterId}.
+     */
+    @Query("select c from DocumentChange c where c.id in (select max(t.id) from DocumentChange t "
+            + "where t.documentId in :documentIds and t.id > :afterId group by t.documentId)")
+    List<DocumentChange> findLatestByDocumentIdInAndIdGreaterThan(@Param("documentIds") Collection<Long> documentIds,
+                                                                  @Param("afterId") long afterId);
 }
@@ -0,0 +1,17 @@
+package com.syab.documentediting.repository;
+
+import com.syab.documentediting.model.EditOutboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface EditOutboxRepository extends JpaRepository<EditOutboxEntry, Long> {
+    // a plain insert; save() would select the row first because the id is assigned
+    @Modifying
+    @Query(value = "INSERT INTO edit_outbox (change_id, document_id, created_at) VALUES (:changeId, :documentId, localtimestamp)",
+            nativeQuery = true)
+    void append(@Param("changeId") Long changeId, @Param("documentId") Long documentId);
+}
@@ -1,21 +1,38 @@
 package com.syab.documentediting.service;
 
+import com.syab.documentediting.archive.ChangeArchive;
+import com.syab.documentediting.blame.AuthorshipTracker;
+import com.syab.documentediting.dto.AuthorRunDTO;
+import com.syab.documentediting.dto.DocumentBlameDTO;
 import com.syab.documentediting.dto.DocumentChangeDTO;
 import com.syab.documentediting.dto.DocumentDTO;
 import com.syab.documentediting.dto.EditDocumentRequest;
+import com.syab.documentediting.heartbeat.ConnectionReaper;
+import com.syab.documentediting.jfr.BroadcastCompletedEvent;
+import com.syab.documentediting.jfr.ChangePersistedEvent;
+import com.syab.documentediting.jfr.EditAppliedEvent;
+import com.syab.documentediting.journal.EditJournal;
+import com.syab.documentediting.journal.JournalRecord;
+import com.syab.documentediting.metrics.EditingMetrics;
 import com.syab.documentediting.model.Document;
 import com.syab.documentediting.model.DocumentChange;
+import com.syab.documentediting.outbox.EditOutbox;
 import com.syab.documentediting.repository.DocumentChangeRepository;
 import com.syab.documentediting.repository.DocumentRepository;
+import com.syab.documentediting.workingset.WorkingSet;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Optional;
@@ -26,13 +43,35 @@ import java.util.stream.Collectors;
 public class DocumentService {
     private final DocumentRepository documentRepository;
     private final DocumentChangeRepository changeRepository;
-    private final Map<Long, CopyOnWriteArrayList<SseEmitter>> emitters = new ConcurrentHashMap<>();
-    private final Map<SseEmitter, Long> emitterToUser = new ConcurrentHashMap<>();
-    private final Map<Long, Set<Long>> onlineUsers = new ConcurrentHashMap<>();
+    private final ConnectionReaper connectionReaper;
+    private final EditingMetrics metrics;
+    private final ChangeArchive changeArchive;
+    private final EditJournal journal;
+    private final WorkingSet workingSet;
+    private final EditOutbox outbox;
+    private final AuthorshipTracker authorship;
+    private final PresenceRegistry<SseSubscriber> presence = new PresenceRegistry<>();
 
-    public DocumentService(DocumentRepository documentRepository, DocumentChangeRepository changeRepository) {
+    // SSE streams are closed after this long; EventSource reconnects on its own
+    @Value("${editing.sse.timeout-ms:1800000}")
+    private long sseTimeoutMs = 1_800_000L;
+
+    public DocumentService(DocumentRepository documentRepository, DocumentChangeRepository changeRepository,
+                           ConnectionReaper connectionReaper, EditingMetrics metrics, ChangeArchive changeArchive,
+                           EditJournal journal, WorkingSet workingSet, EditOutbox outbox,
+                           AuthorshipTracker authorship) {
         this.documentRepository = documentRepository;
         this.changeRepository = changeRepository;
+        this.connectionReaper = connectionReaper;
+        this.metrics = metrics;
+        this.changeArchive = changeArchive;
+        this.journal = journal;
+        this.workingSet = workingSet;
+        this.outbox = outbox;
+        this.authorship = authorship;
+        metrics.bindSubscribers(EditingMetrics.SSE, presence);
+        metrics.bindJournal(journal);
+        metrics.bindWorkingSet(workingSet);
     }
 
     /**
@@ -53,42 +92,149 @@ public class DocumentService {
      * Operation 2: Edit an existing document collaboratively and track changes
      */
     public DocumentDTO editDocument(Long documentId, Long userId, EditDocumentRequest request) {
-        Optional<Document> documentOptional = documentRepository.findById(documentId);
+        return applyEdit(documentId, userId, request).document();
+    }
+
+    /**
+     * {@link #editDocument}, also returning the change it recorded, whose id is the document's new revision
+     */
+    public AppliedEdit applyEdit(Long documentId, Long userId, EditDocumentRequest request) {
+        long started = System.nanoTime();
+        EditAppliedEvent appliedEvent = new EditAppliedEvent();
+        appliedEvent.begin();
+        Optional<WorkingSet.ActiveDocument> active = journal.isEnabled() ? activeDocument(documentId) : Optional.empty();
+        Optional<Document> documentOptional = journal.isEnabled()
+                ? active.map(WorkingSet.ActiveDocument::document) : documentRepository.findById(documentId);
         if (documentOptional.isEmpty()) {
             throw new IllegalArgumentException("Document not found");
         }
 
         Document document = documentOptional.get();
+        int previousLength = document.getContent() == null ? 0 : document.getContent().length();
         
-        // Update document content
-        document.setContent(request.getContent());
-        Document updatedDocument = documentRepository.save(document);
-
-        // Track the change in real-time
-        DocumentChange change = new DocumentChange();
-        change.setDocumentId(documentId);
-        change.setUserId(userId);
-        change.setChangeContent(request.getContent());
-        change.setOperationType(request.getOperationType());
-        changeRepository.save(change);
+        ChangePersistedEvent persistedEvent = new ChangePersistedEvent();
+        persistedEvent.begin();
+        long persistStarted = System.nanoTime();
+        Document updatedDocument;
+        DocumentChange change;
+        if (journal.isEnabled()) {
+            // acknowledged once journaled; JournalReplicator writes the document and change rows later
+            synchronized (active.get()) {
+                JournalRecord record = journal.append(documentId, userId, request.getOperationType(), request.getContent());
+                updatedDocument = detachedCopy(active.get().document());
+                updatedDocument.setContent(record.content());
+                updatedDocument.setUpdatedAt(record.timestamp());
+                active.get().advance(updatedDocument, record.changeId());
+                authorship.record(documentId, record.changeId(), userId, record.content());
+                change = record.toChange();
+            }
+        } else {
+            // Update document content
+            document.setContent(request.getContent());
+            updatedDocument = documentRepository.save(document);
+
+            // Track the change in real-time
+            change = new DocumentChange();
+            change.setDocumentId(documentId);
+            change.setUserId(userId);
+            change.setChangeContent(request.getContent());
+            change.setOperationType(request.getOperationType());
+            changeRepository.save(change);
+            outbox.append(change.getId(), documentId);
+            cacheAfterCommit(detachedCopy(updatedDocument), change.getId(), userId);
+        }
+        metrics.recordPersist(System.nanoTime() - persistStarted);
+        long revision = change.getId() == null ? 0L : change.getId();
+        persistedEvent.end();
+        if (persistedEvent.shouldCommit()) {
+            persistedEvent.documentId = documentId;
+            persistedEvent.revision = revision;
+            persistedEvent.changeBytes = request.getContent() == null ? 0 : request.getContent().length();
+            persistedEvent.commit();
+        }
 
         // broadcast the change to SSE subscribers
-        broadcastDocumentChange(documentId, convertToDTO(updatedDocument), convertChangeToDTO(change));
+        DocumentDTO documentDTO = convertToDTO(updatedDocument);
+        DocumentChangeDTO changeDTO = convertChangeToDTO(change);
+        broadcastDocumentChange(documentId, documentDTO, changeDTO, started);
+
+        metrics.recordEditApply(request.getOperationType(), System.nanoTime() - started);
+        appliedEvent.end();
+        if (appliedEvent.shouldCommit()) {
+            appliedEvent.documentId = documentId;
+            appliedEvent.revision = revision;
+            appliedEvent.operationType = request.getOperationType();
+            appliedEvent.previousLength = previousLength;
+            appliedEvent.contentLength = request.getContent() == null ? 0 : request.getContent().length();
+            appliedEvent.commit();
+        }
+        return new AppliedEdit(documentDTO, changeDTO);
+    }
 
-        return convertToDTO(updatedDocument);
+    private Optional<WorkingSet.ActiveDocument> activeDocument(Long documentId) {
+        Optional<WorkingSet.ActiveDocument> cached = workingSet.get(documentId);
+        if (cached.isPresent()) return cached;
+        return documentRepository.findById(documentId).map(loaded -> {
+            // never modify the managed entity here, or a journaled edit would be flushed to the database after all
+            Document copy = detachedCopy(loaded);
+            long revision = WorkingSet.UNKNOWN_REVISION;
+            JournalRecord latest = journal.latest(documentId);
+            if (latest != null) {
+                copy.setContent(latest.content());
+                copy.setUpdatedAt(latest.timestamp());
+                revision = latest.changeId();
+            }
+            return workingSet.load(copy, revision);
+        });
+    }
+
+    // a rolled-back edit must not be served from the working set or credited to anyone
+    private void cacheAfterCommit(Document document, Long revision, Long userId) {
+        long rev = revision == null ? WorkingSet.UNKNOWN_REVISION : revision;
+        Runnable apply = () -> {
+            workingSet.advance(document, rev);
+            if (revision != null) authorship.record(document.getId(), revision, userId, document.getContent());
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply.run();
+            }
+        });
+    }
+
+    private static Document detachedCopy(Document document) {
+        return new Document(document.getId(), document.getTitle(), document.getContent(), document.getOwnerId(),
+                document.getCreatedAt(), document.getUpdatedAt(), document.getIsShared());
     }
 
     public SseEmitter subscribeToDocument(Long documentId, Long userId) {
-        SseEmitter emitter = new SseEmitter(0L); // no timeout
-        emitters.computeIfAbsent(documentId, k -> new CopyOnWriteArrayList<>()).add(emitter);
-        emitterToUser.put(emitter, userId);
-        onlineUsers.computeIfAbsent(documentId, k -> ConcurrentHashMap.newKeySet()).add(userId);
+        SseSubscriber subscriber = new SseSubscriber(new SseEmitter(sseTimeoutMs), userId);
+        SseEmitter emitter = subscriber.emitter;
+        subscriber.registration = connectionReaper.register(new ConnectionReaper.HeartbeatTarget() {
+            @Override
+            public boolean sendHeartbeat() throws Exception {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+                return true;
+            }
+
+            @Override
+            public void reap() {
+                emitter.complete();
+                removeSubscriber(documentId, subscriber);
+            }
+        });
+        presence.add(documentId, subscriber, userId);
         // broadcast updated presence
         broadcastPresence(documentId);
 
-        emitter.onCompletion(() -> removeEmitter(documentId, emitter));
-        emitter.onTimeout(() -> removeEmitter(documentId, emitter));
-        emitter.onError((e) -> removeEmitter(documentId, emitter));
+        emitter.onCompletion(() -> removeSubscriber(documentId, subscriber));
+        emitter.onTimeout(() -> removeSubscriber(documentId, subscriber));
+        emitter.onError((e) -> removeSubscriber(documentId, subscriber));
 
         // Optionally, send a welcome event with current document state
         try {
@@ -101,65 +247,62 @@ public class DocumentService {
         return emitter;
     }
 
-    private void removeEmitter(Long documentId, SseEmitter emitter) {
-        List<SseEmitter> list = emitters.get(documentId);
-        if (list != null) {
-            list.remove(emitter);
-        }
-        Long uid = emitterToUser.remove(emitter);
-        if (uid != null) {
-            Set<Long> users = onlineUsers.get(documentId);
-            if (users != null) {
-                // Check if any other emitter remains for this same user
-                boolean stillHasEmitter = false;
-                List<SseEmitter> remaining = emitters.get(documentId);
-                if (remaining != null && !remaining.isEmpty()) {
-                    for (SseEmitter e : remaining) {
-                        Long u = emitterToUser.get(e);
-                        if (u != null && u.equals(uid)) {
-                            stillHasEmitter = true;
-                            break;
-                        }
-                    }
-                }
-                if (!stillHasEmitter) {
-                    users.remove(uid);
-                }
-                // if no more online users, remove set
-                if (users.isEmpty()) onlineUsers.remove(documentId);
-            }
+    private void removeSubscriber(Long documentId, SseSubscriber subscriber) {
+        ConnectionReaper.Registration registration = subscriber.registration;
+        if (registration != null) registration.cancel();
+        if (presence.remove(documentId, subscriber, subscriber.userId)) {
             broadcastPresence(documentId);
         }
     }
 
     private void broadcastPresence(Long documentId) {
-        List<SseEmitter> list = emitters.get(documentId);
-        if (list == null) return;
-        Set<Long> users = onlineUsers.get(documentId);
-        List<Long> userList = users == null ? List.of() : List.copyOf(users);
-
-        for (SseEmitter emitter : list) {
+        List<Long> userList = presence.onlineUsers(documentId);
+        for (SseSubscriber subscriber : presence.subscribers(documentId)) {
             CompletableFuture.runAsync(() -> {
                 try {
-                    emitter.send(SseEmitter.event().name("presence").data(userList));
+                    subscriber.emitter.send(SseEmitter.event().name("presence").data(userList));
                 } catch (Exception e) {
-                    removeEmitter(documentId, emitter);
+                    metrics.sendFailed(EditingMetrics.SSE);
+                    removeSubscriber(documentId, subscriber);
                 }
             });
         }
     }
 
-    private void broadcastDocumentChange(Long documentId, DocumentDTO documentDTO, DocumentChangeDTO changeDTO) {
-        List<SseEmitter> list = emitters.get(documentId);
-        if (list == null) return;
-
-        for (SseEmitter emitter : list) {
-            CompletableFuture.runAsync(() -> {
+    private void broadcastDocumentChange(Long documentId, DocumentDTO documentDTO, DocumentChangeDTO changeDTO, long editStarted) {
+        var payload = Map.of("document", documentDTO, "change", changeDTO);
+        var subscribers = presence.subscribers(documentId);
+        metrics.recordFanout(EditingMetrics.SSE, subscribers.size());
+        BroadcastCompletedEvent broadcastEvent = new BroadcastCompletedEvent();
+        // only track completion of the individual sends when someone is recording
+        boolean tracked = broadcastEvent.isEnabled() && !subscribers.isEmpty();
+        List<CompletableFuture<Void>> sends = tracked ? new ArrayList<>() : null;
+        AtomicInteger failures = tracked ? new AtomicInteger() : null;
+        broadcastEvent.begin();
+        for (SseSubscriber subscriber : subscribers) {
+            CompletableFuture<Void> send = CompletableFuture.runAsync(() -> {
                 try {
-                    var payload = Map.of("document", documentDTO, "change", changeDTO);
-                    emitter.send(SseEmitter.event().name("document").data(payload));
+                    subscriber.emitter.send(SseEmitter.event().name("document").data(payload));
+                    metrics.recordDelivery(EditingMetrics.SSE, editStarted);
                 } catch (Exception e) {
-                    removeEmitter(documentId, emitter);
+                    if (failures != null) failures.incrementAndGet();
+                    metrics.sendFailed(EditingMetrics.SSE);
+                    removeSubscriber(documentId, subscriber);
+                }
+            });
+            if (tracked) sends.add(send);
+        }
+        if (tracked) {
+            int subscriberCount = sends.size();
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).whenComplete((v, e) -> {
+                broadcastEvent.end();
+                if (broadcastEvent.shouldCommit()) {
+                    broadcastEvent.documentId = documentId;
+                    broadcastEvent.revision = changeDTO.getId() == null ? 0L : changeDTO.getId();
+                    broadcastEvent.transport = EditingMetrics.SSE;
+                    broadcastEvent.subscribers = subscriberCount;
+                    broadcastEvent.failures = failures.get();
+                    broadcastEvent.commit();
                 }
             });
         }
@@ -169,21 +312,50 @@ public class DocumentService {
      * Operation 3: Track changes in real-time (Get all changes for a document)
      */
     public List<DocumentChangeDTO> getDocumentChanges(Long documentId) {
-        Optional<Document> document = documentRepository.findById(documentId);
+        Optional<WorkingSet.ActiveDocument> document = activeDocument(documentId);
         if (document.isEmpty()) {
             throw new IllegalArgumentException("Document not found");
         }
 
         List<DocumentChange> changes = changeRepository.findByDocumentId(documentId);
+        List<DocumentChange> archived = changeArchive.findByDocumentId(documentId);
+        List<JournalRecord> journaled = journal.pending(documentId);
+        if (!archived.isEmpty() || !journaled.isEmpty()) {
+            changes = merged(archived, changes, journaled.stream().map(JournalRecord::toChange).toList());
+        }
         return changes.stream().map(this::convertChangeToDTO).collect(Collectors.toList());
     }
 
+    // in id order; a row can briefly be in two places while its partition is archived or its journal entry replicated
+    @SafeVarargs
+    private static List<DocumentChange> merged(List<DocumentChange>... sources) {
+        Map<Long, DocumentChange> byId = new TreeMap<>();
+        for (List<DocumentChange> source : sources) {
+            for (DocumentChange change : source) byId.putIfAbsent(change.getId(), change);
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    /**
+     * Who wrote which part of the document's current content, as runs of consecutive characters by the same user.
+     */
+    public DocumentBlameDTO getDocumentBlame(Long documentId) {
+        if (activeDocument(documentId).isEmpty()) {
+            throw new IllegalArgumentException("Document not found");
+        }
+        AuthorshipTracker.Blame blame = authorship.blame(documentId);
+        List<AuthorRunDTO> runs = blame.runs().stream()
+                .map(run -> new AuthorRunDTO(run.userId(), run.length()))
+                .collect(Collectors.toList());
+        return new DocumentBlameDTO(documentId, blame.revision(), blame.length(), runs);
+    }
+
     public DocumentDTO getDocument(Long documentId) {
-        Optional<Document> document = documentRepository.findById(documentId);
+        Optional<WorkingSet.ActiveDocument> document = activeDocument(documentId);
         if (document.isEmpty()) {
             throw new IllegalArgumentException("Document not found");
         }
-        return convertToDTO(document.get());
+        return convertToDTO(document.get().document());
     }
 
     public List<DocumentDTO> getUserDocuments(Long userId) {
@@ -201,13 +373,17 @@ public class DocumentService {
     }
 
     private DocumentDTO convertToDTO(Document document) {
+        // in journal mode the database can lag behind; the newest journaled content wins
+        JournalRecord journaled = journal.latest(document.getId());
+        String content = journaled != null ? journaled.content() : document.getContent();
+        LocalDateTime updatedAt = journaled != null ? journaled.timestamp() : document.getUpdatedAt();
         return new DocumentDTO(
             document.getId(),
             document.getTitle(),
-            document.getContent(),
+            content,
             document.getOwnerId(),
             document.getIsShared(),
-            document.getUpdatedAt() != null ? document.getUpdatedAt().toString() : null
+            updatedAt != null ? updatedAt.toString() : null
         );
     }
 
@@ -215,4 +391,18 @@ public class DocumentService {
         return new DocumentChangeDTO(change.getId(), change.getDocumentId(), change.getUserId(),
                 change.getChangeContent(), change.getOperationType());
     }
+
+    public record AppliedEdit(DocumentDTO document, DocumentChangeDTO change) {
+    }
+
+    private static final class SseSubscriber {
+        private final SseEmitter emitter;
+        private final Long userId;
+        private volatile ConnectionReaper.Registration registration;
+
+        private SseSubscriber(SseEmitter emitter, Long userId) {
+            this.emitter = emitter;
+            this.userId = userId;
+        }
+    }
 }
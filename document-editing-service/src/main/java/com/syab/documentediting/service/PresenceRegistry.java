@@ -0,0 +1,88 @@
+package com.syab.documentediting.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Subscribers (SSE emitters or WebSocket sessions) per document, plus which users are online.
+ * All mutations for a document happen inside {@code channels.compute(...)}, so adding and removing
+ * are atomic per document and the entry is dropped as soon as its last subscriber leaves.
+ * A user stays online while they have at least one subscriber; the online-user snapshot handed to
+ * presence broadcasts is only rebuilt when a user actually joins or leaves.
+ */
+public class PresenceRegistry<S> {
+    private final Map<Long, Channel<S>> channels = new ConcurrentHashMap<>();
+
+    private static final class Channel<S> {
+        private final Set<S> subscribers = ConcurrentHashMap.newKeySet();
+        // userId -> number of subscribers that user has on this document; guarded by the compute lock
+        private final Map<Long, Integer> userCounts = new HashMap<>();
+        private volatile List<Long> onlineUsers = List.of();
+    }
+
+    /**
+     * @return true when this made the user appear online on the document
+     */
+    public boolean add(Long documentId, S subscriber, Long userId) {
+        boolean[] joined = {false};
+        channels.compute(documentId, (id, channel) -> {
+            if (channel == null) channel = new Channel<>();
+            if (channel.subscribers.add(subscriber) && userId != null
+                    && channel.userCounts.merge(userId, 1, Integer::sum) == 1) {
+                channel.onlineUsers = List.copyOf(channel.userCounts.keySet());
+                joined[0] = true;
+            }
+            return channel;
+        });
+        return joined[0];
+    }
+
+    /**
+     * Safe to call more than once for the same subscriber.
+     *
+     * @return true when this made the user go offline on the document
+     */
+    public boolean remove(Long documentId, S subscriber, Long userId) {
+        boolean[] left = {false};
+        channels.computeIfPresent(documentId, (id, channel) -> {
+            if (channel.subscribers.remove(subscriber) && userId != null
+                    && channel.userCounts.merge(userId, -1, Integer::sum) == 0) {
+                channel.userCounts.remove(userId);
+                channel.onlineUsers = List.copyOf(channel.userCounts.keySet());
+                left[0] = true;
+            }
+            return channel.subscribers.isEmpty() ? null : channel;
+        });
+        return left[0];
+    }
+
+    public Collection<S> subscribers(Long documentId) {
+        Channel<S> channel = channels.get(documentId);
+        return channel == null ? List.of() : channel.subscribers;
+    }
+
+    public List<Long> onlineUsers(Long documentId) {
+        Channel<S> channel = channels.get(documentId);
+        return channel == null ? List.of() : channel.onlineUsers;
+    }
+
+    public boolean hasSubscribers(Long documentId) {
+        return channels.containsKey(documentId);
+    }
+
+    public int documentCount() {
+        return channels.size();
+    }
+
+    public int subscriberCount() {
+        int count = 0;
+        for (Channel<S> channel : channels.values()) {
+            count += channel.subscribers.size();
+        }
+        return count;
+    }
+}
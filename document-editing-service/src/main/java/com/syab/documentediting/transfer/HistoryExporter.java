@@ -0,0 +1,143 @@
+package com.syab.documentediting.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syab.documentediting.archive.ChangeArchive;
+import com.syab.documentediting.dto.ExportedChangeDTO;
+import com.syab.documentediting.dto.ExportedDocumentDTO;
+import com.syab.documentediting.journal.EditJournal;
+import com.syab.documentediting.journal.JournalRecord;
+import com.syab.documentediting.model.DocumentChange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes some or all documents with their change history as gzip-compressed NDJSON: a header line, every
+ * document in id order with its current content, then each document's changes in id order. Changes come from
+ * the archive, PostgreSQL and the journal, like {@code getDocumentChanges}, so the export is complete whichever
+ * of them a change is in. Rows are read through a cursor ({@code editing.transfer.fetch-size} at a time) and
+ * written as they arrive; only the document ids and one document's archived and journaled changes are held.
+ * {@link HistoryImporter} reads the result.
+ */
+@Component
+public class HistoryExporter {
+    static final String FORMAT = "document-history";
+    static final int FORMAT_VERSION = 1;
+
+    private final JdbcTemplate cursor;
+    private final TransactionTemplate readOnly;
+    private final ObjectMapper objectMapper;
+    private final ChangeArchive changeArchive;
+    private final EditJournal journal;
+
+    public HistoryExporter(DataSource dataSource, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                           ChangeArchive changeArchive, EditJournal journal,
+                           @Value("${editing.transfer.fetch-size:200}") int fetchSize) {
+        this.cursor = new JdbcTemplate(dataSource);
+        this.cursor.setFetchSize(fetchSize);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.changeArchive = changeArchive;
+        this.journal = journal;
+    }
+
+    /**
+     * Writes the export to {@code out}; {@code documentIds} null or empty exports every document.
+     */
+    public void export(Collection<Long> documentIds, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("type", "header");
+        header.put("format", FORMAT);
+        header.put("version", FORMAT_VERSION);
+        header.put("exportedAt", LocalDateTime.now().toString());
+        writeLine(gzip, header);
+        Long[] ids = documentIds == null || documentIds.isEmpty() ? null : documentIds.toArray(new Long[0]);
+        PreparedStatementSetter bind = ps -> {
+            if (ids != null) ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+        };
+        try {
+            // PostgreSQL only reads through a cursor inside a transaction
+            readOnly.executeWithoutResult(status -> {
+                List<Long> exported = new ArrayList<>();
+                cursor.query("SELECT id, title, content, owner_id, is_shared, created_at, updated_at FROM documents"
+                        + (ids == null ? "" : " WHERE id = ANY (?)") + " ORDER BY id", bind, rs -> {
+                    long id = rs.getLong(1);
+                    // in journal mode the database can lag behind; the newest journaled content wins
+                    JournalRecord journaled = journal.latest(id);
+                    String content = journaled != null ? journaled.content() : rs.getString(3);
+                    String updatedAt = journaled != null ? journaled.timestamp().toString() : timestamp(rs.getTimestamp(7));
+                    writeLine(gzip, new ExportedDocumentDTO("document", id, rs.getString(2), content, rs.getLong(4),
+                            rs.getObject(5, Boolean.class), timestamp(rs.getTimestamp(6)), updatedAt));
+                    exported.add(id);
+                });
+                for (Long id : exported) writeChanges(id, gzip);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        gzip.finish();
+        gzip.flush();
+    }
+
+    // merges the database rows, in id order from the cursor, with the archived and journaled ones
+    private void writeChanges(Long documentId, OutputStream out) {
+        Map<Long, DocumentChange> others = new TreeMap<>();
+        for (DocumentChange change : changeArchive.findByDocumentId(documentId)) others.putIfAbsent(change.getId(), change);
+        for (JournalRecord record : journal.pending(documentId)) others.putIfAbsent(record.changeId(), record.toChange());
+        Iterator<DocumentChange> pending = others.values().iterator();
+        DocumentChange[] next = {pending.hasNext() ? pending.next() : null};
+        cursor.query("SELECT id, user_id, change_content, operation_type, timestamp FROM document_changes "
+                + "WHERE document_id = ? ORDER BY id", ps -> ps.setLong(1, documentId), rs -> {
+            long id = rs.getLong(1);
+            while (next[0] != null && next[0].getId() <= id) {
+                // a change can briefly be in two places while it is archived or replicated
+                if (next[0].getId() < id) writeChange(out, next[0]);
+                next[0] = pending.hasNext() ? pending.next() : null;
+            }
+            writeLine(out, new ExportedChangeDTO("change", id, documentId, rs.getLong(2), rs.getString(3),
+                    rs.getString(4), timestamp(rs.getTimestamp(5))));
+        });
+        for (DocumentChange change = next[0]; change != null; change = pending.hasNext() ? pending.next() : null) {
+            writeChange(out, change);
+        }
+    }
+
+    private void writeChange(OutputStream out, DocumentChange change) {
+        writeLine(out, new ExportedChangeDTO("change", change.getId(), change.getDocumentId(), change.getUserId(),
+                change.getChangeContent(), change.getOperationType(),
+                change.getTimestamp() == null ? null : change.getTimestamp().toString()));
+    }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String timestamp(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime().toString();
+    }
+}
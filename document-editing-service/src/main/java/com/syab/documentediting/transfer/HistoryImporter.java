@@ -0,0 +1,204 @@
+package com.syab.documentediting.transfer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syab.documentediting.dto.ExportedChangeDTO;
+import com.syab.documentediting.dto.ExportedDocumentDTO;
+import com.syab.documentediting.dto.ImportResultDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads a {@link HistoryExporter} export (gzip-compressed or plain NDJSON) and writes it with its document and
+ * change ids, so version-control-service's history of the same documents stays attached to them. Records are
+ * applied in transactions of {@code editing.transfer.import-batch}, reading the next batch only after the last
+ * one committed, so memory use does not grow with the input; afterwards the id sequences are moved past the
+ * imported ids. A document whose id is taken by a different document is skipped with its changes; one already
+ * imported (same owner and creation time) only gets the changes it is missing, so an interrupted import can be
+ * repeated. No edit events are written to the outbox: version-control-service imports its own export.
+ * <p>
+ * Meant for filling a new or quiet deployment: in journal mode ids reserved by {@code ChangeIdAllocator} before
+ * the import are still handed out afterwards.
+ */
+@Component
+public class HistoryImporter {
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public HistoryImporter(ObjectMapper objectMapper, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           @Value("${editing.transfer.import-batch:500}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public ImportResultDTO importHistory(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(decompressed(in), StandardCharsets.UTF_8));
+        JsonNode header = next(reader);
+        if (header == null || !"header".equals(header.path("type").asText())
+                || !HistoryExporter.FORMAT.equals(header.path("format").asText())) {
+            throw new IllegalArgumentException("Not a document history export");
+        }
+        if (header.path("version").asInt() > HistoryExporter.FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported document history export version " + header.path("version").asInt());
+        }
+        ImportResultDTO result = new ImportResultDTO();
+        State state = new State();
+        List<JsonNode> batch = new ArrayList<>(batchSize);
+        try {
+            for (JsonNode record = next(reader); record != null; record = next(reader)) {
+                batch.add(record);
+                if (batch.size() == batchSize) {
+                    apply(batch, state, result);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) apply(batch, state, result);
+        } finally {
+            // also after a failure: ids of the batches already committed must not be handed out again
+            transactionTemplate.executeWithoutResult(status -> advanceSequences(state));
+        }
+        return result;
+    }
+
+    private void apply(List<JsonNode> batch, State state, ImportResultDTO result) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<ExportedChangeDTO> changes = new ArrayList<>();
+            for (JsonNode record : batch) {
+                String type = record.path("type").asText();
+                try {
+                    switch (type) {
+                        case "document" -> importDocument(objectMapper.treeToValue(record, ExportedDocumentDTO.class), state, result);
+                        case "change" -> {
+                            ExportedChangeDTO change = objectMapper.treeToValue(record, ExportedChangeDTO.class);
+                            if (state.accepted.contains(change.getDocumentId())) {
+                                changes.add(change);
+                            } else {
+                                result.setChangesSkipped(result.getChangesSkipped() + 1);
+                            }
+                        }
+                        default -> throw new IllegalArgumentException("Unknown record type: " + type);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            if (!changes.isEmpty()) importChanges(changes, state, result);
+        });
+    }
+
+    private void importDocument(ExportedDocumentDTO record, State state, ImportResultDTO result) {
+        Long id = record.getId();
+        LocalDateTime createdAt = time(record.getCreatedAt());
+        List<Boolean> same = jdbcTemplate.query("SELECT owner_id, created_at FROM documents WHERE id = ?",
+                (rs, i) -> Objects.equals(rs.getLong(1), record.getOwnerId()) && Objects.equals(
+                        rs.getTimestamp(2) == null ? null : rs.getTimestamp(2).toLocalDateTime(), createdAt), id);
+        if (!same.isEmpty()) {
+            if (same.get(0)) state.accepted.add(id);
+            result.setDocumentsSkipped(result.getDocumentsSkipped() + 1);
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO documents (id, title, content, owner_id, is_shared, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)", id, record.getTitle(), record.getContent(), record.getOwnerId(),
+                record.getIsShared(), timestamp(createdAt), timestamp(time(record.getUpdatedAt())));
+        state.accepted.add(id);
+        state.maxDocumentId = Math.max(state.maxDocumentId, id);
+        result.setDocumentsImported(result.getDocumentsImported() + 1);
+    }
+
+    // rows with timestamps before every monthly partition land in the default partition
+    private void importChanges(List<ExportedChangeDTO> changes, State state, ImportResultDTO result) {
+        int[][] inserted = jdbcTemplate.batchUpdate("INSERT INTO document_changes (id, document_id, user_id, change_content, "
+                        + "operation_type, timestamp) SELECT ?, ?, ?, ?, ?, COALESCE(?::timestamp, localtimestamp) "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM document_changes WHERE id = ?)", changes, changes.size(),
+                (ps, change) -> {
+                    ps.setLong(1, change.getId());
+                    ps.setLong(2, change.getDocumentId());
+                    ps.setLong(3, change.getUserId());
+                    ps.setString(4, change.getChangeContent());
+                    ps.setString(5, change.getOperationType());
+                    ps.setTimestamp(6, timestamp(time(change.getTimestamp())));
+                    ps.setLong(7, change.getId());
+                });
+        int i = 0;
+        for (int[] counts : inserted) {
+            for (int count : counts) {
+                if (count == 0) {
+                    result.setChangesSkipped(result.getChangesSkipped() + 1);
+                } else {
+                    result.setChangesImported(result.getChangesImported() + 1);
+                }
+                state.maxChangeId = Math.max(state.maxChangeId, changes.get(i++).getId());
+            }
+        }
+    }
+
+    private void advanceSequences(State state) {
+        if (state.maxDocumentId > 0) {
+            String sequence = jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence('documents', 'id')", String.class);
+            advance(sequence, state.maxDocumentId);
+        }
+        if (state.maxChangeId > 0) advance("document_change_ids", state.maxChangeId);
+    }
+
+    private void advance(String sequence, long atLeast) {
+        jdbcTemplate.queryForList("SELECT setval('" + sequence + "', ?) FROM " + sequence + " WHERE last_value < ?",
+                Long.class, atLeast, atLeast);
+    }
+
+    private static LocalDateTime time(String value) {
+        return value == null ? null : LocalDateTime.parse(value);
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+
+    private JsonNode next(BufferedReader reader) throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) return null;
+        } while (line.isBlank());
+        return objectMapper.readTree(line);
+    }
+
+    private static InputStream decompressed(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 64 * 1024);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        boolean gzip = first == 0x1f && second == 0x8b;
+        return gzip ? new GZIPInputStream(buffered, 64 * 1024) : buffered;
+    }
+
+    private static final class State {
+        // documents whose changes are imported: the ones imported now and the ones imported before
+        final Set<Long> accepted = new HashSet<>();
+        long maxDocumentId;
+        long maxChangeId;
+    }
+}
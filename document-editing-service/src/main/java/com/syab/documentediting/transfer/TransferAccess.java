@@ -0,0 +1,28 @@
+package com.syab.documentediting.transfer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Export and import read and write every user's documents, so they are for operators only: a request must carry
+ * {@code X-Operator-Token} matching {@code editing.transfer.operator-token}. Without a configured token both are
+ * closed.
+ */
+@Component
+public class TransferAccess {
+    public static final String HEADER = "X-Operator-Token";
+
+    private final byte[] operatorToken;
+
+    public TransferAccess(@Value("${editing.transfer.operator-token:}") String operatorToken) {
+        this.operatorToken = operatorToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public boolean allows(String token) {
+        if (operatorToken.length == 0 || token == null) return false;
+        return MessageDigest.isEqual(operatorToken, token.getBytes(StandardCharsets.UTF_8));
+    }
+}
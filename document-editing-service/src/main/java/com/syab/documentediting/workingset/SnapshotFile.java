@@ -0,0 +1,143 @@
+package com.syab.documentediting.workingset;
+
+import com.syab.documentediting.model.Document;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A snapshot of the {@link WorkingSet}, gzip-compressed. Written to a temporary file and moved into place,
+ * so a crash mid-write leaves the previous snapshot intact.
+ * <pre>
+ * header   int magic, int version, long writtenAt (epoch millis), int count
+ * entry    long documentId, long revision, long ownerId, byte isShared (-1 for null), title,
+ *          long createdAt, long updatedAt, 32 byte SHA-256 of the content, byte hasContent, [content]
+ * </pre>
+ * Timestamps are epoch micros, UTC, or {@link #NO_TIMESTAMP}; strings are length-prefixed UTF-8 ({@code -1} for null).
+ * Content is left out when snapshots are configured to keep hashes only.
+ */
+final class SnapshotFile {
+    static final int MAGIC = 0x44575353; // "DWSS"
+    static final int VERSION = 1;
+    static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private SnapshotFile() {
+    }
+
+    record Entry(Document document, long revision, boolean hasContent) {
+    }
+
+    static void write(Path file, Collection<WorkingSet.Version> versions, boolean includeContent) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(versions.size());
+            for (WorkingSet.Version version : versions) {
+                Document document = version.document();
+                out.writeLong(document.getId());
+                out.writeLong(version.revision());
+                out.writeLong(document.getOwnerId());
+                out.writeByte(document.getIsShared() == null ? -1 : document.getIsShared() ? 1 : 0);
+                writeString(out, document.getTitle());
+                out.writeLong(micros(document.getCreatedAt()));
+                out.writeLong(micros(document.getUpdatedAt()));
+                out.write(sha256(document.getContent()));
+                out.writeBoolean(includeContent);
+                if (includeContent) writeString(out, document.getContent());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Entries whose content does not match its hash are returned without content, to be reloaded from the database.
+     */
+    static List<Entry> read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 64 * 1024)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a working set snapshot: " + file);
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported working set snapshot version " + version);
+            in.readLong();
+            int count = in.readInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Document document = new Document();
+                document.setId(in.readLong());
+                long revision = in.readLong();
+                document.setOwnerId(in.readLong());
+                byte shared = in.readByte();
+                document.setIsShared(shared < 0 ? null : shared == 1);
+                document.setTitle(readString(in));
+                document.setCreatedAt(timestamp(in.readLong()));
+                document.setUpdatedAt(timestamp(in.readLong()));
+                byte[] hash = in.readNBytes(32);
+                boolean hasContent = in.readBoolean();
+                if (hasContent) {
+                    String content = readString(in);
+                    hasContent = Arrays.equals(hash, sha256(content));
+                    if (hasContent) document.setContent(content);
+                }
+                entries.add(new Entry(document, revision, hasContent));
+            }
+            return entries;
+        }
+    }
+
+    static byte[] sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return digest.digest(content == null ? new byte[0] : content.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long micros(LocalDateTime time) {
+        return time == null ? NO_TIMESTAMP : ChronoUnit.MICROS.between(Instant.EPOCH, time.toInstant(ZoneOffset.UTC));
+    }
+
+    private static LocalDateTime timestamp(long micros) {
+        return micros == NO_TIMESTAMP ? null
+                : LocalDateTime.ofInstant(Instant.EPOCH.plus(micros, ChronoUnit.MICROS), ZoneOffset.UTC);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,110 @@
+package com.syab.documentediting.workingset;
+
+import com.syab.documentediting.model.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detached copies of the documents clients are working with, so opening a document (REST, SSE {@code init})
+ * and, in journal mode, editing it needs no database read. Each copy is paired with its revision: the id of
+ * the newest change it reflects, or {@link #UNKNOWN_REVISION} when it was loaded from the documents table.
+ * <p>
+ * Copies are never modified once cached; an edit replaces the document's {@link Version}.
+ * {@link WorkingSetSnapshots} persists the set and restores it on startup.
+ */
+@Component
+public class WorkingSet {
+    public static final long UNKNOWN_REVISION = 0L;
+
+    private final Map<Long, ActiveDocument> documents = new ConcurrentHashMap<>();
+    private final long idleMs;
+    private final int maxDocuments;
+
+    public WorkingSet(@Value("${editing.working-set.idle-ms:1800000}") long idleMs,
+                      @Value("${editing.working-set.max-documents:10000}") int maxDocuments) {
+        this.idleMs = idleMs;
+        this.maxDocuments = maxDocuments;
+    }
+
+    public Optional<ActiveDocument> get(Long documentId) {
+        ActiveDocument active = documents.get(documentId);
+        if (active == null) return Optional.empty();
+        active.lastAccess = System.currentTimeMillis();
+        return Optional.of(active);
+    }
+
+    /**
+     * Caches a document read from the database unless another thread already did; returns the cached entry.
+     */
+    public ActiveDocument load(Document document, long revision) {
+        ActiveDocument active = documents.computeIfAbsent(document.getId(), id -> new ActiveDocument(document, revision));
+        active.lastAccess = System.currentTimeMillis();
+        return active;
+    }
+
+    /**
+     * Records an applied edit. Concurrent edits can finish out of order, so an older revision never replaces a newer one.
+     */
+    public void advance(Document document, long revision) {
+        load(document, revision).advance(document, revision);
+    }
+
+    public List<Version> versions() {
+        List<Version> versions = new ArrayList<>(documents.size());
+        for (ActiveDocument active : documents.values()) versions.add(active.current());
+        return versions;
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    @Scheduled(fixedDelayString = "${editing.working-set.sweep-ms:60000}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMs;
+        documents.values().removeIf(active -> active.lastAccess < cutoff);
+        int excess = documents.size() - maxDocuments;
+        if (excess <= 0) return;
+        documents.values().stream()
+                .sorted(Comparator.comparingLong(active -> active.lastAccess))
+                .limit(excess)
+                .toList()
+                .forEach(active -> documents.remove(active.current().document().getId(), active));
+    }
+
+    public record Version(Document document, long revision) {
+    }
+
+    public static final class ActiveDocument {
+        private volatile Version current;
+        private volatile long lastAccess;
+
+        private ActiveDocument(Document document, long revision) {
+            this.current = new Version(document, revision);
+        }
+
+        public Document document() {
+            return current.document();
+        }
+
+        public long revision() {
+            return current.revision();
+        }
+
+        public Version current() {
+            return current;
+        }
+
+        public synchronized void advance(Document document, long revision) {
+            if (revision >= current.revision()) current = new Version(document, revision);
+        }
+    }
+}
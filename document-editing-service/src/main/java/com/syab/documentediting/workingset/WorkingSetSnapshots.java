@@ -0,0 +1,153 @@
+package com.syab.documentediting.workingset;
+
+import com.syab.documentediting.journal.EditJournal;
+import com.syab.documentediting.journal.JournalRecord;
+import com.syab.documentediting.model.Document;
+import com.syab.documentediting.model.DocumentChange;
+import com.syab.documentediting.repository.DocumentChangeRepository;
+import com.syab.documentediting.repository.DocumentRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists the {@link WorkingSet} periodically and on shutdown, and rebuilds it on startup from the last
+ * snapshot plus the log tail: for every snapshotted document, the newest change with an id above the
+ * snapshot's revision (each change row carries the full content). Documents whose content was not
+ * snapshotted are read from the documents table in batches.
+ * <p>
+ * Warm-up runs as an {@link ApplicationRunner}, which Spring Boot completes before it marks the application
+ * ready ({@code /actuator/health/readiness}), so the reconnect storm after a restart is served from memory.
+ */
+@Component
+public class WorkingSetSnapshots implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(WorkingSetSnapshots.class);
+    static final String FILE_NAME = "working-set.snapshot";
+
+    private final WorkingSet workingSet;
+    private final DocumentRepository documentRepository;
+    private final DocumentChangeRepository changeRepository;
+    private final EditJournal journal;
+    private final boolean enabled;
+    private final Path file;
+    private final boolean includeContent;
+    private final int batchSize;
+
+    public WorkingSetSnapshots(WorkingSet workingSet, DocumentRepository documentRepository,
+                               DocumentChangeRepository changeRepository, EditJournal journal,
+                               @Value("${editing.snapshot.enabled:true}") boolean enabled,
+                               @Value("${editing.snapshot.directory:data/working-set}") String directory,
+                               @Value("${editing.snapshot.include-content:true}") boolean includeContent,
+                               @Value("${editing.snapshot.warm-up-batch:500}") int batchSize) {
+        this.workingSet = workingSet;
+        this.documentRepository = documentRepository;
+        this.changeRepository = changeRepository;
+        this.journal = journal;
+        this.enabled = enabled;
+        this.file = Paths.get(directory).resolve(FILE_NAME);
+        this.includeContent = includeContent;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || !Files.exists(file)) return;
+        long started = System.nanoTime();
+        try {
+            int warmed = warmUp();
+            log.info("Working set warmed with {} document(s) in {} ms", warmed, (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            // a cold cache is slower, not wrong; documents load on first use
+            log.error("Working set warm-up from {} failed", file, e);
+        }
+    }
+
+    int warmUp() throws IOException {
+        List<SnapshotFile.Entry> entries = SnapshotFile.read(file);
+        List<SnapshotFile.Entry> withContent = new ArrayList<>();
+        List<Long> withoutContent = new ArrayList<>();
+        for (SnapshotFile.Entry entry : entries) {
+            if (entry.hasContent()) withContent.add(entry);
+            else withoutContent.add(entry.document().getId());
+        }
+        for (int from = 0; from < withContent.size(); from += batchSize) {
+            applyLogTail(withContent.subList(from, Math.min(from + batchSize, withContent.size())));
+        }
+        for (int from = 0; from < withoutContent.size(); from += batchSize) {
+            for (Document document : documentRepository.findAllById(withoutContent.subList(from, Math.min(from + batchSize, withoutContent.size())))) {
+                warm(detachedCopy(document), WorkingSet.UNKNOWN_REVISION);
+            }
+        }
+        return workingSet.size();
+    }
+
+    private void applyLogTail(List<SnapshotFile.Entry> batch) {
+        Map<Long, SnapshotFile.Entry> byId = new HashMap<>();
+        long after = Long.MAX_VALUE;
+        for (SnapshotFile.Entry entry : batch) {
+            byId.put(entry.document().getId(), entry);
+            after = Math.min(after, entry.revision());
+        }
+        Map<Long, DocumentChange> tail = new HashMap<>();
+        for (DocumentChange change : changeRepository.findLatestByDocumentIdInAndIdGreaterThan(byId.keySet(), after)) {
+            tail.put(change.getDocumentId(), change);
+        }
+        for (SnapshotFile.Entry entry : batch) {
+            Document document = entry.document();
+            DocumentChange change = tail.get(document.getId());
+            if (change != null && change.getId() > entry.revision()) {
+                document.setContent(change.getChangeContent());
+                document.setUpdatedAt(change.getTimestamp());
+                warm(document, change.getId());
+            } else {
+                warm(document, entry.revision());
+            }
+        }
+    }
+
+    private void warm(Document document, long revision) {
+        // in journal mode the database can lag behind the journal
+        JournalRecord journaled = journal.latest(document.getId());
+        if (journaled != null && journaled.changeId() > revision) {
+            document.setContent(journaled.content());
+            document.setUpdatedAt(journaled.timestamp());
+            revision = journaled.changeId();
+        }
+        workingSet.load(document, revision);
+    }
+
+    @Scheduled(fixedDelayString = "${editing.snapshot.interval-ms:60000}",
+            initialDelayString = "${editing.snapshot.interval-ms:60000}")
+    public void write() {
+        if (!enabled) return;
+        try {
+            SnapshotFile.write(file, workingSet.versions(), includeContent);
+        } catch (IOException e) {
+            log.warn("Failed to write working set snapshot {}", file, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        write();
+    }
+
+    private static Document detachedCopy(Document document) {
+        return new Document(document.getId(), document.getTitle(), document.getContent(), document.getOwnerId(),
+                document.getCreatedAt(), document.getUpdatedAt(), document.getIsShared());
+    }
+}
@@ -1,40 +1,89 @@
 package com.syab.documentediting.ws;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.syab.documentediting.dto.DocumentChangeDTO;
-import com.syab.documentediting.dto.DocumentDTO;
 import com.syab.documentediting.dto.EditDocumentRequest;
+import com.syab.documentediting.heartbeat.ConnectionReaper;
+import com.syab.documentediting.jfr.BroadcastCompletedEvent;
+import com.syab.documentediting.jfr.WsFrameReceivedEvent;
+import com.syab.documentediting.metrics.EditingMetrics;
 import com.syab.documentediting.service.DocumentService;
+import com.syab.documentediting.service.PresenceRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.net.URI;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Very small and simple WebSocket handler for document edits.
  * Accepts messages like: { "documentId": 1, "userId": 1, "content": "...", "operationType": "UPDATE" }
+ * Edit frames are admitted through {@link EditRateLimiter}. A frame over the limit is held back
+ * (and superseded by newer frames from the same editor) for up to {@code editing.rate-limit.max-delay-ms};
+ * if it still cannot be admitted the sender gets { "type": "backpressure", "retryAfterMs": ... }.
+ * Sessions are pinged by {@link ConnectionReaper}; any inbound frame or pong counts as a sign of life.
+ * Connections come through the API gateway, which authenticates them and sets the {@code X-User-Id} handshake
+ * header; edits are attributed to that user whatever userId the frames name. Connections without it are closed,
+ * unless {@code editing.auth.require-authenticated-user} is off (local runs and load tests against the service
+ * itself), in which case the userId of the URI and frames is taken as given.
  */
 @Component
 public class DocumentWebSocketHandler extends TextWebSocketHandler {
     private static final Logger log = LoggerFactory.getLogger(DocumentWebSocketHandler.class);
+    private static final String USER_ID_HEADER = "X-User-Id";
+    private static final String USER_ID_ATTRIBUTE = "userId";
+    private static final String AUTHENTICATED_ATTRIBUTE = "authenticated";
     private final DocumentService documentService;
+    private final ConnectionReaper connectionReaper;
+    private final EditRateLimiter rateLimiter;
+    private final EditPipelineLoad pipelineLoad;
+    private final EditingMetrics metrics;
+    private final long maxDelayNanos;
+    private final boolean requireAuthenticatedUser;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService deferredEdits = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ws-deferred-edits");
+        t.setDaemon(true);
+        return t;
+    });
 
     // documentId -> sessions
-    private final Map<Long, CopyOnWriteArrayList<WebSocketSession>> sessions = new ConcurrentHashMap<>();
+    private final PresenceRegistry<WebSocketSession> sessions = new PresenceRegistry<>();
+    // sessionId -> heartbeat registration
+    private final Map<String, ConnectionReaper.Registration> heartbeats = new ConcurrentHashMap<>();
+    // sessionId -> latest frame waiting for a token
+    private final Map<String, EditFrame> pendingFrames = new ConcurrentHashMap<>();
 
-    public DocumentWebSocketHandler(DocumentService documentService) {
+    public DocumentWebSocketHandler(DocumentService documentService, ConnectionReaper connectionReaper,
+                                    EditRateLimiter rateLimiter, EditPipelineLoad pipelineLoad, EditingMetrics metrics,
+                                    @Value("${editing.rate-limit.max-delay-ms:250}") long maxDelayMs,
+                                    @Value("${editing.auth.require-authenticated-user:true}") boolean requireAuthenticatedUser) {
         this.documentService = documentService;
+        this.connectionReaper = connectionReaper;
+        this.rateLimiter = rateLimiter;
+        this.pipelineLoad = pipelineLoad;
+        this.metrics = metrics;
+        metrics.bindSubscribers(EditingMetrics.WS, sessions);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.requireAuthenticatedUser = requireAuthenticatedUser;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deferredEdits.shutdownNow();
     }
 
     @Override
@@ -42,14 +91,42 @@ public class DocumentWebSocketHandler extends TextWebSocketHandler {
         // extract documentId from query string
         URI uri = session.getUri();
         Long documentId = parseDocumentId(uri);
-        Long userId = parseUserId(uri);
+        Long userId = authenticatedUserId(session);
+        if (userId != null) {
+            session.getAttributes().put(AUTHENTICATED_ATTRIBUTE, Boolean.TRUE);
+        } else if (requireAuthenticatedUser) {
+            log.warn("Unauthenticated WS connect for session={}. Closing.", session.getId());
+            try { session.close(CloseStatus.POLICY_VIOLATION.withReason("Not authenticated")); } catch (Exception e) { log.error("Failed to close session", e); }
+            return;
+        } else {
+            userId = parseUserId(uri);
+        }
+        if (userId != null) session.getAttributes().put(USER_ID_ATTRIBUTE, userId);
         log.info("WS connect request: sessionId={}, uri={}, documentId={}, userId={}", session.getId(), uri, documentId, userId);
         if (documentId == null) {
             log.warn("Missing documentId in WS connect for session={}. Closing.", session.getId());
             try { session.close(CloseStatus.NOT_ACCEPTABLE.withReason("Missing documentId query param")); } catch (Exception e) { log.error("Failed to close session", e); }
             return;
         }
-        sessions.computeIfAbsent(documentId, k -> new CopyOnWriteArrayList<>()).add(session);
+        heartbeats.put(session.getId(), connectionReaper.register(new ConnectionReaper.HeartbeatTarget() {
+            @Override
+            public boolean sendHeartbeat() throws Exception {
+                synchronized (session) {
+                    session.sendMessage(new PingMessage());
+                }
+                return false;
+            }
+
+            @Override
+            public void reap() {
+                try {
+                    session.close(CloseStatus.SESSION_NOT_RELIABLE.withReason("Heartbeat timeout"));
+                } catch (Exception e) {
+                    log.debug("Failed to close reaped session {}", session.getId());
+                }
+            }
+        }));
+        sessions.add(documentId, session, userId);
         log.debug("WebSocket connected: docId={} sessionId={}", documentId, session.getId());
     }
 
@@ -58,9 +135,13 @@ public class DocumentWebSocketHandler extends TextWebSocketHandler {
         URI uri = session.getUri();
         Long documentId = parseDocumentId(uri);
         if (documentId != null) {
-            List<WebSocketSession> list = sessions.get(documentId);
-            if (list != null) list.remove(session);
+            sessions.remove(documentId, session, (Long) session.getAttributes().get(USER_ID_ATTRIBUTE));
+            if (!sessions.hasSubscribers(documentId)) rateLimiter.releaseDocument(documentId);
         }
+        ConnectionReaper.Registration heartbeat = heartbeats.remove(session.getId());
+        if (heartbeat != null) heartbeat.cancel();
+        if (pendingFrames.remove(session.getId()) != null) pipelineLoad.deferredRemoved();
+        rateLimiter.releaseSession(session.getId());
         log.debug("WebSocket disconnected: docId={} sessionId={}", documentId, session.getId());
     }
 
@@ -68,49 +149,190 @@ public class DocumentWebSocketHandler extends TextWebSocketHandler {
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         try {
             log.debug("WS message from session {}: {}", session.getId(), message.getPayload());
+            touch(session);
             Map<String, Object> payload = objectMapper.readValue(message.getPayload(), Map.class);
             // Heartbeat support: respond to ping
             if ("ping".equals(payload.get("type"))) {
-                session.sendMessage(new TextMessage("{\"type\":\"pong\"}"));
+                sendSafely(session, "{\"type\":\"pong\"}");
                 return;
             }
 
-            Long documentId = payload.get("documentId") == null ? null : Long.valueOf(String.valueOf(payload.get("documentId")));
-            Long userId = payload.get("userId") == null ? null : Long.valueOf(String.valueOf(payload.get("userId")));
-            String content = (String) payload.get("content");
-            String operationType = payload.getOrDefault("operationType", "UPDATE").toString();
-            if (documentId == null || userId == null || content == null) return;
-
-            // Persist the change and broadcast using service (SSE). Keep websocket echo minimal.
-            EditDocumentRequest req = new EditDocumentRequest(content, operationType);
-            DocumentDTO updated = documentService.editDocument(documentId, userId, req);
-
-            // Construct change DTO (service saved via changeRepository internally)
-            // Prepare payload
-            var changeDTO = new DocumentChangeDTO(null, documentId, userId, content, operationType);
-            var payloadOut = Map.of("document", updated, "change", changeDTO);
-
-            String json = objectMapper.writeValueAsString(payloadOut);
-            // Broadcast to sessions for this document, excluding sender
-            List<WebSocketSession> list = sessions.get(documentId);
-            if (list != null) {
-                CompletableFuture.runAsync(() -> {
-                    for (WebSocketSession s : list) {
-                        if (!s.isOpen() || s.getId().equals(session.getId())) continue;
-                        try {
-                            s.sendMessage(new TextMessage(json));
-                            log.debug("WS broadcast to session {}: {}", s.getId(), json);
-                        } catch (Exception e) {
-                            log.error("Failed to send ws message", e);
-                        }
-                    }
-                });
+            WsFrameReceivedEvent frameEvent = new WsFrameReceivedEvent();
+            frameEvent.begin();
+            EditFrame frame = EditFrame.from(payload);
+            String outcome = "ignored";
+            if (frame != null) {
+                long waitNanos = rateLimiter.acquire(session.getId(), frame.documentId());
+                if (waitNanos == 0) {
+                    outcome = "applied";
+                    metrics.wsFrame(outcome);
+                    applyEdit(session, frame);
+                } else {
+                    outcome = throttle(session, frame, waitNanos);
+                }
+            }
+            frameEvent.end();
+            if (frameEvent.shouldCommit()) {
+                frameEvent.documentId = frame == null ? 0L : frame.documentId();
+                frameEvent.payloadBytes = message.getPayloadLength();
+                frameEvent.outcome = outcome;
+                frameEvent.commit();
             }
         } catch (Exception e) {
             log.error("ws handler error", e);
         }
     }
 
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        touch(session);
+    }
+
+    private void touch(WebSocketSession session) {
+        ConnectionReaper.Registration heartbeat = heartbeats.get(session.getId());
+        if (heartbeat != null) heartbeat.touch();
+    }
+
+    /**
+     * Over-limit frame: merge it into the frame already waiting for this session, defer it until a token
+     * is expected, or reject it when the wait would exceed the allowed delay.
+     */
+    private String throttle(WebSocketSession session, EditFrame frame, long waitNanos) {
+        String sessionId = session.getId();
+        // one atomic decision per slot: the deferred-edits thread may empty or refill it at the same time
+        String[] outcome = new String[1];
+        pendingFrames.compute(sessionId, (k, pending) -> {
+            if (pending == null) {
+                boolean defer = waitNanos <= maxDelayNanos;
+                outcome[0] = defer ? "deferred" : "rejected";
+                return defer ? frame : null;
+            }
+            boolean merge = pending.canMergeWith(frame);
+            outcome[0] = merge ? "merged" : "rejected";
+            return merge ? frame : pending;
+        });
+        if ("merged".equals(outcome[0])) {
+            metrics.wsFrame("merged");
+            log.debug("WS frame merged into pending edit: sessionId={} docId={}", sessionId, frame.documentId());
+            return "merged";
+        }
+        if ("rejected".equals(outcome[0])) {
+            rejectFrame(session, frame, waitNanos);
+            return "rejected";
+        }
+        // counted only when this frame filled an empty slot; its flush removes exactly that count
+        pipelineLoad.deferredAdded();
+        metrics.wsFrame("deferred");
+        deferredEdits.schedule(() -> flushPending(session), waitNanos, TimeUnit.NANOSECONDS);
+        return "deferred";
+    }
+
+    private void flushPending(WebSocketSession session) {
+        EditFrame frame = pendingFrames.remove(session.getId());
+        if (frame == null) return;
+        pipelineLoad.deferredRemoved();
+        if (!session.isOpen()) return;
+        try {
+            long waitNanos = rateLimiter.acquire(session.getId(), frame.documentId());
+            if (waitNanos == 0) {
+                metrics.wsFrame("applied");
+                applyEdit(session, frame);
+            } else if (waitNanos <= maxDelayNanos && pendingFrames.putIfAbsent(session.getId(), frame) == null) {
+                pipelineLoad.deferredAdded();
+                deferredEdits.schedule(() -> flushPending(session), waitNanos, TimeUnit.NANOSECONDS);
+            } else {
+                rejectFrame(session, frame, waitNanos);
+            }
+        } catch (Exception e) {
+            log.error("ws deferred edit error", e);
+        }
+    }
+
+    private void rejectFrame(WebSocketSession session, EditFrame frame, long waitNanos) {
+        metrics.wsFrame("rejected");
+        long retryAfterMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        log.debug("WS frame rejected: sessionId={} docId={} retryAfterMs={} throttle={}",
+                session.getId(), frame.documentId(), retryAfterMs, pipelineLoad.throttleFactor());
+        try {
+            var payloadOut = Map.of("type", "backpressure", "documentId", frame.documentId(), "retryAfterMs", retryAfterMs);
+            sendSafely(session, objectMapper.writeValueAsString(payloadOut));
+        } catch (Exception e) {
+            log.error("Failed to send backpressure message", e);
+        }
+    }
+
+    private void applyEdit(WebSocketSession session, EditFrame frame) throws Exception {
+        Long documentId = frame.documentId();
+        Long userId = Boolean.TRUE.equals(session.getAttributes().get(AUTHENTICATED_ATTRIBUTE))
+                ? (Long) session.getAttributes().get(USER_ID_ATTRIBUTE) : frame.userId();
+        // Persist the change and broadcast using service (SSE). Keep websocket echo minimal.
+        EditDocumentRequest req = new EditDocumentRequest(frame.content(), frame.operationType());
+        long started = pipelineLoad.begin();
+        DocumentService.AppliedEdit applied;
+        try {
+            applied = documentService.applyEdit(documentId, userId, req);
+        } finally {
+            pipelineLoad.end(started);
+        }
+
+        // same payload as the SSE broadcast, with the id of the saved change
+        var payloadOut = Map.of("document", applied.document(), "change", applied.change());
+        long revision = applied.change().getId() == null ? 0L : applied.change().getId();
+
+        String json = objectMapper.writeValueAsString(payloadOut);
+        // Broadcast to sessions for this document, excluding sender
+        var list = sessions.subscribers(documentId);
+        if (!list.isEmpty()) {
+            metrics.recordFanout(EditingMetrics.WS, list.size() - 1);
+            CompletableFuture.runAsync(() -> {
+                BroadcastCompletedEvent broadcastEvent = new BroadcastCompletedEvent();
+                broadcastEvent.begin();
+                int sent = 0;
+                int failures = 0;
+                for (WebSocketSession s : list) {
+                    if (!s.isOpen() || s.getId().equals(session.getId())) continue;
+                    try {
+                        sendSafely(s, json);
+                        sent++;
+                        metrics.recordDelivery(EditingMetrics.WS, started);
+                        log.debug("WS broadcast to session {}: {}", s.getId(), json);
+                    } catch (Exception e) {
+                        failures++;
+                        metrics.sendFailed(EditingMetrics.WS);
+                        log.error("Failed to send ws message", e);
+                    }
+                }
+                broadcastEvent.end();
+                if (broadcastEvent.shouldCommit()) {
+                    broadcastEvent.documentId = documentId;
+                    broadcastEvent.revision = revision;
+                    broadcastEvent.transport = EditingMetrics.WS;
+                    broadcastEvent.subscribers = sent;
+                    broadcastEvent.failures = failures;
+                    broadcastEvent.commit();
+                }
+            });
+        }
+    }
+
+    // WebSocketSession does not allow concurrent sends; broadcasts and backpressure replies come from different threads
+    private void sendSafely(WebSocketSession session, String json) throws Exception {
+        synchronized (session) {
+            session.sendMessage(new TextMessage(json));
+        }
+    }
+
+    // set by the API gateway from the verified access token; it drops any value sent by the client
+    private Long authenticatedUserId(WebSocketSession session) {
+        String header = session.getHandshakeHeaders().getFirst(USER_ID_HEADER);
+        if (header == null) return null;
+        try {
+            return Long.valueOf(header);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     private Long parseDocumentId(URI uri) {
         if (uri == null) return null;
         String query = uri.getQuery();
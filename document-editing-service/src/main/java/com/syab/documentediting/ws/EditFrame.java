@@ -0,0 +1,28 @@
+package com.syab.documentediting.ws;
+
+import java.util.Map;
+
+/**
+ * An edit frame received over the WebSocket:
+ * { "documentId": 1, "userId": 1, "content": "...", "operationType": "UPDATE" }
+ * Every operation carries the full document content, so a newer frame from the same
+ * editor on the same document fully supersedes an older one that has not been applied yet.
+ */
+public record EditFrame(Long documentId, Long userId, String content, String operationType) {
+
+    /**
+     * @return the frame, or null when the payload is missing documentId, userId or content
+     */
+    public static EditFrame from(Map<String, Object> payload) {
+        Long documentId = payload.get("documentId") == null ? null : Long.valueOf(String.valueOf(payload.get("documentId")));
+        Long userId = payload.get("userId") == null ? null : Long.valueOf(String.valueOf(payload.get("userId")));
+        String content = (String) payload.get("content");
+        String operationType = payload.getOrDefault("operationType", "UPDATE").toString();
+        if (documentId == null || userId == null || content == null) return null;
+        return new EditFrame(documentId, userId, content, operationType);
+    }
+
+    public boolean canMergeWith(EditFrame newer) {
+        return documentId.equals(newer.documentId) && userId.equals(newer.userId);
+    }
+}
@@ -0,0 +1,77 @@
+package com.syab.documentediting.ws;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks how loaded the edit pipeline is: how many edits are currently being applied or waiting
+ * to be applied, and an exponentially weighted moving average of how long an edit takes to persist.
+ * The rate limiter uses {@link #throttleFactor()} to tighten its buckets when either one rises.
+ */
+@Component
+public class EditPipelineLoad {
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger deferred = new AtomicInteger();
+    private final int queueDepthTarget;
+    private final double latencyTargetNanos;
+    private final double minFactor;
+    private volatile double ewmaLatencyNanos;
+
+    public EditPipelineLoad(@Value("${editing.throttle.queue-depth-target:32}") int queueDepthTarget,
+                            @Value("${editing.throttle.latency-target-ms:50}") long latencyTargetMs,
+                            @Value("${editing.throttle.min-factor:0.1}") double minFactor) {
+        this.queueDepthTarget = queueDepthTarget;
+        this.latencyTargetNanos = latencyTargetMs * 1_000_000.0;
+        this.minFactor = minFactor;
+    }
+
+    public long begin() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public void end(long startNanos) {
+        inFlight.decrementAndGet();
+        long elapsed = System.nanoTime() - startNanos;
+        synchronized (this) {
+            ewmaLatencyNanos = ewmaLatencyNanos == 0 ? elapsed : ewmaLatencyNanos + EWMA_ALPHA * (elapsed - ewmaLatencyNanos);
+        }
+    }
+
+    public void deferredAdded() {
+        deferred.incrementAndGet();
+    }
+
+    public void deferredRemoved() {
+        deferred.decrementAndGet();
+    }
+
+    public int queueDepth() {
+        return inFlight.get() + deferred.get();
+    }
+
+    public double averageLatencyMillis() {
+        return ewmaLatencyNanos / 1_000_000.0;
+    }
+
+    /**
+     * 1.0 while the pipeline is within its targets; shrinks proportionally as queue depth or
+     * persistence latency exceed them, never going below the configured minimum.
+     */
+    public double throttleFactor() {
+        double factor = 1.0;
+        int depth = queueDepth();
+        if (depth > queueDepthTarget) {
+            factor *= (double) queueDepthTarget / depth;
+        }
+        double latency = ewmaLatencyNanos;
+        if (latency > latencyTargetNanos) {
+            factor *= latencyTargetNanos / latency;
+        }
+        return Math.max(minFactor, factor);
+    }
+}
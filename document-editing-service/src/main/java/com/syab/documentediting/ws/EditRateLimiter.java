@@ -0,0 +1,65 @@
+package com.syab.documentediting.ws;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-session and per-document token buckets for incoming WebSocket edit frames.
+ * A frame is admitted only when both the sender's session bucket and the document's bucket have a token,
+ * so one noisy tab is capped on its own and a busy document is capped across all of its editors.
+ * Both limits are scaled by {@link EditPipelineLoad#throttleFactor()}.
+ */
+@Component
+public class EditRateLimiter {
+    private final Map<String, TokenBucket> sessionBuckets = new ConcurrentHashMap<>();
+    private final Map<Long, TokenBucket> documentBuckets = new ConcurrentHashMap<>();
+    private final EditPipelineLoad pipelineLoad;
+    private final double sessionCapacity;
+    private final double sessionRefillPerSecond;
+    private final double documentCapacity;
+    private final double documentRefillPerSecond;
+
+    public EditRateLimiter(EditPipelineLoad pipelineLoad,
+                           @Value("${editing.rate-limit.session.capacity:20}") double sessionCapacity,
+                           @Value("${editing.rate-limit.session.refill-per-second:10}") double sessionRefillPerSecond,
+                           @Value("${editing.rate-limit.document.capacity:100}") double documentCapacity,
+                           @Value("${editing.rate-limit.document.refill-per-second:50}") double documentRefillPerSecond) {
+        this.pipelineLoad = pipelineLoad;
+        this.sessionCapacity = sessionCapacity;
+        this.sessionRefillPerSecond = sessionRefillPerSecond;
+        this.documentCapacity = documentCapacity;
+        this.documentRefillPerSecond = documentRefillPerSecond;
+    }
+
+    /**
+     * @return 0 when the frame may be applied now, otherwise nanos until it would be admitted
+     */
+    public long acquire(String sessionId, Long documentId) {
+        long now = System.nanoTime();
+        double factor = pipelineLoad.throttleFactor();
+        TokenBucket session = sessionBuckets.computeIfAbsent(sessionId,
+                k -> new TokenBucket(sessionCapacity, sessionRefillPerSecond, now));
+        long wait = session.tryConsume(factor, now);
+        if (wait > 0) {
+            return wait;
+        }
+        TokenBucket document = documentBuckets.computeIfAbsent(documentId,
+                k -> new TokenBucket(documentCapacity, documentRefillPerSecond, now));
+        wait = document.tryConsume(factor, now);
+        if (wait > 0) {
+            session.refund();
+        }
+        return wait;
+    }
+
+    public void releaseSession(String sessionId) {
+        sessionBuckets.remove(sessionId);
+    }
+
+    public void releaseDocument(Long documentId) {
+        documentBuckets.remove(documentId);
+    }
+}
@@ -0,0 +1,49 @@
+package com.syab.documentediting.ws;
+
+/**
+ * Classic token bucket. Tokens refill continuously at {@code refillPerSecond} up to {@code capacity}.
+ * The caller passes a throttle factor in (0, 1] which scales both the refill rate and the burst size,
+ * so limits can be tightened at runtime without rebuilding buckets.
+ */
+class TokenBucket {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+    // the burst size at the last consume, which a refund must not exceed either
+    private double limit;
+
+    TokenBucket(double capacity, double refillPerSecond, long nowNanos) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / NANOS_PER_SECOND;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+        this.limit = capacity;
+    }
+
+    /**
+     * Try to take one token.
+     *
+     * @return 0 when the token was taken, otherwise the number of nanos until one will be available
+     */
+    synchronized long tryConsume(double factor, long nowNanos) {
+        limit = Math.max(1.0, capacity * factor);
+        double rate = refillPerNano * factor;
+        tokens = Math.min(limit, tokens + (nowNanos - lastRefillNanos) * rate);
+        lastRefillNanos = nowNanos;
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return 0L;
+        }
+        return Math.max(1L, (long) Math.ceil((1.0 - tokens) / rate));
+    }
+
+    /**
+     * Give back a token taken by {@link #tryConsume} when a second bucket refused the same frame.
+     */
+    synchronized void refund() {
+        tokens = Math.min(limit, tokens + 1.0);
+    }
+}
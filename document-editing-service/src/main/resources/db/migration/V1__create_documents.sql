@@ -0,0 +1,20 @@
+-- Schema as previously generated by hibernate ddl-auto. Databases created that way are baselined at
+-- version 1 (spring.flyway.baseline-on-migrate), so this script only runs on empty databases.
+CREATE TABLE documents (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title      VARCHAR(255) NOT NULL,
+    content    TEXT,
+    owner_id   BIGINT NOT NULL,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    is_shared  BOOLEAN
+);
+
+CREATE TABLE document_changes (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    document_id    BIGINT NOT NULL,
+    user_id        BIGINT NOT NULL,
+    change_content TEXT,
+    operation_type VARCHAR(255),
+    timestamp      TIMESTAMP(6)
+);
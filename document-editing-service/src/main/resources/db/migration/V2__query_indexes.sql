@@ -0,0 +1,8 @@
+-- findByOwnerId, findByIdAndOwnerId
+CREATE INDEX IF NOT EXISTS idx_documents_owner_id ON documents (owner_id);
+
+-- findByIsSharedTrue: only the shared rows are indexed
+CREATE INDEX IF NOT EXISTS idx_documents_shared ON documents (id) WHERE is_shared;
+
+-- findByDocumentId, returned in id (change-log) order, and tail reads of changes after a given id
+CREATE INDEX IF NOT EXISTS idx_document_changes_document_id_id ON document_changes (document_id, id);
@@ -0,0 +1,43 @@
+-- Range-partition document_changes by month on "timestamp". The primary key has to include the partition key,
+-- and ids come from one sequence shared by all partitions so they stay ordered across partitions.
+-- Partitions are named document_changes_pYYYYMM; ChangePartitionMaintenance creates the coming months and
+-- archives the old ones.
+ALTER TABLE document_changes RENAME TO document_changes_unpartitioned;
+DROP INDEX IF EXISTS idx_document_changes_document_id_id;
+
+CREATE SEQUENCE document_change_ids;
+SELECT setval('document_change_ids', COALESCE((SELECT max(id) FROM document_changes_unpartitioned), 0) + 1, false);
+
+CREATE TABLE document_changes (
+    id             BIGINT       NOT NULL DEFAULT nextval('document_change_ids'),
+    document_id    BIGINT       NOT NULL,
+    user_id        BIGINT       NOT NULL,
+    change_content TEXT,
+    operation_type VARCHAR(255),
+    timestamp      TIMESTAMP(6) NOT NULL DEFAULT localtimestamp,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+ALTER SEQUENCE document_change_ids OWNED BY document_changes.id;
+
+CREATE INDEX idx_document_changes_document_id_id ON document_changes (document_id, id);
+
+-- catches rows outside every monthly partition instead of failing the insert
+CREATE TABLE document_changes_default PARTITION OF document_changes DEFAULT;
+
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', COALESCE((SELECT min(timestamp) FROM document_changes_unpartitioned), localtimestamp));
+BEGIN
+    WHILE month_start <= date_trunc('month', localtimestamp) + INTERVAL '2 months' LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF document_changes FOR VALUES FROM (%L) TO (%L)',
+                       'document_changes_p' || to_char(month_start, 'YYYYMM'), month_start, month_start + INTERVAL '1 month');
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO document_changes (id, document_id, user_id, change_content, operation_type, timestamp)
+SELECT id, document_id, user_id, change_content, operation_type, COALESCE(timestamp, localtimestamp)
+FROM document_changes_unpartitioned;
+
+DROP TABLE document_changes_unpartitioned;
@@ -0,0 +1,8 @@
+-- Transactional outbox for the edit event stream: one row per change, written in the same transaction as the
+-- change itself and deleted once OutboxRelay has delivered it to version-control-service. The content is not
+-- copied; the relay reads it from document_changes, and only for the newest change of each document.
+CREATE TABLE edit_outbox (
+    change_id   BIGINT       PRIMARY KEY,
+    document_id BIGINT       NOT NULL,
+    created_at  TIMESTAMP(6) NOT NULL DEFAULT localtimestamp
+);
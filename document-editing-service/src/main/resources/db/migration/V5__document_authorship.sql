@@ -0,0 +1,9 @@
+-- Checkpoints of the per-document authorship index (AuthorshipTracker): the run-length encoded runs as of
+-- change `revision`. An index is rebuilt from its checkpoint plus the changes after it, so only documents that
+-- were never checkpointed need their whole history read.
+CREATE TABLE document_authorship (
+    document_id BIGINT       PRIMARY KEY,
+    revision    BIGINT       NOT NULL,
+    runs        BYTEA        NOT NULL,
+    updated_at  TIMESTAMP(6) NOT NULL DEFAULT localtimestamp
+);
@@ -0,0 +1,53 @@
+package com.syab.documentediting.archive;
+
+import com.syab.documentediting.model.DocumentChange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeSegmentTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSegmentRoundTrip() throws Exception {
+        ChangeArchive archive = new ChangeArchive(directory.toString());
+        LocalDateTime at = LocalDateTime.of(2024, 1, 15, 10, 30, 0, 123456000);
+        Path file;
+        try (ChangeSegmentWriter writer = archive.newSegment("document_changes_p202401")) {
+            writer.append(new DocumentChange(1L, 3L, 7L, "first", "INSERT", at));
+            writer.append(new DocumentChange(4L, 3L, 8L, "ünïcode ".repeat(10_000), "UPDATE", at));
+            writer.append(new DocumentChange(2L, 9L, 7L, null, null, null));
+            file = writer.finish();
+        }
+        archive.publish(archive.verify(file, 3));
+
+        List<DocumentChange> changes = archive.findByDocumentId(3L);
+        assertEquals(2, changes.size());
+        assertEquals(new DocumentChange(1L, 3L, 7L, "first", "INSERT", at), changes.get(0));
+        assertEquals("ünïcode ".repeat(10_000), changes.get(1).getChangeContent());
+        assertEquals(new DocumentChange(2L, 9L, 7L, null, null, null), archive.findByDocumentId(9L).get(0));
+        assertTrue(archive.findByDocumentId(5L).isEmpty());
+
+        // segments are picked up again on startup
+        assertEquals(2, new ChangeArchive(directory.toString()).findByDocumentId(3L).size());
+    }
+
+    @Test
+    void testRowsMustBeOrderedByDocument() throws Exception {
+        ChangeArchive archive = new ChangeArchive(directory.toString());
+        try (ChangeSegmentWriter writer = archive.newSegment("document_changes_p202402")) {
+            writer.append(new DocumentChange(1L, 5L, 1L, "a", "UPDATE", null));
+            assertThrows(IllegalArgumentException.class,
+                    () -> writer.append(new DocumentChange(2L, 4L, 1L, "b", "UPDATE", null)));
+        }
+        // an unfinished segment leaves nothing behind
+        assertEquals(0, new ChangeArchive(directory.toString()).segmentCount());
+        assertFalse(directory.resolve("document_changes_p202402.seg.tmp").toFile().exists());
+    }
+}
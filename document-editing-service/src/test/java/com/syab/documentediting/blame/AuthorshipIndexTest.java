@@ -0,0 +1,84 @@
+package com.syab.documentediting.blame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorshipIndexTest {
+    private static List<AuthorshipIndex.Run> runs(long... userAndLength) {
+        List<AuthorshipIndex.Run> runs = new ArrayList<>();
+        for (int i = 0; i < userAndLength.length; i += 2) {
+            runs.add(new AuthorshipIndex.Run(userAndLength[i], (int) userAndLength[i + 1]));
+        }
+        return runs;
+    }
+
+    @Test
+    void testEditsSplitAndMergeRuns() {
+        AuthorshipIndex index = new AuthorshipIndex();
+        index.apply("", "Hello world", 1L);
+        index.apply("Hello world", "Hello brave world", 2L);
+        assertEquals(runs(1, 6, 2, 6, 1, 5), index.runs());
+
+        // deleting the other author's text joins the runs around it
+        index.apply("Hello brave world", "Hello world", 3L);
+        assertEquals(runs(1, 11), index.runs());
+
+        index.apply("Hello world", "Hello world!", 1L);
+        index.apply("Hello world!", "Oh, hello world!", 2L);
+        assertEquals(runs(2, 5, 1, 11), index.runs());
+        assertEquals(16, index.length());
+    }
+
+    @Test
+    void testSurrogatePairsAreNeverSplit() {
+        AuthorshipIndex index = new AuthorshipIndex();
+        index.apply("", "a😀b", 1L);
+        // same high surrogate, different low surrogate: the whole character changes hands
+        index.apply("a😀b", "a😁b", 2L);
+
+        assertEquals(runs(1, 1, 2, 2, 1, 1), index.runs());
+    }
+
+    @Test
+    void testMatchesPerCharacterAuthorshipAndSurvivesEncoding() {
+        Random random = new Random(42);
+        AuthorshipIndex index = new AuthorshipIndex();
+        StringBuilder text = new StringBuilder();
+        List<Long> authors = new ArrayList<>();
+        for (int edit = 0; edit < 2_000; edit++) {
+            long user = 1 + random.nextInt(4);
+            int offset = random.nextInt(text.length() + 1);
+            int deleted = random.nextInt(Math.min(6, text.length() - offset) + 1);
+            String inserted = "abc".substring(0, random.nextInt(4));
+            String before = text.toString();
+            text.replace(offset, offset + deleted, inserted);
+            String after = text.toString();
+            index.apply(before, after, user);
+
+            // the same edit, credited per character by the common prefix and suffix
+            int prefix = 0;
+            while (prefix < Math.min(before.length(), after.length()) && before.charAt(prefix) == after.charAt(prefix)) prefix++;
+            int suffix = 0;
+            while (suffix < Math.min(before.length(), after.length()) - prefix
+                    && before.charAt(before.length() - 1 - suffix) == after.charAt(after.length() - 1 - suffix)) suffix++;
+            authors.subList(prefix, before.length() - suffix).clear();
+            for (int i = 0; i < after.length() - prefix - suffix; i++) authors.add(prefix + i, user);
+        }
+
+        AuthorshipIndex decoded = AuthorshipIndex.decode(index.encode());
+        List<Long> expanded = new ArrayList<>();
+        long previous = -1;
+        for (AuthorshipIndex.Run run : decoded.runs()) {
+            assertNotEquals(previous, run.userId(), "adjacent runs by the same user are merged");
+            previous = run.userId();
+            for (int i = 0; i < run.length(); i++) expanded.add(run.userId());
+        }
+        assertEquals(authors, expanded);
+        assertEquals(text.length(), decoded.length());
+    }
+}
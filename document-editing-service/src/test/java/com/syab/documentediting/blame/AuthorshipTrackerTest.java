@@ -0,0 +1,132 @@
+package com.syab.documentediting.blame;
+
+import com.syab.documentediting.archive.ChangeArchive;
+import com.syab.documentediting.journal.EditJournal;
+import com.syab.documentediting.model.DocumentChange;
+import com.syab.documentediting.repository.DocumentChangeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AuthorshipTrackerTest {
+    private final DocumentChangeRepository changeRepository = mock(DocumentChangeRepository.class);
+    private final ChangeArchive changeArchive = mock(ChangeArchive.class);
+    private final EditJournal journal = mock(EditJournal.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AuthorshipTracker tracker = new AuthorshipTracker(changeRepository, changeArchive, journal,
+            jdbcTemplate, 1_800_000L, 2);
+
+    private static DocumentChange change(long id, long userId, String content) {
+        return new DocumentChange(id, 1L, userId, content, "UPDATE", LocalDateTime.now());
+    }
+
+    private static List<AuthorshipIndex.Run> runs(long... userAndLength) {
+        List<AuthorshipIndex.Run> runs = new ArrayList<>();
+        for (int i = 0; i < userAndLength.length; i += 2) {
+            runs.add(new AuthorshipIndex.Run(userAndLength[i], (int) userAndLength[i + 1]));
+        }
+        return runs;
+    }
+
+    private void archived(DocumentChange... changes) {
+        doAnswer(invocation -> {
+            for (DocumentChange change : changes) invocation.<Consumer<DocumentChange>>getArgument(1).accept(change);
+            return null;
+        }).when(changeArchive).forEachByDocumentId(eq(1L), any());
+    }
+
+    private void logged(DocumentChange... changes) {
+        when(changeRepository.findByDocumentIdAndIdGreaterThanEqualOrderByIdAsc(eq(1L), anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    long fromId = invocation.getArgument(1);
+                    Pageable page = invocation.getArgument(2);
+                    List<DocumentChange> result = new ArrayList<>();
+                    for (DocumentChange change : changes) {
+                        if (change.getId() >= fromId && result.size() < page.getPageSize()) result.add(change);
+                    }
+                    return result;
+                });
+    }
+
+    @Test
+    void testBuildsFromHistoryThenFollowsEdits() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(1L))).thenReturn(List.of());
+        archived(change(3L, 1L, "Hello"));
+        logged(change(7L, 2L, "Hello world"));
+
+        AuthorshipTracker.Blame blame = tracker.blame(1L);
+        assertEquals(7L, blame.revision());
+        assertEquals(runs(1, 5, 2, 6), blame.runs());
+
+        tracker.record(1L, 9L, 3L, "Hello, world");
+        // not tracked: nobody asked for its blame
+        tracker.record(2L, 10L, 3L, "other");
+
+        blame = tracker.blame(1L);
+        assertEquals(9L, blame.revision());
+        assertEquals(runs(1, 5, 3, 1, 2, 6), blame.runs());
+        verify(changeArchive, times(1)).forEachByDocumentId(eq(1L), any());
+    }
+
+    @Test
+    void testReplaysALongHistoryOnePageAtATime() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(1L))).thenReturn(List.of());
+        logged(change(1L, 1L, "a"), change(2L, 2L, "ab"), change(3L, 3L, "abc"), change(4L, 1L, "abcd"),
+                change(5L, 2L, "abcde"));
+
+        AuthorshipTracker.Blame blame = tracker.blame(1L);
+
+        assertEquals(5L, blame.revision());
+        assertEquals(runs(1, 1, 2, 1, 3, 1, 1, 1, 2, 1), blame.runs());
+        verify(changeRepository, times(3)).findByDocumentIdAndIdGreaterThanEqualOrderByIdAsc(eq(1L), anyLong(),
+                argThat(page -> page.getPageSize() == 2));
+        verify(changeRepository, never()).findByDocumentId(1L);
+    }
+
+    @Test
+    void testRestoresFromCheckpointAndLogTail() throws Exception {
+        AuthorshipIndex checkpointed = new AuthorshipIndex();
+        checkpointed.apply("", "abc", 1L);
+        checkpointed.apply("abc", "abcdef", 2L);
+        doReturn(List.of()).when(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(1L));
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE document_authorship"), anyCollection(), eq(1),
+                any(ParameterizedPreparedStatementSetter.class))).thenReturn(new int[][]{{0}});
+        tracker.blame(1L);
+        tracker.record(1L, 20L, 1L, "abc");
+        tracker.record(1L, 21L, 2L, "abcdef");
+        tracker.checkpoint();
+
+        // no row yet, so the update is followed by an insert
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO document_authorship"), anyCollection(), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+
+        // a fresh instance: the checkpoint at change 21 plus the change after it
+        clearInvocations(changeArchive);
+        AuthorshipTracker restarted = new AuthorshipTracker(changeRepository, changeArchive, journal, jdbcTemplate,
+                1_800_000L, 2);
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong(1)).thenReturn(21L);
+        when(row.getBytes(2)).thenReturn(checkpointed.encode());
+        doAnswer(invocation -> List.of(invocation.<RowMapper<?>>getArgument(1).mapRow(row, 0)))
+                .when(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(1L));
+        logged(change(21L, 2L, "abcdef"), change(25L, 3L, "abcdefg"));
+
+        AuthorshipTracker.Blame blame = restarted.blame(1L);
+
+        assertEquals(25L, blame.revision());
+        assertEquals(runs(1, 3, 2, 3, 3, 1), blame.runs());
+        verify(changeArchive, never()).forEachByDocumentId(eq(1L), any());
+    }
+}
@@ -0,0 +1,60 @@
+package com.syab.documentediting.heartbeat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+
+    @Test
+    void testTimeoutFiresAfterDelayTicks() {
+        HashedTimingWheel wheel = new HashedTimingWheel(4);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(() -> fired.add("a"), 1);
+        wheel.schedule(() -> fired.add("b"), 3);
+        wheel.schedule(() -> fired.add("c"), 9);
+
+        wheel.advance();
+        assertEquals(List.of("a"), fired);
+        wheel.advance();
+        wheel.advance();
+        assertEquals(List.of("a", "b"), fired);
+        for (int i = 0; i < 5; i++) {
+            wheel.advance();
+        }
+        assertEquals(List.of("a", "b"), fired);
+        wheel.advance();
+        assertEquals(List.of("a", "b", "c"), fired);
+    }
+
+    @Test
+    void testCancelledTimeoutNeverFires() {
+        HashedTimingWheel wheel = new HashedTimingWheel(8);
+        List<String> fired = new ArrayList<>();
+        HashedTimingWheel.Timeout timeout = wheel.schedule(() -> fired.add("x"), 2);
+        wheel.advance();
+        timeout.cancel();
+        wheel.advance();
+        wheel.advance();
+        assertTrue(fired.isEmpty());
+    }
+
+    @Test
+    void testTaskCanRescheduleItself() {
+        HashedTimingWheel wheel = new HashedTimingWheel(8);
+        int[] runs = {0};
+        Runnable[] task = new Runnable[1];
+        task[0] = () -> {
+            runs[0]++;
+            wheel.schedule(task[0], 2);
+        };
+        wheel.schedule(task[0], 2);
+        for (int i = 0; i < 6; i++) {
+            wheel.advance();
+        }
+        assertEquals(3, runs[0]);
+    }
+}
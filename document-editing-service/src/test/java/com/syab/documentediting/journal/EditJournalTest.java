@@ -0,0 +1,88 @@
+package com.syab.documentediting.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class EditJournalTest {
+    @TempDir
+    Path directory;
+
+    private final AtomicLong ids = new AtomicLong(100);
+
+    private EditJournal open(int segmentSizeMb) {
+        ChangeIdAllocator allocator = mock(ChangeIdAllocator.class);
+        when(allocator.next()).thenAnswer(invocation -> ids.incrementAndGet());
+        return new EditJournal(allocator, true, directory.toString(), segmentSizeMb, "always", 50);
+    }
+
+    @Test
+    void testUnreplicatedEditsAreRecoveredAfterRestart() throws Exception {
+        EditJournal journal = open(1);
+        JournalRecord first = journal.append(1L, 7L, "UPDATE", "hello");
+        journal.append(2L, 7L, "UPDATE", null);
+        JournalRecord third = journal.append(1L, 8L, "INSERT", "hello world");
+        journal.replicated(List.of(first));
+        journal.close();
+
+        EditJournal recovered = open(1);
+        assertEquals(2, recovered.pendingCount());
+        assertEquals(third, recovered.latest(1L));
+        assertEquals(List.of(third), recovered.pending(1L));
+        assertNull(recovered.pending(2L).get(0).content());
+        assertEquals(103L, recovered.latest(1L).changeId());
+    }
+
+    @Test
+    void testTornFrameEndsTheJournal() throws Exception {
+        EditJournal journal = open(1);
+        journal.append(1L, 7L, "UPDATE", "kept");
+        JournalRecord torn = journal.append(1L, 7L, "UPDATE", "lost");
+        journal.close();
+
+        // corrupt the last frame's payload, as a crash in the middle of a write would
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(torn.lsn() + 20);
+            file.write(0x7f);
+        }
+
+        EditJournal recovered = open(1);
+        assertEquals(1, recovered.pendingCount());
+        assertEquals("kept", recovered.latest(1L).content());
+        // new edits are written where the torn one was
+        assertEquals(torn.lsn(), recovered.append(1L, 7L, "UPDATE", "again").lsn());
+    }
+
+    @Test
+    void testReplicatedSegmentsAreDeleted() throws Exception {
+        EditJournal journal = open(1);
+        String content = "x".repeat(300_000);
+        for (int i = 0; i < 4; i++) {
+            journal.append(1L, 7L, "UPDATE", content);
+        }
+        assertEquals(2, segments().size());
+
+        journal.replicated(journal.unreplicated(10));
+        assertEquals(1, segments().size());
+        assertEquals(0, journal.pendingCount());
+        assertNull(journal.latest(1L));
+        journal.close();
+        assertEquals(0, open(1).pendingCount());
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
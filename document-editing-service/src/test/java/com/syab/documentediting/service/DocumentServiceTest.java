@@ -1,17 +1,25 @@
 package com.syab.documentediting.service;
 
+import com.syab.documentediting.archive.ChangeArchive;
+import com.syab.documentediting.blame.AuthorshipTracker;
 import com.syab.documentediting.dto.DocumentChangeDTO;
 import com.syab.documentediting.dto.DocumentDTO;
 import com.syab.documentediting.dto.EditDocumentRequest;
+import com.syab.documentediting.journal.EditJournal;
+import com.syab.documentediting.journal.JournalRecord;
+import com.syab.documentediting.metrics.EditingMetrics;
 import com.syab.documentediting.model.Document;
 import com.syab.documentediting.model.DocumentChange;
+import com.syab.documentediting.outbox.EditOutbox;
 import com.syab.documentediting.repository.DocumentChangeRepository;
 import com.syab.documentediting.repository.DocumentRepository;
+import com.syab.documentediting.workingset.WorkingSet;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
@@ -21,6 +29,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +40,24 @@ class DocumentServiceTest {
     @Mock
     private DocumentChangeRepository changeRepository;
 
+    @Mock
+    private EditingMetrics metrics;
+
+    @Mock
+    private ChangeArchive changeArchive;
+
+    @Mock
+    private EditJournal journal;
+
+    @Mock
+    private EditOutbox outbox;
+
+    @Mock
+    private AuthorshipTracker authorship;
+
+    @Spy
+    private WorkingSet workingSet = new WorkingSet(1_800_000L, 10_000);
+
     @InjectMocks
     private DocumentService documentService;
 
@@ -68,6 +95,31 @@ class DocumentServiceTest {
         assertNotNull(result);
         verify(documentRepository, times(1)).save(any(Document.class));
         verify(changeRepository, times(1)).save(any(DocumentChange.class));
+        verify(outbox).append(any(), eq(1L));
+        // the mocked save does not assign an id, so there is no revision to credit
+        verifyNoInteractions(authorship);
+    }
+
+    @Test
+    void testEditDocumentThroughJournal() {
+        EditDocumentRequest request = new EditDocumentRequest("Updated content", "UPDATE");
+        JournalRecord record = new JournalRecord(0L, 5L, 1L, 1L, LocalDateTime.now(), "UPDATE", "Updated content");
+
+        when(journal.isEnabled()).thenReturn(true);
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(document));
+        when(journal.append(1L, 1L, "UPDATE", "Updated content")).thenReturn(record);
+
+        DocumentService.AppliedEdit applied = documentService.applyEdit(1L, 1L, request);
+
+        assertEquals("Updated content", applied.document().getContent());
+        assertEquals(5L, applied.change().getId());
+        // the database is written by the journal replicator, not on the edit path
+        assertEquals("Content", document.getContent());
+        verify(documentRepository, never()).save(any(Document.class));
+        verify(changeRepository, never()).save(any(DocumentChange.class));
+        // its event is written with the replicated change rows
+        verifyNoInteractions(outbox);
+        verify(authorship).record(1L, 5L, 1L, "Updated content");
     }
 
     @Test
@@ -92,6 +144,21 @@ class DocumentServiceTest {
         assertEquals("Updated content", result.get(0).getChangeContent());
     }
 
+    @Test
+    void testGetDocumentChangesIncludesArchivedHistory() {
+        DocumentChange archived = new DocumentChange(0L, 1L, 2L, "Old content", "INSERT", LocalDateTime.now().minusYears(1));
+
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(document));
+        when(changeRepository.findByDocumentId(1L)).thenReturn(List.of(change));
+        when(changeArchive.findByDocumentId(1L)).thenReturn(List.of(archived, change));
+
+        List<DocumentChangeDTO> result = documentService.getDocumentChanges(1L);
+
+        assertEquals(2, result.size());
+        assertEquals("Old content", result.get(0).getChangeContent());
+        assertEquals("Updated content", result.get(1).getChangeContent());
+    }
+
     @Test
     void testGetDocumentSuccess() {
         when(documentRepository.findById(1L)).thenReturn(Optional.of(document));
@@ -102,6 +169,17 @@ class DocumentServiceTest {
         assertEquals("Test Doc", result.getTitle());
     }
 
+    @Test
+    void testGetDocumentServedFromWorkingSet() {
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(document));
+
+        documentService.getDocument(1L);
+        DocumentDTO result = documentService.getDocument(1L);
+
+        assertEquals("Content", result.getContent());
+        verify(documentRepository, times(1)).findById(1L);
+    }
+
     @Test
     void testGetUserDocumentsSuccess() {
         List<Document> documents = Arrays.asList(document);
@@ -0,0 +1,24 @@
+package com.syab.documentediting.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PresenceRegistryTest {
+
+    @Test
+    void testEmptyDocumentsAreDropped() {
+        PresenceRegistry<String> registry = new PresenceRegistry<>();
+        assertTrue(registry.add(1L, "s1", 7L));
+        assertFalse(registry.add(1L, "s2", 7L));
+        assertEquals(List.of(7L), registry.onlineUsers(1L));
+
+        assertFalse(registry.remove(1L, "s1", 7L));
+        assertTrue(registry.remove(1L, "s2", 7L));
+        assertFalse(registry.remove(1L, "s2", 7L));
+        assertFalse(registry.hasSubscribers(1L));
+        assertEquals(0, registry.documentCount());
+    }
+}
@@ -0,0 +1,75 @@
+package com.syab.documentediting.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syab.documentediting.dto.ImportResultDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryImporterTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private HistoryImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        importer = new HistoryImporter(new ObjectMapper(), jdbcTemplate, transactionManager, 500);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testChangesOfADifferentDocumentUnderTheSameIdAreSkipped() throws IOException {
+        // document 1 is new; id 2 belongs to another document already
+        when(jdbcTemplate.query(startsWith("SELECT owner_id, created_at FROM documents"), any(RowMapper.class), eq(1L)))
+                .thenReturn(List.of());
+        when(jdbcTemplate.query(startsWith("SELECT owner_id, created_at FROM documents"), any(RowMapper.class), eq(2L)))
+                .thenReturn(List.of(false));
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO document_changes"), anyList(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenReturn(new int[][]{{1, 0}});
+        when(jdbcTemplate.queryForObject(startsWith("SELECT pg_get_serial_sequence"), eq(String.class)))
+                .thenReturn("public.documents_id_seq");
+
+        String export = "{\"type\":\"header\",\"format\":\"document-history\",\"version\":1}\n"
+                + "{\"type\":\"document\",\"id\":1,\"title\":\"a\",\"content\":\"xy\",\"ownerId\":7}\n"
+                + "{\"type\":\"document\",\"id\":2,\"title\":\"b\",\"content\":\"\",\"ownerId\":8}\n"
+                + "{\"type\":\"change\",\"id\":40,\"documentId\":1,\"userId\":7,\"changeContent\":\"x\"}\n"
+                + "{\"type\":\"change\",\"id\":41,\"documentId\":2,\"userId\":8,\"changeContent\":\"\"}\n"
+                + "{\"type\":\"change\",\"id\":42,\"documentId\":1,\"userId\":7,\"changeContent\":\"xy\"}\n";
+        ImportResultDTO result = importer.importHistory(new ByteArrayInputStream(export.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(new ImportResultDTO(1, 1, 1, 2), result);
+        verify(jdbcTemplate).update(startsWith("INSERT INTO documents"), eq(1L), eq("a"), eq("xy"), eq(7L), isNull(),
+                isNull(), isNull());
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<?> changes) -> changes.size() == 2), eq(2),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplate).queryForList(contains("setval('public.documents_id_seq'"), eq(Long.class), eq(1L), eq(1L));
+        verify(jdbcTemplate).queryForList(contains("setval('document_change_ids'"), eq(Long.class), eq(42L), eq(42L));
+    }
+
+    @Test
+    void testOtherInputIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> importer.importHistory(new ByteArrayInputStream(
+                "{\"type\":\"header\",\"format\":\"version-control-history\",\"version\":1}\n".getBytes(StandardCharsets.UTF_8))));
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
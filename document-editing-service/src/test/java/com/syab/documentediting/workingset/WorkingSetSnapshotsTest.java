@@ -0,0 +1,74 @@
+package com.syab.documentediting.workingset;
+
+import com.syab.documentediting.journal.EditJournal;
+import com.syab.documentediting.model.Document;
+import com.syab.documentediting.model.DocumentChange;
+import com.syab.documentediting.repository.DocumentChangeRepository;
+import com.syab.documentediting.repository.DocumentRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WorkingSetSnapshotsTest {
+    @TempDir
+    Path directory;
+
+    private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+    private final DocumentChangeRepository changeRepository = mock(DocumentChangeRepository.class);
+    private final EditJournal journal = mock(EditJournal.class);
+
+    private WorkingSetSnapshots snapshots(WorkingSet workingSet, boolean includeContent) {
+        return new WorkingSetSnapshots(workingSet, documentRepository, changeRepository, journal,
+                true, directory.toString(), includeContent, 500);
+    }
+
+    private static Document document(long id, String content) {
+        LocalDateTime created = LocalDateTime.of(2026, 1, 2, 3, 4, 5, 6000);
+        return new Document(id, "Doc " + id, content, 7L, created, created, id % 2 == 0);
+    }
+
+    @Test
+    void testWarmUpAppliesLogTailToSnapshot() throws Exception {
+        WorkingSet before = new WorkingSet(1_800_000L, 10_000);
+        before.advance(document(1L, "first draft"), 5L);
+        before.advance(document(2L, "untouched"), 9L);
+        snapshots(before, true).write();
+
+        DocumentChange newer = new DocumentChange(12L, 1L, 3L, "second draft", "UPDATE", LocalDateTime.now());
+        when(changeRepository.findLatestByDocumentIdInAndIdGreaterThan(anyCollection(), eq(5L))).thenReturn(List.of(newer));
+
+        WorkingSet after = new WorkingSet(1_800_000L, 10_000);
+        assertEquals(2, snapshots(after, true).warmUp());
+
+        WorkingSet.ActiveDocument first = after.get(1L).orElseThrow();
+        assertEquals("second draft", first.document().getContent());
+        assertEquals(12L, first.revision());
+        WorkingSet.ActiveDocument second = after.get(2L).orElseThrow();
+        assertEquals("untouched", second.document().getContent());
+        assertEquals(9L, second.revision());
+        assertEquals(before.get(2L).orElseThrow().document(), second.document());
+        verifyNoInteractions(documentRepository);
+    }
+
+    @Test
+    void testHashOnlySnapshotReloadsContentFromDatabase() throws Exception {
+        WorkingSet before = new WorkingSet(1_800_000L, 10_000);
+        before.advance(document(1L, "secret"), 5L);
+        snapshots(before, false).write();
+
+        when(documentRepository.findAllById(List.of(1L))).thenReturn(List.of(document(1L, "current")));
+
+        WorkingSet after = new WorkingSet(1_800_000L, 10_000);
+        snapshots(after, false).warmUp();
+
+        assertEquals("current", after.get(1L).orElseThrow().document().getContent());
+        verifyNoInteractions(changeRepository);
+    }
+}
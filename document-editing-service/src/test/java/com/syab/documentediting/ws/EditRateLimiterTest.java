@@ -0,0 +1,54 @@
+package com.syab.documentediting.ws;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EditRateLimiterTest {
+    private EditPipelineLoad pipelineLoad;
+    private EditRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        pipelineLoad = new EditPipelineLoad(4, 50, 0.1);
+        rateLimiter = new EditRateLimiter(pipelineLoad, 3, 1, 5, 1);
+    }
+
+    @Test
+    void testSessionBucketAllowsBurstThenThrottles() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0L, rateLimiter.acquire("s1", 1L));
+        }
+        assertTrue(rateLimiter.acquire("s1", 1L) > 0);
+    }
+
+    @Test
+    void testDocumentBucketSharedAcrossSessions() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0L, rateLimiter.acquire("s" + (i % 2), 1L));
+        }
+        assertTrue(rateLimiter.acquire("s2", 1L) > 0);
+        assertEquals(0L, rateLimiter.acquire("s2", 2L));
+    }
+
+    @Test
+    void testThrottleFactorShrinksWithQueueDepth() {
+        assertEquals(1.0, pipelineLoad.throttleFactor());
+        for (int i = 0; i < 8; i++) {
+            pipelineLoad.deferredAdded();
+        }
+        assertEquals(0.5, pipelineLoad.throttleFactor(), 0.0001);
+    }
+
+    @Test
+    void testEditFrameRequiresDocumentUserAndContent() {
+        assertNull(EditFrame.from(Map.of("documentId", 1, "userId", 2)));
+        EditFrame frame = EditFrame.from(Map.of("documentId", "1", "userId", 2, "content", "x"));
+        assertNotNull(frame);
+        assertEquals("UPDATE", frame.operationType());
+        assertTrue(frame.canMergeWith(new EditFrame(1L, 2L, "y", "UPDATE")));
+    }
+}
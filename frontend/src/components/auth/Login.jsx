@@ -62,7 +62,8 @@ const Login = () => {
       } = response.data.user;
       login(
         { id, username, email: userEmail, firstName, lastName },
-        response.data.token
+        response.data.token,
+        response.data.refreshToken
       );
 
       navigate("/documents");
@@ -75,23 +75,19 @@ const DocumentList = () => {
     );
     if (ownerIds.length === 0) return;
     let isMounted = true;
-    Promise.all(
-      ownerIds.map(async (ownerId) => {
-        try {
-          const resp = await authAPI.getProfile(ownerId);
-          return [ownerId, resp.data];
-        } catch (err) {
-          return [ownerId, null];
-        }
+    authAPI
+      .getProfiles(ownerIds)
+      .then((resp) => {
+        if (!isMounted) return;
+        const map = { ...ownerProfiles };
+        resp.data.forEach((profile) => {
+          map[profile.id] = profile;
+        });
+        setOwnerProfiles(map);
       })
-    ).then((results) => {
-      if (!isMounted) return;
-      const map = { ...ownerProfiles };
-      results.forEach(([ownerId, profile]) => {
-        if (profile) map[ownerId] = profile;
+      .catch(() => {
+        // ignore
       });
-      setOwnerProfiles(map);
-    });
     return () => {
       isMounted = false;
     };
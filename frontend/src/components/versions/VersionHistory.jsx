@@ -8,6 +8,7 @@ const VersionHistory = () => {
   const { documentId } = useParams();
   const navigate = useNavigate();
   const [versions, setVersions] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
   const [contributions, setContributions] = useState([]);
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState("");
@@ -21,13 +22,18 @@ const VersionHistory = () => {
   const fetchUserDetails = useCallback(
     async (userIds) => {
       const userMap = { ...userDetails };
-      for (const userId of userIds) {
-        if (!userMap[userId]) {
-          try {
-            const response = await authAPI.getProfile(userId);
-            userMap[userId] = response.data;
-          } catch (err) {
-            console.error(`Failed to fetch user ${userId}:`, err);
+      const missing = userIds.filter((userId) => !userMap[userId]);
+      if (missing.length > 0) {
+        try {
+          const response = await authAPI.getProfiles(missing);
+          response.data.forEach((profile) => {
+            userMap[profile.id] = profile;
+          });
+        } catch (err) {
+          console.error(`Failed to fetch users ${missing.join(",")}:`, err);
+        }
+        for (const userId of missing) {
+          if (!userMap[userId]) {
             userMap[userId] = {
               username: `User ${userId}`,
               firstName: "",
@@ -41,12 +47,15 @@ const VersionHistory = () => {
     [userDetails]
   );
 
-  const fetchVersions = useCallback(async () => {
+  const fetchVersions = useCallback(async (before = null) => {
     setLoading(true);
     try {
-      const response = await versionAPI.getVersionHistory(documentId);
-      const versionList = response.data || [];
-      setVersions(versionList);
+      const response = await versionAPI.getVersionTimeline(documentId, before);
+      const versionList = response.data?.versions || [];
+      setVersions((current) =>
+        before == null ? versionList : [...current, ...versionList]
+      );
+      setNextCursor(response.data?.nextCursor ?? null);
 
       // Fetch user details for version creators
       const userIds = [...new Set(versionList.map((v) => v.createdBy))];
@@ -123,19 +132,28 @@ const VersionHistory = () => {
                 </div>
               );
             })}
+            {nextCursor != null && (
+              <button
+                onClick={() => fetchVersions(nextCursor)}
+                disabled={loading}
+                className="back-btn"
+              >
+                {loading ? "Loading..." : "Load older versions"}
+              </button>
+            )}
           </div>
         )}
       </div>
 
       <div className="versions-section">
         <h3>Version Timeline</h3>
-        {loading ? (
+        {loading && versions.length === 0 ? (
           <p>Loading versions...</p>
         ) : versions.length === 0 ? (
           <p>No versions yet</p>
         ) : (
           <div className="versions-list">
-            {versions.map((version, index) => {
+            {versions.map((version) => {
               const user = userDetails[version.createdBy];
               const userName = user
                 ? `${user.firstName} ${user.lastName}`.trim() || user.username
@@ -143,7 +161,7 @@ const VersionHistory = () => {
               return (
                 <div key={version.id} className="version-item">
                   <div className="version-info">
-                    <h4>Version {versions.length - index}</h4>
+                    <h4>Version {version.versionNumber}</h4>
                     <p>Created by: {userName}</p>
                     <p>Created: {formatDate(version.createdAt)}</p>
                     <p>
@@ -151,7 +169,7 @@ const VersionHistory = () => {
                     </p>
                   </div>
                   <button
-                    onClick={() => handleRevert(versions.length - index)}
+                    onClick={() => handleRevert(version.versionNumber)}
                     className="revert-btn"
                   >
                     Revert to This Version
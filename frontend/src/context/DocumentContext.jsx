@@ -59,9 +59,10 @@ export const DocumentProvider = ({ children }) => {
         subscribedDocRef.current = null;
       }
 
-      // Build the stream URL and attach userId as a simple auth approximation
-      // Using relative path so dev/proxy handles host/port
-      const url = `/api/documents/${documentId}/stream?userId=${user?.id}`;
+      // Using relative path so dev/proxy handles host/port. EventSource cannot set an Authorization header, so
+      // the gateway takes the token from the query for this path
+      const streamToken = encodeURIComponent(localStorage.getItem("token") || "");
+      const url = `/api/documents/${documentId}/stream?userId=${user?.id}&access_token=${streamToken}`;
       const es = new EventSource(url);
       sseRef.current = es;
       subscribedDocRef.current = documentId;
@@ -135,16 +136,14 @@ export const DocumentProvider = ({ children }) => {
                   (uid) => !userCacheRef.current[uid]
                 );
                 if (missing.length > 0) {
-                  await Promise.all(
-                    missing.map(async (uid) => {
-                      try {
-                        const uresp = await authAPI.getProfile(uid);
-                        userCacheRef.current[uid] = uresp.data;
-                      } catch (err) {
-                        // ignore
-                      }
-                    })
-                  );
+                  try {
+                    const uresp = await authAPI.getProfiles(missing);
+                    uresp.data.forEach((profile) => {
+                      userCacheRef.current[profile.id] = profile;
+                    });
+                  } catch (err) {
+                    // ignore
+                  }
                 }
                 const profiles = userIds
                   .map((uid) => userCacheRef.current[uid])
@@ -186,10 +185,11 @@ export const DocumentProvider = ({ children }) => {
       try {
         const wsProtocol = window.location.protocol === "https:" ? "wss" : "ws";
         const wsHost = window.location.hostname;
-        const wsUrl = `${wsProtocol}://${wsHost}:8083/ws/documents?documentId=${documentId}&userId=${user?.id}`;
-        // In dev use direct service first (8083) then fallback to gateway (8081) if handshake fails
-        const directUrl = `${wsProtocol}://${wsHost}:8083/ws/documents?documentId=${documentId}&userId=${user?.id}`;
-        const gatewayUrl = `${wsProtocol}://${wsHost}:8081/ws/documents?documentId=${documentId}&userId=${user?.id}`;
+        // always through the gateway, which authenticates the upgrade; browsers cannot set headers on it, so the
+        // token goes in the query. wsUrl (without the token) is the one to log.
+        const wsUrl = `${wsProtocol}://${wsHost}:8081/ws/documents?documentId=${documentId}&userId=${user?.id}`;
+        const accessToken = encodeURIComponent(localStorage.getItem("token") || "");
+        const gatewayUrl = `${wsUrl}&access_token=${accessToken}`;
         if (wsRef.current) {
           try {
             wsRef.current.close();
@@ -226,21 +226,12 @@ export const DocumentProvider = ({ children }) => {
 
         let ws = null;
         try {
-          ws = await tryConnect(directUrl);
-          console.debug("WebSocket connected via direct service", directUrl);
-        } catch (errDirect) {
-          try {
-            ws = await tryConnect(gatewayUrl);
-            console.debug("WebSocket connected via gateway", gatewayUrl);
-          } catch (errGw) {
-            console.error(
-              "WS connect attempts to direct and gateway failed",
-              errDirect,
-              errGw
-            );
-            // fallback behavior: set wsRef null, downstream logic will fall back to SSE
-            ws = null;
-          }
+          ws = await tryConnect(gatewayUrl);
+          console.debug("WebSocket connected via gateway", wsUrl);
+        } catch (errGw) {
+          console.error("WS connect through the gateway failed", errGw);
+          // fallback behavior: set wsRef null, downstream logic will fall back to SSE
+          ws = null;
         }
         if (!ws) {
           // early exit: no WS connection established
@@ -268,6 +259,13 @@ export const DocumentProvider = ({ children }) => {
         ws.onmessage = (ev) => {
           try {
             const payload = JSON.parse(ev.data);
+            // control frames (pong, backpressure) carry a type and no document
+            if (payload?.type) {
+              if (payload.type === "backpressure") {
+                console.debug("WebSocket edit throttled, retry after", payload.retryAfterMs);
+              }
+              return;
+            }
             // payload is {document, change}
             setLastChange(payload);
           } catch (err) {
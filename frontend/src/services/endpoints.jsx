@@ -6,8 +6,13 @@ export const authAPI = {
 
   login: (credentials) => apiClient.post("/users/authenticate", credentials),
 
+  logout: (refreshToken) => apiClient.post("/users/logout", { refreshToken }),
+
   getProfile: (userId) => apiClient.get(`/users/${userId}`),
 
+  getProfiles: (userIds) =>
+    apiClient.get("/users", { params: { ids: userIds.join(",") } }),
+
   updateProfile: (userId, userData) =>
     apiClient.put(`/users/${userId}`, userData),
 };
@@ -45,6 +50,17 @@ export const versionAPI = {
   getVersionHistory: (documentId) =>
     apiClient.get(`/versions/${documentId}/history`),
 
+  // newest first, without bodies; pass the previous page's nextCursor as `before`
+  getVersionTimeline: (documentId, before = null, limit = 50) =>
+    apiClient.get(`/versions/${documentId}/timeline`, {
+      params: before == null ? { limit } : { before, limit },
+    }),
+
+  getVersionContent: (documentId, versionNumber) =>
+    apiClient.get(`/versions/${documentId}/${versionNumber}`, {
+      responseType: "text",
+    }),
+
   revertToVersion: (documentId, versionNumber) =>
     apiClient.get(`/versions/${documentId}/revert/${versionNumber}`),
 
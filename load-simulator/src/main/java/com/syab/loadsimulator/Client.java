@@ -0,0 +1,52 @@
+package com.syab.loadsimulator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * State common to editors and observers: the last copy of the document received, and the delivery accounting
+ * done when a new copy arrives.
+ */
+abstract class Client {
+    final SimulatedDocument document;
+    final long userId;
+    final LongAdder received;
+    private final LatencyRecorder latency;
+    // userId -> newest seq of that user's line this client has seen
+    private final Map<Long, Long> seen = new HashMap<>();
+    volatile String content = "";
+    volatile boolean connected;
+
+    Client(SimulatedDocument document, long userId, LatencyRecorder latency, LongAdder received) {
+        this.document = document;
+        this.userId = userId;
+        this.latency = latency;
+        this.received = received;
+    }
+
+    /**
+     * A copy of the document arrived; record the delivery latency of every keystroke in it that is new to us.
+     */
+    synchronized void delivered(String newContent) {
+        long now = System.nanoTime();
+        received.increment();
+        for (Map.Entry<Long, Long> marker : SimulatedDocument.markers(newContent).entrySet()) {
+            long author = marker.getKey();
+            long seq = marker.getValue();
+            Long previous = seen.get(author);
+            if (previous != null && previous >= seq) continue;
+            seen.put(author, seq);
+            if (author == userId) continue;
+            Long sentAt = document.sentAt(author, seq);
+            if (sentAt != null) latency.record(now - sentAt);
+        }
+        content = newContent;
+    }
+
+    synchronized void noteOwn(long seq) {
+        seen.put(userId, seq);
+    }
+
+    abstract void close();
+}
@@ -0,0 +1,28 @@
+package com.syab.loadsimulator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Run-wide counters; the report takes the difference between two snapshots so warm-up traffic is not counted.
+ */
+class Counters {
+    final LongAdder sent = new LongAdder();
+    final LongAdder wsReceived = new LongAdder();
+    final LongAdder sseReceived = new LongAdder();
+    final LongAdder backpressure = new LongAdder();
+    final LongAdder disconnects = new LongAdder();
+    final LongAdder errors = new LongAdder();
+
+    Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        snapshot.put("framesSent", sent.sum());
+        snapshot.put("wsDeliveries", wsReceived.sum());
+        snapshot.put("sseDeliveries", sseReceived.sum());
+        snapshot.put("backpressure", backpressure.sum());
+        snapshot.put("disconnects", disconnects.sum());
+        snapshot.put("errors", errors.sum());
+        return snapshot;
+    }
+}
@@ -0,0 +1,138 @@
+package com.syab.loadsimulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A simulated editor on {@code /ws/documents}. Types into its own line and sends the full content per keystroke,
+ * and takes over whatever content the server broadcasts, like the frontend does.
+ */
+class EditorClient extends Client implements WebSocket.Listener {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz ";
+
+    private final Counters counters;
+    private final Random random;
+    private final StringBuilder typed = new StringBuilder();
+    private final StringBuilder inbound = new StringBuilder();
+    private CompletableFuture<WebSocket> outbound;
+    private volatile boolean typing;
+    private long seq;
+    volatile long lastSentSeq;
+
+    EditorClient(SimulatedDocument document, long userId, LatencyRecorder latency, Counters counters, long seed) {
+        super(document, userId, latency, counters.wsReceived);
+        this.counters = counters;
+        this.random = new Random(seed);
+    }
+
+    CompletableFuture<WebSocket> connect(HttpClient client, SimulationConfig config) {
+        outbound = client.newWebSocketBuilder()
+                .buildAsync(config.webSocketUri(document.id, userId), this);
+        return outbound.whenComplete((ws, e) -> connected = e == null);
+    }
+
+    void startTyping(ScheduledExecutorService scheduler, TypingPattern pattern, double rate) {
+        typing = true;
+        scheduleNext(scheduler, pattern, rate);
+    }
+
+    void stopTyping() {
+        typing = false;
+    }
+
+    private void scheduleNext(ScheduledExecutorService scheduler, TypingPattern pattern, double rate) {
+        if (!typing) return;
+        long delay;
+        synchronized (this) {
+            delay = pattern.nextDelayNanos(random, rate);
+        }
+        scheduler.schedule(() -> {
+            keystroke();
+            scheduleNext(scheduler, pattern, rate);
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized void keystroke() {
+        if (!typing || !connected) return;
+        typed.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        // keep lines short so the document size stays stable over long runs
+        if (typed.length() > 80) typed.delete(0, typed.length() - 80);
+        seq++;
+        String next = SimulatedDocument.withLine(content, userId, seq, typed.toString());
+        String frame;
+        try {
+            frame = objectMapper.writeValueAsString(Map.of("documentId", document.id, "userId", userId,
+                    "content", next, "operationType", "UPDATE"));
+        } catch (Exception e) {
+            counters.errors.increment();
+            return;
+        }
+        content = next;
+        noteOwn(seq);
+        lastSentSeq = seq;
+        document.sent(userId, seq, System.nanoTime());
+        counters.sent.increment();
+        // WebSocket allows one outstanding send at a time, so sends are chained
+        outbound = outbound.thenCompose(ws -> ws.sendText(frame, true));
+        outbound.exceptionally(e -> {
+            counters.errors.increment();
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        inbound.append(data);
+        if (last) {
+            String message = inbound.toString();
+            inbound.setLength(0);
+            handle(message);
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    private void handle(String message) {
+        try {
+            JsonNode json = objectMapper.readTree(message);
+            if (json.has("type")) {
+                if ("backpressure".equals(json.path("type").asText())) counters.backpressure.increment();
+                return;
+            }
+            JsonNode document = json.path("document");
+            if (document.has("content")) delivered(document.path("content").asText());
+        } catch (Exception e) {
+            counters.errors.increment();
+        }
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        if (connected && typing) counters.disconnects.increment();
+        connected = false;
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        if (connected) counters.disconnects.increment();
+        connected = false;
+    }
+
+    @Override
+    void close() {
+        typing = false;
+        outbound.thenAccept(ws -> ws.sendClose(WebSocket.NORMAL_CLOSURE, "done"));
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.syab.loadsimulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load generator for the document editing service.
+ * <p>
+ * For each document it connects {@code editors} simulated editors over {@code /ws/documents} and
+ * {@code observers} viewers over the SSE stream, lets the editors type with the chosen pattern, and reports
+ * edit-to-remote-delivery latency per transport, throughput, and whether every client ended up with the
+ * content the server holds.
+ *
+ * <pre>
+ * java -jar load-simulator/target/load-simulator-0.0.1-SNAPSHOT.jar \
+ *   --documents=4 --editors=10 --observers=5 --pattern=burst --keystrokes-per-second=5 \
+ *   --duration-seconds=60 --label=after --baseline=before.json --report=after.json
+ * </pre>
+ */
+public class LoadSimulatorApplication {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        SimulationConfig config = SimulationConfig.fromArgs(args);
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                    Thread t = new Thread(r, "simulated-typing");
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        LatencyRecorder wsLatency = new LatencyRecorder();
+        LatencyRecorder sseLatency = new LatencyRecorder();
+        Counters counters = new Counters();
+        List<SimulatedDocument> documents = new ArrayList<>();
+        List<EditorClient> editors = new ArrayList<>();
+        List<ObserverClient> observers = new ArrayList<>();
+
+        long nextUserId = config.firstUserId();
+        for (int d = 0; d < config.documents(); d++) {
+            SimulatedDocument document = new SimulatedDocument(createDocument(client, config, "load-" + config.label() + "-" + d));
+            documents.add(document);
+            List<CompletableFuture<?>> connecting = new ArrayList<>();
+            for (int o = 0; o < config.observersPerDocument(); o++) {
+                ObserverClient observer = new ObserverClient(document, nextUserId++, sseLatency, counters);
+                observers.add(observer);
+                connecting.add(observer.connect(client, config));
+            }
+            for (int e = 0; e < config.editorsPerDocument(); e++) {
+                long userId = nextUserId++;
+                EditorClient editor = new EditorClient(document, userId, wsLatency, counters, config.seed() * 31 + userId);
+                editors.add(editor);
+                connecting.add(editor.connect(client, config));
+            }
+            CompletableFuture.allOf(connecting.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        }
+        System.out.printf("Connected %d editors and %d observers on %d documents%n",
+                editors.size(), observers.size(), documents.size());
+
+        for (EditorClient editor : editors) {
+            editor.startTyping(scheduler, config.pattern(), config.keystrokesPerSecond());
+        }
+        Thread.sleep(config.warmup().toMillis());
+
+        Map<String, Long> before = counters.snapshot();
+        wsLatency.start();
+        sseLatency.start();
+        long measureStarted = System.nanoTime();
+        Thread.sleep(config.duration().toMillis());
+        Map<String, Long> after = counters.snapshot();
+        double seconds = (System.nanoTime() - measureStarted) / 1e9;
+        editors.forEach(EditorClient::stopTyping);
+
+        // let in-flight edits land before looking at latency tails and convergence
+        Thread.sleep(config.settle().toMillis());
+        wsLatency.stop();
+        sseLatency.stop();
+
+        SimulationReport report = new SimulationReport(config);
+        report.latency("ws", wsLatency);
+        report.latency("sse", sseLatency);
+        report.throughput(before, after, seconds);
+        report.convergence(convergence(client, config, documents, editors, observers));
+
+        editors.forEach(Client::close);
+        observers.forEach(Client::close);
+        scheduler.shutdownNow();
+
+        report.write(new File(config.reportFile()));
+        System.out.println(report.summary());
+        System.out.println("Report written to " + config.reportFile());
+        if (config.baselineFile() != null) {
+            report.compareTo(new File(config.baselineFile()));
+        }
+        System.exit(0);
+    }
+
+    private static long createDocument(HttpClient client, SimulationConfig config, String title) throws Exception {
+        String encoded = URLEncoder.encode(title, StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(config.createDocumentUri(encoded, config.firstUserId()))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("Creating document failed: " + response.statusCode() + " " + response.body());
+        }
+        return objectMapper.readTree(response.body()).path("id").asLong();
+    }
+
+    /**
+     * Compares every client's last copy with the server's content. An edit is counted as lost when the server's copy
+     * does not carry its editor's last keystroke: with whole-content edits a concurrent edit overwrote it.
+     */
+    private static Map<String, Object> convergence(HttpClient client, SimulationConfig config, List<SimulatedDocument> documents,
+                                                   List<EditorClient> editors, List<ObserverClient> observers) throws Exception {
+        Map<Long, String> serverContent = new LinkedHashMap<>();
+        for (SimulatedDocument document : documents) {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(config.documentUri(document.id)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            JsonNode json = objectMapper.readTree(response.body());
+            serverContent.put(document.id, json.path("content").asText(""));
+        }
+
+        int converged = 0;
+        int clients = 0;
+        List<Client> all = new ArrayList<>(editors);
+        all.addAll(observers);
+        for (Client c : all) {
+            clients++;
+            if (Objects.equals(serverContent.get(c.document.id), c.content)) converged++;
+        }
+        int lost = 0;
+        for (EditorClient editor : editors) {
+            Long seq = SimulatedDocument.markers(serverContent.get(editor.document.id)).get(editor.userId);
+            if (editor.lastSentSeq > 0 && (seq == null || seq < editor.lastSentSeq)) lost++;
+        }
+
+        Map<String, Object> convergence = new LinkedHashMap<>();
+        convergence.put("clients", clients);
+        convergence.put("convergedClients", converged);
+        convergence.put("converged", converged == clients);
+        convergence.put("editors", editors.size());
+        convergence.put("lostEdits", lost);
+        return convergence;
+    }
+}
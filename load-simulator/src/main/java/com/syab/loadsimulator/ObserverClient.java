@@ -0,0 +1,102 @@
+package com.syab.loadsimulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * A read-only viewer on the SSE stream {@code /api/documents/{id}/stream}. Lines are consumed asynchronously,
+ * so observers do not need a thread each.
+ */
+class ObserverClient extends Client implements Flow.Subscriber<String> {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Counters counters;
+    private final StringBuilder data = new StringBuilder();
+    private final CompletableFuture<Void> firstEvent = new CompletableFuture<>();
+    private String event;
+    private Flow.Subscription subscription;
+
+    ObserverClient(SimulatedDocument document, long userId, LatencyRecorder latency, Counters counters) {
+        super(document, userId, latency, counters.sseReceived);
+        this.counters = counters;
+    }
+
+    /**
+     * Completes once the {@code init} event arrived, i.e. the subscription is registered on the server.
+     */
+    CompletableFuture<Void> connect(HttpClient client, SimulationConfig config) {
+        HttpRequest request = HttpRequest.newBuilder(config.streamUri(document.id, userId))
+                .header("Accept", "text/event-stream")
+                .build();
+        client.sendAsync(request, HttpResponse.BodyHandlers.fromLineSubscriber(this))
+                .whenComplete((response, e) -> {
+                    if (e != null) firstEvent.completeExceptionally(e);
+                    else if (response.statusCode() != 200) {
+                        firstEvent.completeExceptionally(new IllegalStateException("SSE status " + response.statusCode()));
+                    }
+                });
+        return firstEvent;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(String line) {
+        if (line.isEmpty()) {
+            dispatch();
+        } else if (line.startsWith("event:")) {
+            event = line.substring(6).trim();
+        } else if (line.startsWith("data:")) {
+            if (data.length() > 0) data.append('\n');
+            data.append(line.startsWith("data: ") ? line.substring(6) : line.substring(5));
+        }
+    }
+
+    private void dispatch() {
+        String name = event;
+        String payload = data.toString();
+        event = null;
+        data.setLength(0);
+        if (name == null) return;
+        try {
+            if ("init".equals(name)) {
+                content = objectMapper.readTree(payload).path("content").asText("");
+                connected = true;
+                firstEvent.complete(null);
+            } else if ("document".equals(name)) {
+                JsonNode document = objectMapper.readTree(payload).path("document");
+                delivered(document.path("content").asText(""));
+            }
+        } catch (Exception e) {
+            counters.errors.increment();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (connected) counters.disconnects.increment();
+        connected = false;
+        firstEvent.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        connected = false;
+    }
+
+    @Override
+    void close() {
+        connected = false;
+        if (subscription != null) subscription.cancel();
+    }
+}
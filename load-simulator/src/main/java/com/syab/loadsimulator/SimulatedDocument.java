@@ -0,0 +1,80 @@
+package com.syab.loadsimulator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One document under load and the bookkeeping shared by its editors and observers.
+ * <p>
+ * Edits are whole-content replacements, so every editor owns one line of the document, of the form
+ * {@code u<userId>|<seq>|<typed text>}, and bumps {@code seq} on every keystroke. Whoever receives a copy of
+ * the document can tell exactly which keystrokes it contains and look up when each was sent,
+ * which is what the delivery latency is measured from.
+ */
+class SimulatedDocument {
+    final long id;
+    private final Map<Long, Long> sentAt = new ConcurrentHashMap<>();
+
+    SimulatedDocument(long id) {
+        this.id = id;
+    }
+
+    void sent(long userId, long seq, long nanos) {
+        sentAt.put(key(userId, seq), nanos);
+    }
+
+    Long sentAt(long userId, long seq) {
+        return sentAt.get(key(userId, seq));
+    }
+
+    private static long key(long userId, long seq) {
+        return (userId << 24) ^ seq;
+    }
+
+    /**
+     * userId -> seq of that user's line, in document order.
+     */
+    static Map<Long, Long> markers(String content) {
+        Map<Long, Long> markers = new LinkedHashMap<>();
+        if (content == null) return markers;
+        for (String line : content.split("\n")) {
+            if (!line.startsWith("u")) continue;
+            int first = line.indexOf('|');
+            int second = first < 0 ? -1 : line.indexOf('|', first + 1);
+            if (second < 0) continue;
+            try {
+                markers.put(Long.parseLong(line.substring(1, first)), Long.parseLong(line.substring(first + 1, second)));
+            } catch (NumberFormatException ignored) {
+                // not one of ours
+            }
+        }
+        return markers;
+    }
+
+    /**
+     * {@code content} with the line for {@code userId} replaced (or appended) by one carrying {@code seq} and {@code text}.
+     */
+    static String withLine(String content, long userId, long seq, String text) {
+        String prefix = "u" + userId + "|";
+        String line = prefix + seq + "|" + text;
+        StringBuilder out = new StringBuilder();
+        boolean replaced = false;
+        if (content != null && !content.isEmpty()) {
+            for (String existing : content.split("\n")) {
+                if (out.length() > 0) out.append('\n');
+                if (!replaced && existing.startsWith(prefix)) {
+                    out.append(line);
+                    replaced = true;
+                } else {
+                    out.append(existing);
+                }
+            }
+        }
+        if (!replaced) {
+            if (out.length() > 0) out.append('\n');
+            out.append(line);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package com.syab.loadsimulator;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Run parameters, parsed from {@code --name=value} arguments. Everything that influences the result is
+ * written into the report so two reports can be compared knowing they ran the same scenario.
+ */
+public record SimulationConfig(
+        URI baseUrl,
+        int documents,
+        int editorsPerDocument,
+        int observersPerDocument,
+        TypingPattern pattern,
+        double keystrokesPerSecond,
+        Duration warmup,
+        Duration duration,
+        Duration settle,
+        long seed,
+        long firstUserId,
+        String label,
+        String reportFile,
+        String baselineFile) {
+
+    static SimulationConfig fromArgs(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        SimulationConfig config = new SimulationConfig(
+                URI.create(values.getOrDefault("base-url", "http://localhost:8083")),
+                Integer.parseInt(values.getOrDefault("documents", "1")),
+                Integer.parseInt(values.getOrDefault("editors", "5")),
+                Integer.parseInt(values.getOrDefault("observers", "1")),
+                TypingPattern.valueOf(values.getOrDefault("pattern", "steady").toUpperCase()),
+                Double.parseDouble(values.getOrDefault("keystrokes-per-second", "4")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup-seconds", "5"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration-seconds", "30"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("settle-seconds", "3"))),
+                Long.parseLong(values.getOrDefault("seed", "42")),
+                Long.parseLong(values.getOrDefault("first-user-id", "100000")),
+                values.getOrDefault("label", "run"),
+                values.getOrDefault("report", "load-report.json"),
+                values.get("baseline"));
+        if (config.documents < 1 || config.editorsPerDocument < 1 || config.observersPerDocument < 0
+                || config.keystrokesPerSecond <= 0) {
+            throw new IllegalArgumentException("documents and editors must be >= 1, observers >= 0, keystrokes-per-second > 0");
+        }
+        return config;
+    }
+
+    URI webSocketUri(long documentId, long userId) {
+        String scheme = "https".equals(baseUrl.getScheme()) ? "wss" : "ws";
+        return URI.create(scheme + "://" + baseUrl.getAuthority() + "/ws/documents?documentId=" + documentId + "&userId=" + userId);
+    }
+
+    URI streamUri(long documentId, long userId) {
+        return baseUrl.resolve("/api/documents/" + documentId + "/stream?userId=" + userId);
+    }
+
+    URI documentUri(long documentId) {
+        return baseUrl.resolve("/api/documents/" + documentId);
+    }
+
+    URI createDocumentUri(String title, long ownerId) {
+        return baseUrl.resolve("/api/documents?title=" + title + "&userId=" + ownerId);
+    }
+}
@@ -0,0 +1,118 @@
+package com.syab.loadsimulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The JSON report of one run, and the comparison of two reports.
+ * A report carries the full scenario next to the results; comparing runs of different scenarios is flagged.
+ */
+class SimulationReport {
+    private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final List<String> PERCENTILES = List.of("p50", "p99", "p999");
+
+    private final Map<String, Object> root = new LinkedHashMap<>();
+
+    SimulationReport(SimulationConfig config) {
+        root.put("label", config.label());
+        root.put("startedAt", Instant.now().toString());
+        Map<String, Object> scenario = new LinkedHashMap<>();
+        scenario.put("baseUrl", config.baseUrl().toString());
+        scenario.put("documents", config.documents());
+        scenario.put("editorsPerDocument", config.editorsPerDocument());
+        scenario.put("observersPerDocument", config.observersPerDocument());
+        scenario.put("pattern", config.pattern().name().toLowerCase());
+        scenario.put("keystrokesPerSecond", config.keystrokesPerSecond());
+        scenario.put("warmupSeconds", config.warmup().toSeconds());
+        scenario.put("durationSeconds", config.duration().toSeconds());
+        scenario.put("seed", config.seed());
+        root.put("scenario", scenario);
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("javaVersion", System.getProperty("java.version"));
+        environment.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        root.put("environment", environment);
+    }
+
+    void latency(String transport, LatencyRecorder recorder) {
+        section("deliveryLatencyMs").put(transport, recorder.summary());
+    }
+
+    void throughput(Map<String, Long> before, Map<String, Long> after, double seconds) {
+        Map<String, Object> throughput = section("throughput");
+        for (Map.Entry<String, Long> entry : after.entrySet()) {
+            long delta = entry.getValue() - before.getOrDefault(entry.getKey(), 0L);
+            throughput.put(entry.getKey(), delta);
+        }
+        throughput.put("framesPerSecond", round(((Long) throughput.get("framesSent")) / seconds));
+        long deliveries = (Long) throughput.get("wsDeliveries") + (Long) throughput.get("sseDeliveries");
+        throughput.put("deliveriesPerSecond", round(deliveries / seconds));
+    }
+
+    void convergence(Map<String, Object> convergence) {
+        root.put("convergence", convergence);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> section(String name) {
+        return (Map<String, Object>) root.computeIfAbsent(name, k -> new LinkedHashMap<String, Object>());
+    }
+
+    void write(File file) throws IOException {
+        objectMapper.writeValue(file, root);
+    }
+
+    String summary() throws IOException {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        for (String section : List.of("deliveryLatencyMs", "throughput", "convergence")) {
+            summary.put(section, root.getOrDefault(section, Map.of()));
+        }
+        return objectMapper.writeValueAsString(summary);
+    }
+
+    /**
+     * Prints current vs. baseline for the headline numbers.
+     */
+    void compareTo(File baselineFile) throws IOException {
+        JsonNode baseline = objectMapper.readTree(baselineFile);
+        JsonNode current = objectMapper.valueToTree(root);
+        if (!baseline.path("scenario").equals(current.path("scenario"))) {
+            System.out.println("WARNING: scenarios differ, numbers are not directly comparable");
+            System.out.println("  baseline: " + baseline.path("scenario"));
+            System.out.println("  current:  " + current.path("scenario"));
+        }
+        System.out.printf("%-40s %12s %12s %9s%n", "metric", baseline.path("label").asText("baseline"),
+                current.path("label").asText("current"), "change");
+        for (String transport : List.of("ws", "sse")) {
+            for (String percentile : PERCENTILES) {
+                line("latency " + transport + " " + percentile + " (ms)",
+                        baseline.path("deliveryLatencyMs").path(transport).path(percentile),
+                        current.path("deliveryLatencyMs").path(transport).path(percentile));
+            }
+        }
+        line("frames/s", baseline.path("throughput").path("framesPerSecond"), current.path("throughput").path("framesPerSecond"));
+        line("deliveries/s", baseline.path("throughput").path("deliveriesPerSecond"), current.path("throughput").path("deliveriesPerSecond"));
+        line("backpressure", baseline.path("throughput").path("backpressure"), current.path("throughput").path("backpressure"));
+        line("converged clients", baseline.path("convergence").path("convergedClients"), current.path("convergence").path("convergedClients"));
+        line("lost edits", baseline.path("convergence").path("lostEdits"), current.path("convergence").path("lostEdits"));
+    }
+
+    private static void line(String name, JsonNode before, JsonNode after) {
+        if (before.isMissingNode() || after.isMissingNode()) return;
+        double b = before.asDouble();
+        double a = after.asDouble();
+        String change = b == 0 ? "" : String.format("%+.1f%%", (a - b) / b * 100);
+        System.out.printf("%-40s %12s %12s %9s%n", name, before.asText(), after.asText(), change);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,43 @@
+package com.syab.loadsimulator;
+
+import java.util.Random;
+
+/**
+ * How a simulated editor spaces its keystrokes. Every keystroke is sent as one edit frame,
+ * the way the frontend sends the full content on every change.
+ */
+public enum TypingPattern {
+    /**
+     * Fixed interval of {@code 1 / rate}.
+     */
+    STEADY {
+        @Override
+        long nextDelayNanos(Random random, double rate) {
+            return (long) (1e9 / rate);
+        }
+    },
+    /**
+     * Exponentially distributed gaps (a Poisson process) with the same mean rate.
+     */
+    RANDOM {
+        @Override
+        long nextDelayNanos(Random random, double rate) {
+            return (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+        }
+    },
+    /**
+     * Bursts of 5-15 keystrokes at 5x the rate separated by pauses, averaging out to roughly the same rate.
+     */
+    BURST {
+        @Override
+        long nextDelayNanos(Random random, double rate) {
+            // a pause ends roughly one burst in ten keystrokes
+            if (random.nextInt(10) == 0) {
+                return (long) (1e9 / rate * 9);
+            }
+            return (long) (1e9 / (rate * 5));
+        }
+    };
+
+    abstract long nextDelayNanos(Random random, double rate);
+}
@@ -0,0 +1,33 @@
+package com.syab.usermanagement.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The user a request acts for: the {@code X-User-Id} header the API gateway sets from the verified access token
+ * after dropping any value sent by the client. Without it the request is answered 401, unless
+ * {@code auth.require-authenticated-user} is off (local runs against the service itself).
+ */
+@Component
+public class RequestUser {
+    public static final String HEADER = "X-User-Id";
+
+    private final boolean requireAuthenticatedUser;
+
+    public RequestUser(@Value("${auth.require-authenticated-user:true}") boolean requireAuthenticatedUser) {
+        this.requireAuthenticatedUser = requireAuthenticatedUser;
+    }
+
+    /**
+     * Refuses with 403 a request that acts on another user's account.
+     */
+    public void requireSelf(Long authenticatedUserId, Long userId) {
+        if (authenticatedUserId == null) {
+            if (requireAuthenticatedUser) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Not authenticated");
+            return;
+        }
+        if (!authenticatedUserId.equals(userId)) throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not your account");
+    }
+}
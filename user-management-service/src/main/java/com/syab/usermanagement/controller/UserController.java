@@ -2,6 +2,7 @@ package com.syab.usermanagement.controller;
 
 import com.syab.usermanagement.dto.AuthRequest;
 import com.syab.usermanagement.dto.AuthResponse;
+import com.syab.usermanagement.dto.RefreshTokenRequest;
 import com.syab.usermanagement.dto.UserDTO;
 import com.syab.usermanagement.dto.UserRegistrationRequest;
 import com.syab.usermanagement.service.UserService;
@@ -10,13 +11,17 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
     private final UserService userService;
+    private final RequestUser requestUser;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, RequestUser requestUser) {
         this.userService = userService;
+        this.requestUser = requestUser;
     }
 
     /**
@@ -39,6 +44,35 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Exchange a refresh token for a new access token and refresh token
+     * POST /api/users/refresh
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refreshToken(@Valid @RequestBody RefreshTokenRequest request) {
+        AuthResponse response = userService.refreshToken(request.getRefreshToken());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Revoke a refresh token and the tokens it was renewed from
+     * POST /api/users/logout
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshTokenRequest request) {
+        userService.logout(request.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Get the profiles of several users at once, e.g. everyone present on a document
+     * GET /api/users?ids=1,2,3
+     */
+    @GetMapping
+    public ResponseEntity<List<UserDTO>> getUserProfiles(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(userService.getUserProfiles(ids));
+    }
+
     /**
      * Operation 3: Get user profile
      * GET /api/users/{userId}
@@ -54,7 +88,10 @@ public class UserController {
      * PUT /api/users/{userId}
      */
     @PutMapping("/{userId}")
-    public ResponseEntity<UserDTO> updateUserProfile(@PathVariable Long userId, @Valid @RequestBody UserRegistrationRequest request) {
+    public ResponseEntity<UserDTO> updateUserProfile(@PathVariable Long userId,
+                                                     @RequestHeader(value = RequestUser.HEADER, required = false) Long authenticatedUserId,
+                                                     @Valid @RequestBody UserRegistrationRequest request) {
+        requestUser.requireSelf(authenticatedUserId, userId);
         UserDTO user = userService.updateUserProfile(userId, request);
         return ResponseEntity.ok(user);
     }
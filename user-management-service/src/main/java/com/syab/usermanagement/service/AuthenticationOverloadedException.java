@@ -0,0 +1,10 @@
+package com.syab.usermanagement.service;
+
+/**
+ * Thrown when a password cannot be hashed or checked soon enough because the password hashing pool is full.
+ */
+public class AuthenticationOverloadedException extends RuntimeException {
+    public AuthenticationOverloadedException(String message) {
+        super(message);
+    }
+}
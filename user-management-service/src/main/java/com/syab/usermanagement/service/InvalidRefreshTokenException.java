@@ -0,0 +1,11 @@
+package com.syab.usermanagement.service;
+
+/**
+ * Thrown when a refresh token cannot renew a session: it is unknown, already used or revoked, expired, or its
+ * user is gone or inactive. The client has to sign in again.
+ */
+public class InvalidRefreshTokenException extends RuntimeException {
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,108 @@
+package com.syab.usermanagement.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs bcrypt off the request threads, on a pool of {@code auth.password.threads} workers (default: one per
+ * core) with room for {@code auth.password.queue-capacity} waiting hashes. A sign-in burst therefore costs at most
+ * that many cores, and the request threads waiting for it are bounded by the pool and queue, so the rest of the
+ * API stays responsive. When the queue is full, or a hash has not finished within
+ * {@code auth.password.max-wait-ms}, the request fails at once with {@link AuthenticationOverloadedException}
+ * instead of queueing behind work that would time out anyway. bcrypt cannot be interrupted, so a hash the caller
+ * gave up on keeps its worker and its share of the capacity until it finishes; only one still waiting in the
+ * queue is dropped.
+ */
+@Component
+public class PasswordHasher {
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor pool;
+    private final long maxWaitMs;
+    // running plus queued hashes, released when a hash finishes or is dropped from the queue
+    private final Semaphore capacity;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          @Value("${auth.password.threads:0}") int threads,
+                          @Value("${auth.password.queue-capacity:64}") int queueCapacity,
+                          @Value("${auth.password.max-wait-ms:2000}") long maxWaitMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.maxWaitMs = maxWaitMs;
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.capacity = new Semaphore(workers + Math.max(1, queueCapacity));
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                    Thread t = new Thread(r, "password-hasher-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Hashes waiting for a worker.
+     */
+    public int queued() {
+        return pool.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> task) {
+        if (!capacity.tryAcquire()) throw new AuthenticationOverloadedException("Too many sign-ins in progress");
+        Future<T> future;
+        try {
+            future = pool.submit(() -> {
+                try {
+                    return task.call();
+                } finally {
+                    capacity.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            capacity.release();
+            throw new AuthenticationOverloadedException("Too many sign-ins in progress");
+        }
+        try {
+            return future.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandon(future);
+            throw new AuthenticationOverloadedException("Password check timed out");
+        } catch (InterruptedException e) {
+            abandon(future);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationOverloadedException("Interrupted while checking password");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // a hash still waiting for a worker never runs and frees its slot; a running one is left to finish
+    private void abandon(Future<?> future) {
+        if (pool.remove((Runnable) future)) capacity.release();
+    }
+}
@@ -0,0 +1,73 @@
+package com.syab.usermanagement.service;
+
+import com.syab.usermanagement.dto.UserDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Profiles recently looked up, so the profiles of a document's collaborators, which are requested again every
+ * time presence changes, are served without a database read. Holds at most {@code users.cache.max-entries}
+ * profiles, least recently used first out, each for {@code users.cache.ttl-ms}.
+ *
+ * A profile is dropped when it is updated. A lookup that read the database while an update was being committed
+ * could otherwise put the old profile back afterwards, so profiles loaded before any invalidation are not stored:
+ * callers take {@link #generation()} before reading and pass it to {@link #putAll}.
+ */
+@Component
+public class UserProfileCache {
+    private final int maxEntries;
+    private final long ttlMs;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long generation;
+
+    private record Entry(UserDTO user, long expiresAt) {
+    }
+
+    public UserProfileCache(@Value("${users.cache.max-entries:10000}") int maxEntries,
+                            @Value("${users.cache.ttl-ms:300000}") long ttlMs) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+    }
+
+    public synchronized UserDTO get(Long userId, long nowMillis) {
+        Entry entry = entries.get(userId);
+        if (entry == null) return null;
+        if (nowMillis >= entry.expiresAt()) {
+            entries.remove(userId);
+            return null;
+        }
+        return entry.user();
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Stores profiles read from the database, unless a profile was invalidated since {@code generation} was taken.
+     */
+    public synchronized void putAll(Collection<UserDTO> users, long generation, long nowMillis) {
+        if (generation != this.generation || maxEntries <= 0) return;
+        for (UserDTO user : users) {
+            entries.put(user.getId(), new Entry(user, nowMillis + ttlMs));
+        }
+        Iterator<Long> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    public synchronized void invalidate(Long userId) {
+        entries.remove(userId);
+        generation++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -6,27 +6,47 @@ import com.syab.usermanagement.dto.UserDTO;
 import com.syab.usermanagement.dto.UserRegistrationRequest;
 import com.syab.usermanagement.model.User;
 import com.syab.usermanagement.repository.UserRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
 public class UserService {
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
+    private final UserProfileCache profileCache;
+
+    @Value("${users.batch.max-ids:200}")
+    private int maxBatchIds = 200;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService) {
+    public UserService(UserRepository userRepository, PasswordHasher passwordHasher, JwtService jwtService,
+                       RefreshTokenService refreshTokenService, UserProfileCache profileCache) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
         this.jwtService = jwtService;
+        this.refreshTokenService = refreshTokenService;
+        this.profileCache = profileCache;
     }
 
     /**
      * Operation 1: User Registration
+     * Runs without a surrounding transaction so no database connection is held while the password is hashed.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public UserDTO registerUser(UserRegistrationRequest request) {
         if (userRepository.existsByUsername(request.getUsername())) {
             throw new IllegalArgumentException("Username already exists");
@@ -38,7 +58,7 @@ public class UserService {
         User user = new User();
         user.setUsername(request.getUsername());
         user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHasher.encode(request.getPassword()));
         user.setFirstName(request.getFirstName());
         user.setLastName(request.getLastName());
         user.setIsActive(true);
@@ -49,7 +69,9 @@ public class UserService {
 
     /**
      * Operation 2: User Authentication
+     * Like registration, runs without a surrounding transaction while the password is checked.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AuthResponse authenticateUser(AuthRequest request) {
         Optional<User> userOptional = userRepository.findByUsername(request.getUsername());
         
@@ -58,23 +80,83 @@ public class UserService {
         }
 
         User user = userOptional.get();
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (!passwordHasher.matches(request.getPassword(), user.getPassword())) {
             throw new IllegalArgumentException("Invalid username or password");
         }
 
         String token = jwtService.generateToken(user);
-        return new AuthResponse(token, convertToDTO(user));
+        return new AuthResponse(token, refreshTokenService.issue(user.getId()), convertToDTO(user));
+    }
+
+    /**
+     * Renews a session: exchanges a refresh token for a new access token and refresh token.
+     */
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public AuthResponse refreshToken(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        User user = userRepository.findById(rotation.userId())
+                .orElseThrow(() -> new InvalidRefreshTokenException("User not found"));
+        if (Boolean.FALSE.equals(user.getIsActive())) {
+            refreshTokenService.revoke(rotation.refreshToken());
+            throw new InvalidRefreshTokenException("User is not active");
+        }
+        return new AuthResponse(jwtService.generateToken(user), rotation.refreshToken(), convertToDTO(user));
+    }
+
+    /**
+     * Ends the session the refresh token belongs to.
+     */
+    public void logout(String refreshToken) {
+        refreshTokenService.revoke(refreshToken);
     }
 
     /**
      * Operation 3: User Profile Management (Get user profile)
      */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public UserDTO getUserProfile(Long userId) {
-        Optional<User> user = userRepository.findById(userId);
-        if (user.isEmpty()) {
+        List<UserDTO> users = getUserProfiles(List.of(userId));
+        if (users.isEmpty()) {
             throw new IllegalArgumentException("User not found");
         }
-        return convertToDTO(user.get());
+        return users.get(0);
+    }
+
+    /**
+     * Profiles of the given users, in the order asked for, without duplicates; unknown ids are left out. Cached
+     * profiles are served from {@link UserProfileCache} and the rest read with a single query, so no transaction
+     * is started unless something has to be read.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<UserDTO> getUserProfiles(List<Long> userIds) {
+        Set<Long> ids = new LinkedHashSet<>(userIds);
+        ids.remove(null);
+        if (ids.size() > maxBatchIds) {
+            throw new IllegalArgumentException("At most " + maxBatchIds + " users can be requested at once");
+        }
+        long now = System.currentTimeMillis();
+        Map<Long, UserDTO> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            UserDTO cached = profileCache.get(id, now);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long generation = profileCache.generation();
+            List<UserDTO> loaded = userRepository.findAllById(missing).stream().map(this::convertToDTO).toList();
+            profileCache.putAll(loaded, generation, now);
+            for (UserDTO user : loaded) found.put(user.getId(), user);
+        }
+        List<UserDTO> users = new ArrayList<>(found.size());
+        for (Long id : ids) {
+            UserDTO user = found.get(id);
+            if (user != null) users.add(user);
+        }
+        return users;
     }
 
     /**
@@ -91,6 +173,7 @@ public class UserService {
         user.setLastName(request.getLastName());
         
         User updatedUser = userRepository.save(user);
+        evictProfile(userId);
         return convertToDTO(updatedUser);
     }
 
@@ -98,6 +181,18 @@ public class UserService {
         return userRepository.findByUsername(username);
     }
 
+    // dropped now, so lookups already reading the old row do not cache it, and again once the update is visible
+    private void evictProfile(Long userId) {
+        profileCache.invalidate(userId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                profileCache.invalidate(userId);
+            }
+        });
+    }
+
     private UserDTO convertToDTO(User user) {
         return new UserDTO(user.getId(), user.getUsername(), user.getEmail(),
                 user.getFirstName(), user.getLastName(), user.getIsActive());
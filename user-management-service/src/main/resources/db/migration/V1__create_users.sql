@@ -0,0 +1,16 @@
+-- Schema as previously generated by hibernate ddl-auto. Databases created that way are baselined at
+-- version 1 (spring.flyway.baseline-on-migrate), so this script only runs on empty databases.
+CREATE TABLE users (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username   VARCHAR(255) NOT NULL,
+    email      VARCHAR(255) NOT NULL,
+    password   VARCHAR(255) NOT NULL,
+    first_name VARCHAR(255),
+    last_name  VARCHAR(255),
+    is_active  BOOLEAN,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    -- findByUsername / existsByUsername, findByEmail / existsByEmail
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
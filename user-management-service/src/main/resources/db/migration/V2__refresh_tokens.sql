@@ -0,0 +1,18 @@
+-- Refresh tokens, stored as the SHA-256 of the token. Every refresh replaces the token with a new one of the same
+-- family; presenting a replaced token again revokes the whole family.
+CREATE TABLE refresh_tokens (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id    BIGINT       NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    family_id  VARCHAR(36)  NOT NULL,
+    token_hash VARCHAR(64)  NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL,
+    created_at TIMESTAMP(6),
+    revoked_at TIMESTAMP(6),
+    -- lockByTokenHash / findByTokenHash
+    CONSTRAINT uk_refresh_tokens_token_hash UNIQUE (token_hash)
+);
+
+-- revokeFamily
+CREATE INDEX idx_refresh_tokens_family_id ON refresh_tokens (family_id);
+-- deleteExpired
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
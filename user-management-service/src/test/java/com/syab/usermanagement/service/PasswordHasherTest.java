@@ -0,0 +1,92 @@
+package com.syab.usermanagement.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+    @Test
+    void testRejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BCryptPasswordEncoder slow = new BCryptPasswordEncoder() {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+        PasswordHasher hasher = new PasswordHasher(slow, 1, 1, 5_000L);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            // one check running, one queued: the third is refused without waiting
+            callers.submit(() -> hasher.matches("a", "x"));
+            callers.submit(() -> hasher.matches("b", "x"));
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (hasher.queued() < 1 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+
+            long started = System.nanoTime();
+            assertThrows(AuthenticationOverloadedException.class, () -> hasher.matches("c", "x"));
+            assertTrue(System.nanoTime() - started < 1_000_000_000L);
+        } finally {
+            release.countDown();
+            callers.shutdown();
+            hasher.shutdown();
+        }
+    }
+
+    @Test
+    void testTimedOutHashKeepsItsWorkerUntilItFinishes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BCryptPasswordEncoder slow = new BCryptPasswordEncoder() {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                // like bcrypt, ignores interrupts
+                while (true) {
+                    try {
+                        release.await();
+                        return true;
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }
+        };
+        PasswordHasher hasher = new PasswordHasher(slow, 1, 1, 50L);
+        try {
+            // the first check keeps running after its caller gave up; the second timed out in the queue and is gone
+            AuthenticationOverloadedException running = assertThrows(AuthenticationOverloadedException.class,
+                    () -> hasher.matches("a", "x"));
+            assertEquals("Password check timed out", running.getMessage());
+            assertThrows(AuthenticationOverloadedException.class, () -> hasher.matches("b", "x"));
+            assertEquals(0, hasher.queued());
+
+            // its queue slot is free again, so the next check waits instead of being refused
+            AuthenticationOverloadedException queued = assertThrows(AuthenticationOverloadedException.class,
+                    () -> hasher.matches("c", "x"));
+            assertEquals("Password check timed out", queued.getMessage());
+
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 5_000;
+            boolean matched = false;
+            while (!matched && System.currentTimeMillis() < deadline) {
+                try {
+                    matched = hasher.matches("d", "x");
+                } catch (AuthenticationOverloadedException e) {
+                    Thread.sleep(10);
+                }
+            }
+            assertTrue(matched);
+        } finally {
+            release.countDown();
+            hasher.shutdown();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.syab.usermanagement.service;
+
+import com.syab.usermanagement.model.RefreshToken;
+import com.syab.usermanagement.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private RefreshTokenService refreshTokenService;
+    private final List<RefreshToken> saved = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, 60_000L);
+        lenient().when(refreshTokenRepository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            if (!saved.contains(token)) saved.add(token);
+            return token;
+        });
+    }
+
+    @Test
+    void testRotationReplacesTokenWithinItsFamily() {
+        String first = refreshTokenService.issue(1L);
+        RefreshToken stored = saved.get(0);
+        assertNotEquals(first, stored.getTokenHash());
+        assertEquals(RefreshTokenService.hash(first), stored.getTokenHash());
+        when(refreshTokenRepository.lockByTokenHash(stored.getTokenHash())).thenReturn(Optional.of(stored));
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(first);
+
+        assertEquals(1L, rotation.userId());
+        assertNotEquals(first, rotation.refreshToken());
+        assertNotNull(stored.getRevokedAt());
+        RefreshToken replacement = saved.get(1);
+        assertEquals(stored.getFamilyId(), replacement.getFamilyId());
+        assertEquals(RefreshTokenService.hash(rotation.refreshToken()), replacement.getTokenHash());
+        verify(refreshTokenRepository, never()).revokeFamily(anyString(), any());
+    }
+
+    @Test
+    void testReusedTokenRevokesItsFamily() {
+        RefreshToken used = new RefreshToken(1L, 1L, "family", RefreshTokenService.hash("used"),
+                LocalDateTime.now().plusDays(1), null, LocalDateTime.now().minusMinutes(1));
+        when(refreshTokenRepository.lockByTokenHash(used.getTokenHash())).thenReturn(Optional.of(used));
+
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate("used"));
+        verify(refreshTokenRepository).revokeFamily(eq("family"), any());
+
+        when(refreshTokenRepository.lockByTokenHash(RefreshTokenService.hash("unknown"))).thenReturn(Optional.empty());
+        assertThrows(InvalidRefreshTokenException.class, () -> refreshTokenService.rotate("unknown"));
+        assertTrue(saved.isEmpty());
+    }
+}
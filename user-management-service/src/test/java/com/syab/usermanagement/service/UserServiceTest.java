@@ -11,9 +11,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,11 +27,17 @@ class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
 
     @Mock
     private JwtService jwtService;
 
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Spy
+    private UserProfileCache profileCache = new UserProfileCache(100, 60_000L);
+
     @InjectMocks
     private UserService userService;
 
@@ -47,7 +54,7 @@ class UserServiceTest {
     void testRegisterUserSuccess() {
         when(userRepository.existsByUsername("testuser")).thenReturn(false);
         when(userRepository.existsByEmail("test@example.com")).thenReturn(false);
-        when(passwordEncoder.encode("password123")).thenReturn("encodedPassword");
+        when(passwordHasher.encode("password123")).thenReturn("encodedPassword");
         when(userRepository.save(any(User.class))).thenReturn(user);
 
         UserDTO result = userService.registerUser(registrationRequest);
@@ -70,13 +77,15 @@ class UserServiceTest {
     void testAuthenticateUserSuccess() {
         AuthRequest authRequest = new AuthRequest("testuser", "password123");
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-        when(passwordEncoder.matches("password123", "encodedPassword")).thenReturn(true);
+        when(passwordHasher.matches("password123", "encodedPassword")).thenReturn(true);
         when(jwtService.generateToken(user)).thenReturn("jwtToken");
+        when(refreshTokenService.issue(1L)).thenReturn("refreshToken");
 
         AuthResponse result = userService.authenticateUser(authRequest);
 
         assertNotNull(result);
         assertEquals("jwtToken", result.getToken());
+        assertEquals("refreshToken", result.getRefreshToken());
         assertNotNull(result.getUser());
     }
 
@@ -84,14 +93,39 @@ class UserServiceTest {
     void testAuthenticateUserInvalidCredentials() {
         AuthRequest authRequest = new AuthRequest("testuser", "wrongpassword");
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-        when(passwordEncoder.matches("wrongpassword", "encodedPassword")).thenReturn(false);
+        when(passwordHasher.matches("wrongpassword", "encodedPassword")).thenReturn(false);
 
         assertThrows(IllegalArgumentException.class, () -> userService.authenticateUser(authRequest));
+        verify(refreshTokenService, never()).issue(any());
     }
 
     @Test
-    void testGetUserProfileSuccess() {
+    void testRefreshTokenIssuesNewTokens() {
+        when(refreshTokenService.rotate("oldRefresh")).thenReturn(new RefreshTokenService.Rotation(1L, "newRefresh"));
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(jwtService.generateToken(user)).thenReturn("jwtToken");
+
+        AuthResponse result = userService.refreshToken("oldRefresh");
+
+        assertEquals("jwtToken", result.getToken());
+        assertEquals("newRefresh", result.getRefreshToken());
+        verifyNoInteractions(passwordHasher);
+    }
+
+    @Test
+    void testRefreshTokenOfInactiveUserIsRevoked() {
+        user.setIsActive(false);
+        when(refreshTokenService.rotate("oldRefresh")).thenReturn(new RefreshTokenService.Rotation(1L, "newRefresh"));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        assertThrows(InvalidRefreshTokenException.class, () -> userService.refreshToken("oldRefresh"));
+        verify(refreshTokenService).revoke("newRefresh");
+        verifyNoInteractions(jwtService);
+    }
+
+    @Test
+    void testGetUserProfileSuccess() {
+        when(userRepository.findAllById(List.of(1L))).thenReturn(List.of(user));
 
         UserDTO result = userService.getUserProfile(1L);
 
@@ -102,11 +136,39 @@ class UserServiceTest {
 
     @Test
     void testGetUserProfileNotFound() {
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userRepository.findAllById(List.of(1L))).thenReturn(List.of());
 
         assertThrows(IllegalArgumentException.class, () -> userService.getUserProfile(1L));
     }
 
+    @Test
+    void testGetUserProfilesReadsOnlyUncachedUsers() {
+        User other = new User(2L, "other", "other@example.com", "encodedPassword", "Other", "User", true, null, null);
+        when(userRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(other, user));
+
+        List<UserDTO> first = userService.getUserProfiles(List.of(1L, 2L, 3L, 1L));
+        List<UserDTO> second = userService.getUserProfiles(List.of(2L, 1L));
+
+        assertEquals(List.of(1L, 2L), first.stream().map(UserDTO::getId).toList());
+        assertEquals(List.of(2L, 1L), second.stream().map(UserDTO::getId).toList());
+        verify(userRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void testUpdateUserProfileEvictsCachedProfile() {
+        when(userRepository.findAllById(List.of(1L))).thenReturn(List.of(user));
+        assertEquals("Test", userService.getUserProfile(1L).getFirstName());
+
+        User updatedUser = new User(1L, "testuser", "test@example.com", "encodedPassword", "New", "Name", true, null, null);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.save(any(User.class))).thenReturn(updatedUser);
+        userService.updateUserProfile(1L, registrationRequest);
+        when(userRepository.findAllById(List.of(1L))).thenReturn(List.of(updatedUser));
+
+        assertEquals("New", userService.getUserProfile(1L).getFirstName());
+        verify(userRepository, times(2)).findAllById(any());
+    }
+
     @Test
     void testUpdateUserProfileSuccess() {
         UserRegistrationRequest updateRequest = new UserRegistrationRequest("testuser", "test@example.com", "password123", "UpdatedFirst", "UpdatedLast");
@@ -0,0 +1,7 @@
+package com.syab.versioncontrol.client;
+
+public class CircuitOpenException extends RuntimeException {
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,123 @@
+package com.syab.versioncontrol.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Non-blocking client for document-editing-service, called directly rather than through the gateway.
+ * One {@link HttpClient} is shared, so connections are pooled and kept alive between calls. Every attempt has
+ * a timeout. An edit is not idempotent, so only attempts the service cannot have applied are retried, with
+ * exponential backoff and full jitter: a failed connect, or a 429 or 503 with {@code Retry-After}. A timeout or
+ * another 5xx may come after the edit was written and fails the call. A {@link CircuitBreaker} stops calling a
+ * service that keeps failing, so callers fail fast instead of queueing.
+ */
+@Component
+public class DocumentServiceClient {
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final CircuitBreaker breaker;
+
+    public DocumentServiceClient(ObjectMapper objectMapper,
+                                 @Value("${versioning.document-service.url:http://localhost:8083}") String baseUrl,
+                                 @Value("${versioning.document-service.connect-timeout-ms:2000}") long connectTimeoutMs,
+                                 @Value("${versioning.document-service.request-timeout-ms:5000}") long requestTimeoutMs,
+                                 @Value("${versioning.document-service.max-attempts:3}") int maxAttempts,
+                                 @Value("${versioning.document-service.retry-backoff-ms:200}") long retryBackoffMs,
+                                 @Value("${versioning.document-service.breaker.failure-threshold:5}") int failureThreshold,
+                                 @Value("${versioning.document-service.breaker.open-ms:30000}") long openMs) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = Math.max(1, retryBackoffMs);
+        this.breaker = new CircuitBreaker(failureThreshold, TimeUnit.MILLISECONDS.toNanos(openMs), System::nanoTime);
+    }
+
+    /**
+     * Replaces the document's content as an edit by {@code userId}. Completes exceptionally with a
+     * {@link DocumentServiceException} or, while the circuit is open, a {@link CircuitOpenException}.
+     */
+    public CompletableFuture<Void> editDocument(Long documentId, Long userId, String content, String operationType) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(Map.of("content", content, "operationType", operationType));
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/documents/" + documentId + "/edit?userId=" + userId))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                // the service is called directly, so it gets the acting user the way the gateway passes it on
+                .header("X-User-Id", userId.toString())
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return attempt(request, 1);
+    }
+
+    public CircuitBreaker.State circuitState() {
+        return breaker.state();
+    }
+
+    private CompletableFuture<Void> attempt(HttpRequest request, int attempt) {
+        if (!breaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new CircuitOpenException("document-editing-service circuit is open"));
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    int status = error == null ? response.statusCode() : 0;
+                    if (error == null && status < 400) {
+                        breaker.onSuccess();
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    if (error == null && status < 500 && status != 429) {
+                        // the service answered; the request itself is wrong and would fail again
+                        breaker.onSuccess();
+                        return CompletableFuture.<Void>failedFuture(new DocumentServiceException(
+                                "document-editing-service returned " + status, status));
+                    }
+                    breaker.onFailure();
+                    DocumentServiceException failure = error == null
+                            ? new DocumentServiceException("document-editing-service returned " + status, status)
+                            : new DocumentServiceException("document-editing-service unreachable", unwrap(error));
+                    if (attempt >= maxAttempts || !notApplied(response, error)) return CompletableFuture.<Void>failedFuture(failure);
+                    long delay = ThreadLocalRandom.current().nextLong(retryBackoffMs << (attempt - 1)) + 1;
+                    return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                            .thenCompose(ignored -> attempt(request, attempt + 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    // the request never reached the service, or the service refused it before doing anything
+    private static boolean notApplied(HttpResponse<?> response, Throwable error) {
+        if (error != null) return unwrap(error) instanceof ConnectException;
+        int status = response.statusCode();
+        return (status == 429 || status == 503) && response.headers().firstValue("Retry-After").isPresent();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
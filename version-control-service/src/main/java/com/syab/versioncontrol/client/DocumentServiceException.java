@@ -0,0 +1,20 @@
+package com.syab.versioncontrol.client;
+
+public class DocumentServiceException extends RuntimeException {
+    private final int status;
+
+    public DocumentServiceException(String message, int status) {
+        super(message);
+        this.status = status;
+    }
+
+    public DocumentServiceException(String message, Throwable cause) {
+        super(message, cause);
+        this.status = 0;
+    }
+
+    // 0 when no response was received
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,271 @@
+package com.syab.versioncontrol.contribution;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Contribution statistics per (document, user), counted in memory and added to {@code user_contributions} in
+ * batched upserts every {@code versioning.contributions.flush-ms}, instead of a read-modify-write of the row on
+ * every version. Counters are {@link LongAdder}s in a {@link ConcurrentHashMap}, so concurrent writers neither
+ * lose increments nor contend on a lock; a flush drains each adder with {@link LongAdder#sumThenReset()}, which
+ * moves every increment to exactly one flush. Increments not flushed yet are lost if the process dies.
+ * Recorded inside a transaction, counts are only added once it commits, so a rolled-back version or a redelivered
+ * batch of edit events is not counted twice.
+ * The same flush adds them to the hourly and daily rollups read by
+ * {@link com.syab.versioncontrol.service.ContributionAnalyticsService}.
+ * <p>
+ * Active time is the time between a user's consecutive edits of a document, counting gaps of up to
+ * {@code versioning.contributions.active-gap-ms}; a longer gap starts a new session.
+ */
+@Component
+public class ContributionCounters {
+    private static final Logger log = LoggerFactory.getLogger(ContributionCounters.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long activeGapMs;
+    private final ConcurrentHashMap<Key, Counters> counters = new ConcurrentHashMap<>();
+
+    public ContributionCounters(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                @Value("${versioning.contributions.active-gap-ms:300000}") long activeGapMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.activeGapMs = activeGapMs;
+    }
+
+    /**
+     * Credits {@code userId} with a version of the document.
+     */
+    public void recordVersion(Long documentId, Long userId) {
+        long now = millis(LocalDateTime.now());
+        afterCommit(() -> record(documentId, userId, c -> {
+            c.versions.increment();
+            c.lastEditedAt.accumulateAndGet(now, Math::max);
+        }));
+    }
+
+    /**
+     * Adds {@code edits} edits made between {@code firstEditAt} and {@code lastEditAt}.
+     */
+    public void recordEdits(Long documentId, Long userId, int edits, int charsInserted, int charsDeleted,
+                            LocalDateTime firstEditAt, LocalDateTime lastEditAt) {
+        long first = millis(firstEditAt);
+        long last = Math.max(first, millis(lastEditAt));
+        afterCommit(() -> record(documentId, userId, c -> {
+            long previous = c.lastEditedAt.getAndAccumulate(last, Math::max);
+            long active = last - first;
+            if (previous > 0 && previous < first && first - previous <= activeGapMs) active += first - previous;
+            c.edits.add(edits);
+            c.charsInserted.add(charsInserted);
+            c.charsDeleted.add(charsDeleted);
+            c.activeMs.add(active);
+        }));
+    }
+
+    /**
+     * Counts not flushed yet for the document, by user.
+     */
+    public Map<Long, Totals> pending(Long documentId) {
+        Map<Long, Totals> pending = new HashMap<>();
+        counters.forEach((key, c) -> {
+            if (key.documentId().equals(documentId)) {
+                Totals totals = c.peek();
+                if (!totals.isEmpty()) pending.put(key.userId(), totals);
+            }
+        });
+        return pending;
+    }
+
+    @Scheduled(fixedDelayString = "${versioning.contributions.flush-ms:1000}")
+    public void flush() {
+        long idleBefore = millis(LocalDateTime.now()) - activeGapMs;
+        List<Map.Entry<Key, Totals>> rows = new ArrayList<>();
+        counters.forEach((key, c) -> {
+            Totals totals = c.drain();
+            if (totals.isEmpty() && c.lastEditedAt.get() < idleBefore) {
+                totals = retire(key, c);
+            }
+            if (!totals.isEmpty()) rows.add(Map.entry(key, totals));
+        });
+        if (rows.isEmpty()) return;
+        // the same row order in every instance, so concurrent flushes cannot deadlock
+        rows.sort(Comparator.comparing((Map.Entry<Key, Totals> row) -> row.getKey().documentId())
+                .thenComparing(row -> row.getKey().userId()));
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(rows));
+        } catch (Exception e) {
+            log.warn("Flushing {} contribution counter(s) failed; retrying with the next flush", rows.size(), e);
+            for (Map.Entry<Key, Totals> row : rows) {
+                record(row.getKey().documentId(), row.getKey().userId(), c -> c.add(row.getValue()));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private void write(List<Map.Entry<Key, Totals>> rows) {
+        jdbcTemplate.batchUpdate("INSERT INTO user_contributions (document_id, user_id, changes_count, edits, "
+                + "chars_inserted, chars_deleted, active_ms, last_edited_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+                + "ON CONFLICT (document_id, user_id) DO UPDATE SET "
+                + "changes_count = user_contributions.changes_count + EXCLUDED.changes_count, "
+                + "edits = user_contributions.edits + EXCLUDED.edits, "
+                + "chars_inserted = user_contributions.chars_inserted + EXCLUDED.chars_inserted, "
+                + "chars_deleted = user_contributions.chars_deleted + EXCLUDED.chars_deleted, "
+                + "active_ms = user_contributions.active_ms + EXCLUDED.active_ms, "
+                + "last_edited_at = GREATEST(user_contributions.last_edited_at, EXCLUDED.last_edited_at)",
+                rows, rows.size(), (ps, row) -> {
+                    Totals totals = row.getValue();
+                    ps.setLong(1, row.getKey().documentId());
+                    ps.setLong(2, row.getKey().userId());
+                    ps.setInt(3, (int) totals.versions());
+                    ps.setLong(4, totals.edits());
+                    ps.setLong(5, totals.charsInserted());
+                    ps.setLong(6, totals.charsDeleted());
+                    ps.setLong(7, totals.activeMs());
+                    ps.setTimestamp(8, totals.lastEditedAt() == null ? null : Timestamp.valueOf(totals.lastEditedAt()));
+                });
+        LocalDateTime now = LocalDateTime.now();
+        writeRollup("contribution_rollups_hourly", ChronoUnit.HOURS, rows, now);
+        writeRollup("contribution_rollups_daily", ChronoUnit.DAYS, rows, now);
+    }
+
+    // a flush drains at most flush-ms of increments, so they are bucketed by the newest edit among them
+    private void writeRollup(String table, ChronoUnit bucket, List<Map.Entry<Key, Totals>> rows, LocalDateTime now) {
+        jdbcTemplate.batchUpdate("INSERT INTO " + table + " (bucket_start, document_id, user_id, versions, edits, "
+                + "chars_inserted, chars_deleted, active_ms) VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+                + "ON CONFLICT (document_id, bucket_start, user_id) DO UPDATE SET "
+                + "versions = " + table + ".versions + EXCLUDED.versions, "
+                + "edits = " + table + ".edits + EXCLUDED.edits, "
+                + "chars_inserted = " + table + ".chars_inserted + EXCLUDED.chars_inserted, "
+                + "chars_deleted = " + table + ".chars_deleted + EXCLUDED.chars_deleted, "
+                + "active_ms = " + table + ".active_ms + EXCLUDED.active_ms",
+                rows, rows.size(), (ps, row) -> {
+                    Totals totals = row.getValue();
+                    LocalDateTime at = totals.lastEditedAt() == null ? now : totals.lastEditedAt();
+                    ps.setTimestamp(1, Timestamp.valueOf(at.truncatedTo(bucket)));
+                    ps.setLong(2, row.getKey().documentId());
+                    ps.setLong(3, row.getKey().userId());
+                    ps.setLong(4, totals.versions());
+                    ps.setLong(5, totals.edits());
+                    ps.setLong(6, totals.charsInserted());
+                    ps.setLong(7, totals.charsDeleted());
+                    ps.setLong(8, totals.activeMs());
+                });
+    }
+
+    private static void afterCommit(Runnable count) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            count.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                count.run();
+            }
+        });
+    }
+
+    private void record(Long documentId, Long userId, Consumer<Counters> update) {
+        Key key = new Key(documentId, userId);
+        while (true) {
+            Counters c = counters.computeIfAbsent(key, k -> new Counters());
+            c.writers.incrementAndGet();
+            try {
+                if (!c.retired) {
+                    update.accept(c);
+                    return;
+                }
+            } finally {
+                c.writers.decrementAndGet();
+            }
+            // retired by a flush after we looked it up; its replacement is created on the next pass
+        }
+    }
+
+    // drops an idle entry; writers that found it before it was removed finish first and are flushed with it
+    private Totals retire(Key key, Counters c) {
+        c.retired = true;
+        counters.remove(key, c);
+        while (c.writers.get() != 0) Thread.onSpinWait();
+        return c.drain();
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private record Key(Long documentId, Long userId) {
+    }
+
+    public record Totals(long versions, long edits, long charsInserted, long charsDeleted, long activeMs,
+                         LocalDateTime lastEditedAt) {
+        boolean isEmpty() {
+            return versions == 0 && edits == 0 && charsInserted == 0 && charsDeleted == 0 && activeMs == 0;
+        }
+    }
+
+    private static final class Counters {
+        final LongAdder versions = new LongAdder();
+        final LongAdder edits = new LongAdder();
+        final LongAdder charsInserted = new LongAdder();
+        final LongAdder charsDeleted = new LongAdder();
+        final LongAdder activeMs = new LongAdder();
+        // newest edit, epoch millis of the local time; kept across flushes to measure the gap to the next edit
+        final AtomicLong lastEditedAt = new AtomicLong();
+        final AtomicInteger writers = new AtomicInteger();
+        volatile boolean retired;
+
+        Totals drain() {
+            return totals(versions.sumThenReset(), edits.sumThenReset(), charsInserted.sumThenReset(),
+                    charsDeleted.sumThenReset(), activeMs.sumThenReset());
+        }
+
+        Totals peek() {
+            return totals(versions.sum(), edits.sum(), charsInserted.sum(), charsDeleted.sum(), activeMs.sum());
+        }
+
+        void add(Totals totals) {
+            versions.add(totals.versions());
+            edits.add(totals.edits());
+            charsInserted.add(totals.charsInserted());
+            charsDeleted.add(totals.charsDeleted());
+            activeMs.add(totals.activeMs());
+            if (totals.lastEditedAt() != null) lastEditedAt.accumulateAndGet(millis(totals.lastEditedAt()), Math::max);
+        }
+
+        private Totals totals(long versions, long edits, long charsInserted, long charsDeleted, long activeMs) {
+            long last = lastEditedAt.get();
+            return new Totals(versions, edits, charsInserted, charsDeleted, activeMs,
+                    last == 0 ? null : LocalDateTime.ofEpochSecond(Math.floorDiv(last, 1000),
+                            (int) Math.floorMod(last, 1000) * 1_000_000, ZoneOffset.UTC));
+        }
+    }
+}
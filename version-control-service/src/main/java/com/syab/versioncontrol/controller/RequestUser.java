@@ -0,0 +1,35 @@
+package com.syab.versioncontrol.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The user a request acts for. Behind the API gateway that is the {@code X-User-Id} header, which the gateway sets
+ * from the verified access token after dropping any value sent by the client. A {@code userId} given by the client
+ * is only taken when {@code versioning.auth.require-authenticated-user} is off (local runs and load tests against the
+ * service itself); otherwise a request without the header is answered 401.
+ */
+@Component
+public class RequestUser {
+    public static final String HEADER = "X-User-Id";
+
+    private final boolean requireAuthenticatedUser;
+
+    public RequestUser(@Value("${versioning.auth.require-authenticated-user:true}") boolean requireAuthenticatedUser) {
+        this.requireAuthenticatedUser = requireAuthenticatedUser;
+    }
+
+    public Long require(Long authenticatedUserId, Long claimedUserId) {
+        Long userId = optional(authenticatedUserId, claimedUserId);
+        if (userId == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "userId is required");
+        return userId;
+    }
+
+    public Long optional(Long authenticatedUserId, Long claimedUserId) {
+        if (authenticatedUserId != null) return authenticatedUserId;
+        if (requireAuthenticatedUser) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Not authenticated");
+        return claimedUserId;
+    }
+}
@@ -1,21 +1,86 @@
 package com.syab.versioncontrol.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syab.versioncontrol.client.CircuitOpenException;
+import com.syab.versioncontrol.client.DocumentServiceClient;
+import com.syab.versioncontrol.client.DocumentServiceException;
+import com.syab.versioncontrol.dto.ActivityCellDTO;
+import com.syab.versioncontrol.dto.BranchDTO;
+import com.syab.versioncontrol.dto.BranchVersionDTO;
+import com.syab.versioncontrol.dto.ContributionTrendDTO;
+import com.syab.versioncontrol.dto.ContributorStatsDTO;
+import com.syab.versioncontrol.dto.DiffHunkDTO;
+import com.syab.versioncontrol.dto.DocumentEditEventDTO;
 import com.syab.versioncontrol.dto.DocumentVersionDTO;
+import com.syab.versioncontrol.dto.ImportResultDTO;
+import com.syab.versioncontrol.dto.MergeResultDTO;
 import com.syab.versioncontrol.dto.UserContributionDTO;
+import com.syab.versioncontrol.dto.VersionDiffDTO;
+import com.syab.versioncontrol.dto.VersionPageDTO;
+import com.syab.versioncontrol.service.AutoVersioningService;
+import com.syab.versioncontrol.service.BranchService;
+import com.syab.versioncontrol.service.ContributionAnalyticsService;
 import com.syab.versioncontrol.service.VersionControlService;
+import com.syab.versioncontrol.transfer.HistoryExporter;
+import com.syab.versioncontrol.transfer.HistoryImporter;
+import com.syab.versioncontrol.transfer.TransferAccess;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/versions")
 public class VersionControlController {
+    private static final Logger log = LoggerFactory.getLogger(VersionControlController.class);
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final VersionControlService versionControlService;
+    private final AutoVersioningService autoVersioningService;
+    private final ContributionAnalyticsService analyticsService;
+    private final BranchService branchService;
+    private final DocumentServiceClient documentServiceClient;
+    private final HistoryExporter historyExporter;
+    private final HistoryImporter historyImporter;
+    private final TransferAccess transferAccess;
+    private final RequestUser requestUser;
+    private final ObjectMapper objectMapper;
 
-    public VersionControlController(VersionControlService versionControlService) {
+    public VersionControlController(VersionControlService versionControlService,
+                                    AutoVersioningService autoVersioningService,
+                                    ContributionAnalyticsService analyticsService, BranchService branchService,
+                                    DocumentServiceClient documentServiceClient, HistoryExporter historyExporter,
+                                    HistoryImporter historyImporter, TransferAccess transferAccess,
+                                    RequestUser requestUser, ObjectMapper objectMapper) {
         this.versionControlService = versionControlService;
+        this.autoVersioningService = autoVersioningService;
+        this.analyticsService = analyticsService;
+        this.branchService = branchService;
+        this.documentServiceClient = documentServiceClient;
+        this.historyExporter = historyExporter;
+        this.historyImporter = historyImporter;
+        this.transferAccess = transferAccess;
+        this.requestUser = requestUser;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -25,23 +90,130 @@ public class VersionControlController {
     @PostMapping
     public ResponseEntity<DocumentVersionDTO> createVersion(
             @RequestParam Long documentId,
-            @RequestParam Long userId,
+            @RequestHeader(value = RequestUser.HEADER, required = false) Long authenticatedUserId,
+            @RequestParam(required = false) Long userId,
             @RequestParam String content,
             @RequestParam(required = false) String description) {
-        DocumentVersionDTO version = versionControlService.createVersion(documentId, content, userId, description);
+        DocumentVersionDTO version = versionControlService.createVersion(documentId, content,
+                requestUser.require(authenticatedUserId, userId), description);
         return ResponseEntity.status(HttpStatus.CREATED).body(version);
     }
 
+    /**
+     * Edit events relayed from document-editing-service's outbox; versions are then created automatically
+     * POST /api/versions/events
+     */
+    @PostMapping("/events")
+    public ResponseEntity<Void> receiveEditEvents(@RequestBody List<DocumentEditEventDTO> events) {
+        autoVersioningService.ingest(events);
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * Operation 2: Revert to a previous version
      * GET /api/versions/{documentId}/revert/{versionNumber}
      */
     @GetMapping("/{documentId}/revert/{versionNumber}")
-    public ResponseEntity<DocumentVersionDTO> revertToVersion(
+    public CompletableFuture<ResponseEntity<DocumentVersionDTO>> revertToVersion(
             @PathVariable Long documentId,
-            @PathVariable Integer versionNumber) {
+            @PathVariable Integer versionNumber,
+            @RequestHeader(value = RequestUser.HEADER, required = false) Long authenticatedUserId) {
+        Long userId = requestUser.optional(authenticatedUserId, null);
         DocumentVersionDTO version = versionControlService.revertToVersion(documentId, versionNumber);
-        return ResponseEntity.ok(version);
+        // without an authenticated user (local runs) the revert is attributed to the version's author
+        if (userId == null) userId = version.getCreatedBy();
+        // the version has been read and its transaction closed; the request thread is released while the document is updated
+        return applyToDocument(documentId, userId, version.getContent(), "REVERT", version,
+                "Revert of document " + documentId + " to version " + versionNumber);
+    }
+
+    private <T> CompletableFuture<ResponseEntity<T>> applyToDocument(Long documentId, Long userId, String content,
+                                                                     String operationType, T body, String what) {
+        return documentServiceClient.editDocument(documentId, userId, content, operationType)
+                .handle((ignored, error) -> {
+                    if (error == null) return ResponseEntity.ok(body);
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    HttpStatus status = cause instanceof CircuitOpenException ? HttpStatus.SERVICE_UNAVAILABLE
+                            : cause instanceof DocumentServiceException failure && failure.getStatus() == 404 ? HttpStatus.NOT_FOUND
+                            : HttpStatus.BAD_GATEWAY;
+                    log.warn("{} not applied: {}", what, cause.toString());
+                    return ResponseEntity.status(status).<T>build();
+                });
+    }
+
+    /**
+     * Create a branch from a main version (default: the document's current content)
+     * POST /api/versions/{documentId}/branches?name=rewrite&userId=1&fromVersion=
+     */
+    @PostMapping("/{documentId}/branches")
+    public ResponseEntity<BranchDTO> createBranch(
+            @PathVariable Long documentId,
+            @RequestParam String name,
+            @RequestHeader(value = RequestUser.HEADER, required = false) Long authenticatedUserId,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Integer fromVersion) {
+        BranchDTO branch = branchService.createBranch(documentId, name, requestUser.require(authenticatedUserId, userId), fromVersion);
+        return ResponseEntity.status(HttpStatus.CREATED).body(branch);
+    }
+
+    /**
+     * Branches of a document
+     * GET /api/versions/{documentId}/branches
+     */
+    @GetMapping("/{documentId}/branches")
+    public ResponseEntity<List<BranchDTO>> getBranches(@PathVariable Long documentId) {
+        return ResponseEntity.ok(branchService.getBranches(documentId));
+    }
+
+    /**
+     * Save a version on a branch
+     * POST /api/versions/{documentId}/branches/{name}/versions?userId=1&content=...
+     */
+    @PostMapping("/{documentId}/branches/{name}/versions")
+    public ResponseEntity<BranchVersionDTO> createBranchVersion(
+            @PathVariable Long documentId,
+            @PathVariable String name,
+            @RequestHeader(value = RequestUser.HEADER, required = false) Long authenticatedUserId,
+            @RequestParam(required = false) Long userId,
+            @RequestParam String content,
+            @RequestParam(required = false) String description) {
+        BranchVersionDTO version = branchService.createBranchVersion(documentId, name,
+                requestUser.require(authenticatedUserId, userId), content, description);
+        return ResponseEntity.status(HttpStatus.CREATED).body(version);
+    }
+
+    /**
+     * Versions of a branch, newest first
+     * GET /api/versions/{documentId}/branches/{name}/history
+     */
+    @GetMapping("/{documentId}/branches/{name}/history")
+    public ResponseEntity<List<BranchVersionDTO>> getBranchHistory(@PathVariable Long documentId, @PathVariable String name) {
+        return ResponseEntity.ok(branchService.getBranchHistory(documentId, name));
+    }
+
+    /**
+     * Merge a branch into main and apply the result to the document. 409 with the conflict-marked text if the
+     * merge conflicts; send the resolved text as the body, with mainVersion from the 409, to complete it.
+     * POST /api/versions/{documentId}/branches/{name}/merge?userId=1&mainVersion=
+     */
+    @PostMapping("/{documentId}/branches/{name}/merge")
+    public CompletableFuture<ResponseEntity<MergeResultDTO>> mergeBranch(
+            @PathVariable Long documentId,
+            @PathVariable String name,
+            @RequestHeader(value = RequestUser.HEADER, required = false) Long authenticatedUserId,
+            @RequestParam(value = "userId", required = false) Long claimedUserId,
+            @RequestParam(required = false) Integer mainVersion,
+            @RequestBody(required = false) String resolved) {
+        Long userId = requestUser.require(authenticatedUserId, claimedUserId);
+        MergeResultDTO result = branchService.merge(documentId, name, userId, resolved, mainVersion);
+        if (result.getMergedVersion() == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.CONFLICT).body(result));
+        }
+        if (result.getMergedVersion().equals(result.getMainVersion())) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(result));
+        }
+        return applyToDocument(documentId, userId, result.getContent(), "MERGE", result,
+                "Merge of branch " + name + " into document " + documentId);
     }
 
     /**
@@ -54,6 +226,75 @@ public class VersionControlController {
         return ResponseEntity.ok(contributions);
     }
 
+    /**
+     * Top contributors over a time range, across all documents or the given ones (default: the last 7 days)
+     * GET /api/versions/analytics/leaderboard?from=&to=&documentIds=1,2&rankBy=edits|versions|chars|active&limit=10
+     */
+    @GetMapping("/analytics/leaderboard")
+    public ResponseEntity<List<ContributorStatsDTO>> getLeaderboard(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) List<Long> documentIds,
+            @RequestParam(defaultValue = "edits") String rankBy,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(analyticsService.getLeaderboard(from, to, documentIds, rankBy, limit));
+    }
+
+    /**
+     * Activity by day of week and hour of day for a user and/or a document
+     * GET /api/versions/analytics/heatmap?userId=&documentId=&from=&to=
+     */
+    @GetMapping("/analytics/heatmap")
+    public ResponseEntity<List<ActivityCellDTO>> getActivityHeatmap(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Long documentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(analyticsService.getActivityHeatmap(userId, documentId, from, to));
+    }
+
+    /**
+     * Contribution totals of a document per hour or day
+     * GET /api/versions/{documentId}/trend?bucket=day|hour&from=&to=
+     */
+    @GetMapping("/{documentId}/trend")
+    public ResponseEntity<List<ContributionTrendDTO>> getDocumentTrend(
+            @PathVariable Long documentId,
+            @RequestParam(defaultValue = "day") String bucket,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(analyticsService.getDocumentTrend(documentId, bucket, from, to));
+    }
+
+    /**
+     * Version history and contributions of some or all documents, as gzip-compressed NDJSON written while it is read
+     * GET /api/versions/export?documentIds=1,2
+     */
+    @GetMapping("/export")
+    public void exportHistory(@RequestParam(required = false) List<Long> documentIds,
+                              @RequestHeader(value = TransferAccess.HEADER, required = false) String operatorToken,
+                              HttpServletResponse response) throws IOException {
+        if (!transferAccess.allows(operatorToken)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        response.setContentType("application/gzip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"version-history.ndjson.gz\"");
+        historyExporter.export(documentIds, response.getOutputStream());
+    }
+
+    /**
+     * Import an export (gzip-compressed or plain); versions and contributions that already exist are skipped
+     * POST /api/versions/import
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ImportResultDTO> importHistory(
+            @RequestHeader(value = TransferAccess.HEADER, required = false) String operatorToken,
+            HttpServletRequest request) throws IOException {
+        if (!transferAccess.allows(operatorToken)) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        return ResponseEntity.ok(historyImporter.importHistory(request.getInputStream()));
+    }
+
     /**
      * Get document version history
      * GET /api/versions/{documentId}/history
@@ -63,4 +304,71 @@ public class VersionControlController {
         List<DocumentVersionDTO> history = versionControlService.getDocumentVersionHistory(documentId);
         return ResponseEntity.ok(history);
     }
+
+    /**
+     * Version timeline without bodies, newest first
+     * GET /api/versions/{documentId}/timeline?before={versionNumber}&limit=50
+     */
+    @GetMapping("/{documentId}/timeline")
+    public ResponseEntity<VersionPageDTO> getVersionTimeline(
+            @PathVariable Long documentId,
+            @RequestParam(required = false) Integer before,
+            @RequestParam(defaultValue = "50") int limit) {
+        VersionPageDTO page = versionControlService.getVersionTimeline(documentId, before, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Diff between two versions of a document
+     * GET /api/versions/{documentId}/diff?from=1&to=2&granularity=line|word&context=3&format=json|ndjson
+     * With format=ndjson the hunks are written one JSON object per line, so large diffs can be consumed as they arrive.
+     */
+    @GetMapping("/{documentId}/diff")
+    public ResponseEntity<StreamingResponseBody> getVersionDiff(
+            @PathVariable Long documentId,
+            @RequestParam Integer from,
+            @RequestParam Integer to,
+            @RequestParam(defaultValue = "line") String granularity,
+            @RequestParam(defaultValue = "3") int context,
+            @RequestParam(defaultValue = "json") String format) {
+        VersionDiffDTO diff = versionControlService.getVersionDiff(documentId, from, to, granularity, context);
+        if ("ndjson".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = out -> {
+                for (DiffHunkDTO hunk : diff.getHunks()) {
+                    writeLine(out, hunk);
+                }
+            };
+            return ResponseEntity.ok().contentType(NDJSON).body(body);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, diff));
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Body of a single version, as plain text. Versions never change, so the client may cache it indefinitely;
+     * private, since it is a user's document and must not be kept by shared caches.
+     * GET /api/versions/{documentId}/{versionNumber}
+     */
+    @GetMapping("/{documentId}/{versionNumber}")
+    public ResponseEntity<StreamingResponseBody> getVersionContent(
+            @PathVariable Long documentId,
+            @PathVariable Integer versionNumber) {
+        String content = versionControlService.getVersionContent(documentId, versionNumber);
+        StreamingResponseBody body = out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write(content);
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable())
+                .body(body);
+    }
 }
@@ -0,0 +1,16 @@
+package com.syab.versioncontrol.diff;
+
+public enum DiffGranularity {
+    // lines, each including its line terminator
+    LINE,
+    // runs of letters and digits, runs of whitespace, and single other characters
+    WORD;
+
+    public static DiffGranularity parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown diff granularity: " + value);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.syab.versioncontrol.diff;
+
+import java.util.Arrays;
+
+/**
+ * Myers' O((N+M)D) difference algorithm in its linear-space form: instead of keeping the whole edit graph, each
+ * step searches forwards and backwards at once for the middle snake of an optimal path, splits there and recurses
+ * on both halves. Common prefixes and suffixes are trimmed first at every level.
+ * <p>
+ * Works on token ids (see {@link Tokenizer}) and marks which tokens of {@code a} are deleted and which tokens of
+ * {@code b} are inserted; everything else is common to both.
+ */
+final class MyersDiff {
+    private final int[] a;
+    private final int[] b;
+    final boolean[] deleted;
+    final boolean[] inserted;
+
+    private MyersDiff(int[] a, int[] b) {
+        this.a = a;
+        this.b = b;
+        this.deleted = new boolean[a.length];
+        this.inserted = new boolean[b.length];
+    }
+
+    static MyersDiff compute(int[] a, int[] b) {
+        MyersDiff diff = new MyersDiff(a, b);
+        diff.compare(0, a.length, 0, b.length);
+        return diff;
+    }
+
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+        if (aLo == aHi) {
+            for (int j = bLo; j < bHi; j++) inserted[j] = true;
+            return;
+        }
+        if (bLo == bHi) {
+            for (int i = aLo; i < aHi; i++) deleted[i] = true;
+            return;
+        }
+        bisect(aLo, aHi, bLo, bHi);
+    }
+
+    private void bisect(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int length = 2 * maxD + 2;
+        int[] forward = new int[length];
+        int[] backward = new int[length];
+        Arrays.fill(forward, -1);
+        Arrays.fill(backward, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+        int delta = n - m;
+        // with an odd delta the paths meet during a forward step, otherwise during a backward step
+        boolean odd = (delta & 1) != 0;
+        // diagonals that ran off the grid are not extended again
+        int forwardStart = 0, forwardEnd = 0, backwardStart = 0, backwardEnd = 0;
+        for (int d = 0; d < maxD; d++) {
+            for (int k = -d + forwardStart; k <= d - forwardEnd; k += 2) {
+                int i = offset + k;
+                int x = k == -d || (k != d && forward[i - 1] < forward[i + 1]) ? forward[i + 1] : forward[i - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x++;
+                    y++;
+                }
+                forward[i] = x;
+                if (x > n) {
+                    forwardEnd += 2;
+                } else if (y > m) {
+                    forwardStart += 2;
+                } else if (odd) {
+                    int j = offset + delta - k;
+                    if (j >= 0 && j < length && backward[j] != -1 && x >= n - backward[j]) {
+                        split(aLo, aHi, bLo, bHi, x, y);
+                        return;
+                    }
+                }
+            }
+            for (int k = -d + backwardStart; k <= d - backwardEnd; k += 2) {
+                int i = offset + k;
+                int x = k == -d || (k != d && backward[i - 1] < backward[i + 1]) ? backward[i + 1] : backward[i - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[aHi - 1 - x] == b[bHi - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                backward[i] = x;
+                if (x > n) {
+                    backwardEnd += 2;
+                } else if (y > m) {
+                    backwardStart += 2;
+                } else if (!odd) {
+                    int j = offset + delta - k;
+                    if (j >= 0 && j < length && forward[j] != -1) {
+                        int fx = forward[j];
+                        int fy = fx - (delta - k);
+                        if (fx >= n - x) {
+                            split(aLo, aHi, bLo, bHi, fx, fy);
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+        // nothing in common
+        for (int i = aLo; i < aHi; i++) deleted[i] = true;
+        for (int j = bLo; j < bHi; j++) inserted[j] = true;
+    }
+
+    private void split(int aLo, int aHi, int bLo, int bHi, int x, int y) {
+        compare(aLo, aLo + x, bLo, bLo + y);
+        compare(aLo + x, aHi, bLo + y, bHi);
+    }
+}
@@ -0,0 +1,150 @@
+package com.syab.versioncontrol.diff;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Merges two texts that were both edited from a common ancestor. Each side is first reduced to its delta
+ * against the ancestor, the one range between the common prefix and suffix (as in {@code TextDelta}), which
+ * takes a single pass over the text. When the two ranges are apart, both edits are applied as they are and
+ * nothing is diffed. Otherwise only the part of the texts covered by either range is merged line by line
+ * (diff3): a region changed on one side takes that side, one changed identically on both takes either, and one
+ * changed differently on both is a conflict, written out between conflict markers.
+ */
+public final class ThreeWayMerge {
+    private ThreeWayMerge() {
+    }
+
+    public record Result(String content, int conflicts) {
+    }
+
+    /**
+     * Merges {@code ours} and {@code theirs}, both derived from {@code base}; the labels name the sides in
+     * conflict markers.
+     */
+    public static Result merge(String base, String ours, String theirs, String oursLabel, String theirsLabel) {
+        if (ours.equals(theirs) || theirs.equals(base)) return new Result(ours, 0);
+        if (ours.equals(base)) return new Result(theirs, 0);
+        Range oursRange = Range.of(base, ours);
+        Range theirsRange = Range.of(base, theirs);
+        // edits that touch (say, two insertions at the same place) are left to the line merge
+        if (oursRange.end() < theirsRange.start()) {
+            return new Result(apply(base, ours, oursRange, theirs, theirsRange), 0);
+        }
+        if (theirsRange.end() < oursRange.start()) {
+            return new Result(apply(base, theirs, theirsRange, ours, oursRange), 0);
+        }
+        // outside the union of both ranges all three texts are the same; it is widened to whole lines
+        int start = base.lastIndexOf('\n', Math.min(oursRange.start(), theirsRange.start()) - 1) + 1;
+        int end = Math.max(oursRange.end(), theirsRange.end());
+        if (end > 0 && base.charAt(end - 1) != '\n') {
+            int newline = base.indexOf('\n', end);
+            end = newline < 0 ? base.length() : newline + 1;
+        }
+        int tail = base.length() - end;
+        StringBuilder merged = new StringBuilder(Math.max(ours.length(), theirs.length()) + 64);
+        merged.append(base, 0, start);
+        int conflicts = mergeLines(base.substring(start, end), ours.substring(start, ours.length() - tail),
+                theirs.substring(start, theirs.length() - tail), oursLabel, theirsLabel, merged);
+        merged.append(base, end, base.length());
+        return new Result(merged.toString(), conflicts);
+    }
+
+    // applies two edits to base, the first one ending before the second one starts
+    private static String apply(String base, String first, Range firstRange, String second, Range secondRange) {
+        return new StringBuilder(first.length() + second.length())
+                .append(base, 0, firstRange.start())
+                .append(first, firstRange.start(), firstRange.start() + firstRange.replacement())
+                .append(base, firstRange.end(), secondRange.start())
+                .append(second, secondRange.start(), secondRange.start() + secondRange.replacement())
+                .append(base, secondRange.end(), base.length())
+                .toString();
+    }
+
+    private static int mergeLines(String base, String ours, String theirs, String oursLabel, String theirsLabel,
+                                  StringBuilder out) {
+        Tokenizer tokenizer = new Tokenizer(DiffGranularity.LINE);
+        List<String> baseLines = tokenizer.split(base);
+        List<String> oursLines = tokenizer.split(ours);
+        List<String> theirsLines = tokenizer.split(theirs);
+        int[] b = tokenizer.ids(baseLines);
+        int[] o = tokenizer.ids(oursLines);
+        int[] t = tokenizer.ids(theirsLines);
+        int[] inOurs = matches(MyersDiff.compute(b, o), b.length, o.length);
+        int[] inTheirs = matches(MyersDiff.compute(b, t), b.length, t.length);
+
+        int conflicts = 0;
+        int i = 0, oi = 0, ti = 0;
+        while (i < b.length || oi < o.length || ti < t.length) {
+            if (i < b.length && inOurs[i] == oi && inTheirs[i] == ti) {
+                out.append(baseLines.get(i));
+                i++;
+                oi++;
+                ti++;
+                continue;
+            }
+            // the next line kept by both sides ends the region
+            int k = i;
+            while (k < b.length && (inOurs[k] < 0 || inTheirs[k] < 0)) k++;
+            int oEnd = k < b.length ? inOurs[k] : o.length;
+            int tEnd = k < b.length ? inTheirs[k] : t.length;
+            boolean oursChanged = !Arrays.equals(o, oi, oEnd, b, i, k);
+            boolean theirsChanged = !Arrays.equals(t, ti, tEnd, b, i, k);
+            if (!theirsChanged || (oursChanged && Arrays.equals(o, oi, oEnd, t, ti, tEnd))) {
+                append(out, oursLines, oi, oEnd);
+            } else if (!oursChanged) {
+                append(out, theirsLines, ti, tEnd);
+            } else {
+                conflicts++;
+                out.append("<<<<<<< ").append(oursLabel).append('\n');
+                appendLines(out, oursLines, oi, oEnd);
+                out.append("=======\n");
+                appendLines(out, theirsLines, ti, tEnd);
+                out.append(">>>>>>> ").append(theirsLabel).append('\n');
+            }
+            i = k;
+            oi = oEnd;
+            ti = tEnd;
+        }
+        return conflicts;
+    }
+
+    // for each token of a, the index of the same token in b, or -1 if it was deleted
+    private static int[] matches(MyersDiff diff, int aLength, int bLength) {
+        int[] matched = new int[aLength];
+        int i = 0, j = 0;
+        while (i < aLength) {
+            if (diff.deleted[i]) {
+                matched[i++] = -1;
+            } else if (j < bLength && diff.inserted[j]) {
+                j++;
+            } else {
+                matched[i++] = j++;
+            }
+        }
+        return matched;
+    }
+
+    private static void append(StringBuilder out, List<String> lines, int from, int to) {
+        for (int i = from; i < to; i++) out.append(lines.get(i));
+    }
+
+    // a side of a conflict, always ending with a newline so the next marker starts its own line
+    private static void appendLines(StringBuilder out, List<String> lines, int from, int to) {
+        append(out, lines, from, to);
+        if (from < to && !lines.get(to - 1).endsWith("\n")) out.append('\n');
+    }
+
+    // the range [start, end) of base that a side replaced, and the length of its replacement
+    private record Range(int start, int end, int replacement) {
+        static Range of(String base, String side) {
+            int max = Math.min(base.length(), side.length());
+            int prefix = 0;
+            while (prefix < max && base.charAt(prefix) == side.charAt(prefix)) prefix++;
+            int suffix = 0;
+            while (suffix < max - prefix
+                    && base.charAt(base.length() - 1 - suffix) == side.charAt(side.length() - 1 - suffix)) suffix++;
+            return new Range(prefix, base.length() - suffix, side.length() - prefix - suffix);
+        }
+    }
+}
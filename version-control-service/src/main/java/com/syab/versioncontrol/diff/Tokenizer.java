@@ -0,0 +1,57 @@
+package com.syab.versioncontrol.diff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits both texts of a diff into tokens and numbers them, so equal tokens get the same id and
+ * {@link MyersDiff} compares ints instead of strings.
+ */
+final class Tokenizer {
+    private final DiffGranularity granularity;
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    Tokenizer(DiffGranularity granularity) {
+        this.granularity = granularity;
+    }
+
+    List<String> split(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        int length = text.length();
+        while (start < length) {
+            int end = granularity == DiffGranularity.LINE ? lineEnd(text, start) : wordEnd(text, start);
+            tokens.add(text.substring(start, end));
+            start = end;
+        }
+        return tokens;
+    }
+
+    int[] ids(List<String> tokens) {
+        int[] result = new int[tokens.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.computeIfAbsent(tokens.get(i), t -> ids.size());
+        }
+        return result;
+    }
+
+    private static int lineEnd(String text, int start) {
+        int newline = text.indexOf('\n', start);
+        return newline < 0 ? text.length() : newline + 1;
+    }
+
+    private static int wordEnd(String text, int start) {
+        int end = start;
+        char first = text.charAt(start);
+        if (Character.isLetterOrDigit(first)) {
+            while (end < text.length() && Character.isLetterOrDigit(text.charAt(end))) end++;
+        } else if (Character.isWhitespace(first)) {
+            while (end < text.length() && Character.isWhitespace(text.charAt(end))) end++;
+        } else {
+            end = start + Character.charCount(text.codePointAt(start));
+        }
+        return end;
+    }
+}
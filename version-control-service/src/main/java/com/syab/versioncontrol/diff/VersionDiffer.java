@@ -0,0 +1,136 @@
+package com.syab.versioncontrol.diff;
+
+import com.syab.versioncontrol.dto.DiffHunkDTO;
+import com.syab.versioncontrol.dto.DiffSegmentDTO;
+import com.syab.versioncontrol.model.DocumentVersion;
+import com.syab.versioncontrol.storage.BlobStore;
+import com.syab.versioncontrol.storage.LruCache;
+import com.syab.versioncontrol.storage.VersionStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Line or word diffs between two versions, as hunks with context. Results are cached by the content hashes of both
+ * sides, so a repeated comparison, or the same comparison in another document, is answered without rebuilding either
+ * version.
+ */
+@Component
+public class VersionDiffer {
+    private final VersionStore versionStore;
+    private final LruCache<Key, List<DiffHunkDTO>> cache;
+
+    public VersionDiffer(VersionStore versionStore,
+                         @Value("${versioning.diff.cache-max-chars:8388608}") long cacheMaxChars) {
+        this.versionStore = versionStore;
+        this.cache = new LruCache<>(cacheMaxChars, VersionDiffer::weight);
+    }
+
+    public List<DiffHunkDTO> diff(DocumentVersion from, DocumentVersion to, DiffGranularity granularity, int context) {
+        // versions written before content hashes have to be rebuilt to find their hash
+        String fromContent = from.getContentHash() == null ? versionStore.content(from) : null;
+        String toContent = to.getContentHash() == null ? versionStore.content(to) : null;
+        Key key = new Key(fromContent == null ? from.getContentHash() : BlobStore.hash(fromContent),
+                toContent == null ? to.getContentHash() : BlobStore.hash(toContent), granularity, context);
+        List<DiffHunkDTO> hunks = cache.get(key);
+        if (hunks != null) return hunks;
+        hunks = hunks(fromContent != null ? fromContent : versionStore.content(from),
+                toContent != null ? toContent : versionStore.content(to), granularity, context);
+        cache.put(key, hunks);
+        return hunks;
+    }
+
+    static List<DiffHunkDTO> hunks(String from, String to, DiffGranularity granularity, int context) {
+        Tokenizer tokenizer = new Tokenizer(granularity);
+        List<String> a = tokenizer.split(from);
+        List<String> b = tokenizer.split(to);
+        MyersDiff diff = MyersDiff.compute(tokenizer.ids(a), tokenizer.ids(b));
+
+        // the edit script, one step per token: its operation and the positions in a and b it starts at
+        int maxSteps = a.size() + b.size();
+        Op[] ops = new Op[maxSteps];
+        int[] aAt = new int[maxSteps];
+        int[] bAt = new int[maxSteps];
+        int steps = 0;
+        for (int i = 0, j = 0; i < a.size() || j < b.size(); steps++) {
+            aAt[steps] = i;
+            bAt[steps] = j;
+            if (i < a.size() && diff.deleted[i]) {
+                ops[steps] = Op.DELETE;
+                i++;
+            } else if (j < b.size() && diff.inserted[j]) {
+                ops[steps] = Op.INSERT;
+                j++;
+            } else {
+                ops[steps] = Op.EQUAL;
+                i++;
+                j++;
+            }
+        }
+
+        List<DiffHunkDTO> hunks = new ArrayList<>();
+        int done = 0;
+        while (true) {
+            int firstChange = done;
+            while (firstChange < steps && ops[firstChange] == Op.EQUAL) firstChange++;
+            if (firstChange == steps) break;
+            // a hunk ends where more than two contexts' worth of equal tokens separate it from the next change
+            int lastChange = firstChange;
+            for (int k = firstChange + 1; k < steps && k - lastChange - 1 <= 2 * context; k++) {
+                if (ops[k] != Op.EQUAL) lastChange = k;
+            }
+            int start = Math.max(done, firstChange - context);
+            int end = Math.min(steps, lastChange + 1 + context);
+            hunks.add(hunk(ops, aAt, bAt, a, b, start, end));
+            done = end;
+        }
+        return List.copyOf(hunks);
+    }
+
+    private static DiffHunkDTO hunk(Op[] ops, int[] aAt, int[] bAt, List<String> a, List<String> b, int start, int end) {
+        List<DiffSegmentDTO> segments = new ArrayList<>();
+        int oldCount = 0;
+        int newCount = 0;
+        StringBuilder text = new StringBuilder();
+        for (int s = start; s < end; s++) {
+            Op op = ops[s];
+            if (op == Op.INSERT) {
+                newCount++;
+                text.append(b.get(bAt[s]));
+            } else {
+                oldCount++;
+                if (op == Op.EQUAL) newCount++;
+                text.append(a.get(aAt[s]));
+            }
+            if (s + 1 == end || ops[s + 1] != op) {
+                segments.add(new DiffSegmentDTO(op.label, text.toString()));
+                text.setLength(0);
+            }
+        }
+        return new DiffHunkDTO(aAt[start] + 1, oldCount, bAt[start] + 1, newCount, segments);
+    }
+
+    private static long weight(List<DiffHunkDTO> hunks) {
+        long weight = 16;
+        for (DiffHunkDTO hunk : hunks) {
+            weight += 32;
+            for (DiffSegmentDTO segment : hunk.getSegments()) weight += segment.getText().length();
+        }
+        return weight;
+    }
+
+    private enum Op {
+        EQUAL("equal"), DELETE("delete"), INSERT("insert");
+
+        private final String label;
+
+        Op(String label) {
+            this.label = label;
+        }
+    }
+
+    private record Key(String fromHash, String toHash, DiffGranularity granularity, int context) {
+    }
+}
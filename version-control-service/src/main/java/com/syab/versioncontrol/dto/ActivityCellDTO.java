@@ -0,0 +1,17 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityCellDTO {
+    // ISO day of week, 1 (Monday) to 7 (Sunday)
+    private Integer dayOfWeek;
+    // 0 to 23
+    private Integer hour;
+    private Long edits;
+    private Long activeMs;
+}
@@ -0,0 +1,19 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BranchDTO {
+    private Long id;
+    private Long documentId;
+    private String name;
+    private Integer baseVersion;
+    private Integer headVersion;
+    private Integer mergedVersion;
+    private Long createdBy;
+    private String createdAt;
+}
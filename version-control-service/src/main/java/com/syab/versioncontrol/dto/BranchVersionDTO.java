@@ -0,0 +1,19 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BranchVersionDTO {
+    private Long id;
+    private Long documentId;
+    private String branch;
+    private Integer versionNumber;
+    private String content;
+    private Long createdBy;
+    private String createdAt;
+    private String description;
+}
@@ -0,0 +1,18 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContributionTrendDTO {
+    private String bucketStart;
+    private Long versions;
+    private Long edits;
+    private Long charsInserted;
+    private Long charsDeleted;
+    private Long activeMs;
+    private Long contributors;
+}
@@ -0,0 +1,19 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContributorStatsDTO {
+    private Long userId;
+    private Long versions;
+    private Long edits;
+    private Long charsInserted;
+    private Long charsDeleted;
+    private Long activeMs;
+    // documents the user contributed to in the range
+    private Long documents;
+}
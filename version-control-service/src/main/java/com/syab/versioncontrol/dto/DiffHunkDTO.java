@@ -0,0 +1,22 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A changed region with its surrounding context, like a unified diff hunk. Positions are 1-based and count
+ * lines or words, depending on the requested granularity.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiffHunkDTO {
+    private int oldStart;
+    private int oldCount;
+    private int newStart;
+    private int newCount;
+    private List<DiffSegmentDTO> segments;
+}
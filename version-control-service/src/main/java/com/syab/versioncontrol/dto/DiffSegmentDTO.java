@@ -0,0 +1,14 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiffSegmentDTO {
+    // equal, delete or insert
+    private String op;
+    private String text;
+}
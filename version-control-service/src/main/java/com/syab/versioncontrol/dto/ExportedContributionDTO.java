@@ -0,0 +1,21 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one "contribution" line of a history export
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportedContributionDTO {
+    private String type;
+    private Long documentId;
+    private Long userId;
+    private Integer changesCount;
+    private Long edits;
+    private Long charsInserted;
+    private Long charsDeleted;
+    private Long activeMs;
+    private String lastEditedAt;
+}
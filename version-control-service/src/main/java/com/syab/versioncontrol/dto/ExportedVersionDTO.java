@@ -0,0 +1,19 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one "version" line of a history export; the content is always the full text
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportedVersionDTO {
+    private String type;
+    private Long documentId;
+    private Integer versionNumber;
+    private Long createdBy;
+    private String createdAt;
+    private String description;
+    private String content;
+}
@@ -0,0 +1,18 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResultDTO {
+    // ids that belong to a different document here; their versions and contributions count as skipped
+    private long documentsSkipped;
+    private long versionsImported;
+    // already present (same document and version number); left as they are
+    private long versionsSkipped;
+    private long contributionsImported;
+    private long contributionsSkipped;
+}
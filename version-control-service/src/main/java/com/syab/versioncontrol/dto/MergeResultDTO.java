@@ -0,0 +1,21 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MergeResultDTO {
+    private Long documentId;
+    private String branch;
+    // the branch version and the main version that were merged
+    private Integer branchVersion;
+    private Integer mainVersion;
+    // the main version holding the result; null if there were conflicts
+    private Integer mergedVersion;
+    private int conflicts;
+    // the merged text, with conflict markers around each conflict
+    private String content;
+}
@@ -12,4 +12,9 @@ public class UserContributionDTO {
     private Long documentId;
     private Long userId;
     private Integer changesCount;
+    private Long edits;
+    private Long charsInserted;
+    private Long charsDeleted;
+    private Long activeMs;
+    private String lastEditedAt;
 }
@@ -0,0 +1,18 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionDiffDTO {
+    private Long documentId;
+    private Integer fromVersion;
+    private Integer toVersion;
+    private String granularity;
+    private List<DiffHunkDTO> hunks;
+}
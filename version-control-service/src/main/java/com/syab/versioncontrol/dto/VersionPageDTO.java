@@ -0,0 +1,17 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionPageDTO {
+    // newest first
+    private List<VersionSummaryDTO> versions;
+    // pass as "before" to get the next (older) page; null on the last page
+    private Integer nextCursor;
+}
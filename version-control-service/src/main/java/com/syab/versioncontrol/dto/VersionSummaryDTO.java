@@ -0,0 +1,17 @@
+package com.syab.versioncontrol.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionSummaryDTO {
+    private Long id;
+    private Long documentId;
+    private Integer versionNumber;
+    private Long createdBy;
+    private String createdAt;
+    private String description;
+}
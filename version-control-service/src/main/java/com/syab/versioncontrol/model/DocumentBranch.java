@@ -0,0 +1,47 @@
+package com.syab.versioncontrol.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "document_branches")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentBranch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    // the main version the branch was created from
+    @Column(name = "base_version", nullable = false)
+    private Integer baseVersion;
+
+    // 0 until the first version on the branch
+    @Column(name = "head_version", nullable = false)
+    private Integer headVersion;
+
+    // the branch version last merged into main, if any
+    @Column(name = "merged_version")
+    private Integer mergedVersion;
+
+    @Column(name = "created_by", nullable = false)
+    private Long createdBy;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -22,7 +22,8 @@ public class DocumentVersion {
     @Column(name = "version_number", nullable = false)
     private Integer versionNumber;
 
-    @Column(columnDefinition = "TEXT", nullable = false)
+    // only set on versions written before content blobs; see VersionStore for how a version is stored
+    @Column(columnDefinition = "TEXT")
     private String content;
 
     @Column(name = "created_by", nullable = false)
@@ -34,6 +35,13 @@ public class DocumentVersion {
     @Column(columnDefinition = "TEXT")
     private String description;
 
+    @Column(columnDefinition = "TEXT")
+    private String delta;
+
+    // hex SHA-256 of the full content; the content_blobs key when neither content nor delta is set
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
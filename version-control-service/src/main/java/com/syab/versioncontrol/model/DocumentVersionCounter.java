@@ -0,0 +1,20 @@
+package com.syab.versioncontrol.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "document_version_counters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentVersionCounter {
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(name = "last_version", nullable = false)
+    private Integer lastVersion;
+}
@@ -0,0 +1,46 @@
+package com.syab.versioncontrol.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "pending_versions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingVersion {
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(name = "last_change_id", nullable = false)
+    private Long lastChangeId;
+
+    @Column(columnDefinition = "TEXT")
+    private String content;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "contributors")
+    private Long[] contributors;
+
+    @Column(nullable = false)
+    private Integer edits;
+
+    @Column(name = "changed_chars", nullable = false)
+    private Long changedChars;
+
+    @Column(name = "first_edit_at")
+    private LocalDateTime firstEditAt;
+
+    @Column(name = "last_edit_at")
+    private LocalDateTime lastEditAt;
+}
@@ -22,9 +22,22 @@ public class UserContribution {
     @Column(name = "user_id", nullable = false)
     private Long userId;
 
-    @Column(name = "changes_count")
+    // versions the user is credited with
+    @Column(name = "changes_count", nullable = false)
     private Integer changesCount = 0;
 
+    @Column(nullable = false)
+    private Long edits = 0L;
+
+    @Column(name = "chars_inserted", nullable = false)
+    private Long charsInserted = 0L;
+
+    @Column(name = "chars_deleted", nullable = false)
+    private Long charsDeleted = 0L;
+
+    @Column(name = "active_ms", nullable = false)
+    private Long activeMs = 0L;
+
     @Column(name = "last_edited_at")
     private LocalDateTime lastEditedAt;
 
@@ -0,0 +1,15 @@
+package com.syab.versioncontrol.repository;
+
+import com.syab.versioncontrol.model.BranchVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BranchVersionRepository extends JpaRepository<BranchVersion, Long> {
+    Optional<BranchVersion> findByBranchIdAndVersionNumber(Long branchId, Integer versionNumber);
+    List<BranchVersion> findByBranchIdOrderByVersionNumberAsc(Long branchId);
+    List<BranchVersion> findByBranchIdAndVersionNumberBetweenOrderByVersionNumberAsc(Long branchId, Integer from, Integer to);
+}
@@ -0,0 +1,24 @@
+package com.syab.versioncontrol.repository;
+
+import com.syab.versioncontrol.model.ContentBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+    /**
+     * @return 1 if the blob exists and was referenced, 0 if it has to be inserted
+     */
+    @Modifying
+    @Query(value = "UPDATE content_blobs SET ref_count = ref_count + 1 WHERE hash = :hash", nativeQuery = true)
+    int addReference(@Param("hash") String hash);
+
+    // a concurrent insert of the same content turns into a reference
+    @Modifying
+    @Query(value = "INSERT INTO content_blobs (hash, content, ref_count, created_at) VALUES (:hash, :content, 1, now()) "
+            + "ON CONFLICT (hash) DO UPDATE SET ref_count = content_blobs.ref_count + 1", nativeQuery = true)
+    int insertOrReference(@Param("hash") String hash, @Param("content") String content);
+}
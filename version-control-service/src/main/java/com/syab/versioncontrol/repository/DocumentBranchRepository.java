@@ -0,0 +1,25 @@
+package com.syab.versioncontrol.repository;
+
+import com.syab.versioncontrol.model.DocumentBranch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentBranchRepository extends JpaRepository<DocumentBranch, Long> {
+    List<DocumentBranch> findByDocumentIdOrderByNameAsc(Long documentId);
+    Optional<DocumentBranch> findByDocumentIdAndName(Long documentId, String name);
+
+    /**
+     * The branch, locked until the transaction ends, so versions and merges of one branch are serialized.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM DocumentBranch b WHERE b.documentId = :documentId AND b.name = :name")
+    Optional<DocumentBranch> lockByDocumentIdAndName(@Param("documentId") Long documentId, @Param("name") String name);
+}
@@ -0,0 +1,30 @@
+package com.syab.versioncontrol.repository;
+
+import com.syab.versioncontrol.model.DocumentVersionCounter;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DocumentVersionCounterRepository extends JpaRepository<DocumentVersionCounter, Long> {
+    /**
+     * Allocates the document's next version number. The counter row stays locked until the transaction ends,
+     * so concurrent writers of the same document are serialized and each sees the previous version committed.
+     */
+    @Query(value = "INSERT INTO document_version_counters (document_id, last_version) VALUES (:documentId, 1) "
+            + "ON CONFLICT (document_id) DO UPDATE SET last_version = document_version_counters.last_version + 1 "
+            + "RETURNING last_version", nativeQuery = true)
+    int next(@Param("documentId") Long documentId);
+
+    /**
+     * The document's counter, locked until the transaction ends, so no version can be created meanwhile.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM DocumentVersionCounter c WHERE c.documentId = :documentId")
+    Optional<DocumentVersionCounter> lockByDocumentId(@Param("documentId") Long documentId);
+}
@@ -1,6 +1,7 @@
 package com.syab.versioncontrol.repository;
 
 import com.syab.versioncontrol.model.DocumentVersion;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -11,4 +12,8 @@ import java.util.Optional;
 public interface DocumentVersionRepository extends JpaRepository<DocumentVersion, Long> {
     List<DocumentVersion> findByDocumentIdOrderByVersionNumberDesc(Long documentId);
     Optional<DocumentVersion> findByDocumentIdAndVersionNumber(Long documentId, Integer versionNumber);
+    List<DocumentVersion> findByDocumentIdOrderByVersionNumberAsc(Long documentId);
+    boolean existsByDocumentId(Long documentId);
+    List<DocumentVersion> findByDocumentIdAndVersionNumberBetweenOrderByVersionNumberAsc(Long documentId, Integer from, Integer to);
+    List<VersionSummary> findByDocumentIdAndVersionNumberLessThanOrderByVersionNumberDesc(Long documentId, Integer before, Limit limit);
 }
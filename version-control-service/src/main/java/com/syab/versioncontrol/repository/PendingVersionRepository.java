@@ -0,0 +1,36 @@
+package com.syab.versioncontrol.repository;
+
+import com.syab.versioncontrol.model.PendingVersion;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PendingVersionRepository extends JpaRepository<PendingVersion, Long> {
+    @Modifying
+    @Query(value = "INSERT INTO pending_versions (document_id, last_change_id, edits, changed_chars) "
+            + "VALUES (:documentId, 0, 0, 0) ON CONFLICT (document_id) DO NOTHING", nativeQuery = true)
+    void createIfAbsent(@Param("documentId") Long documentId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM PendingVersion p WHERE p.documentId = :documentId")
+    Optional<PendingVersion> lockByDocumentId(@Param("documentId") Long documentId);
+
+    /**
+     * Pending edits that have been idle since {@code idleBefore} or started before {@code startedBefore}.
+     * Rows another instance is flushing are skipped.
+     */
+    @Query(value = "SELECT * FROM pending_versions WHERE content IS NOT NULL "
+            + "AND (last_edit_at <= :idleBefore OR first_edit_at <= :startedBefore) "
+            + "ORDER BY first_edit_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<PendingVersion> findDue(@Param("idleBefore") LocalDateTime idleBefore,
+                                 @Param("startedBefore") LocalDateTime startedBefore, @Param("limit") int limit);
+}
@@ -0,0 +1,18 @@
+package com.syab.versioncontrol.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of {@code DocumentVersion} without its body, for timelines.
+ */
+public interface VersionSummary {
+    Long getId();
+
+    Integer getVersionNumber();
+
+    Long getCreatedBy();
+
+    LocalDateTime getCreatedAt();
+
+    String getDescription();
+}
@@ -0,0 +1,234 @@
+package com.syab.versioncontrol.service;
+
+import com.syab.versioncontrol.contribution.ContributionCounters;
+import com.syab.versioncontrol.dto.DocumentEditEventDTO;
+import com.syab.versioncontrol.model.DocumentVersion;
+import com.syab.versioncontrol.model.PendingVersion;
+import com.syab.versioncontrol.repository.DocumentVersionCounterRepository;
+import com.syab.versioncontrol.repository.DocumentVersionRepository;
+import com.syab.versioncontrol.repository.PendingVersionRepository;
+import com.syab.versioncontrol.storage.BlobStore;
+import com.syab.versioncontrol.storage.TextDelta;
+import com.syab.versioncontrol.storage.VersionStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Turns the document edit stream into versions. Relayed edits are coalesced into one pending version per
+ * document, which becomes a real version once the document has been idle for a while, once its first pending
+ * edit is old enough, or once enough characters have changed, whichever comes first. A burst of edits therefore
+ * produces one version, and a long editing session still gets one every few minutes. Several relays may deliver
+ * batches out of order, so redeliveries are recognised by change id in {@code processed_edit_events}; an edit
+ * that arrives after a newer one of its document still counts, but does not replace the newer content.
+ */
+@Service
+@Transactional
+public class AutoVersioningService {
+    private final PendingVersionRepository pendingRepository;
+    private final DocumentVersionCounterRepository counterRepository;
+    private final DocumentVersionRepository versionRepository;
+    private final VersionStore versionStore;
+    private final VersionControlService versionControlService;
+    private final ContributionCounters contributionCounters;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${versioning.auto.idle-ms:30000}")
+    private long idleMs = 30_000L;
+
+    @Value("${versioning.auto.max-age-ms:300000}")
+    private long maxAgeMs = 300_000L;
+
+    @Value("${versioning.auto.max-changed-chars:2000}")
+    private long maxChangedChars = 2_000L;
+
+    @Value("${versioning.auto.sweep-batch:100}")
+    private int sweepBatch = 100;
+
+    @Value("${versioning.auto.processed-retention-ms:604800000}")
+    private long processedRetentionMs = 604_800_000L;
+
+    public AutoVersioningService(PendingVersionRepository pendingRepository, DocumentVersionCounterRepository counterRepository,
+                                 DocumentVersionRepository versionRepository, VersionStore versionStore,
+                                 VersionControlService versionControlService, ContributionCounters contributionCounters,
+                                 JdbcTemplate jdbcTemplate) {
+        this.pendingRepository = pendingRepository;
+        this.counterRepository = counterRepository;
+        this.versionRepository = versionRepository;
+        this.versionStore = versionStore;
+        this.versionControlService = versionControlService;
+        this.contributionCounters = contributionCounters;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds relayed edits to their documents' pending versions. Events whose change id was processed before are
+     * redeliveries and are skipped.
+     */
+    public void ingest(List<DocumentEditEventDTO> events) {
+        // documents are locked in id order, so concurrent batches cannot deadlock
+        Map<Long, List<DocumentEditEventDTO>> byDocument = new TreeMap<>();
+        for (DocumentEditEventDTO event : events) {
+            byDocument.computeIfAbsent(event.getDocumentId(), id -> new ArrayList<>()).add(event);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<Long, List<DocumentEditEventDTO>> entry : byDocument.entrySet()) {
+            Long documentId = entry.getKey();
+            pendingRepository.createIfAbsent(documentId);
+            PendingVersion pending = pendingRepository.lockByDocumentId(documentId).orElseThrow();
+            entry.getValue().sort(Comparator.comparing(DocumentEditEventDTO::getChangeId));
+            Set<Long> unseen = markProcessed(entry.getValue());
+            for (DocumentEditEventDTO event : entry.getValue()) {
+                if (!unseen.contains(event.getChangeId())) continue;
+                if (event.getChangeId() > pending.getLastChangeId()) {
+                    add(pending, event, now);
+                } else {
+                    addLate(pending, event, now);
+                }
+            }
+            if (pending.getContent() != null && pending.getChangedChars() >= maxChangedChars) {
+                flush(pending);
+            }
+            pendingRepository.save(pending);
+        }
+    }
+
+    private void add(PendingVersion pending, DocumentEditEventDTO event, LocalDateTime now) {
+        String content = event.getContent() == null ? "" : event.getContent();
+        String base = pending.getContent();
+        if (base == null) {
+            base = latestVersion(pending.getDocumentId()).map(versionStore::content).orElse("");
+            pending.setFirstEditAt(now);
+        }
+        Set<Long> contributors = new LinkedHashSet<>();
+        if (pending.getContributors() != null) contributors.addAll(Arrays.asList(pending.getContributors()));
+        if (event.getUserId() != null) contributors.add(event.getUserId());
+        int edits = event.getEdits() == null ? 1 : event.getEdits();
+        TextDelta.Change change = TextDelta.change(base, content);
+
+        pending.setChangedChars(pending.getChangedChars() + Math.max(change.deleted(), change.inserted()));
+        pending.setContent(content);
+        pending.setUserId(event.getUserId());
+        pending.setContributors(contributors.toArray(new Long[0]));
+        pending.setEdits(pending.getEdits() + edits);
+        pending.setLastChangeId(event.getChangeId());
+        pending.setLastEditAt(now);
+        if (event.getUserId() != null) {
+            LocalDateTime first = event.getFirstEditAt() == null ? now : LocalDateTime.parse(event.getFirstEditAt());
+            LocalDateTime last = event.getLastEditAt() == null ? first : LocalDateTime.parse(event.getLastEditAt());
+            contributionCounters.recordEdits(pending.getDocumentId(), event.getUserId(), edits,
+                    change.inserted(), change.deleted(), first, last);
+        }
+    }
+
+    /**
+     * Counts an edit that arrived after a newer one of its document. Its content is older than what is pending
+     * or already versioned, so only its author and edit count are taken; the characters it changed are unknown.
+     */
+    private void addLate(PendingVersion pending, DocumentEditEventDTO event, LocalDateTime now) {
+        if (event.getUserId() == null) return;
+        int edits = event.getEdits() == null ? 1 : event.getEdits();
+        if (pending.getContent() != null) {
+            Set<Long> contributors = new LinkedHashSet<>();
+            if (pending.getContributors() != null) contributors.addAll(Arrays.asList(pending.getContributors()));
+            contributors.add(event.getUserId());
+            pending.setContributors(contributors.toArray(new Long[0]));
+            pending.setEdits(pending.getEdits() + edits);
+        }
+        LocalDateTime first = event.getFirstEditAt() == null ? now : LocalDateTime.parse(event.getFirstEditAt());
+        LocalDateTime last = event.getLastEditAt() == null ? first : LocalDateTime.parse(event.getLastEditAt());
+        contributionCounters.recordEdits(pending.getDocumentId(), event.getUserId(), edits, 0, 0, first, last);
+    }
+
+    /**
+     * Records the events' change ids as processed and returns those that were not already. A redelivery racing
+     * the first delivery waits on the primary key until that transaction ends, so only one of them takes the edit.
+     */
+    private Set<Long> markProcessed(List<DocumentEditEventDTO> events) {
+        List<Object[]> ids = new ArrayList<>(events.size());
+        for (DocumentEditEventDTO event : events) ids.add(new Object[]{event.getChangeId()});
+        int[] inserted = jdbcTemplate.batchUpdate(
+                "INSERT INTO processed_edit_events (change_id) VALUES (?) ON CONFLICT (change_id) DO NOTHING", ids);
+        Set<Long> unseen = new HashSet<>();
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] > 0) unseen.add(events.get(i).getChangeId());
+        }
+        return unseen;
+    }
+
+    /**
+     * Forgets processed change ids older than the retention; the relay redelivers within minutes, not days.
+     */
+    @Scheduled(fixedDelayString = "${versioning.auto.processed-purge-ms:3600000}")
+    public int purgeProcessed() {
+        return jdbcTemplate.update("DELETE FROM processed_edit_events WHERE processed_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minus(Duration.ofMillis(processedRetentionMs))));
+    }
+
+    /**
+     * Creates versions for pending edits that have reached the idle or age threshold.
+     */
+    @Scheduled(fixedDelayString = "${versioning.auto.sweep-ms:5000}")
+    public int flushDue() {
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingVersion> due = pendingRepository.findDue(now.minus(Duration.ofMillis(idleMs)),
+                now.minus(Duration.ofMillis(maxAgeMs)), sweepBatch);
+        for (PendingVersion pending : due) {
+            flush(pending);
+            pendingRepository.save(pending);
+        }
+        return due.size();
+    }
+
+    /**
+     * Turns the document's pending edits, if any, into a version now, so its latest version is its current content.
+     */
+    public void flushNow(Long documentId) {
+        pendingRepository.lockByDocumentId(documentId).ifPresent(pending -> {
+            if (pending.getContent() == null) return;
+            flush(pending);
+            pendingRepository.save(pending);
+        });
+    }
+
+    private void flush(PendingVersion pending) {
+        String content = pending.getContent();
+        Optional<DocumentVersion> latest = latestVersion(pending.getDocumentId());
+        // edits that ended where the latest version already is (undo, a revert to it) need no new version
+        if (latest.isEmpty() || !BlobStore.hash(content).equals(latest.get().getContentHash())) {
+            int edits = pending.getEdits();
+            List<Long> contributors = pending.getContributors() == null ? List.of(pending.getUserId())
+                    : Arrays.asList(pending.getContributors());
+            versionControlService.createVersion(pending.getDocumentId(), content, pending.getUserId(),
+                    "Automatic version after " + edits + (edits == 1 ? " edit" : " edits"), contributors);
+        }
+        pending.setContent(null);
+        pending.setUserId(null);
+        pending.setContributors(null);
+        pending.setEdits(0);
+        pending.setChangedChars(0L);
+        pending.setFirstEditAt(null);
+        pending.setLastEditAt(null);
+    }
+
+    private Optional<DocumentVersion> latestVersion(Long documentId) {
+        return counterRepository.findById(documentId)
+                .flatMap(counter -> versionRepository.findByDocumentIdAndVersionNumber(documentId, counter.getLastVersion()));
+    }
+}
@@ -0,0 +1,228 @@
+package com.syab.versioncontrol.service;
+
+import com.syab.versioncontrol.diff.ThreeWayMerge;
+import com.syab.versioncontrol.dto.BranchDTO;
+import com.syab.versioncontrol.dto.BranchVersionDTO;
+import com.syab.versioncontrol.dto.DocumentVersionDTO;
+import com.syab.versioncontrol.dto.MergeResultDTO;
+import com.syab.versioncontrol.model.BranchVersion;
+import com.syab.versioncontrol.model.DocumentBranch;
+import com.syab.versioncontrol.model.DocumentVersion;
+import com.syab.versioncontrol.model.DocumentVersionCounter;
+import com.syab.versioncontrol.repository.BranchVersionRepository;
+import com.syab.versioncontrol.repository.DocumentBranchRepository;
+import com.syab.versioncontrol.repository.DocumentVersionCounterRepository;
+import com.syab.versioncontrol.repository.DocumentVersionRepository;
+import com.syab.versioncontrol.storage.BranchStore;
+import com.syab.versioncontrol.storage.VersionStore;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Named branches of a document's history. The document's own versions are the main line; a branch starts at one
+ * of them and has its own version chain, so a large rewrite can be drafted while the live document keeps being
+ * edited. Merging a branch back is a three-way merge of the branch head and the latest main version against their
+ * common ancestor: the base version for the first merge, the branch version merged last for later ones. A clean
+ * merge becomes a new main version; a conflicting one writes nothing and returns the text with conflict markers,
+ * which can be resolved and submitted against the same main version.
+ */
+@Service
+@Transactional
+public class BranchService {
+    public static final String MAIN = "main";
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,99}");
+
+    private final DocumentBranchRepository branchRepository;
+    private final BranchVersionRepository branchVersionRepository;
+    private final DocumentVersionRepository versionRepository;
+    private final DocumentVersionCounterRepository counterRepository;
+    private final BranchStore branchStore;
+    private final VersionStore versionStore;
+    private final VersionControlService versionControlService;
+    private final AutoVersioningService autoVersioningService;
+
+    public BranchService(DocumentBranchRepository branchRepository, BranchVersionRepository branchVersionRepository,
+                         DocumentVersionRepository versionRepository, DocumentVersionCounterRepository counterRepository,
+                         BranchStore branchStore, VersionStore versionStore, VersionControlService versionControlService,
+                         AutoVersioningService autoVersioningService) {
+        this.branchRepository = branchRepository;
+        this.branchVersionRepository = branchVersionRepository;
+        this.versionRepository = versionRepository;
+        this.counterRepository = counterRepository;
+        this.branchStore = branchStore;
+        this.versionStore = versionStore;
+        this.versionControlService = versionControlService;
+        this.autoVersioningService = autoVersioningService;
+    }
+
+    /**
+     * Creates a branch from main version {@code fromVersion}, or from the document's current content.
+     */
+    public BranchDTO createBranch(Long documentId, String name, Long userId, Integer fromVersion) {
+        if (name == null || !NAME.matcher(name).matches() || MAIN.equals(name)) {
+            throw new IllegalArgumentException("Invalid branch name");
+        }
+        if (branchRepository.findByDocumentIdAndName(documentId, name).isPresent()) {
+            throw new IllegalArgumentException("Branch already exists");
+        }
+        int baseVersion;
+        if (fromVersion == null) {
+            autoVersioningService.flushNow(documentId);
+            baseVersion = counterRepository.findById(documentId).map(DocumentVersionCounter::getLastVersion)
+                    .orElseThrow(() -> new IllegalArgumentException("Document has no versions"));
+        } else {
+            if (versionRepository.findByDocumentIdAndVersionNumber(documentId, fromVersion).isEmpty()) {
+                throw new IllegalArgumentException("Version not found");
+            }
+            baseVersion = fromVersion;
+        }
+        DocumentBranch branch = new DocumentBranch();
+        branch.setDocumentId(documentId);
+        branch.setName(name);
+        branch.setBaseVersion(baseVersion);
+        branch.setHeadVersion(0);
+        branch.setCreatedBy(userId);
+        return convertToDTO(branchRepository.save(branch));
+    }
+
+    @Transactional(readOnly = true)
+    public List<BranchDTO> getBranches(Long documentId) {
+        return branchRepository.findByDocumentIdOrderByNameAsc(documentId).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Saves a new version on the branch.
+     */
+    public BranchVersionDTO createBranchVersion(Long documentId, String name, Long userId, String content, String description) {
+        DocumentBranch branch = lockBranch(documentId, name);
+        int versionNumber = branch.getHeadVersion() + 1;
+        BranchVersion version = new BranchVersion();
+        version.setBranchId(branch.getId());
+        version.setVersionNumber(versionNumber);
+        version.setCreatedBy(userId);
+        version.setDescription(description);
+        branchStore.encode(version, content, headContent(branch));
+        BranchVersion saved = branchVersionRepository.save(version);
+        branchStore.saved(saved, content);
+        branch.setHeadVersion(versionNumber);
+        branchRepository.save(branch);
+        return convertToDTO(branch, saved, content);
+    }
+
+    /**
+     * Versions of the branch, newest first.
+     */
+    @Transactional(readOnly = true)
+    public List<BranchVersionDTO> getBranchHistory(Long documentId, String name) {
+        DocumentBranch branch = branchRepository.findByDocumentIdAndName(documentId, name)
+                .orElseThrow(() -> new IllegalArgumentException("Branch not found"));
+        List<BranchVersion> versions = branchVersionRepository.findByBranchIdOrderByVersionNumberAsc(branch.getId());
+        List<String> contents = branchStore.contents(branch, versions);
+        List<BranchVersionDTO> history = new ArrayList<>(versions.size());
+        for (int i = 0; i < versions.size(); i++) {
+            history.add(convertToDTO(branch, versions.get(i), contents.get(i)));
+        }
+        Collections.reverse(history);
+        return history;
+    }
+
+    /**
+     * Merges the branch head into main. {@code resolved}, the text of an earlier conflicting merge with its
+     * conflicts resolved, is taken as the result if main is still at {@code mainVersion}; otherwise the merge is
+     * redone against the new main version and nothing is written. The result's mergedVersion is null whenever
+     * nothing was written.
+     */
+    public MergeResultDTO merge(Long documentId, String name, Long userId, String resolved, Integer mainVersion) {
+        DocumentBranch branch = lockBranch(documentId, name);
+        int head = branch.getHeadVersion();
+        if (head == 0 || branch.getMergedVersion() != null && branch.getMergedVersion() == head) {
+            throw new IllegalArgumentException("Nothing to merge");
+        }
+        // pending edits become a version first, so the merge includes them; then main is held still until commit
+        autoVersioningService.flushNow(documentId);
+        int latest = counterRepository.lockByDocumentId(documentId).map(DocumentVersionCounter::getLastVersion)
+                .orElseThrow(() -> new IllegalStateException("Document " + documentId + " has no versions"));
+        DocumentVersion oursVersion = versionRepository.findByDocumentIdAndVersionNumber(documentId, latest)
+                .orElseThrow(() -> new IllegalStateException("Missing version " + latest + " of document " + documentId));
+        String ours = versionStore.content(oursVersion);
+        String theirs = headContent(branch);
+
+        String merged;
+        int conflicts;
+        boolean write;
+        if (resolved != null && mainVersion != null && mainVersion == latest) {
+            merged = resolved;
+            conflicts = 0;
+            write = true;
+        } else {
+            String ancestor = branch.getMergedVersion() == null ? branchStore.baseContent(branch)
+                    : branchStore.content(branch, branchVersion(branch, branch.getMergedVersion()));
+            ThreeWayMerge.Result result = ThreeWayMerge.merge(ancestor, ours, theirs, MAIN, name);
+            merged = result.content();
+            conflicts = result.conflicts();
+            write = resolved == null && conflicts == 0;
+        }
+        if (!write) {
+            return new MergeResultDTO(documentId, name, head, latest, null, conflicts, merged);
+        }
+        int mergedVersion = latest;
+        if (!merged.equals(ours)) {
+            DocumentVersionDTO version = versionControlService.createVersion(documentId, merged, userId,
+                    "Merge branch '" + name + "' (version " + head + ")");
+            mergedVersion = version.getVersionNumber();
+        }
+        branch.setMergedVersion(head);
+        branchRepository.save(branch);
+        return new MergeResultDTO(documentId, name, head, latest, mergedVersion, 0, merged);
+    }
+
+    private DocumentBranch lockBranch(Long documentId, String name) {
+        return branchRepository.lockByDocumentIdAndName(documentId, name)
+                .orElseThrow(() -> new IllegalArgumentException("Branch not found"));
+    }
+
+    private BranchVersion branchVersion(DocumentBranch branch, int versionNumber) {
+        return branchVersionRepository.findByBranchIdAndVersionNumber(branch.getId(), versionNumber)
+                .orElseThrow(() -> new IllegalStateException("Missing version " + versionNumber + " of branch " + branch.getName()));
+    }
+
+    // content of the branch's latest version, or of its base version before it has any
+    private String headContent(DocumentBranch branch) {
+        if (branch.getHeadVersion() == 0) return branchStore.baseContent(branch);
+        return branchStore.content(branch, branchVersion(branch, branch.getHeadVersion()));
+    }
+
+    private BranchDTO convertToDTO(DocumentBranch branch) {
+        return new BranchDTO(
+            branch.getId(),
+            branch.getDocumentId(),
+            branch.getName(),
+            branch.getBaseVersion(),
+            branch.getHeadVersion(),
+            branch.getMergedVersion(),
+            branch.getCreatedBy(),
+            branch.getCreatedAt() != null ? branch.getCreatedAt().toString() : null
+        );
+    }
+
+    private BranchVersionDTO convertToDTO(DocumentBranch branch, BranchVersion version, String content) {
+        return new BranchVersionDTO(
+            version.getId(),
+            branch.getDocumentId(),
+            branch.getName(),
+            version.getVersionNumber(),
+            content,
+            version.getCreatedBy(),
+            version.getCreatedAt() != null ? version.getCreatedAt().toString() : null,
+            version.getDescription()
+        );
+    }
+}
@@ -0,0 +1,173 @@
+package com.syab.versioncontrol.service;
+
+import com.syab.versioncontrol.dto.ActivityCellDTO;
+import com.syab.versioncontrol.dto.ContributionTrendDTO;
+import com.syab.versioncontrol.dto.ContributorStatsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contribution analytics over the hourly and daily rollups that
+ * {@link com.syab.versioncontrol.contribution.ContributionCounters} maintains with every flush. Every query
+ * reads one row per (bucket, document, user) in the range, so its cost follows the length of the range rather
+ * than the amount of editing behind it. Ranges are half-open, {@code [from, to)}; counts not flushed yet
+ * (at most {@code versioning.contributions.flush-ms} old) are not included.
+ */
+@Service
+@Transactional
+public class ContributionAnalyticsService {
+    private static final String HOURLY = "contribution_rollups_hourly";
+    private static final String DAILY = "contribution_rollups_daily";
+    private static final Map<String, String> RANKINGS = Map.of(
+            "edits", "edits",
+            "versions", "versions",
+            "chars", "chars_inserted + chars_deleted",
+            "active", "active_ms");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${versioning.rollups.default-range-days:7}")
+    private int defaultRangeDays = 7;
+
+    @Value("${versioning.rollups.max-leaderboard-size:100}")
+    private int maxLeaderboardSize = 100;
+
+    @Value("${versioning.rollups.hourly-retention-days:90}")
+    private int hourlyRetentionDays = 90;
+
+    public ContributionAnalyticsService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Top contributors in the range, optionally within some documents, ranked by {@code rankBy}
+     * (edits, versions, chars or active). Day-aligned ranges are answered from the daily rollup.
+     */
+    @Transactional(readOnly = true)
+    public List<ContributorStatsDTO> getLeaderboard(LocalDateTime from, LocalDateTime to, Collection<Long> documentIds,
+                                                    String rankBy, int limit) {
+        String ranking = RANKINGS.get(rankBy == null ? "edits" : rankBy.toLowerCase());
+        if (ranking == null) {
+            throw new IllegalArgumentException("Unknown ranking: " + rankBy);
+        }
+        Range range = range(from, to);
+        boolean daily = range.from().equals(range.from().truncatedTo(ChronoUnit.DAYS))
+                && range.to().equals(range.to().truncatedTo(ChronoUnit.DAYS));
+        List<Object> args = new ArrayList<>(List.of(range.from(), range.to()));
+        StringBuilder sql = new StringBuilder("SELECT user_id, SUM(versions), SUM(edits), SUM(chars_inserted), ")
+                .append("SUM(chars_deleted), SUM(active_ms), COUNT(DISTINCT document_id) FROM ")
+                .append(daily ? DAILY : HOURLY)
+                .append(" WHERE bucket_start >= ? AND bucket_start < ?");
+        if (documentIds != null && !documentIds.isEmpty()) {
+            sql.append(" AND document_id = ANY (?)");
+            args.add(documentIds.toArray(new Long[0]));
+        }
+        sql.append(" GROUP BY user_id ORDER BY SUM(").append(ranking).append(") DESC, user_id LIMIT ?");
+        args.add(Math.max(1, Math.min(limit, maxLeaderboardSize)));
+        return jdbcTemplate.query(sql.toString(), bind(args), (rs, i) -> new ContributorStatsDTO(rs.getLong(1),
+                rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getLong(6), rs.getLong(7)));
+    }
+
+    /**
+     * Activity by day of week and hour of day, for one user, one document, or both. Only non-empty cells are returned.
+     */
+    @Transactional(readOnly = true)
+    public List<ActivityCellDTO> getActivityHeatmap(Long userId, Long documentId, LocalDateTime from, LocalDateTime to) {
+        if (userId == null && documentId == null) {
+            throw new IllegalArgumentException("A heatmap needs a userId or a documentId");
+        }
+        Range range = range(from, to);
+        List<Object> args = new ArrayList<>(List.of(range.from(), range.to()));
+        StringBuilder sql = new StringBuilder("SELECT EXTRACT(ISODOW FROM bucket_start)::int, ")
+                .append("EXTRACT(HOUR FROM bucket_start)::int, SUM(edits), SUM(active_ms) FROM ").append(HOURLY)
+                .append(" WHERE bucket_start >= ? AND bucket_start < ?");
+        if (userId != null) {
+            sql.append(" AND user_id = ?");
+            args.add(userId);
+        }
+        if (documentId != null) {
+            sql.append(" AND document_id = ?");
+            args.add(documentId);
+        }
+        sql.append(" GROUP BY 1, 2 ORDER BY 1, 2");
+        return jdbcTemplate.query(sql.toString(), bind(args),
+                (rs, i) -> new ActivityCellDTO(rs.getInt(1), rs.getInt(2), rs.getLong(3), rs.getLong(4)));
+    }
+
+    /**
+     * Per-bucket totals for a document, oldest first; {@code bucket} is hour or day. Empty buckets are omitted.
+     */
+    @Transactional(readOnly = true)
+    public List<ContributionTrendDTO> getDocumentTrend(Long documentId, String bucket, LocalDateTime from, LocalDateTime to) {
+        String table;
+        if (bucket == null || "day".equalsIgnoreCase(bucket)) {
+            table = DAILY;
+        } else if ("hour".equalsIgnoreCase(bucket)) {
+            table = HOURLY;
+        } else {
+            throw new IllegalArgumentException("Unknown bucket: " + bucket);
+        }
+        Range range = range(from, to);
+        return jdbcTemplate.query("SELECT bucket_start, SUM(versions), SUM(edits), SUM(chars_inserted), "
+                        + "SUM(chars_deleted), SUM(active_ms), COUNT(*) FROM " + table
+                        + " WHERE document_id = ? AND bucket_start >= ? AND bucket_start < ? "
+                        + "GROUP BY bucket_start ORDER BY bucket_start",
+                bind(List.of(documentId, range.from(), range.to())),
+                (rs, i) -> new ContributionTrendDTO(rs.getTimestamp(1).toLocalDateTime().toString(), rs.getLong(2),
+                        rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getLong(6), rs.getLong(7)));
+    }
+
+    /**
+     * Drops hourly buckets older than {@code versioning.rollups.hourly-retention-days}; the daily rollup is kept.
+     */
+    @Scheduled(fixedDelayString = "${versioning.rollups.prune-ms:3600000}")
+    public int pruneHourly() {
+        LocalDateTime before = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusDays(hourlyRetentionDays);
+        return jdbcTemplate.update("DELETE FROM " + HOURLY + " WHERE bucket_start < ?", Timestamp.valueOf(before));
+    }
+
+    private Range range(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        LocalDateTime start = from != null ? from : end.minus(Duration.ofDays(defaultRangeDays));
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        return new Range(start, end);
+    }
+
+    private static PreparedStatementSetter bind(List<?> args) {
+        return ps -> {
+            for (int i = 0; i < args.size(); i++) {
+                set(ps, i + 1, args.get(i));
+            }
+        };
+    }
+
+    private static void set(PreparedStatement ps, int index, Object value) throws SQLException {
+        if (value instanceof LocalDateTime time) {
+            ps.setTimestamp(index, Timestamp.valueOf(time));
+        } else if (value instanceof Long[] ids) {
+            ps.setArray(index, ps.getConnection().createArrayOf("bigint", ids));
+        } else {
+            ps.setObject(index, value);
+        }
+    }
+
+    private record Range(LocalDateTime from, LocalDateTime to) {
+    }
+}
@@ -1,63 +1,103 @@
 package com.syab.versioncontrol.service;
 
+import com.syab.versioncontrol.contribution.ContributionCounters;
+import com.syab.versioncontrol.diff.DiffGranularity;
+import com.syab.versioncontrol.diff.VersionDiffer;
 import com.syab.versioncontrol.dto.DocumentVersionDTO;
 import com.syab.versioncontrol.dto.UserContributionDTO;
+import com.syab.versioncontrol.dto.VersionDiffDTO;
+import com.syab.versioncontrol.dto.VersionPageDTO;
+import com.syab.versioncontrol.dto.VersionSummaryDTO;
 import com.syab.versioncontrol.model.DocumentVersion;
 import com.syab.versioncontrol.model.UserContribution;
+import com.syab.versioncontrol.repository.DocumentVersionCounterRepository;
 import com.syab.versioncontrol.repository.DocumentVersionRepository;
 import com.syab.versioncontrol.repository.UserContributionRepository;
+import com.syab.versioncontrol.repository.VersionSummary;
+import com.syab.versioncontrol.storage.VersionStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import java.util.Map;
 
 @Service
 @Transactional
 public class VersionControlService {
     private final DocumentVersionRepository versionRepository;
     private final UserContributionRepository contributionRepository;
+    private final DocumentVersionCounterRepository counterRepository;
+    private final VersionStore versionStore;
+    private final VersionDiffer versionDiffer;
+    private final ContributionCounters contributionCounters;
+
+    @Value("${versioning.timeline.max-page-size:500}")
+    private int maxPageSize = 500;
+
+    @Value("${versioning.diff.max-context:100}")
+    private int maxDiffContext = 100;
 
-    public VersionControlService(DocumentVersionRepository versionRepository, UserContributionRepository contributionRepository) {
+    public VersionControlService(DocumentVersionRepository versionRepository, UserContributionRepository contributionRepository,
+                                 DocumentVersionCounterRepository counterRepository, VersionStore versionStore,
+                                 VersionDiffer versionDiffer, ContributionCounters contributionCounters) {
         this.versionRepository = versionRepository;
         this.contributionRepository = contributionRepository;
+        this.counterRepository = counterRepository;
+        this.versionStore = versionStore;
+        this.versionDiffer = versionDiffer;
+        this.contributionCounters = contributionCounters;
     }
 
     /**
      * Operation 1: Maintain version history of documents
      */
     public DocumentVersionDTO createVersion(Long documentId, String content, Long userId, String description) {
-        // Get the next version number
-        List<DocumentVersion> versions = versionRepository.findByDocumentIdOrderByVersionNumberDesc(documentId);
-        int nextVersionNumber = versions.isEmpty() ? 1 : versions.get(0).getVersionNumber() + 1;
+        return createVersion(documentId, content, userId, description, List.of(userId));
+    }
+
+    /**
+     * Creates a version authored by {@code userId} that credits every one of {@code contributors} with a
+     * contribution, e.g. an automatic version covering several users' edits.
+     */
+    public DocumentVersionDTO createVersion(Long documentId, String content, Long userId, String description,
+                                            Collection<Long> contributors) {
+        // Allocate the next version number; serializes concurrent createVersion calls for this document
+        int nextVersionNumber = counterRepository.next(documentId);
+        Optional<DocumentVersion> latest = nextVersionNumber == 1 ? Optional.empty()
+                : versionRepository.findByDocumentIdAndVersionNumber(documentId, nextVersionNumber - 1);
 
         DocumentVersion version = new DocumentVersion();
         version.setDocumentId(documentId);
         version.setVersionNumber(nextVersionNumber);
-        version.setContent(content);
+        versionStore.encode(version, content, latest.orElse(null));
         version.setCreatedBy(userId);
         version.setDescription(description);
 
         DocumentVersion savedVersion = versionRepository.save(version);
+        versionStore.saved(savedVersion, content);
 
-        // Update user contribution
-        updateUserContribution(documentId, userId);
+        // Update user contributions
+        for (Long contributor : contributors) {
+            contributionCounters.recordVersion(documentId, contributor);
+        }
 
-        return convertToDTO(savedVersion);
+        return convertToDTO(savedVersion, content);
     }
 
     /**
-     * Operation 2: Revert to previous document versions
+     * Operation 2: Revert to previous document versions. Returns the version with its content; applying it to the
+     * document is up to the caller, outside this transaction (see DocumentServiceClient).
      */
+    @Transactional(readOnly = true)
     public DocumentVersionDTO revertToVersion(Long documentId, Integer versionNumber) {
         Optional<DocumentVersion> versionOptional = versionRepository.findByDocumentIdAndVersionNumber(documentId, versionNumber);
         if (versionOptional.isEmpty()) {
@@ -65,22 +105,8 @@ public class VersionControlService {
         }
 
         DocumentVersion version = versionOptional.get();
-        // Additionally, apply the version to the actual document via the API Gateway.
-        // This keeps the revert operation consistent across services.
-        try {
-            RestTemplate rest = new RestTemplate();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            var body = Map.of("content", version.getContent(), "operationType", "REVERT");
-            HttpEntity<Map<String, String>> entity = new HttpEntity(body, headers);
-            // call gateway which will proxy to document service to apply the content change
-            String url = String.format("http://localhost:8081/api/documents/%d/edit?userId=%d", documentId, version.getCreatedBy());
-            ResponseEntity<String> resp = rest.exchange(url, HttpMethod.PUT, entity, String.class);
-        } catch (Exception e) {
-            // don't fail revert; just log and return version info
-            // logging omitted to keep dependency minimal
-        }
-        return convertToDTO(version);
+        String content = versionStore.content(version);
+        return convertToDTO(version, content);
     }
 
     /**
@@ -88,46 +114,108 @@ public class VersionControlService {
      */
     public List<UserContributionDTO> getUserContributions(Long documentId) {
         List<UserContribution> contributions = contributionRepository.findByDocumentId(documentId);
-        return contributions.stream().map(this::convertContributionToDTO).collect(Collectors.toList());
+        // counts not flushed to the table yet are added on top
+        Map<Long, ContributionCounters.Totals> pending = new HashMap<>(contributionCounters.pending(documentId));
+        List<UserContributionDTO> result = new ArrayList<>();
+        for (UserContribution contribution : contributions) {
+            result.add(convertContributionToDTO(contribution, pending.remove(contribution.getUserId())));
+        }
+        for (Map.Entry<Long, ContributionCounters.Totals> entry : pending.entrySet()) {
+            UserContribution contribution = new UserContribution();
+            contribution.setDocumentId(documentId);
+            contribution.setUserId(entry.getKey());
+            result.add(convertContributionToDTO(contribution, entry.getValue()));
+        }
+        return result;
     }
 
     public List<DocumentVersionDTO> getDocumentVersionHistory(Long documentId) {
-        List<DocumentVersion> versions = versionRepository.findByDocumentIdOrderByVersionNumberDesc(documentId);
-        return versions.stream().map(this::convertToDTO).collect(Collectors.toList());
+        // rebuilt oldest first so each delta applies to the version just before it, then returned newest first
+        List<DocumentVersion> versions = versionRepository.findByDocumentIdOrderByVersionNumberAsc(documentId);
+        List<String> contents = versionStore.contents(versions);
+        List<DocumentVersionDTO> history = new ArrayList<>(versions.size());
+        for (int i = 0; i < versions.size(); i++) {
+            history.add(convertToDTO(versions.get(i), contents.get(i)));
+        }
+        Collections.reverse(history);
+        return history;
     }
 
-    private void updateUserContribution(Long documentId, Long userId) {
-        Optional<UserContribution> contributionOptional = contributionRepository.findByDocumentIdAndUserId(documentId, userId);
-        
-        if (contributionOptional.isPresent()) {
-            UserContribution contribution = contributionOptional.get();
-            contribution.setChangesCount(contribution.getChangesCount() + 1);
-            contribution.setLastEditedAt(LocalDateTime.now());
-            contributionRepository.save(contribution);
-        } else {
-            UserContribution contribution = new UserContribution();
-            contribution.setDocumentId(documentId);
-            contribution.setUserId(userId);
-            contribution.setChangesCount(1);
-            contribution.setLastEditedAt(LocalDateTime.now());
-            contributionRepository.save(contribution);
+    /**
+     * One page of the version timeline, newest first, without version bodies. Keyset-paginated on the version
+     * number, so every page is an index range scan regardless of how far back it is.
+     */
+    @Transactional(readOnly = true)
+    public VersionPageDTO getVersionTimeline(Long documentId, Integer before, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        List<VersionSummary> page = versionRepository.findByDocumentIdAndVersionNumberLessThanOrderByVersionNumberDesc(
+                documentId, before == null ? Integer.MAX_VALUE : before, Limit.of(pageSize + 1));
+        boolean more = page.size() > pageSize;
+        if (more) page = page.subList(0, pageSize);
+        List<VersionSummaryDTO> versions = page.stream()
+                .map(v -> new VersionSummaryDTO(v.getId(), documentId, v.getVersionNumber(), v.getCreatedBy(),
+                        v.getCreatedAt() != null ? v.getCreatedAt().toString() : null, v.getDescription()))
+                .collect(Collectors.toList());
+        return new VersionPageDTO(versions, more ? versions.get(versions.size() - 1).getVersionNumber() : null);
+    }
+
+    @Transactional(readOnly = true)
+    public String getVersionContent(Long documentId, Integer versionNumber) {
+        Optional<DocumentVersion> version = versionRepository.findByDocumentIdAndVersionNumber(documentId, versionNumber);
+        if (version.isEmpty()) {
+            throw new IllegalArgumentException("Version not found");
         }
+        return versionStore.content(version.get());
     }
 
-    private DocumentVersionDTO convertToDTO(DocumentVersion version) {
+    /**
+     * Differences from one version to another, as hunks of lines or words with {@code context} unchanged tokens
+     * around each change.
+     */
+    @Transactional(readOnly = true)
+    public VersionDiffDTO getVersionDiff(Long documentId, Integer fromVersion, Integer toVersion, String granularity, int context) {
+        DiffGranularity diffGranularity = DiffGranularity.parse(granularity);
+        Optional<DocumentVersion> from = versionRepository.findByDocumentIdAndVersionNumber(documentId, fromVersion);
+        Optional<DocumentVersion> to = versionRepository.findByDocumentIdAndVersionNumber(documentId, toVersion);
+        if (from.isEmpty() || to.isEmpty()) {
+            throw new IllegalArgumentException("Version not found");
+        }
+        int clampedContext = Math.max(0, Math.min(context, maxDiffContext));
+        return new VersionDiffDTO(documentId, fromVersion, toVersion, diffGranularity.name().toLowerCase(),
+                versionDiffer.diff(from.get(), to.get(), diffGranularity, clampedContext));
+    }
+
+    private DocumentVersionDTO convertToDTO(DocumentVersion version, String content) {
         return new DocumentVersionDTO(
             version.getId(),
             version.getDocumentId(),
             version.getVersionNumber(),
-            version.getContent(),
+            content,
             version.getCreatedBy(),
             version.getCreatedAt() != null ? version.getCreatedAt().toString() : null,
             version.getDescription()
         );
     }
 
-    private UserContributionDTO convertContributionToDTO(UserContribution contribution) {
-        return new UserContributionDTO(contribution.getId(), contribution.getDocumentId(),
-                contribution.getUserId(), contribution.getChangesCount());
+    private UserContributionDTO convertContributionToDTO(UserContribution contribution, ContributionCounters.Totals pending) {
+        long versions = contribution.getChangesCount() == null ? 0 : contribution.getChangesCount();
+        long edits = contribution.getEdits();
+        long charsInserted = contribution.getCharsInserted();
+        long charsDeleted = contribution.getCharsDeleted();
+        long activeMs = contribution.getActiveMs();
+        LocalDateTime lastEditedAt = contribution.getLastEditedAt();
+        if (pending != null) {
+            versions += pending.versions();
+            edits += pending.edits();
+            charsInserted += pending.charsInserted();
+            charsDeleted += pending.charsDeleted();
+            activeMs += pending.activeMs();
+            if (lastEditedAt == null || (pending.lastEditedAt() != null && pending.lastEditedAt().isAfter(lastEditedAt))) {
+                lastEditedAt = pending.lastEditedAt();
+            }
+        }
+        return new UserContributionDTO(contribution.getId(), contribution.getDocumentId(), contribution.getUserId(),
+                (int) versions, edits, charsInserted, charsDeleted, activeMs,
+                lastEditedAt != null ? lastEditedAt.toString() : null);
     }
 }
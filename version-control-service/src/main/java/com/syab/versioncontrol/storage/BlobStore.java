@@ -0,0 +1,48 @@
+package com.syab.versioncontrol.storage;
+
+import com.syab.versioncontrol.model.ContentBlob;
+import com.syab.versioncontrol.repository.ContentBlobRepository;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Full version bodies, stored once per distinct content (across all documents) under their SHA-256 and
+ * reference-counted by the versions that use them.
+ */
+@Component
+public class BlobStore {
+    private final ContentBlobRepository blobRepository;
+
+    public BlobStore(ContentBlobRepository blobRepository) {
+        this.blobRepository = blobRepository;
+    }
+
+    public static String hash(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * References an existing blob without sending its body; false if there is none with this hash.
+     */
+    public boolean reference(String hash) {
+        return blobRepository.addReference(hash) > 0;
+    }
+
+    public void store(String hash, String content) {
+        if (!reference(hash)) blobRepository.insertOrReference(hash, content);
+    }
+
+    public String content(String hash) {
+        return blobRepository.findById(hash).map(ContentBlob::getContent)
+                .orElseThrow(() -> new IllegalStateException("Missing content blob " + hash));
+    }
+}
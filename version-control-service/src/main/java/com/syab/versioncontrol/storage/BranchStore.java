@@ -0,0 +1,149 @@
+package com.syab.versioncontrol.storage;
+
+import com.syab.versioncontrol.model.BranchVersion;
+import com.syab.versioncontrol.model.DocumentBranch;
+import com.syab.versioncontrol.repository.BranchVersionRepository;
+import com.syab.versioncontrol.repository.DocumentVersionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores branch versions the way {@link VersionStore} stores main versions: a {@link TextDelta} against the
+ * previous version, with a keyframe in the {@link BlobStore} every K versions. The versions before the first
+ * keyframe are a delta chain from the main version the branch was created from, so a new branch shares its
+ * ancestry with main instead of copying the document, and a short-lived branch never stores a full body.
+ */
+@Component
+public class BranchStore {
+    private final BranchVersionRepository branchVersionRepository;
+    private final DocumentVersionRepository versionRepository;
+    private final VersionStore versionStore;
+    private final BlobStore blobs;
+    private final int keyframeInterval;
+    private final LruCache<Long, String> cache;
+
+    public BranchStore(BranchVersionRepository branchVersionRepository, DocumentVersionRepository versionRepository,
+                       VersionStore versionStore, BlobStore blobs,
+                       @Value("${versioning.keyframe-interval:32}") int keyframeInterval,
+                       @Value("${versioning.branches.cache.max-chars:4194304}") long cacheMaxChars) {
+        this.branchVersionRepository = branchVersionRepository;
+        this.versionRepository = versionRepository;
+        this.versionStore = versionStore;
+        this.blobs = blobs;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        this.cache = new LruCache<>(cacheMaxChars, String::length);
+    }
+
+    /**
+     * Sets the hash and either the delta or the blob of a new branch version; {@code previous} is the content of
+     * the branch's latest version, or of its base main version for the first one.
+     */
+    public void encode(BranchVersion version, String content, String previous) {
+        String hash = BlobStore.hash(content);
+        version.setContentHash(hash);
+        if (version.getVersionNumber() % keyframeInterval == 0) {
+            blobs.store(hash, content);
+            return;
+        }
+        if (content.equals(previous)) {
+            version.setDelta(TextDelta.unchanged(content));
+            return;
+        }
+        if (blobs.reference(hash)) return;
+        String delta = TextDelta.encode(previous, content);
+        if (delta.length() >= content.length() / 2) {
+            blobs.store(hash, content);
+        } else {
+            version.setDelta(delta);
+        }
+    }
+
+    /**
+     * Called once a new branch version has been saved and has its id.
+     */
+    public void saved(BranchVersion version, String content) {
+        cache.put(version.getId(), content);
+    }
+
+    /**
+     * Content of the main version {@code branch} was created from.
+     */
+    public String baseContent(DocumentBranch branch) {
+        return versionRepository.findByDocumentIdAndVersionNumber(branch.getDocumentId(), branch.getBaseVersion())
+                .map(versionStore::content)
+                .orElseThrow(() -> new IllegalStateException("Missing base version " + branch.getBaseVersion()
+                        + " of branch " + branch.getName()));
+    }
+
+    public String content(DocumentBranch branch, BranchVersion version) {
+        String cached = cache.get(version.getId());
+        if (cached != null) return cached;
+        if (version.getDelta() == null) {
+            String content = blobs.content(version.getContentHash());
+            cache.put(version.getId(), content);
+            return content;
+        }
+        int target = version.getVersionNumber();
+        int keyframe = Math.max(1, (target / keyframeInterval) * keyframeInterval);
+        String content = rebuild(branch, branchVersionRepository
+                .findByBranchIdAndVersionNumberBetweenOrderByVersionNumberAsc(branch.getId(), keyframe, target));
+        if (content == null) {
+            // the keyframe interval was changed after these versions were written
+            content = rebuild(branch, branchVersionRepository
+                    .findByBranchIdAndVersionNumberBetweenOrderByVersionNumberAsc(branch.getId(), 1, target));
+        }
+        if (content == null) {
+            throw new IllegalStateException("No full copy before version " + target + " of branch " + branch.getName());
+        }
+        cache.put(version.getId(), content);
+        return content;
+    }
+
+    /**
+     * Contents of all versions of a branch, in the order given (ascending version number), rebuilt in a single pass.
+     */
+    public List<String> contents(DocumentBranch branch, List<BranchVersion> ascending) {
+        List<String> contents = new ArrayList<>(ascending.size());
+        String previous = null;
+        int previousNumber = 0;
+        for (BranchVersion version : ascending) {
+            String content;
+            if (version.getDelta() == null) {
+                content = content(branch, version);
+            } else if (version.getVersionNumber() == previousNumber + 1) {
+                if (previous == null) previous = baseContent(branch);
+                content = TextDelta.apply(previous, version.getDelta());
+            } else {
+                content = content(branch, version);
+            }
+            contents.add(content);
+            previous = content;
+            previousNumber = version.getVersionNumber();
+        }
+        return contents;
+    }
+
+    // starts from the newest full or cached version in the chain, or from the base version if the chain starts
+    // the branch; null if neither
+    private String rebuild(DocumentBranch branch, List<BranchVersion> chain) {
+        int start = chain.size() - 1;
+        String content = null;
+        for (; start >= 0; start--) {
+            BranchVersion version = chain.get(start);
+            content = cache.get(version.getId());
+            if (content == null && version.getDelta() == null) content = content(branch, version);
+            if (content != null) break;
+        }
+        if (content == null) {
+            if (chain.isEmpty() || chain.get(0).getVersionNumber() != 1) return null;
+            content = baseContent(branch);
+        }
+        for (int i = start + 1; i < chain.size(); i++) {
+            content = TextDelta.apply(content, chain.get(i).getDelta());
+        }
+        return content;
+    }
+}
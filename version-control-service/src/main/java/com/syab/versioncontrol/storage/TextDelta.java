@@ -0,0 +1,76 @@
+package com.syab.versioncontrol.storage;
+
+/**
+ * Delta between two versions of a document's text: the length of the prefix and suffix they share, and the
+ * text that replaces everything in between. Edits between two saved versions are usually local, so the
+ * delta is about the size of the edit rather than the size of the document.
+ * <p>
+ * Encoded as {@code <prefixLength>,<suffixLength>,<inserted text>}.
+ */
+public final class TextDelta {
+    private TextDelta() {
+    }
+
+    public static String encode(String base, String target) {
+        int prefix = commonPrefix(base, target);
+        int suffix = commonSuffix(base, target, prefix);
+        return prefix + "," + suffix + "," + target.substring(prefix, target.length() - suffix);
+    }
+
+    /**
+     * Size of the edit between two texts: the longer of the removed and the inserted middle.
+     */
+    public static int distance(String base, String target) {
+        Change change = change(base, target);
+        return Math.max(change.deleted(), change.inserted());
+    }
+
+    /**
+     * Characters removed from and inserted into {@code base} to get {@code target}, taking the edit as one
+     * replaced middle.
+     */
+    public static Change change(String base, String target) {
+        int prefix = commonPrefix(base, target);
+        int suffix = commonSuffix(base, target, prefix);
+        return new Change(base.length() - prefix - suffix, target.length() - prefix - suffix);
+    }
+
+    public record Change(int deleted, int inserted) {
+    }
+
+    private static int commonPrefix(String base, String target) {
+        int max = Math.min(base.length(), target.length());
+        int prefix = 0;
+        while (prefix < max && base.charAt(prefix) == target.charAt(prefix)) prefix++;
+        // never end inside a surrogate pair: a lone surrogate in the stored delta does not survive UTF-8
+        if (prefix > 0 && Character.isHighSurrogate(target.charAt(prefix - 1))) prefix--;
+        return prefix;
+    }
+
+    private static int commonSuffix(String base, String target, int prefix) {
+        int max = Math.min(base.length(), target.length()) - prefix;
+        int suffix = 0;
+        while (suffix < max
+                && base.charAt(base.length() - 1 - suffix) == target.charAt(target.length() - 1 - suffix)) suffix++;
+        if (suffix > 0 && Character.isLowSurrogate(target.charAt(target.length() - suffix))) suffix--;
+        return suffix;
+    }
+
+    public static String unchanged(String content) {
+        return content.length() + ",0,";
+    }
+
+    public static String apply(String base, String delta) {
+        int first = delta.indexOf(',');
+        int second = delta.indexOf(',', first + 1);
+        if (first < 0 || second < 0) throw new IllegalArgumentException("Malformed delta");
+        int prefix = Integer.parseInt(delta, 0, first, 10);
+        int suffix = Integer.parseInt(delta, first + 1, second, 10);
+        if (prefix + suffix > base.length()) throw new IllegalArgumentException("Delta does not fit its base version");
+        return new StringBuilder(prefix + (delta.length() - second - 1) + suffix)
+                .append(base, 0, prefix)
+                .append(delta, second + 1, delta.length())
+                .append(base, base.length() - suffix, base.length())
+                .toString();
+    }
+}
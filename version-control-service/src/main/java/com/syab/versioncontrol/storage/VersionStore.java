@@ -0,0 +1,141 @@
+package com.syab.versioncontrol.storage;
+
+import com.syab.versioncontrol.model.DocumentVersion;
+import com.syab.versioncontrol.repository.DocumentVersionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores document versions as a chain of {@link TextDelta}s against the previous version, with the full content
+ * (a keyframe) at versions 1, K+1, 2K+1, ... so rebuilding any version applies fewer than K deltas.
+ * A version is also stored in full when its delta would not be much smaller than the content.
+ * <p>
+ * Full contents live in the {@link BlobStore}, keyed by hash: a version whose content is already stored (a revert,
+ * a copy of another document) only references it, and a version identical to the previous one gets an empty
+ * delta, so neither writes the body again. A version row therefore holds a delta, or nothing and is read
+ * from its blob, or (rows from before blobs) its content inline.
+ * <p>
+ * Rebuilt contents are kept in an {@link LruCache} keyed by version row id (never reused), so the latest version (needed for the next delta) and
+ * recently reverted-to versions are usually served from memory.
+ */
+@Component
+public class VersionStore {
+    private final DocumentVersionRepository versionRepository;
+    private final BlobStore blobs;
+    private final int keyframeInterval;
+    private final LruCache<Long, String> cache;
+
+    public VersionStore(DocumentVersionRepository versionRepository, BlobStore blobs,
+                        @Value("${versioning.keyframe-interval:32}") int keyframeInterval,
+                        @Value("${versioning.cache.max-chars:16777216}") long cacheMaxChars) {
+        this.versionRepository = versionRepository;
+        this.blobs = blobs;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        this.cache = new LruCache<>(cacheMaxChars, String::length);
+    }
+
+    /**
+     * Sets the hash and either the delta or the blob of a new version; {@code previous} is the document's latest
+     * version, if any.
+     */
+    public void encode(DocumentVersion version, String content, DocumentVersion previous) {
+        String hash = BlobStore.hash(content);
+        version.setContentHash(hash);
+        if (previous == null || (version.getVersionNumber() - 1) % keyframeInterval == 0) {
+            blobs.store(hash, content);
+            return;
+        }
+        if (hash.equals(previous.getContentHash())) {
+            version.setDelta(TextDelta.unchanged(content));
+            return;
+        }
+        if (blobs.reference(hash)) return;
+        String delta = TextDelta.encode(content(previous), content);
+        if (delta.length() >= content.length() / 2) {
+            blobs.store(hash, content);
+        } else {
+            version.setDelta(delta);
+        }
+    }
+
+    /**
+     * Called once a new version has been saved and has its id.
+     */
+    public void saved(DocumentVersion version, String content) {
+        cache.put(version.getId(), content);
+    }
+
+    public String content(DocumentVersion version) {
+        if (version.getContent() != null) return version.getContent();
+        String cached = cache.get(version.getId());
+        if (cached != null) return cached;
+        if (version.getDelta() == null) {
+            String content = blobs.content(version.getContentHash());
+            cache.put(version.getId(), content);
+            return content;
+        }
+
+        int target = version.getVersionNumber();
+        int keyframe = ((target - 1) / keyframeInterval) * keyframeInterval + 1;
+        List<DocumentVersion> chain = versionRepository
+                .findByDocumentIdAndVersionNumberBetweenOrderByVersionNumberAsc(version.getDocumentId(), keyframe, target);
+        String content = rebuild(chain);
+        if (content == null) {
+            // the keyframe interval was changed after these versions were written
+            content = rebuild(versionRepository
+                    .findByDocumentIdAndVersionNumberBetweenOrderByVersionNumberAsc(version.getDocumentId(), 1, target));
+        }
+        if (content == null) {
+            throw new IllegalStateException("No full copy before version " + target + " of document " + version.getDocumentId());
+        }
+        cache.put(version.getId(), content);
+        return content;
+    }
+
+    /**
+     * Contents of consecutive versions, in the order given (ascending version number), rebuilt in a single pass.
+     */
+    public List<String> contents(List<DocumentVersion> ascending) {
+        List<String> contents = new ArrayList<>(ascending.size());
+        String previous = null;
+        int previousNumber = 0;
+        for (DocumentVersion version : ascending) {
+            String content;
+            if (version.getDelta() == null) {
+                content = content(version);
+            } else if (previous != null && version.getVersionNumber() == previousNumber + 1) {
+                content = TextDelta.apply(previous, version.getDelta());
+            } else {
+                content = content(version);
+            }
+            contents.add(content);
+            previous = content;
+            previousNumber = version.getVersionNumber();
+        }
+        return contents;
+    }
+
+    // starts from the newest full or cached version in the chain; null if there is none
+    private String rebuild(List<DocumentVersion> chain) {
+        int start = chain.size() - 1;
+        String content = null;
+        for (; start >= 0; start--) {
+            DocumentVersion version = chain.get(start);
+            content = cache.get(version.getId());
+            if (content == null && version.getDelta() == null) content = content(version);
+            if (content != null) break;
+        }
+        if (content == null) return null;
+        for (int i = start + 1; i < chain.size(); i++) {
+            content = TextDelta.apply(content, chain.get(i).getDelta());
+        }
+        return content;
+    }
+
+    public int cachedVersions() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,139 @@
+package com.syab.versioncontrol.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syab.versioncontrol.dto.ExportedContributionDTO;
+import com.syab.versioncontrol.dto.ExportedVersionDTO;
+import com.syab.versioncontrol.model.DocumentVersion;
+import com.syab.versioncontrol.storage.TextDelta;
+import com.syab.versioncontrol.storage.VersionStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the version history of some or all documents as gzip-compressed NDJSON: a header line, then every
+ * version in (document, version number) order with its full content, then the contributions. Rows are read
+ * through a cursor ({@code versioning.transfer.fetch-size} at a time) and written as they arrive, and each
+ * version is rebuilt from the one before it, so memory use does not grow with the history.
+ * {@link HistoryImporter} reads the result.
+ */
+@Component
+public class HistoryExporter {
+    static final String FORMAT = "version-control-history";
+    static final int FORMAT_VERSION = 1;
+
+    private final JdbcTemplate cursor;
+    private final TransactionTemplate readOnly;
+    private final ObjectMapper objectMapper;
+    private final VersionStore versionStore;
+
+    public HistoryExporter(DataSource dataSource, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                           VersionStore versionStore, @Value("${versioning.transfer.fetch-size:200}") int fetchSize) {
+        this.cursor = new JdbcTemplate(dataSource);
+        this.cursor.setFetchSize(fetchSize);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.versionStore = versionStore;
+    }
+
+    /**
+     * Writes the export to {@code out}; {@code documentIds} null or empty exports every document.
+     */
+    public void export(Collection<Long> documentIds, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("type", "header");
+        header.put("format", FORMAT);
+        header.put("version", FORMAT_VERSION);
+        header.put("exportedAt", LocalDateTime.now().toString());
+        writeLine(gzip, header);
+        Long[] ids = documentIds == null || documentIds.isEmpty() ? null : documentIds.toArray(new Long[0]);
+        String filter = ids == null ? "" : " WHERE document_id = ANY (?)";
+        PreparedStatementSetter bind = ps -> {
+            if (ids != null) ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+        };
+        try {
+            // PostgreSQL only reads through a cursor inside a transaction
+            readOnly.executeWithoutResult(status -> {
+                VersionWriter versions = new VersionWriter(gzip);
+                cursor.query("SELECT v.id, v.document_id, v.version_number, v.content, v.delta, v.content_hash, "
+                        + "v.created_by, v.created_at, v.description, b.content FROM document_versions v "
+                        + "LEFT JOIN content_blobs b ON v.content IS NULL AND v.delta IS NULL AND b.hash = v.content_hash"
+                        + filter + " ORDER BY v.document_id, v.version_number", bind, versions::write);
+                cursor.query("SELECT document_id, user_id, changes_count, edits, chars_inserted, chars_deleted, "
+                        + "active_ms, last_edited_at FROM user_contributions" + filter
+                        + " ORDER BY document_id, user_id", bind, rs -> {
+                    writeLine(gzip, new ExportedContributionDTO("contribution", rs.getLong(1), rs.getLong(2), rs.getInt(3),
+                            rs.getLong(4), rs.getLong(5), rs.getLong(6), rs.getLong(7), timestamp(rs.getTimestamp(8))));
+                });
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        gzip.finish();
+        gzip.flush();
+    }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String timestamp(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime().toString();
+    }
+
+    // keeps only the previous version's content, which the next delta applies to
+    private final class VersionWriter {
+        private final OutputStream out;
+        private long previousDocument = -1;
+        private int previousNumber;
+        private String previousContent;
+
+        private VersionWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        void write(ResultSet rs) throws SQLException {
+            long documentId = rs.getLong(2);
+            int versionNumber = rs.getInt(3);
+            String content = rs.getString(4);
+            String delta = rs.getString(5);
+            if (content == null && delta == null) content = rs.getString(10);
+            if (content == null && delta != null && documentId == previousDocument && versionNumber == previousNumber + 1) {
+                content = TextDelta.apply(previousContent, delta);
+            }
+            if (content == null) {
+                // the delta does not follow the previous row (a gap in the numbering); rebuild it from its keyframe
+                content = versionStore.content(new DocumentVersion(rs.getLong(1), documentId, versionNumber, null,
+                        rs.getLong(7), null, null, delta, rs.getString(6)));
+            }
+            writeLine(out, new ExportedVersionDTO("version", documentId, versionNumber, rs.getLong(7),
+                    timestamp(rs.getTimestamp(8)), rs.getString(9), content));
+            previousDocument = documentId;
+            previousNumber = versionNumber;
+            previousContent = content;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.syab.versioncontrol.transfer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syab.versioncontrol.dto.ExportedContributionDTO;
+import com.syab.versioncontrol.dto.ExportedVersionDTO;
+import com.syab.versioncontrol.dto.ImportResultDTO;
+import com.syab.versioncontrol.model.DocumentVersion;
+import com.syab.versioncontrol.repository.DocumentVersionRepository;
+import com.syab.versioncontrol.storage.BlobStore;
+import com.syab.versioncontrol.storage.VersionStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads a {@link HistoryExporter} export (gzip-compressed or plain NDJSON) and writes it, keeping document
+ * ids and version numbers, so the version history lines up with the documents imported into
+ * document-editing-service. Versions go through the {@link VersionStore} like new ones, so they are stored as
+ * deltas and blobs again. Records are applied in transactions of {@code versioning.transfer.import-batch},
+ * reading the next batch only after the last one committed, so memory use does not grow with the input.
+ * Versions and contributions that already exist are skipped, which makes an interrupted import safe to repeat.
+ * A document id that already has history here is taken to be the same document only if its version with the
+ * first imported number has the same content and author; otherwise the id belongs to a different document and
+ * all of its versions and contributions are skipped.
+ */
+@Component
+public class HistoryImporter {
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DocumentVersionRepository versionRepository;
+    private final VersionStore versionStore;
+    private final int batchSize;
+
+    public HistoryImporter(ObjectMapper objectMapper, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           DocumentVersionRepository versionRepository, VersionStore versionStore,
+                           @Value("${versioning.transfer.import-batch:500}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.versionRepository = versionRepository;
+        this.versionStore = versionStore;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public ImportResultDTO importHistory(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(decompressed(in), StandardCharsets.UTF_8));
+        JsonNode header = next(reader);
+        if (header == null || !"header".equals(header.path("type").asText())
+                || !HistoryExporter.FORMAT.equals(header.path("format").asText())) {
+            throw new IllegalArgumentException("Not a version history export");
+        }
+        if (header.path("version").asInt() > HistoryExporter.FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported version history export version " + header.path("version").asInt());
+        }
+        ImportResultDTO result = new ImportResultDTO();
+        State state = new State();
+        List<JsonNode> batch = new ArrayList<>(batchSize);
+        for (JsonNode record = next(reader); record != null; record = next(reader)) {
+            batch.add(record);
+            if (batch.size() == batchSize) {
+                apply(batch, state, result);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) apply(batch, state, result);
+        return result;
+    }
+
+    private void apply(List<JsonNode> batch, State state, ImportResultDTO result) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (JsonNode record : batch) {
+                    String type = record.path("type").asText();
+                    try {
+                        switch (type) {
+                            case "version" -> importVersion(objectMapper.treeToValue(record, ExportedVersionDTO.class), state, result);
+                            case "contribution" -> importContribution(objectMapper.treeToValue(record, ExportedContributionDTO.class), state, result);
+                            default -> throw new IllegalArgumentException("Unknown record type: " + type);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } finally {
+            // the next batch runs in a new persistence context; the version before its first one is looked up again
+            state.previous = null;
+        }
+    }
+
+    private void importVersion(ExportedVersionDTO record, State state, ImportResultDTO result) {
+        Long documentId = record.getDocumentId();
+        int versionNumber = record.getVersionNumber();
+        String content = record.getContent() == null ? "" : record.getContent();
+        Optional<DocumentVersion> existing = versionRepository.findByDocumentIdAndVersionNumber(documentId, versionNumber);
+        if (!state.sameDocument.computeIfAbsent(documentId, id -> existing.isPresent()
+                ? sameVersion(existing.get(), record, content) : !versionRepository.existsByDocumentId(id))) {
+            skipDocument(documentId, state, result);
+            result.setVersionsSkipped(result.getVersionsSkipped() + 1);
+            return;
+        }
+        if (existing.isPresent()) {
+            state.follow(existing.get());
+            result.setVersionsSkipped(result.getVersionsSkipped() + 1);
+            return;
+        }
+        DocumentVersion previous = state.previous(documentId, versionNumber);
+        if (previous == null && versionNumber > 1) {
+            previous = versionRepository.findByDocumentIdAndVersionNumber(documentId, versionNumber - 1).orElse(null);
+        }
+        DocumentVersion version = new DocumentVersion();
+        version.setDocumentId(documentId);
+        version.setVersionNumber(versionNumber);
+        version.setCreatedBy(record.getCreatedBy());
+        version.setCreatedAt(record.getCreatedAt() == null ? LocalDateTime.now() : LocalDateTime.parse(record.getCreatedAt()));
+        version.setDescription(record.getDescription());
+        // a version after a gap in the numbering is stored in full; a delta must apply to the version just before it
+        versionStore.encode(version, content, previous);
+        Long id = jdbcTemplate.queryForObject("INSERT INTO document_versions (document_id, version_number, created_by, "
+                        + "created_at, description, delta, content_hash) VALUES (?, ?, ?, ?, ?, ?, ?) RETURNING id", Long.class,
+                documentId, versionNumber, version.getCreatedBy(), Timestamp.valueOf(version.getCreatedAt()),
+                version.getDescription(), version.getDelta(), version.getContentHash());
+        version.setId(id);
+        versionStore.saved(version, content);
+        // new versions of the document must be numbered after the imported ones
+        jdbcTemplate.update("INSERT INTO document_version_counters (document_id, last_version) VALUES (?, ?) "
+                + "ON CONFLICT (document_id) DO UPDATE SET last_version = GREATEST(document_version_counters.last_version, "
+                + "EXCLUDED.last_version)", documentId, versionNumber);
+        state.follow(version);
+        result.setVersionsImported(result.getVersionsImported() + 1);
+    }
+
+    private static boolean sameVersion(DocumentVersion existing, ExportedVersionDTO record, String content) {
+        return BlobStore.hash(content).equals(existing.getContentHash())
+                && Objects.equals(existing.getCreatedBy(), record.getCreatedBy());
+    }
+
+    private void skipDocument(Long documentId, State state, ImportResultDTO result) {
+        if (state.skippedDocuments.add(documentId)) result.setDocumentsSkipped(result.getDocumentsSkipped() + 1);
+    }
+
+    private void importContribution(ExportedContributionDTO record, State state, ImportResultDTO result) {
+        // contributions of a document without exported versions are only taken where it has no history yet
+        if (!state.sameDocument.computeIfAbsent(record.getDocumentId(), id -> !versionRepository.existsByDocumentId(id)
+                && !Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                        "SELECT EXISTS (SELECT 1 FROM user_contributions WHERE document_id = ?)", Boolean.class, id)))) {
+            skipDocument(record.getDocumentId(), state, result);
+            result.setContributionsSkipped(result.getContributionsSkipped() + 1);
+            return;
+        }
+        Timestamp lastEditedAt = record.getLastEditedAt() == null ? null : Timestamp.valueOf(LocalDateTime.parse(record.getLastEditedAt()));
+        int inserted = jdbcTemplate.update("INSERT INTO user_contributions (document_id, user_id, changes_count, edits, "
+                        + "chars_inserted, chars_deleted, active_ms, last_edited_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+                        + "ON CONFLICT (document_id, user_id) DO NOTHING",
+                record.getDocumentId(), record.getUserId(), valueOf(record.getChangesCount()), valueOf(record.getEdits()),
+                valueOf(record.getCharsInserted()), valueOf(record.getCharsDeleted()), valueOf(record.getActiveMs()), lastEditedAt);
+        if (inserted == 0) {
+            result.setContributionsSkipped(result.getContributionsSkipped() + 1);
+            return;
+        }
+        if (lastEditedAt != null) {
+            // the export has totals only; like existing rows when the rollups were added, they count at their last edit
+            LocalDateTime at = lastEditedAt.toLocalDateTime();
+            rollup("contribution_rollups_hourly", at.truncatedTo(ChronoUnit.HOURS), record);
+            rollup("contribution_rollups_daily", at.truncatedTo(ChronoUnit.DAYS), record);
+        }
+        result.setContributionsImported(result.getContributionsImported() + 1);
+    }
+
+    private void rollup(String table, LocalDateTime bucket, ExportedContributionDTO record) {
+        jdbcTemplate.update("INSERT INTO " + table + " (bucket_start, document_id, user_id, versions, edits, chars_inserted, "
+                        + "chars_deleted, active_ms) VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+                        + "ON CONFLICT (document_id, bucket_start, user_id) DO UPDATE SET "
+                        + "versions = " + table + ".versions + EXCLUDED.versions, "
+                        + "edits = " + table + ".edits + EXCLUDED.edits, "
+                        + "chars_inserted = " + table + ".chars_inserted + EXCLUDED.chars_inserted, "
+                        + "chars_deleted = " + table + ".chars_deleted + EXCLUDED.chars_deleted, "
+                        + "active_ms = " + table + ".active_ms + EXCLUDED.active_ms",
+                Timestamp.valueOf(bucket), record.getDocumentId(), record.getUserId(), valueOf(record.getChangesCount()),
+                valueOf(record.getEdits()), valueOf(record.getCharsInserted()), valueOf(record.getCharsDeleted()),
+                valueOf(record.getActiveMs()));
+    }
+
+    private static long valueOf(Number value) {
+        return value == null ? 0L : value.longValue();
+    }
+
+    private JsonNode next(BufferedReader reader) throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) return null;
+        } while (line.isBlank());
+        return objectMapper.readTree(line);
+    }
+
+    private static InputStream decompressed(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 64 * 1024);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        boolean gzip = first == 0x1f && second == 0x8b;
+        return gzip ? new GZIPInputStream(buffered, 64 * 1024) : buffered;
+    }
+
+    private static final class State {
+        // the last version written or skipped, which the next version of the same document is a delta against
+        DocumentVersion previous;
+        // per document id seen so far: whether it is the same document as the one stored under that id here
+        final Map<Long, Boolean> sameDocument = new HashMap<>();
+        final Set<Long> skippedDocuments = new HashSet<>();
+
+        void follow(DocumentVersion version) {
+            previous = version;
+        }
+
+        DocumentVersion previous(Long documentId, int versionNumber) {
+            if (previous == null || !previous.getDocumentId().equals(documentId)
+                    || previous.getVersionNumber() != versionNumber - 1) return null;
+            return previous;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+-- Change ids of relayed edits already taken into a pending version (AutoVersioningService). Several relays can
+-- deliver batches out of order, so redeliveries are recognised by id rather than by pending_versions.last_change_id.
+-- Rows older than versioning.auto.processed-retention-ms are purged; redeliveries come long before that.
+CREATE TABLE processed_edit_events (
+    change_id    BIGINT       PRIMARY KEY,
+    processed_at TIMESTAMP(6) NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_processed_edit_events_processed_at ON processed_edit_events (processed_at);
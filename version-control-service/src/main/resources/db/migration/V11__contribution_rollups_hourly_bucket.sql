@@ -0,0 +1,2 @@
+-- hourly heatmaps and leaderboards across all documents filter on the time alone, like the daily ones in V8
+CREATE INDEX idx_contribution_rollups_hourly_bucket ON contribution_rollups_hourly (bucket_start);
@@ -0,0 +1,19 @@
+-- Schema as previously generated by hibernate ddl-auto. Databases created that way are baselined at
+-- version 1 (spring.flyway.baseline-on-migrate), so this script only runs on empty databases.
+CREATE TABLE document_versions (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    document_id    BIGINT NOT NULL,
+    version_number INTEGER NOT NULL,
+    content        TEXT NOT NULL,
+    created_by     BIGINT NOT NULL,
+    created_at     TIMESTAMP(6),
+    description    TEXT
+);
+
+CREATE TABLE user_contributions (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    document_id    BIGINT NOT NULL,
+    user_id        BIGINT NOT NULL,
+    changes_count  INTEGER,
+    last_edited_at TIMESTAMP(6)
+);
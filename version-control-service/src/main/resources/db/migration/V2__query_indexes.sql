@@ -0,0 +1,9 @@
+-- findByDocumentIdOrderByVersionNumberDesc, findByDocumentIdAndVersionNumber.
+-- Concurrent createVersion calls could previously write the same number twice; such duplicates have to be
+-- renumbered before this applies.
+ALTER TABLE document_versions
+    ADD CONSTRAINT uk_document_versions_document_version UNIQUE (document_id, version_number);
+
+-- findByDocumentIdAndUserId, findByDocumentId (leading column)
+ALTER TABLE user_contributions
+    ADD CONSTRAINT uk_user_contributions_document_user UNIQUE (document_id, user_id);
@@ -0,0 +1,6 @@
+-- Versions after the first of each keyframe interval are stored as a delta against the previous version
+-- (VersionStore); exactly one of content and delta is set. Existing rows keep their full content.
+ALTER TABLE document_versions ALTER COLUMN content DROP NOT NULL;
+ALTER TABLE document_versions ADD COLUMN delta TEXT;
+ALTER TABLE document_versions
+    ADD CONSTRAINT ck_document_versions_content_or_delta CHECK ((content IS NULL) <> (delta IS NULL));
@@ -0,0 +1,26 @@
+-- Full version bodies, stored once per distinct content and referenced by hash (VersionStore, BlobStore).
+CREATE TABLE content_blobs (
+    hash       VARCHAR(64) PRIMARY KEY,
+    content    TEXT NOT NULL,
+    ref_count  INTEGER NOT NULL,
+    created_at TIMESTAMP(6)
+);
+
+ALTER TABLE document_versions ADD COLUMN content_hash VARCHAR(64);
+CREATE INDEX idx_document_versions_content_hash ON document_versions (content_hash);
+
+-- a row now holds a delta, or neither column and is read from content_blobs
+ALTER TABLE document_versions DROP CONSTRAINT ck_document_versions_content_or_delta;
+
+-- move inline contents into blobs, de-duplicating them; delta rows written before this keep no hash
+UPDATE document_versions SET content_hash = encode(sha256(convert_to(content, 'UTF8')), 'hex')
+    WHERE content IS NOT NULL;
+INSERT INTO content_blobs (hash, content, ref_count, created_at)
+    SELECT content_hash, min(content), count(*), now() FROM document_versions
+    WHERE content IS NOT NULL GROUP BY content_hash;
+UPDATE document_versions SET content = NULL WHERE content IS NOT NULL;
+
+ALTER TABLE document_versions
+    ADD CONSTRAINT ck_document_versions_storage CHECK (delta IS NULL OR content IS NULL);
+ALTER TABLE document_versions
+    ADD CONSTRAINT ck_document_versions_stored CHECK (content IS NOT NULL OR delta IS NOT NULL OR content_hash IS NOT NULL);
@@ -0,0 +1,8 @@
+-- Per-document version number counter (DocumentVersionCounterRepository.next), seeded from existing versions.
+CREATE TABLE document_version_counters (
+    document_id  BIGINT PRIMARY KEY,
+    last_version INTEGER NOT NULL
+);
+
+INSERT INTO document_version_counters (document_id, last_version)
+    SELECT document_id, max(version_number) FROM document_versions GROUP BY document_id;
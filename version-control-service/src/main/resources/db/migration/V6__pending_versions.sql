@@ -0,0 +1,16 @@
+-- Edits received from document-editing-service's outbox that are not in a version yet, one row per document
+-- (AutoVersioningService). The row outlives each version so last_change_id can filter redelivered events;
+-- content is NULL while nothing is pending.
+CREATE TABLE pending_versions (
+    document_id    BIGINT       PRIMARY KEY,
+    last_change_id BIGINT       NOT NULL,
+    content        TEXT,
+    user_id        BIGINT,
+    contributors   BIGINT[],
+    edits          INTEGER      NOT NULL,
+    changed_chars  BIGINT       NOT NULL,
+    first_edit_at  TIMESTAMP(6),
+    last_edit_at   TIMESTAMP(6)
+);
+
+CREATE INDEX idx_pending_versions_first_edit_at ON pending_versions (first_edit_at) WHERE content IS NOT NULL;
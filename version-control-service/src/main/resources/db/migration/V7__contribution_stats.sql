@@ -0,0 +1,12 @@
+-- Per-user statistics from the edit stream, accumulated in memory by ContributionCounters and added to these
+-- rows in periodic batched upserts (on uk_user_contributions_document_user).
+ALTER TABLE user_contributions
+    ADD COLUMN edits          BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN chars_inserted BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN chars_deleted  BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN active_ms      BIGINT NOT NULL DEFAULT 0;
+
+UPDATE user_contributions SET changes_count = 0 WHERE changes_count IS NULL;
+ALTER TABLE user_contributions
+    ALTER COLUMN changes_count SET DEFAULT 0,
+    ALTER COLUMN changes_count SET NOT NULL;
@@ -0,0 +1,40 @@
+-- Contribution statistics per hour and per day (ContributionAnalyticsService), added to by every
+-- ContributionCounters flush in the same transaction as user_contributions. Analytics read a range of buckets
+-- instead of the edit history. Bucket starts are local time, truncated to the hour or day.
+CREATE TABLE contribution_rollups_hourly (
+    bucket_start   TIMESTAMP NOT NULL,
+    document_id    BIGINT    NOT NULL,
+    user_id        BIGINT    NOT NULL,
+    versions       BIGINT    NOT NULL DEFAULT 0,
+    edits          BIGINT    NOT NULL DEFAULT 0,
+    chars_inserted BIGINT    NOT NULL DEFAULT 0,
+    chars_deleted  BIGINT    NOT NULL DEFAULT 0,
+    active_ms      BIGINT    NOT NULL DEFAULT 0,
+    PRIMARY KEY (document_id, bucket_start, user_id)
+);
+
+CREATE TABLE contribution_rollups_daily (
+    bucket_start   TIMESTAMP NOT NULL,
+    document_id    BIGINT    NOT NULL,
+    user_id        BIGINT    NOT NULL,
+    versions       BIGINT    NOT NULL DEFAULT 0,
+    edits          BIGINT    NOT NULL DEFAULT 0,
+    chars_inserted BIGINT    NOT NULL DEFAULT 0,
+    chars_deleted  BIGINT    NOT NULL DEFAULT 0,
+    active_ms      BIGINT    NOT NULL DEFAULT 0,
+    PRIMARY KEY (document_id, bucket_start, user_id)
+);
+
+-- per-document trends use the primary keys; leaderboards and heatmaps across documents start from the user or the time
+CREATE INDEX idx_contribution_rollups_hourly_user ON contribution_rollups_hourly (user_id, bucket_start);
+CREATE INDEX idx_contribution_rollups_daily_bucket ON contribution_rollups_daily (bucket_start);
+CREATE INDEX idx_contribution_rollups_daily_user ON contribution_rollups_daily (user_id, bucket_start);
+
+-- existing totals have no history; they are attributed to the hour and day of their last edit
+INSERT INTO contribution_rollups_hourly (bucket_start, document_id, user_id, versions, edits, chars_inserted, chars_deleted, active_ms)
+SELECT date_trunc('hour', last_edited_at), document_id, user_id, changes_count, edits, chars_inserted, chars_deleted, active_ms
+FROM user_contributions WHERE last_edited_at IS NOT NULL;
+
+INSERT INTO contribution_rollups_daily (bucket_start, document_id, user_id, versions, edits, chars_inserted, chars_deleted, active_ms)
+SELECT date_trunc('day', last_edited_at), document_id, user_id, changes_count, edits, chars_inserted, chars_deleted, active_ms
+FROM user_contributions WHERE last_edited_at IS NOT NULL;
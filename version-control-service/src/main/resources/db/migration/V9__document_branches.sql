@@ -0,0 +1,29 @@
+-- Named branches of a document's version history (BranchService). A branch starts at main version
+-- base_version and has its own version chain in branch_versions; head_version is its latest version (and
+-- serializes writers, like document_version_counters) and merged_version the branch version last merged into
+-- main, which is the common ancestor of the next merge.
+CREATE TABLE document_branches (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    document_id    BIGINT       NOT NULL,
+    name           VARCHAR(100) NOT NULL,
+    base_version   INTEGER      NOT NULL,
+    head_version   INTEGER      NOT NULL,
+    merged_version INTEGER,
+    created_by     BIGINT       NOT NULL,
+    created_at     TIMESTAMP(6),
+    CONSTRAINT uk_document_branches_document_name UNIQUE (document_id, name)
+);
+
+-- Stored like document_versions (BranchStore): a delta against the previous branch version, or against the
+-- base main version for the first ones, or nothing and read from content_blobs.
+CREATE TABLE branch_versions (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    branch_id      BIGINT      NOT NULL,
+    version_number INTEGER     NOT NULL,
+    created_by     BIGINT      NOT NULL,
+    created_at     TIMESTAMP(6),
+    description    TEXT,
+    delta          TEXT,
+    content_hash   VARCHAR(64) NOT NULL,
+    CONSTRAINT uk_branch_versions_branch_version UNIQUE (branch_id, version_number)
+);
@@ -0,0 +1,133 @@
+package com.syab.versioncontrol.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentServiceClientTest {
+    private HttpServer server;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    // status for each call, the last one repeating
+    private volatile int[] statuses = {200};
+    private volatile boolean retryAfter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/documents", exchange -> {
+            int call = calls.getAndIncrement();
+            bodies.add(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " "
+                    + exchange.getRequestHeaders().getFirst("X-User-Id") + " "
+                    + new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            if (retryAfter) exchange.getResponseHeaders().set("Retry-After", "1");
+            exchange.sendResponseHeaders(statuses[Math.min(call, statuses.length - 1)], -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private DocumentServiceClient client(int maxAttempts, int failureThreshold) {
+        return new DocumentServiceClient(new ObjectMapper(), "http://127.0.0.1:" + server.getAddress().getPort(),
+                1000, 2000, maxAttempts, 5, failureThreshold, 60_000);
+    }
+
+    @Test
+    void testRetriesRefusedRequestsUntilSuccess() throws Exception {
+        statuses = new int[]{503, 429, 200};
+        retryAfter = true;
+
+        client(3, 10).editDocument(7L, 2L, "restored", "REVERT").get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, calls.get());
+        assertTrue(bodies.get(0).startsWith("PUT /api/documents/7/edit?userId=2 2 "), bodies.get(0));
+        assertTrue(bodies.get(0).contains("\"content\":\"restored\""), bodies.get(0));
+    }
+
+    @Test
+    void testServerErrorsAreNotRetried() {
+        statuses = new int[]{500, 200};
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client(3, 10).editDocument(7L, 2L, "restored", "REVERT").get(5, TimeUnit.SECONDS));
+
+        // the edit may have been written before the error
+        assertEquals(500, ((DocumentServiceException) e.getCause()).getStatus());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testConnectFailuresAreRetried() {
+        DocumentServiceClient client = client(3, 3);
+        server.stop(0);
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.editDocument(7L, 2L, "restored", "REVERT").get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(ConnectException.class, e.getCause().getCause());
+        // three failed attempts opened the circuit
+        assertEquals(CircuitBreaker.State.OPEN, client.circuitState());
+    }
+
+    @Test
+    void testClientErrorsAreNotRetried() {
+        statuses = new int[]{404};
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client(3, 10).editDocument(7L, 2L, "restored", "REVERT").get(5, TimeUnit.SECONDS));
+
+        assertEquals(404, ((DocumentServiceException) e.getCause()).getStatus());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testOpenCircuitFailsFastWithoutCalling() {
+        statuses = new int[]{500};
+        DocumentServiceClient client = client(1, 2);
+
+        assertThrows(ExecutionException.class, () -> client.editDocument(7L, 2L, "a", "REVERT").get(5, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> client.editDocument(7L, 2L, "a", "REVERT").get(5, TimeUnit.SECONDS));
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.editDocument(7L, 2L, "a", "REVERT").get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(CircuitOpenException.class, e.getCause());
+        assertEquals(CircuitBreaker.State.OPEN, client.circuitState());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testCircuitLetsOneTrialThroughAfterOpenPeriod() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(1, 1_000, now::get);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertFalse(breaker.tryAcquire());
+
+        now.set(1_000);
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+    }
+}
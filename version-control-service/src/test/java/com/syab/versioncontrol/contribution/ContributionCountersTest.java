@@ -0,0 +1,110 @@
+package com.syab.versioncontrol.contribution;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ContributionCountersTest {
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AtomicLong flushedVersions = new AtomicLong();
+
+    private ContributionCounters counters(long activeGapMs) {
+        doAnswer(invocation -> {
+            if (!invocation.<String>getArgument(0).startsWith("INSERT INTO user_contributions ")) return new int[0][];
+            Collection<?> rows = invocation.getArgument(1);
+            for (Object row : rows) {
+                flushedVersions.addAndGet(((Map.Entry<?, ContributionCounters.Totals>) row).getValue().versions());
+            }
+            return new int[0][];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        return new ContributionCounters(jdbcTemplate, mock(PlatformTransactionManager.class), activeGapMs);
+    }
+
+    @Test
+    void testConcurrentIncrementsAreFlushedExactlyOnce() throws Exception {
+        // a negative gap makes every quiet entry idle, so flushes keep retiring entries under the writers
+        ContributionCounters counters = counters(-60_000);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (writing.get()) counters.flush();
+        });
+        flusher.start();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long userId = t;
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) counters.recordVersion((long) (i % 3), userId % 2);
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) writer.join();
+        writing.set(false);
+        flusher.join();
+        counters.flush();
+
+        assertEquals(80_000, flushedVersions.get());
+    }
+
+    @Test
+    void testFailedFlushKeepsCounts() {
+        ContributionCounters counters = counters(300_000);
+        counters.recordVersion(1L, 2L);
+        counters.recordVersion(1L, 2L);
+        doThrow(new IllegalStateException("database down"))
+                .when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+
+        counters.flush();
+
+        assertEquals(2, counters.pending(1L).get(2L).versions());
+    }
+
+    @Test
+    void testCountsInATransactionWaitForItsCommit() {
+        ContributionCounters counters = counters(300_000);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            counters.recordVersion(1L, 2L);
+            assertTrue(counters.pending(1L).isEmpty());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(1, counters.pending(1L).get(2L).versions());
+    }
+
+    @Test
+    void testActiveTimeBridgesShortGapsOnly() {
+        ContributionCounters counters = counters(60_000);
+        LocalDateTime start = java.time.LocalDateTime.of(2026, 1, 1, 10, 0);
+
+        counters.recordEdits(1L, 2L, 2, 10, 0, start, start.plusSeconds(20));
+        // 40 s later: same session
+        counters.recordEdits(1L, 2L, 1, 5, 0, start.plusSeconds(60), start.plusSeconds(70));
+        // 10 min later: a new session, only its own span counts
+        counters.recordEdits(1L, 2L, 1, 0, 3, start.plusMinutes(11), start.plusMinutes(11).plusSeconds(5));
+
+        ContributionCounters.Totals totals = counters.pending(1L).get(2L);
+        assertEquals(4, totals.edits());
+        assertEquals(15, totals.charsInserted());
+        assertEquals(3, totals.charsDeleted());
+        assertEquals(75_000, totals.activeMs());
+        assertEquals(start.plusMinutes(11).plusSeconds(5), totals.lastEditedAt());
+    }
+}
@@ -0,0 +1,59 @@
+package com.syab.versioncontrol.diff;
+
+import com.syab.versioncontrol.dto.DiffHunkDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyersDiffTest {
+    @Test
+    void testEditScriptIsMinimal() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            int[] a = random.ints(random.nextInt(40), 0, 4).toArray();
+            int[] b = random.ints(random.nextInt(40), 0, 4).toArray();
+            MyersDiff diff = MyersDiff.compute(a, b);
+
+            List<Integer> keptA = new ArrayList<>();
+            for (int i = 0; i < a.length; i++) if (!diff.deleted[i]) keptA.add(a[i]);
+            List<Integer> keptB = new ArrayList<>();
+            for (int j = 0; j < b.length; j++) if (!diff.inserted[j]) keptB.add(b[j]);
+            assertEquals(keptA, keptB, "unchanged tokens must be common to both sides");
+            assertEquals(lcs(a, b), keptA.size(), "the common subsequence must be a longest one");
+        }
+    }
+
+    @Test
+    void testWordDiffKeepsUnchangedWords() {
+        List<DiffHunkDTO> hunks = VersionDiffer.hunks("the quick brown fox", "the slow brown fox", DiffGranularity.WORD, 0);
+
+        assertEquals(1, hunks.size());
+        assertEquals(3, hunks.get(0).getOldStart());
+        assertEquals("quick", hunks.get(0).getSegments().get(0).getText());
+        assertEquals("slow", hunks.get(0).getSegments().get(1).getText());
+    }
+
+    @Test
+    void testDistantChangesGetSeparateHunks() {
+        String from = "1\n2\n3\n4\n5\n6\n7\n8\n9\n10\n";
+        String to = "one\n2\n3\n4\n5\n6\n7\n8\n9\nten\n";
+
+        assertEquals(2, VersionDiffer.hunks(from, to, DiffGranularity.LINE, 3).size());
+        assertEquals(1, VersionDiffer.hunks(from, to, DiffGranularity.LINE, 4).size());
+        assertTrue(VersionDiffer.hunks(from, from, DiffGranularity.LINE, 3).isEmpty());
+    }
+
+    private static int lcs(int[] a, int[] b) {
+        int[][] table = new int[a.length + 1][b.length + 1];
+        for (int i = 1; i <= a.length; i++) {
+            for (int j = 1; j <= b.length; j++) {
+                table[i][j] = a[i - 1] == b[j - 1] ? table[i - 1][j - 1] + 1 : Math.max(table[i - 1][j], table[i][j - 1]);
+            }
+        }
+        return table[a.length][b.length];
+    }
+}
@@ -0,0 +1,50 @@
+package com.syab.versioncontrol.diff;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreeWayMergeTest {
+    private static final String BASE = "one\ntwo\nthree\nfour\nfive\n";
+
+    @Test
+    void testEditsInSeparatePlacesAreBothApplied() {
+        ThreeWayMerge.Result merged = ThreeWayMerge.merge(BASE, "ONE\ntwo\nthree\nfour\nfive\n",
+                "one\ntwo\nthree\nfour\nfive\nsix\n", "main", "draft");
+
+        assertEquals(0, merged.conflicts());
+        assertEquals("ONE\ntwo\nthree\nfour\nfive\nsix\n", merged.content());
+    }
+
+    @Test
+    void testOverlappingDeltasAreMergedByLine() {
+        // main's delta spans lines 1 to 5, so the branch's edit of line 3 falls inside it
+        ThreeWayMerge.Result merged = ThreeWayMerge.merge(BASE, "ONE\ntwo\nthree\nfour\nFIVE\n",
+                "one\ntwo\n3\nfour\nfive\n", "main", "draft");
+
+        assertEquals(0, merged.conflicts());
+        assertEquals("ONE\ntwo\n3\nfour\nFIVE\n", merged.content());
+
+        ThreeWayMerge.Result same = ThreeWayMerge.merge(BASE, "one\nTWO\nthree\nfour\nFIVE\n",
+                "one\nTWO\nthree\nfour\nfive\n", "main", "draft");
+        assertEquals(0, same.conflicts());
+        assertEquals("one\nTWO\nthree\nfour\nFIVE\n", same.content());
+    }
+
+    @Test
+    void testDifferentEditsOfTheSameLineConflict() {
+        ThreeWayMerge.Result merged = ThreeWayMerge.merge(BASE, "one\ntwo\nthree (main)\nfour\nfive\n",
+                "one\ntwo\nthree (draft)\nfour\nfive\n", "main", "draft");
+
+        assertEquals(1, merged.conflicts());
+        assertEquals("one\ntwo\n<<<<<<< main\nthree (main)\n=======\nthree (draft)\n>>>>>>> draft\nfour\nfive\n",
+                merged.content());
+
+        // main's delta ends where the branch's insertion starts
+        assertEquals(1, ThreeWayMerge.merge("a\nb\n", "A\nb (main)\n", "a\nb (draft)\n", "main", "draft").conflicts());
+
+        ThreeWayMerge.Result insertions = ThreeWayMerge.merge("a", "ab", "ac", "main", "draft");
+        assertEquals(1, insertions.conflicts());
+        assertEquals("<<<<<<< main\nab\n=======\nac\n>>>>>>> draft\n", insertions.content());
+    }
+}
@@ -0,0 +1,126 @@
+package com.syab.versioncontrol.service;
+
+import com.syab.versioncontrol.contribution.ContributionCounters;
+import com.syab.versioncontrol.dto.DocumentEditEventDTO;
+import com.syab.versioncontrol.model.PendingVersion;
+import com.syab.versioncontrol.repository.DocumentVersionCounterRepository;
+import com.syab.versioncontrol.repository.DocumentVersionRepository;
+import com.syab.versioncontrol.repository.PendingVersionRepository;
+import com.syab.versioncontrol.storage.VersionStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AutoVersioningServiceTest {
+    @Mock
+    private PendingVersionRepository pendingRepository;
+
+    @Mock
+    private DocumentVersionCounterRepository counterRepository;
+
+    @Mock
+    private DocumentVersionRepository versionRepository;
+
+    @Mock
+    private VersionStore versionStore;
+
+    @Mock
+    private VersionControlService versionControlService;
+
+    @Mock
+    private ContributionCounters contributionCounters;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final Set<Long> processed = new HashSet<>();
+
+    private AutoVersioningService autoVersioningService;
+
+    private PendingVersion pending;
+
+    @BeforeEach
+    void setUp() {
+        autoVersioningService = new AutoVersioningService(pendingRepository, counterRepository, versionRepository,
+                versionStore, versionControlService, contributionCounters, jdbcTemplate);
+        pending = new PendingVersion(1L, 0L, null, null, null, 0, 0L, null, null);
+        when(pendingRepository.lockByDocumentId(1L)).thenReturn(Optional.of(pending));
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO processed_edit_events"), anyList())).thenAnswer(invocation -> {
+            List<Object[]> ids = invocation.getArgument(1);
+            return ids.stream().mapToInt(id -> processed.add((Long) id[0]) ? 1 : 0).toArray();
+        });
+    }
+
+    @Test
+    void testBurstOfEditsBecomesOneVersion() {
+        when(counterRepository.findById(1L)).thenReturn(Optional.empty());
+
+        autoVersioningService.ingest(List.of(new DocumentEditEventDTO(1L, 11L, 2L, 3, "Hello", null, null)));
+        autoVersioningService.ingest(List.of(new DocumentEditEventDTO(1L, 14L, 3L, 2, "Hello world", null, null)));
+
+        verifyNoInteractions(versionControlService);
+        assertEquals(5, pending.getEdits());
+        assertEquals(11L, pending.getChangedChars());
+        assertEquals(14L, pending.getLastChangeId());
+
+        when(pendingRepository.findDue(any(LocalDateTime.class), any(LocalDateTime.class), anyInt())).thenReturn(List.of(pending));
+        assertEquals(1, autoVersioningService.flushDue());
+
+        verify(versionControlService).createVersion(1L, "Hello world", 3L, "Automatic version after 5 edits", List.of(2L, 3L));
+        assertNull(pending.getContent());
+        assertEquals(14L, pending.getLastChangeId());
+        verify(contributionCounters).recordEdits(eq(1L), eq(2L), eq(3), eq(5), eq(0), any(), any());
+        verify(contributionCounters).recordEdits(eq(1L), eq(3L), eq(2), eq(6), eq(0), any(), any());
+    }
+
+    @Test
+    void testLargeChangeIsVersionedImmediately() {
+        when(counterRepository.findById(1L)).thenReturn(Optional.empty());
+        String content = "x".repeat(2_500);
+
+        autoVersioningService.ingest(List.of(new DocumentEditEventDTO(1L, 11L, 2L, 1, content, null, null)));
+
+        verify(versionControlService).createVersion(1L, content, 2L, "Automatic version after 1 edit", List.of(2L));
+        assertNull(pending.getContent());
+    }
+
+    @Test
+    void testRedeliveredEventsAreIgnored() {
+        pending.setLastChangeId(20L);
+        processed.add(20L);
+
+        autoVersioningService.ingest(List.of(new DocumentEditEventDTO(1L, 20L, 2L, 1, "stale", null, null)));
+
+        assertNull(pending.getContent());
+        assertEquals(0, pending.getEdits());
+        verifyNoInteractions(counterRepository, versionControlService, contributionCounters);
+    }
+
+    @Test
+    void testEventsArrivingOutOfOrderAreCountedWithoutOlderContent() {
+        when(counterRepository.findById(1L)).thenReturn(Optional.empty());
+
+        autoVersioningService.ingest(List.of(new DocumentEditEventDTO(1L, 14L, 3L, 2, "Hello world", null, null)));
+        autoVersioningService.ingest(List.of(new DocumentEditEventDTO(1L, 11L, 2L, 3, "Hello", null, null)));
+
+        assertEquals("Hello world", pending.getContent());
+        assertEquals(14L, pending.getLastChangeId());
+        assertEquals(5, pending.getEdits());
+        assertArrayEquals(new Long[]{3L, 2L}, pending.getContributors());
+        verify(contributionCounters).recordEdits(eq(1L), eq(2L), eq(3), eq(0), eq(0), any(), any());
+    }
+}
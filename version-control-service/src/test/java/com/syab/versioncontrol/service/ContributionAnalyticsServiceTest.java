@@ -0,0 +1,72 @@
+package com.syab.versioncontrol.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContributionAnalyticsServiceTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private ContributionAnalyticsService analyticsService;
+
+    @BeforeEach
+    void setUp() {
+        analyticsService = new ContributionAnalyticsService(jdbcTemplate);
+    }
+
+    private String leaderboardSql(LocalDateTime from, LocalDateTime to, List<Long> documentIds, String rankBy) {
+        analyticsService.getLeaderboard(from, to, documentIds, rankBy, 10);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(PreparedStatementSetter.class), any(RowMapper.class));
+        return sql.getValue();
+    }
+
+    @Test
+    void testDayAlignedLeaderboardReadsDailyRollup() {
+        String sql = leaderboardSql(LocalDateTime.of(2026, 3, 2, 0, 0), LocalDateTime.of(2026, 3, 9, 0, 0),
+                List.of(1L, 2L), "active");
+
+        assertTrue(sql.contains("FROM contribution_rollups_daily "), sql);
+        assertTrue(sql.contains("document_id = ANY (?)"), sql);
+        assertTrue(sql.contains("ORDER BY SUM(active_ms) DESC"), sql);
+    }
+
+    @Test
+    void testPartialDayLeaderboardReadsHourlyRollup() {
+        String sql = leaderboardSql(LocalDateTime.of(2026, 3, 2, 9, 0), LocalDateTime.of(2026, 3, 2, 17, 0),
+                null, "edits");
+
+        assertTrue(sql.contains("FROM contribution_rollups_hourly "), sql);
+        assertFalse(sql.contains("ANY"), sql);
+    }
+
+    @Test
+    void testInvalidArgumentsAreRejected() {
+        LocalDateTime now = LocalDateTime.of(2026, 3, 2, 0, 0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> analyticsService.getLeaderboard(null, null, null, "DROP TABLE users", 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> analyticsService.getDocumentTrend(1L, "week", null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> analyticsService.getActivityHeatmap(1L, null, now, now.minusDays(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> analyticsService.getActivityHeatmap(null, null, null, null));
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
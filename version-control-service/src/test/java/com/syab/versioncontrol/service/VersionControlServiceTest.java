@@ -1,25 +1,40 @@
 package com.syab.versioncontrol.service;
 
+import com.syab.versioncontrol.contribution.ContributionCounters;
+import com.syab.versioncontrol.diff.VersionDiffer;
 import com.syab.versioncontrol.dto.DocumentVersionDTO;
+import com.syab.versioncontrol.dto.DiffHunkDTO;
+import com.syab.versioncontrol.dto.DiffSegmentDTO;
 import com.syab.versioncontrol.dto.UserContributionDTO;
+import com.syab.versioncontrol.dto.VersionDiffDTO;
+import com.syab.versioncontrol.dto.VersionPageDTO;
 import com.syab.versioncontrol.model.DocumentVersion;
 import com.syab.versioncontrol.model.UserContribution;
+import com.syab.versioncontrol.repository.ContentBlobRepository;
+import com.syab.versioncontrol.repository.DocumentVersionCounterRepository;
 import com.syab.versioncontrol.repository.DocumentVersionRepository;
 import com.syab.versioncontrol.repository.UserContributionRepository;
+import com.syab.versioncontrol.repository.VersionSummary;
+import com.syab.versioncontrol.storage.BlobStore;
+import com.syab.versioncontrol.storage.VersionStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,7 +45,20 @@ class VersionControlServiceTest {
     @Mock
     private UserContributionRepository contributionRepository;
 
-    @InjectMocks
+    @Mock
+    private ContentBlobRepository blobRepository;
+
+    @Mock
+    private DocumentVersionCounterRepository counterRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ContributionCounters contributionCounters;
+
     private VersionControlService versionControlService;
 
     private DocumentVersion version;
@@ -38,22 +66,28 @@ class VersionControlServiceTest {
 
     @BeforeEach
     void setUp() {
-        version = new DocumentVersion(1L, 1L, 1, "Content v1", 1L, LocalDateTime.now(), "Initial version");
-        contribution = new UserContribution(1L, 1L, 1L, 5, LocalDateTime.now());
+        VersionStore versionStore = new VersionStore(versionRepository, new BlobStore(blobRepository), 4, 1 << 20);
+        contributionCounters = new ContributionCounters(jdbcTemplate, transactionManager, 300_000);
+        versionControlService = new VersionControlService(versionRepository, contributionRepository, counterRepository,
+                versionStore, new VersionDiffer(versionStore, 1 << 20), contributionCounters);
+        version = new DocumentVersion(1L, 1L, 1, "Content v1", 1L, LocalDateTime.now(), "Initial version", null, null);
+        contribution = new UserContribution(1L, 1L, 1L, 5, 40L, 300L, 20L, 60_000L, LocalDateTime.now());
     }
 
     @Test
     void testCreateVersionSuccess() {
-        when(versionRepository.findByDocumentIdOrderByVersionNumberDesc(1L)).thenReturn(Arrays.asList());
+        when(counterRepository.next(1L)).thenReturn(1);
         when(versionRepository.save(any(DocumentVersion.class))).thenReturn(version);
-        when(contributionRepository.findByDocumentIdAndUserId(1L, 1L)).thenReturn(Optional.empty());
-        when(contributionRepository.save(any(UserContribution.class))).thenReturn(contribution);
 
         DocumentVersionDTO result = versionControlService.createVersion(1L, "Content v1", 1L, "Initial version");
 
         assertNotNull(result);
         assertEquals(1, result.getVersionNumber());
         verify(versionRepository, times(1)).save(any(DocumentVersion.class));
+        verify(blobRepository).insertOrReference(BlobStore.hash("Content v1"), "Content v1");
+        // counted in memory and written by the next flush
+        assertEquals(1, contributionCounters.pending(1L).get(1L).versions());
+        verifyNoInteractions(contributionRepository, jdbcTemplate);
     }
 
     @Test
@@ -87,15 +121,150 @@ class VersionControlServiceTest {
         assertEquals(5, result.get(0).getChangesCount());
     }
 
+    @Test
+    void testGetUserContributionsAddsUnflushedCounts() {
+        when(contributionRepository.findByDocumentId(1L)).thenReturn(List.of(contribution));
+        LocalDateTime now = LocalDateTime.now();
+        contributionCounters.recordEdits(1L, 1L, 3, 12, 2, now.minusSeconds(5), now);
+        contributionCounters.recordVersion(1L, 2L);
+
+        List<UserContributionDTO> result = versionControlService.getUserContributions(1L);
+
+        assertEquals(2, result.size());
+        UserContributionDTO first = result.get(0);
+        assertEquals(5, first.getChangesCount());
+        assertEquals(43L, first.getEdits());
+        assertEquals(312L, first.getCharsInserted());
+        assertEquals(22L, first.getCharsDeleted());
+        assertEquals(65_000L, first.getActiveMs());
+        UserContributionDTO second = result.get(1);
+        assertEquals(2L, second.getUserId());
+        assertEquals(1, second.getChangesCount());
+        assertNull(second.getId());
+    }
+
     @Test
     void testGetDocumentVersionHistorySuccess() {
         List<DocumentVersion> versions = Arrays.asList(version);
         
-        when(versionRepository.findByDocumentIdOrderByVersionNumberDesc(1L)).thenReturn(versions);
+        when(versionRepository.findByDocumentIdOrderByVersionNumberAsc(1L)).thenReturn(versions);
 
         List<DocumentVersionDTO> result = versionControlService.getDocumentVersionHistory(1L);
 
         assertNotNull(result);
         assertEquals(1, result.size());
     }
+
+    @Test
+    void testGetVersionTimelinePagesByVersionNumber() {
+        List<VersionSummary> rows = IntStream.of(9, 8, 7)
+                .mapToObj(n -> (VersionSummary) new Summary((long) n, n, 1L, LocalDateTime.now(), null))
+                .toList();
+        when(versionRepository.findByDocumentIdAndVersionNumberLessThanOrderByVersionNumberDesc(1L, 10, Limit.of(3)))
+                .thenReturn(rows);
+
+        VersionPageDTO page = versionControlService.getVersionTimeline(1L, 10, 2);
+
+        assertEquals(2, page.getVersions().size());
+        assertEquals(9, page.getVersions().get(0).getVersionNumber());
+        assertEquals(8, page.getNextCursor());
+    }
+
+    @Test
+    void testGetVersionTimelineLastPageHasNoCursor() {
+        when(versionRepository.findByDocumentIdAndVersionNumberLessThanOrderByVersionNumberDesc(1L, Integer.MAX_VALUE, Limit.of(51)))
+                .thenReturn(List.of(new Summary(1L, 1, 1L, LocalDateTime.now(), "Initial version")));
+
+        VersionPageDTO page = versionControlService.getVersionTimeline(1L, null, 50);
+
+        assertEquals(1, page.getVersions().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetVersionDiffReturnsChangedLinesWithContext() {
+        when(versionRepository.findByDocumentIdAndVersionNumber(1L, 1)).thenReturn(Optional.of(
+                new DocumentVersion(1L, 1L, 1, "a\nb\nc\nd\n", 1L, LocalDateTime.now(), null, null, null)));
+        when(versionRepository.findByDocumentIdAndVersionNumber(1L, 2)).thenReturn(Optional.of(
+                new DocumentVersion(2L, 1L, 2, "a\nB\nc\nd\n", 1L, LocalDateTime.now(), null, null, null)));
+
+        VersionDiffDTO diff = versionControlService.getVersionDiff(1L, 1, 2, "line", 1);
+
+        assertEquals(1, diff.getHunks().size());
+        DiffHunkDTO hunk = diff.getHunks().get(0);
+        assertEquals(1, hunk.getOldStart());
+        assertEquals(3, hunk.getOldCount());
+        assertEquals(3, hunk.getNewCount());
+        assertEquals(List.of(new DiffSegmentDTO("equal", "a\n"), new DiffSegmentDTO("delete", "b\n"),
+                new DiffSegmentDTO("insert", "B\n"), new DiffSegmentDTO("equal", "c\n")), hunk.getSegments());
+    }
+
+    private record Summary(Long getId, Integer getVersionNumber, Long getCreatedBy, LocalDateTime getCreatedAt,
+                           String getDescription) implements VersionSummary {
+    }
+
+    @Test
+    void testCreateVersionStoresDeltaAgainstPreviousVersion() {
+        String base = "a".repeat(1000);
+        DocumentVersion v2 = new DocumentVersion(2L, 1L, 2, null, 1L, LocalDateTime.now(), null, null, null);
+        when(counterRepository.next(1L)).thenReturn(2);
+        when(versionRepository.findByDocumentIdAndVersionNumber(1L, 1))
+                .thenReturn(Optional.of(new DocumentVersion(1L, 1L, 1, base, 1L, LocalDateTime.now(), null, null, null)));
+        when(versionRepository.save(any(DocumentVersion.class))).thenAnswer(invocation -> {
+            DocumentVersion saved = invocation.getArgument(0);
+            v2.setDelta(saved.getDelta());
+            return v2;
+        });
+
+        DocumentVersionDTO result = versionControlService.createVersion(1L, base + "!", 1L, null);
+
+        assertEquals(base + "!", result.getContent());
+        assertNull(v2.getContent());
+        assertEquals("1000,0,!", v2.getDelta());
+    }
+
+    @Test
+    void testCreateVersionWithUnchangedContentWritesNoBody() {
+        DocumentVersion latest = new DocumentVersion(1L, 1L, 1, null, 1L, LocalDateTime.now(), null, null,
+                BlobStore.hash("Content v1"));
+        when(counterRepository.next(1L)).thenReturn(2);
+        when(versionRepository.findByDocumentIdAndVersionNumber(1L, 1)).thenReturn(Optional.of(latest));
+        when(versionRepository.save(any(DocumentVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        versionControlService.createVersion(1L, "Content v1", 2L, "snapshot");
+
+        verify(versionRepository).save(argThat(v -> "10,0,".equals(v.getDelta()) && v.getContent() == null));
+        verifyNoInteractions(blobRepository);
+    }
+
+    @Test
+    void testCreateVersionReferencesExistingBlob() {
+        String template = "shared template body";
+        when(counterRepository.next(2L)).thenReturn(2);
+        when(versionRepository.findByDocumentIdAndVersionNumber(2L, 1)).thenReturn(Optional.of(
+                new DocumentVersion(5L, 2L, 1, null, 1L, LocalDateTime.now(), null, null, BlobStore.hash("draft"))));
+        when(blobRepository.addReference(BlobStore.hash(template))).thenReturn(1);
+        when(versionRepository.save(any(DocumentVersion.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        versionControlService.createVersion(2L, template, 1L, null);
+
+        verify(versionRepository).save(argThat(v -> v.getDelta() == null && v.getContent() == null
+                && BlobStore.hash(template).equals(v.getContentHash())));
+        verify(blobRepository, never()).insertOrReference(any(), any());
+    }
+
+    @Test
+    void testRevertRebuildsVersionFromKeyframe() {
+        List<DocumentVersion> chain = List.of(
+                new DocumentVersion(11L, 1L, 5, "hello", 1L, LocalDateTime.now(), null, null, null),
+                new DocumentVersion(12L, 1L, 6, null, 1L, LocalDateTime.now(), null, "5,0, world", null),
+                new DocumentVersion(13L, 1L, 7, null, 2L, LocalDateTime.now(), null, "0,6,HELLO", null));
+        when(versionRepository.findByDocumentIdAndVersionNumber(1L, 7)).thenReturn(Optional.of(chain.get(2)));
+        when(versionRepository.findByDocumentIdAndVersionNumberBetweenOrderByVersionNumberAsc(1L, 5, 7)).thenReturn(chain);
+
+        assertEquals("HELLO world", versionControlService.revertToVersion(1L, 7).getContent());
+        // served from the version cache the second time
+        assertEquals("HELLO world", versionControlService.revertToVersion(1L, 7).getContent());
+        verify(versionRepository, times(1)).findByDocumentIdAndVersionNumberBetweenOrderByVersionNumberAsc(1L, 5, 7);
+    }
 }
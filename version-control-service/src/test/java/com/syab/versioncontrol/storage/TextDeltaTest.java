@@ -0,0 +1,57 @@
+package com.syab.versioncontrol.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextDeltaTest {
+    private static void assertRoundTrip(String base, String target) {
+        assertEquals(target, TextDelta.apply(base, TextDelta.encode(base, target)));
+    }
+
+    @Test
+    void testRoundTrip() {
+        assertRoundTrip("", "");
+        assertRoundTrip("", "new");
+        assertRoundTrip("old", "");
+        assertRoundTrip("same", "same");
+        assertRoundTrip("the quick fox", "the quick brown fox");
+        assertRoundTrip("aaaa", "aa");
+        assertRoundTrip("abab", "ab,ab");
+        assertRoundTrip("x😀y", "x😁y");
+    }
+
+    @Test
+    void testDeltaKeepsSurrogatePairsWholeThroughUtf8() {
+        // the delta is stored as text; a split pair would come back from UTF-8 as '?'
+        String[][] cases = {{"a😀b", "a😃b"}, {"😀", "😃"}, {"a😀", "a😃"}, {"😀b", "😃b"}, {"a😀😀b", "a😀😃b"}};
+        for (String[] edit : cases) {
+            String delta = TextDelta.encode(edit[0], edit[1]);
+            String stored = new String(delta.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+            assertEquals(delta, stored);
+            assertEquals(edit[1], TextDelta.apply(edit[0], stored));
+        }
+    }
+
+    @Test
+    void testDeltaHoldsOnlyTheEdit() {
+        String base = "line\n".repeat(200);
+        String delta = TextDelta.encode(base, base.replaceFirst("line", "LINE"));
+        assertTrue(delta.length() < 20, delta);
+    }
+
+    @Test
+    void testDistanceCountsTheLargerSideOfTheEdit() {
+        assertEquals(0, TextDelta.distance("same", "same"));
+        assertEquals(6, TextDelta.distance("the quick fox", "the quick brown fox"));
+        assertEquals(5, TextDelta.distance("hello", ""));
+        assertEquals(3, TextDelta.distance("abcdef", "abXYZf"));
+    }
+
+    @Test
+    void testRejectsDeltaForAnotherBase() {
+        assertThrows(IllegalArgumentException.class, () -> TextDelta.apply("ab", "2,1,x"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.syab.versioncontrol.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syab.versioncontrol.dto.ImportResultDTO;
+import com.syab.versioncontrol.model.DocumentVersion;
+import com.syab.versioncontrol.repository.DocumentVersionRepository;
+import com.syab.versioncontrol.storage.BlobStore;
+import com.syab.versioncontrol.storage.VersionStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryImporterTest {
+    private static final String HEADER = "{\"type\":\"header\",\"format\":\"version-control-history\",\"version\":1}\n";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private DocumentVersionRepository versionRepository;
+
+    @Mock
+    private VersionStore versionStore;
+
+    private HistoryImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        importer = new HistoryImporter(new ObjectMapper(), jdbcTemplate, transactionManager, versionRepository, versionStore, 2);
+    }
+
+    private static InputStream gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    @Test
+    void testExistingVersionsAreSkippedAndNextIsEncodedAgainstThem() throws IOException {
+        DocumentVersion existing = new DocumentVersion(10L, 1L, 1, null, 7L, null, null, null, BlobStore.hash("hello"));
+        when(versionRepository.findByDocumentIdAndVersionNumber(1L, 1)).thenReturn(Optional.of(existing));
+        when(versionRepository.findByDocumentIdAndVersionNumber(1L, 2)).thenReturn(Optional.empty());
+        when(jdbcTemplate.queryForObject(startsWith("INSERT INTO document_versions"), eq(Long.class), any(Object[].class)))
+                .thenReturn(11L);
+        lenient().when(jdbcTemplate.update(startsWith("INSERT INTO user_contributions"), any(Object[].class))).thenReturn(0);
+
+        ImportResultDTO result = importer.importHistory(gzip(HEADER
+                + "{\"type\":\"version\",\"documentId\":1,\"versionNumber\":1,\"createdBy\":7,"
+                + "\"createdAt\":\"2026-03-01T10:00:00\",\"content\":\"hello\"}\n"
+                + "{\"type\":\"version\",\"documentId\":1,\"versionNumber\":2,\"createdBy\":7,"
+                + "\"createdAt\":\"2026-03-01T11:00:00\",\"content\":\"hello world\"}\n"
+                + "\n"
+                + "{\"type\":\"contribution\",\"documentId\":1,\"userId\":7,\"changesCount\":2,\"edits\":5,"
+                + "\"lastEditedAt\":\"2026-03-01T11:00:00\"}\n"));
+
+        assertEquals(new ImportResultDTO(0, 1, 1, 0, 1), result);
+        verify(versionStore).encode(argThat(v -> v.getVersionNumber() == 2), eq("hello world"), same(existing));
+        verify(versionStore).saved(argThat(v -> v.getId() == 11L), eq("hello world"));
+        verify(jdbcTemplate).update(startsWith("INSERT INTO document_version_counters"), eq(1L), eq(2));
+        verify(jdbcTemplate, never()).update(contains("contribution_rollups"), any(Object[].class));
+        // two records per batch
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void testDocumentWithAnotherHistoryUnderItsIdIsSkipped() throws IOException {
+        DocumentVersion other = new DocumentVersion(10L, 1L, 1, null, 8L, null, null, null, BlobStore.hash("something else"));
+        when(versionRepository.findByDocumentIdAndVersionNumber(1L, 1)).thenReturn(Optional.of(other));
+        when(versionRepository.findByDocumentIdAndVersionNumber(1L, 2)).thenReturn(Optional.empty());
+        when(versionRepository.existsByDocumentId(2L)).thenReturn(true);
+
+        ImportResultDTO result = importer.importHistory(gzip(HEADER
+                + "{\"type\":\"version\",\"documentId\":1,\"versionNumber\":1,\"createdBy\":7,\"content\":\"hello\"}\n"
+                + "{\"type\":\"version\",\"documentId\":1,\"versionNumber\":2,\"createdBy\":7,\"content\":\"hello world\"}\n"
+                + "{\"type\":\"contribution\",\"documentId\":1,\"userId\":7,\"changesCount\":2}\n"
+                + "{\"type\":\"contribution\",\"documentId\":2,\"userId\":7,\"changesCount\":1}\n"));
+
+        assertEquals(new ImportResultDTO(2, 0, 2, 0, 2), result);
+        verifyNoInteractions(versionStore, jdbcTemplate);
+    }
+
+    @Test
+    void testOtherInputIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> importer.importHistory(new ByteArrayInputStream("{\"type\":\"version\"}\n".getBytes(StandardCharsets.UTF_8))));
+        assertThrows(IllegalArgumentException.class,
+                () -> importer.importHistory(new ByteArrayInputStream((HEADER + "{\"type\":\"blob\"}\n").getBytes(StandardCharsets.UTF_8))));
+        verifyNoInteractions(jdbcTemplate, versionStore);
+    }
+}